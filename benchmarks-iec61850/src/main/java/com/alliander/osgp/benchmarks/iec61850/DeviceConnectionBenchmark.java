@@ -0,0 +1,77 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.benchmarks.iec61850;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmuc.openiec61850.Fc;
+import org.openmuc.openiec61850.SclParseException;
+
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.NodeNotFoundException;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850Connection;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.DataAttribute;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.DeviceConnection;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.IED;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.LogicalDevice;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.LogicalNode;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.NodeContainer;
+
+/**
+ * Resolving nodes of the Pampus model with
+ * {@link DeviceConnection#getFcModelNode}, which builds an ObjectReference and
+ * searches the ServerModel for every read or write of an RTU command.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DeviceConnectionBenchmark {
+
+    private static final String DEVICE_IDENTIFICATION = "BENCHMARK-RTU";
+    private static final String ORGANISATION_IDENTIFICATION = "benchmark";
+
+    private DeviceConnection deviceConnection;
+
+    @Setup
+    public void setUp() throws IOException, SclParseException {
+        final Iec61850Connection connection = new Iec61850Connection(null, SclFiles.parse(SclFiles.PAMPUS));
+        this.deviceConnection = new DeviceConnection(connection, DEVICE_IDENTIFICATION, ORGANISATION_IDENTIFICATION,
+                IED.ZOWN_RTU.getDescription());
+    }
+
+    @Benchmark
+    public NodeContainer getRtuBehaviour() throws NodeNotFoundException {
+        return this.deviceConnection.getFcModelNode(LogicalDevice.RTU, 1, LogicalNode.LOGICAL_NODE_ZERO,
+                DataAttribute.BEHAVIOR, Fc.ST);
+    }
+
+    @Benchmark
+    public NodeContainer getPvActualPower() throws NodeNotFoundException {
+        return this.deviceConnection.getFcModelNode(LogicalDevice.PV, 1, LogicalNode.MEASUREMENT_ONE,
+                DataAttribute.ACTUAL_POWER, Fc.MX);
+    }
+
+    @Benchmark
+    public NodeContainer getLoadActualPower() throws NodeNotFoundException {
+        return this.deviceConnection.getFcModelNode(LogicalDevice.LOAD, 5, LogicalNode.MEASUREMENT_ONE,
+                DataAttribute.ACTUAL_POWER, Fc.MX);
+    }
+}
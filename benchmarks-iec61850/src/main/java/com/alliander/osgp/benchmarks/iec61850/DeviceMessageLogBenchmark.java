@@ -0,0 +1,66 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.benchmarks.iec61850;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmuc.openiec61850.Fc;
+
+import com.alliander.osgp.adapter.protocol.iec61850.domain.valueobjects.DeviceMessageLog;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.DataAttribute;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.IED;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.LogicalDevice;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.LogicalNode;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.SubDataAttribute;
+
+/**
+ * Creating the message of a {@link DeviceMessageLog}, which is done for every
+ * request to an SSLD, with the variables read from or written to the device.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DeviceMessageLogBenchmark {
+
+    @Param({ "5", "25", "100" })
+    private int variables;
+
+    private DeviceMessageLog deviceMessageLog;
+
+    @Setup
+    public void setUp() {
+        this.deviceMessageLog = new DeviceMessageLog(IED.FLEX_OVL, LogicalDevice.LIGHTING, "GetConfiguration");
+
+        final LogicalNode[] logicalNodes = LogicalNode.values();
+        final DataAttribute[] dataAttributes = DataAttribute.values();
+        for (int i = 0; i < this.variables; i++) {
+            this.deviceMessageLog.addVariable(logicalNodes[i % logicalNodes.length],
+                    dataAttributes[i % dataAttributes.length], Fc.CF, SubDataAttribute.CONTROL_VALUE,
+                    Integer.toString(i));
+        }
+    }
+
+    @Benchmark
+    public String getMessage() {
+        return this.deviceMessageLog.getMessage();
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.benchmarks.iec61850;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.alliander.osgp.adapter.protocol.iec61850.application.services.DeviceManagementService;
+import com.alliander.osgp.core.db.api.iec61850.application.services.SsldRelayTable;
+import com.alliander.osgp.core.db.api.iec61850.entities.DeviceOutputSetting;
+import com.alliander.osgp.dto.valueobjects.EventNotificationDto;
+import com.alliander.osgp.dto.valueobjects.microgrids.GetDataResponseDto;
+
+/**
+ * Discards the results of processing reports, instead of sending them to
+ * OSGP.
+ */
+final class DiscardingDeviceManagementService extends DeviceManagementService {
+
+    @Override
+    public SsldRelayTable getSsldRelayTable(final String deviceIdentification) {
+        return new SsldRelayTable(Collections.<DeviceOutputSetting> emptyList());
+    }
+
+    @Override
+    public void addEventNotifications(final String deviceIdentification,
+            final List<EventNotificationDto> eventNotifications) {
+        // Discard the event notifications.
+    }
+
+    @Override
+    public void sendMeasurements(final String deviceIdentification, final GetDataResponseDto response) {
+        // Discard the measurements.
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.benchmarks.iec61850;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.DataAttribute;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.LogicalNode;
+
+/**
+ * Looking up {@link DataAttribute} and {@link LogicalNode} constants by their
+ * description, which is done for every member of every RTU report and for
+ * every RTU read or write command.
+ * <p>
+ * The lookups scan all constants, so the first and the last constant show the
+ * best and worst case.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class HelperLookupBenchmark {
+
+    private String firstDataAttribute;
+    private String lastDataAttribute;
+    private String lastDataAttributeUpperCase;
+    private String firstLogicalNode;
+    private String lastLogicalNode;
+
+    @Setup
+    public void setUp() {
+        final DataAttribute[] dataAttributes = DataAttribute.values();
+        this.firstDataAttribute = dataAttributes[0].getDescription();
+        this.lastDataAttribute = dataAttributes[dataAttributes.length - 1].getDescription();
+        this.lastDataAttributeUpperCase = this.lastDataAttribute.toUpperCase();
+
+        final LogicalNode[] logicalNodes = LogicalNode.values();
+        this.firstLogicalNode = logicalNodes[0].getDescription();
+        this.lastLogicalNode = logicalNodes[logicalNodes.length - 1].getDescription();
+    }
+
+    @Benchmark
+    public DataAttribute dataAttributeFromStringFirst() {
+        return DataAttribute.fromString(this.firstDataAttribute);
+    }
+
+    @Benchmark
+    public DataAttribute dataAttributeFromStringLast() {
+        return DataAttribute.fromString(this.lastDataAttribute);
+    }
+
+    @Benchmark
+    public DataAttribute dataAttributeFromStringLastUpperCase() {
+        return DataAttribute.fromString(this.lastDataAttributeUpperCase);
+    }
+
+    @Benchmark
+    public LogicalNode logicalNodeFromStringFirst() {
+        return LogicalNode.fromString(this.firstLogicalNode);
+    }
+
+    @Benchmark
+    public LogicalNode logicalNodeFromStringLast() {
+        return LogicalNode.fromString(this.lastLogicalNode);
+    }
+}
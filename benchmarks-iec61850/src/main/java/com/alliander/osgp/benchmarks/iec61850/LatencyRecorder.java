@@ -0,0 +1,85 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.benchmarks.iec61850;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latencies of the requests handled by the
+ * {@link ThroughputHarness}, and the number of failed requests.
+ */
+final class LatencyRecorder {
+
+    private long[] latencies = new long[1024];
+    private int size;
+    private long failures;
+
+    synchronized void recordSuccess(final long latencyNanos) {
+        if (this.size == this.latencies.length) {
+            this.latencies = Arrays.copyOf(this.latencies, this.size * 2);
+        }
+        this.latencies[this.size++] = latencyNanos;
+    }
+
+    synchronized void recordFailure() {
+        this.failures++;
+    }
+
+    synchronized void reset() {
+        this.size = 0;
+        this.failures = 0;
+    }
+
+    synchronized Snapshot snapshot() {
+        final long[] sorted = Arrays.copyOf(this.latencies, this.size);
+        Arrays.sort(sorted);
+        return new Snapshot(sorted, this.failures);
+    }
+
+    static final class Snapshot {
+
+        private final long[] sortedLatencies;
+        private final long failures;
+
+        private Snapshot(final long[] sortedLatencies, final long failures) {
+            this.sortedLatencies = sortedLatencies;
+            this.failures = failures;
+        }
+
+        int getSuccesses() {
+            return this.sortedLatencies.length;
+        }
+
+        long getFailures() {
+            return this.failures;
+        }
+
+        /**
+         * @return The latency in milliseconds below which the given percentage
+         *         of the successful requests was handled, 0 if there were no
+         *         successful requests.
+         */
+        double getPercentileMillis(final double percentile) {
+            if (this.sortedLatencies.length == 0) {
+                return 0;
+            }
+            final int index = (int) Math.ceil(percentile / 100 * this.sortedLatencies.length) - 1;
+            return toMillis(this.sortedLatencies[Math.max(index, 0)]);
+        }
+
+        double getMaxMillis() {
+            return this.sortedLatencies.length == 0 ? 0
+                    : toMillis(this.sortedLatencies[this.sortedLatencies.length - 1]);
+        }
+
+        private static double toMillis(final long nanos) {
+            return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.benchmarks.iec61850;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmuc.openiec61850.BdaBoolean;
+import org.openmuc.openiec61850.BdaEntryTime;
+import org.openmuc.openiec61850.BdaInt8U;
+import org.openmuc.openiec61850.BdaReasonForInclusion;
+import org.openmuc.openiec61850.BdaTimestamp;
+import org.openmuc.openiec61850.BdaVisibleString;
+import org.openmuc.openiec61850.ConstructedDataAttribute;
+import org.openmuc.openiec61850.DataSet;
+import org.openmuc.openiec61850.Fc;
+import org.openmuc.openiec61850.FcModelNode;
+import org.openmuc.openiec61850.ObjectReference;
+import org.openmuc.openiec61850.Report;
+import org.openmuc.openiec61850.SclParseException;
+import org.openmuc.openiec61850.ServerModel;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.alliander.osgp.adapter.protocol.iec61850.application.config.BeanUtil;
+import com.alliander.osgp.adapter.protocol.iec61850.application.services.DeviceManagementService;
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ProtocolAdapterException;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.IED;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.reporting.Iec61850ClientRTUEventListener;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.reporting.Iec61850ClientSSLDEventListener;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.reporting.Iec61850EventNotificationEmitter;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.reporting.Iec61850ReportEntryTracker;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.reporting.Iec61850ReportIngestionService;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.Iec61850BatteryCommandFactory;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.Iec61850BoilerCommandFactory;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.Iec61850ChpCommandFactory;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.Iec61850CombinedLoadCommandFactory;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.Iec61850EngineCommandFactory;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.Iec61850GasFurnaceCommandFactory;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.Iec61850HeatBufferCommandFactory;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.Iec61850HeatPumpCommandFactory;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.Iec61850LoadCommandFactory;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.Iec61850PvCommandFactory;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.Iec61850RtuCommandFactory;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.Iec61850WindCommandFactory;
+import com.alliander.osgp.dto.valueobjects.EventNotificationDto;
+
+/**
+ * Handling synthetic reports by the RTU and SSLD event listeners, from the
+ * report as it is passed by the association up to the result that is sent to
+ * OSGP.
+ * <p>
+ * RTU reports contain the members of the data sets of the Pampus model. Their
+ * processing is measured without the hand-off to the worker threads of the
+ * {@link Iec61850ReportIngestionService}, and without sending the result. SSLD
+ * reports contain synthetic EvnRpn members; a new listener is created for
+ * every report, as for every association with an SSLD, and closed afterwards.
+ * Their event notifications are discarded instead of being passed to the
+ * {@link Iec61850EventNotificationEmitter}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ReportHandlingBenchmark {
+
+    private static final String DEVICE_IDENTIFICATION = "BENCHMARK-DEVICE";
+    private static final String SSLD_DATA_SET_REF = IED.FLEX_OVL.getDescription() + "IO/LLN0$EvnRpn";
+    private static final String SSLD_EVENT_PREFIX = IED.FLEX_OVL.getDescription() + "IO/CSLC.EvnRpn";
+    private static final int REPORT_ENTRY_INTERVAL = 60000;
+
+    @State(Scope.Benchmark)
+    public static class RtuState {
+
+        @Param({ "RTU1/LLN0$Status", "PV1/LLN0$Measurements", "LOAD1/LLN0$Measurements" })
+        private String dataSet;
+
+        private AnnotationConfigApplicationContext context;
+        private Iec61850ClientRTUEventListener eventListener;
+        private Report report;
+
+        @Setup
+        public void setUp() throws IOException, SclParseException, ProtocolAdapterException {
+            // The RTU report handlers get their command factory from the
+            // application context.
+            this.context = new AnnotationConfigApplicationContext(BeanUtil.class, Iec61850RtuCommandFactory.class,
+                    Iec61850PvCommandFactory.class, Iec61850BatteryCommandFactory.class,
+                    Iec61850EngineCommandFactory.class, Iec61850LoadCommandFactory.class,
+                    Iec61850CombinedLoadCommandFactory.class, Iec61850ChpCommandFactory.class,
+                    Iec61850HeatBufferCommandFactory.class, Iec61850GasFurnaceCommandFactory.class,
+                    Iec61850HeatPumpCommandFactory.class, Iec61850BoilerCommandFactory.class,
+                    Iec61850WindCommandFactory.class);
+
+            // The reports have no EntryID, so the tracker does not use its
+            // repository.
+            this.eventListener = new Iec61850ClientRTUEventListener(DEVICE_IDENTIFICATION,
+                    new DiscardingDeviceManagementService(), new DirectReportIngestionService(),
+                    new Iec61850ReportEntryTracker(null, REPORT_ENTRY_INTERVAL, REPORT_ENTRY_INTERVAL), false);
+            this.report = this.createReport(SclFiles.parse(SclFiles.PAMPUS));
+        }
+
+        @TearDown
+        public void tearDown() {
+            this.context.close();
+        }
+
+        private Report createReport(final ServerModel serverModel) {
+            final String dataSetRef = IED.ZOWN_RTU.getDescription() + this.dataSet;
+            for (final DataSet modelDataSet : serverModel.getDataSets()) {
+                if (dataSetRef.equals(modelDataSet.getReferenceStr().replace('.', '$'))) {
+                    return ReportHandlingBenchmark.createReport(dataSetRef, modelDataSet);
+                }
+            }
+            throw new IllegalArgumentException("No data set " + dataSetRef + " in " + SclFiles.PAMPUS);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SsldState {
+
+        @Param({ "1", "10" })
+        private int events;
+
+        private DeviceManagementService deviceManagementService;
+        private Report report;
+
+        @Setup
+        public void setUp() {
+            this.deviceManagementService = new DiscardingDeviceManagementService();
+            this.report = createReport(SSLD_DATA_SET_REF,
+                    new DataSet(SSLD_DATA_SET_REF.replace('$', '.'), createEvnRpnMembers(this.events)));
+        }
+    }
+
+    @Benchmark
+    public void rtuReport(final RtuState state) {
+        state.eventListener.newReport(state.report);
+    }
+
+    @Benchmark
+    public void ssldReport(final SsldState state) throws ProtocolAdapterException {
+        final Iec61850ClientSSLDEventListener eventListener = new Iec61850ClientSSLDEventListener(
+                DEVICE_IDENTIFICATION, state.deviceManagementService, new DiscardingEventNotificationEmitter());
+        eventListener.newReport(state.report);
+        eventListener.associationClosed(null);
+    }
+
+    private static Report createReport(final String dataSetRef, final DataSet dataSet) {
+        final BdaEntryTime timeOfEntry = new BdaEntryTime(new ObjectReference("TimeOfEntry"), null, "", false, false);
+        timeOfEntry.setValue(new byte[6]);
+        final List<BdaReasonForInclusion> reasonCodes = new ArrayList<>();
+        for (final FcModelNode member : dataSet.getMembers()) {
+            final BdaReasonForInclusion reasonCode = new BdaReasonForInclusion(member.getReference());
+            reasonCode.setDataChange(true);
+            reasonCodes.add(reasonCode);
+        }
+        return new Report(dataSetRef, null, 1, null, false, dataSetRef, false, 1L, timeOfEntry, null,
+                new byte[] { (byte) 0xFF }, reasonCodes, dataSet);
+    }
+
+    /**
+     * Creates switching events, like an SSLD reports in its EvnRpn nodes.
+     */
+    private static List<FcModelNode> createEvnRpnMembers(final int count) {
+        final List<FcModelNode> members = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            final String reference = SSLD_EVENT_PREFIX + i;
+
+            final BdaInt8U evnType = new BdaInt8U(new ObjectReference(reference + ".evnType"), Fc.ST, "", false,
+                    false);
+            // Alternating LIGHT_EVENTS_LIGHT_ON and LIGHT_EVENTS_LIGHT_OFF.
+            evnType.setValue((short) (i % 2 == 0 ? 2 : 3));
+            final BdaInt8U swNum = new BdaInt8U(new ObjectReference(reference + ".swNum"), Fc.ST, "", false, false);
+            swNum.setValue((short) 0);
+            final BdaBoolean swVal = new BdaBoolean(new ObjectReference(reference + ".swVal"), Fc.ST, "", false,
+                    false);
+            swVal.setValue(i % 2 == 0);
+            final BdaTimestamp trgTime = new BdaTimestamp(new ObjectReference(reference + ".trgTime"), Fc.ST, "",
+                    false, false);
+            trgTime.setDate(new Date(System.currentTimeMillis() - i * 1000L));
+            final BdaInt8U trgType = new BdaInt8U(new ObjectReference(reference + ".trgType"), Fc.ST, "", false,
+                    false);
+            trgType.setValue((short) 3);
+            final BdaVisibleString remark = new BdaVisibleString(new ObjectReference(reference + ".remark"), Fc.ST,
+                    "", 32, false, false);
+            remark.setValue("remark");
+
+            members.add(new ConstructedDataAttribute(new ObjectReference(reference), Fc.ST,
+                    Arrays.<FcModelNode> asList(evnType, swNum, swVal, trgTime, trgType, remark)));
+        }
+        return members;
+    }
+
+    /**
+     * Processes reports on the thread passing them, so only the processing is
+     * measured.
+     */
+    private static final class DirectReportIngestionService extends Iec61850ReportIngestionService {
+        @Override
+        public void ingest(final String deviceIdentification, final Report report, final Consumer<Report> handler) {
+            handler.accept(report);
+        }
+    }
+
+    private static final class DiscardingEventNotificationEmitter extends Iec61850EventNotificationEmitter {
+        DiscardingEventNotificationEmitter() {
+            // Nothing is sent, so there is no service to send to.
+            super(null, 1, 0);
+        }
+
+        @Override
+        public void emit(final String deviceIdentification, final EventNotificationDto eventNotification) {
+            // Discard the event notification.
+        }
+
+        @Override
+        public void flush(final String deviceIdentification) {
+            // Nothing to send.
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.benchmarks.iec61850;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.openmuc.openiec61850.SclParseException;
+import org.openmuc.openiec61850.ServerModel;
+import org.openmuc.openiec61850.ServerSap;
+
+/**
+ * Access to the SCL files of the simulator, which are packaged with the
+ * benchmarks.
+ */
+final class SclFiles {
+
+    static final String PAMPUS = "Pampus.icd";
+    static final String MARKER_WADDEN = "MarkerWadden.icd";
+    static final String SIMPLE_SUBSTATION = "Simple_substation_v0.14.icd";
+    static final String SSLD = "Ssld_schedules.icd";
+
+    private SclFiles() {
+        // Only static methods.
+    }
+
+    /**
+     * Reads the given SCL file from the class path, so parsing it is not
+     * measured together with reading it from disk.
+     */
+    static byte[] read(final String sclFile) throws IOException {
+        try (final InputStream in = SclFiles.class.getClassLoader().getResourceAsStream(sclFile)) {
+            if (in == null) {
+                throw new IOException("SCL file " + sclFile + " not found on the class path");
+            }
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    static ServerModel parse(final byte[] scl) throws SclParseException {
+        return ServerSap.getSapsFromSclFile(new ByteArrayInputStream(scl)).get(0).getModelCopy();
+    }
+
+    static ServerModel parse(final String sclFile) throws IOException, SclParseException {
+        return parse(read(sclFile));
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.benchmarks.iec61850;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmuc.openiec61850.SclParseException;
+import org.openmuc.openiec61850.ServerModel;
+
+/**
+ * Parsing the SCL files of the simulator into a {@link ServerModel}, as is done
+ * when connecting to a device without a cached model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SclParsingBenchmark {
+
+    @Param({ SclFiles.PAMPUS, SclFiles.MARKER_WADDEN, SclFiles.SIMPLE_SUBSTATION })
+    private String sclFile;
+
+    private byte[] scl;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.scl = SclFiles.read(this.sclFile);
+    }
+
+    @Benchmark
+    public ServerModel parse() throws SclParseException {
+        return SclFiles.parse(this.scl);
+    }
+
+    @Benchmark
+    public ServerModel parseAndCopy() throws SclParseException {
+        return SclFiles.parse(this.scl).copy();
+    }
+}
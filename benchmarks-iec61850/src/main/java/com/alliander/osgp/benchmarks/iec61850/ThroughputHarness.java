@@ -0,0 +1,451 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.benchmarks.iec61850;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.ObjectMessage;
+import javax.jms.Session;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.openmuc.openiec61850.ServerModel;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.alliander.osgp.adapter.protocol.iec61850.domain.entities.Iec61850Device;
+import com.alliander.osgp.adapter.protocol.iec61850.domain.repositories.Iec61850DeviceRepository;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.messaging.DeviceRequestMessageType;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.DataAttribute;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.IED;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.LogicalDevice;
+import com.alliander.osgp.core.db.api.iec61850.entities.DeviceOutputSetting;
+import com.alliander.osgp.core.db.api.iec61850.entities.Ssld;
+import com.alliander.osgp.core.db.api.iec61850.repositories.SsldDataRepository;
+import com.alliander.osgp.core.db.api.iec61850valueobjects.RelayType;
+import com.alliander.osgp.dto.valueobjects.ActionTimeTypeDto;
+import com.alliander.osgp.dto.valueobjects.LightValueDto;
+import com.alliander.osgp.dto.valueobjects.ScheduleDto;
+import com.alliander.osgp.dto.valueobjects.ScheduleMessageDataContainerDto;
+import com.alliander.osgp.dto.valueobjects.WeekDayTypeDto;
+import com.alliander.osgp.dto.valueobjects.microgrids.GetDataRequestDto;
+import com.alliander.osgp.dto.valueobjects.microgrids.MeasurementFilterDto;
+import com.alliander.osgp.dto.valueobjects.microgrids.ProfileFilterDto;
+import com.alliander.osgp.dto.valueobjects.microgrids.SystemFilterDto;
+import com.alliander.osgp.shared.infra.jms.Constants;
+import com.alliander.osgp.shared.infra.jms.ResponseMessageResultType;
+import com.alliander.osgp.simulator.protocol.iec61850.server.RtuSimulator;
+import com.alliander.osgp.simulator.protocol.iec61850.server.RtuSimulatorFarm;
+
+/**
+ * End-to-end throughput of the adapter: request messages are sent to the
+ * requests queue of the adapter at a target rate, handled by the message
+ * processors over MMS with simulated devices, and their responses are received
+ * from the responses queue.
+ * <p>
+ * The harness starts an embedded ActiveMQ broker, the application context of
+ * the adapter with its databases in memory (see
+ * {@link ThroughputHarnessConfig}) and a {@link RtuSimulatorFarm} with a
+ * simulator per device, all in this JVM. The workload is one of Microgrids get
+ * data on RTUs with the Pampus model, Distribution Automation get PQ values on
+ * RTUs with the Simple substation model, or Public Lighting set schedule on
+ * SSLDs. Requests are sent at the target rate regardless of the responses, so
+ * a rate the adapter does not keep up with shows in the latency and in the
+ * number of outstanding requests, instead of in a lower rate.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * ThroughputHarness [workload] [devices] [requests per second] [seconds] [warm-up seconds]
+ * </pre>
+ *
+ * With the defaults {@code GET_DATA 10 100 60 10}.
+ */
+public final class ThroughputHarness {
+
+    private static final String BROKER_NAME = "throughput";
+
+    private static final String BROKER_URL = "vm://" + BROKER_NAME + "?create=false";
+
+    private static final int FIRST_PORT = 62102;
+
+    private static final String IP_ADDRESS = "127.0.0.1";
+
+    private static final String ORGANISATION_IDENTIFICATION = "throughput";
+
+    private static final String DEVICE_IDENTIFICATION_PREFIX = "THROUGHPUT-";
+
+    private static final String DOMAIN_VERSION = "1.0";
+
+    /**
+     * The simulators do not generate values, the farm only schedules the tasks
+     * checking whether they should.
+     */
+    private static final long GENERATE_DATA_PERIOD = 60000;
+
+    private static final String H2_DIALECT = "org.hibernate.dialect.H2Dialect";
+
+    private static final String PROPERTY_NAME_REQUESTS_QUEUE = "jms.iec61850.requests.queue";
+    private static final String PROPERTY_NAME_RESPONSES_QUEUE = "jms.iec61850.responses.queue";
+    private static final String PROPERTY_NAME_LOG_ITEM_REQUESTS_QUEUE = "jms.iec61850.log.item.requests.queue";
+    private static final String PROPERTY_NAME_OSGP_REQUESTS_QUEUE = "jms.osgp.requests.queue";
+    private static final String PROPERTY_NAME_CONCURRENT_CONSUMERS = "jms.iec61850.requests.concurrent.consumers";
+
+    private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    enum Workload {
+        GET_DATA(SclFiles.PAMPUS, IED.ZOWN_RTU, "MICROGRIDS", DeviceRequestMessageType.GET_DATA) {
+            @Override
+            List<Serializable> requests() {
+                return Collections.<Serializable> singletonList(new GetDataRequestDto(Arrays.asList(
+                        systemFilter(LogicalDevice.RTU, DataAttribute.BEHAVIOR, DataAttribute.HEALTH),
+                        systemFilter(LogicalDevice.PV, DataAttribute.BEHAVIOR, DataAttribute.HEALTH,
+                                DataAttribute.ACTUAL_POWER),
+                        systemFilter(LogicalDevice.LOAD, DataAttribute.BEHAVIOR, DataAttribute.ACTUAL_POWER))));
+            }
+        },
+        GET_PQ_VALUES(SclFiles.SIMPLE_SUBSTATION, IED.DA_RTU, "DISTRIBUTION_AUTOMATION",
+                DeviceRequestMessageType.GET_POWER_QUALITY_VALUES) {
+            @Override
+            List<Serializable> requests() {
+                // The processor reads the PQ values of the model of the
+                // device, whatever the request.
+                return Collections.<Serializable> singletonList(null);
+            }
+        },
+        SET_SCHEDULE(SclFiles.SSLD, IED.FLEX_OVL, "PUBLIC_LIGHTING", DeviceRequestMessageType.SET_LIGHT_SCHEDULE) {
+            @Override
+            List<Serializable> requests() {
+                // Alternating schedules, so every request writes the changed
+                // schedule entries to the device.
+                return Arrays.<Serializable> asList(schedule("18:00", "06:00"), schedule("19:00", "07:00"));
+            }
+        };
+
+        private final String sclFile;
+        private final IED ied;
+        private final String domain;
+        private final DeviceRequestMessageType messageType;
+
+        Workload(final String sclFile, final IED ied, final String domain,
+                final DeviceRequestMessageType messageType) {
+            this.sclFile = sclFile;
+            this.ied = ied;
+            this.domain = domain;
+            this.messageType = messageType;
+        }
+
+        /**
+         * @return The objects of the request messages, sent to a device in
+         *         turn.
+         */
+        abstract List<Serializable> requests();
+
+        private static SystemFilterDto systemFilter(final LogicalDevice logicalDevice,
+                final DataAttribute... dataAttributes) {
+            final MeasurementFilterDto[] measurementFilters = new MeasurementFilterDto[dataAttributes.length];
+            for (int i = 0; i < dataAttributes.length; i++) {
+                measurementFilters[i] = new MeasurementFilterDto(dataAttributes[i].getDescription());
+            }
+            return new SystemFilterDto(1, logicalDevice.name(), Arrays.asList(measurementFilters),
+                    Collections.<ProfileFilterDto> emptyList(), false);
+        }
+
+        private static ScheduleMessageDataContainerDto schedule(final String onTime, final String offTime) {
+            return new ScheduleMessageDataContainerDto(
+                    Arrays.asList(scheduleEntry(onTime, true), scheduleEntry(offTime, false)));
+        }
+
+        private static ScheduleDto scheduleEntry(final String time, final boolean on) {
+            // Index 0 switches all light relays of the SSLD.
+            return new ScheduleDto(WeekDayTypeDto.ALL, null, null, ActionTimeTypeDto.ABSOLUTETIME, time, null,
+                    Collections.singletonList(new LightValueDto(0, on, null)), null);
+        }
+    }
+
+    private final Workload workload;
+    private final int devices;
+    private final int requestsPerSecond;
+    private final int seconds;
+    private final int warmUpSeconds;
+
+    private final List<Serializable> requestObjects;
+
+    private final LatencyRecorder latencyRecorder = new LatencyRecorder();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong maxHeapUsed = new AtomicLong();
+
+    /**
+     * The time a request was sent, by correlation UID, until its response is
+     * received.
+     */
+    private final Map<String, Long> sendTimes = new ConcurrentHashMap<>();
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+
+    private ThroughputHarness(final Workload workload, final int devices, final int requestsPerSecond,
+            final int seconds, final int warmUpSeconds) {
+        this.workload = workload;
+        this.devices = devices;
+        this.requestsPerSecond = requestsPerSecond;
+        this.seconds = seconds;
+        this.warmUpSeconds = warmUpSeconds;
+        this.requestObjects = workload.requests();
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final ThroughputHarness harness = new ThroughputHarness(
+                Workload.valueOf(argument(args, 0, "GET_DATA").toUpperCase(Locale.ENGLISH)),
+                Integer.parseInt(argument(args, 1, "10")), Integer.parseInt(argument(args, 2, "100")),
+                Integer.parseInt(argument(args, 3, "60")), Integer.parseInt(argument(args, 4, "10")));
+        harness.run();
+    }
+
+    private static String argument(final String[] args, final int index, final String defaultValue) {
+        return args.length > index ? args[index] : defaultValue;
+    }
+
+    private void run() throws Exception {
+        final Path icdFilesFolder = Files.createTempDirectory("throughput-icd");
+        final Path icdFile = Files.write(icdFilesFolder.resolve(this.workload.sclFile),
+                SclFiles.read(this.workload.sclFile));
+
+        final BrokerService broker = new BrokerService();
+        broker.setBrokerName(BROKER_NAME);
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.start();
+
+        final ScheduledExecutorService simulatorScheduler = Executors.newSingleThreadScheduledExecutor();
+        final RtuSimulatorFarm simulatorFarm = this.createSimulatorFarm(simulatorScheduler);
+
+        final AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        try {
+            simulatorFarm.start();
+
+            final Map<String, Object> properties = new HashMap<>();
+            properties.put("jms.activemq.broker.url", BROKER_URL);
+            properties.put("hibernate.dialect", H2_DIALECT);
+            properties.put("api.hibernate.dialect", H2_DIALECT);
+            properties.put("iec61850.connection.pool.max.size", Integer.toString(this.devices));
+            properties.put("iec61850.icd.files.folder", icdFilesFolder.toString());
+            context.getEnvironment().getPropertySources()
+                    .addFirst(new MapPropertySource("throughputHarness", properties));
+            context.register(ThroughputHarnessConfig.class);
+            context.refresh();
+
+            this.fire(context.getEnvironment(), this.addDevices(context));
+        } finally {
+            context.close();
+            simulatorFarm.stop();
+            simulatorScheduler.shutdownNow();
+            broker.stop();
+            Files.delete(icdFile);
+            Files.delete(icdFilesFolder);
+        }
+    }
+
+    private RtuSimulatorFarm createSimulatorFarm(final ScheduledExecutorService simulatorScheduler)
+            throws Exception {
+        final ServerModel serverModel = SclFiles.parse(this.workload.sclFile);
+        final RtuSimulatorFarm simulatorFarm = new RtuSimulatorFarm(simulatorScheduler, GENERATE_DATA_PERIOD);
+        for (int i = 0; i < this.devices; i++) {
+            final RtuSimulator simulator = new RtuSimulator(FIRST_PORT + i, serverModel,
+                    this.workload.ied.getDescription(), null, null, null);
+            // Generated values would be measured together with the adapter.
+            simulator.ensurePeriodicDataGenerationIsStopped();
+            simulatorFarm.add(simulator);
+        }
+        return simulatorFarm;
+    }
+
+    /**
+     * Adds a device for every simulator to the database of the adapter, and
+     * SSLDs to the OSGP core database for their output settings.
+     *
+     * @return The identifications of the devices.
+     */
+    private List<String> addDevices(final ApplicationContext context) {
+        final Iec61850DeviceRepository deviceRepository = context.getBean(Iec61850DeviceRepository.class);
+        final List<String> deviceIdentifications = new ArrayList<>(this.devices);
+        for (int i = 0; i < this.devices; i++) {
+            final String deviceIdentification = DEVICE_IDENTIFICATION_PREFIX + (i + 1);
+            final Iec61850Device device = new Iec61850Device(deviceIdentification);
+            device.setIcdFilename(this.workload.sclFile);
+            device.setPort(FIRST_PORT + i);
+            device.setServerName(this.workload.ied.getDescription());
+            deviceRepository.save(device);
+            deviceIdentifications.add(deviceIdentification);
+        }
+
+        if (IED.FLEX_OVL.equals(this.workload.ied)) {
+            // The adapter only reads the OSGP core database, its repository
+            // is not used with the transaction manager of that database.
+            final SsldDataRepository ssldDataRepository = context.getBean(SsldDataRepository.class);
+            new TransactionTemplate(
+                    context.getBean("iec61850OsgpCoreDbApiTransactionManager", PlatformTransactionManager.class))
+                            .execute(status -> {
+                                for (final String deviceIdentification : deviceIdentifications) {
+                                    final Ssld ssld = new Ssld(deviceIdentification);
+                                    ssld.updateOutputSettings(new ArrayList<>(Arrays.asList(
+                                            new DeviceOutputSetting(1, 1, RelayType.TARIFF),
+                                            new DeviceOutputSetting(2, 2, RelayType.LIGHT),
+                                            new DeviceOutputSetting(3, 3, RelayType.LIGHT),
+                                            new DeviceOutputSetting(4, 4, RelayType.LIGHT))));
+                                    ssldDataRepository.save(ssld);
+                                }
+                                return null;
+                            });
+        }
+        return deviceIdentifications;
+    }
+
+    private void fire(final Environment environment, final List<String> deviceIdentifications)
+            throws JMSException, InterruptedException {
+        final Connection connection = new ActiveMQConnectionFactory(BROKER_URL).createConnection();
+        final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        try {
+            final Session listenerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            listenerSession
+                    .createConsumer(
+                            listenerSession.createQueue(environment.getRequiredProperty(PROPERTY_NAME_RESPONSES_QUEUE)))
+                    .setMessageListener(this::handleResponse);
+            // Stand-ins for the logging and OSGP core, so the messages the
+            // adapter sends to them do not fill up the broker.
+            for (final String queue : Arrays.asList(
+                    environment.getRequiredProperty(PROPERTY_NAME_LOG_ITEM_REQUESTS_QUEUE),
+                    environment.getRequiredProperty(PROPERTY_NAME_OSGP_REQUESTS_QUEUE))) {
+                listenerSession.createConsumer(listenerSession.createQueue(queue)).setMessageListener(message -> {
+                    // Discarded.
+                });
+            }
+            connection.start();
+
+            // Only used by the task sending the requests, which does not run
+            // concurrently with itself.
+            final Session requestSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            final MessageProducer producer = requestSession
+                    .createProducer(requestSession.createQueue(environment.getRequiredProperty(PROPERTY_NAME_REQUESTS_QUEUE)));
+
+            scheduler.scheduleAtFixedRate(() -> this.send(requestSession, producer, deviceIdentifications), 0,
+                    TimeUnit.SECONDS.toNanos(1) / this.requestsPerSecond, TimeUnit.NANOSECONDS);
+            scheduler.scheduleAtFixedRate(this::sampleHeap, 0, 1, TimeUnit.SECONDS);
+
+            TimeUnit.SECONDS.sleep(this.warmUpSeconds);
+            this.latencyRecorder.reset();
+            this.maxHeapUsed.set(0);
+            this.threadMXBean.resetPeakThreadCount();
+
+            final long start = System.nanoTime();
+            TimeUnit.SECONDS.sleep(this.seconds);
+            final LatencyRecorder.Snapshot snapshot = this.latencyRecorder.snapshot();
+            final long elapsed = System.nanoTime() - start;
+
+            this.report(snapshot, elapsed, this.sendTimes.size(),
+                    environment.getRequiredProperty(PROPERTY_NAME_CONCURRENT_CONSUMERS));
+        } finally {
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            connection.close();
+        }
+    }
+
+    private void send(final Session session, final MessageProducer producer,
+            final List<String> deviceIdentifications) {
+        final long request = this.requests.getAndIncrement();
+        final String deviceIdentification = deviceIdentifications.get((int) (request % deviceIdentifications.size()));
+        final long round = request / deviceIdentifications.size();
+        final String correlationUid = "throughput-" + request;
+        try {
+            final ObjectMessage message = session
+                    .createObjectMessage(this.requestObjects.get((int) (round % this.requestObjects.size())));
+            message.setJMSCorrelationID(correlationUid);
+            message.setJMSType(this.workload.messageType.name());
+            message.setStringProperty(Constants.DOMAIN, this.workload.domain);
+            message.setStringProperty(Constants.DOMAIN_VERSION, DOMAIN_VERSION);
+            message.setStringProperty(Constants.ORGANISATION_IDENTIFICATION, ORGANISATION_IDENTIFICATION);
+            message.setStringProperty(Constants.DEVICE_IDENTIFICATION, deviceIdentification);
+            message.setStringProperty(Constants.IP_ADDRESS, IP_ADDRESS);
+            message.setBooleanProperty(Constants.IS_SCHEDULED, false);
+            message.setIntProperty(Constants.RETRY_COUNT, 0);
+            this.sendTimes.put(correlationUid, System.nanoTime());
+            producer.send(message);
+        } catch (final JMSException e) {
+            this.sendTimes.remove(correlationUid);
+            this.latencyRecorder.recordFailure();
+        }
+    }
+
+    private void handleResponse(final Message message) {
+        try {
+            final Long sendTime = this.sendTimes.remove(message.getJMSCorrelationID());
+            if (sendTime == null) {
+                return;
+            }
+            if (ResponseMessageResultType.OK.name().equals(message.getStringProperty(Constants.RESULT))) {
+                this.latencyRecorder.recordSuccess(System.nanoTime() - sendTime);
+            } else {
+                this.latencyRecorder.recordFailure();
+            }
+        } catch (final JMSException e) {
+            this.latencyRecorder.recordFailure();
+        }
+    }
+
+    private void sampleHeap() {
+        final long heapUsed = this.memoryMXBean.getHeapMemoryUsage().getUsed();
+        long currentMax = this.maxHeapUsed.get();
+        while (heapUsed > currentMax && !this.maxHeapUsed.compareAndSet(currentMax, heapUsed)) {
+            currentMax = this.maxHeapUsed.get();
+        }
+    }
+
+    private void report(final LatencyRecorder.Snapshot snapshot, final long elapsedNanos, final int outstanding,
+            final String concurrentConsumers) {
+        final double elapsedSeconds = (double) elapsedNanos / TimeUnit.SECONDS.toNanos(1);
+        System.out.printf(Locale.ENGLISH, "Workload: %s, devices: %d, target: %d requests/s, consumers: %s%n",
+                this.workload, this.devices, this.requestsPerSecond, concurrentConsumers);
+        System.out.printf(Locale.ENGLISH, "Throughput: %.1f requests/s (%d requests, %d failures, %d outstanding)%n",
+                snapshot.getSuccesses() / elapsedSeconds, snapshot.getSuccesses(), snapshot.getFailures(),
+                outstanding);
+        System.out.printf(Locale.ENGLISH, "Latency: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                snapshot.getPercentileMillis(50), snapshot.getPercentileMillis(99), snapshot.getMaxMillis());
+        System.out.printf(Locale.ENGLISH, "Threads: %d (peak %d)%n", this.threadMXBean.getThreadCount(),
+                this.threadMXBean.getPeakThreadCount());
+        System.out.printf(Locale.ENGLISH, "Heap: %d MB used (max sampled %d MB), %d MB committed%n",
+                this.memoryMXBean.getHeapMemoryUsage().getUsed() / BYTES_PER_MEGABYTE,
+                this.maxHeapUsed.get() / BYTES_PER_MEGABYTE,
+                this.memoryMXBean.getHeapMemoryUsage().getCommitted() / BYTES_PER_MEGABYTE);
+    }
+}
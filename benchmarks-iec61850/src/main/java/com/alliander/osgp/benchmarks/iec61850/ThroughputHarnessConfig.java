@@ -0,0 +1,91 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.benchmarks.iec61850;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.ComponentScan.Filter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableMBeanExport;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.jmx.support.RegistrationPolicy;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import com.alliander.osgp.adapter.protocol.iec61850.application.config.ApplicationContext;
+import com.alliander.osgp.adapter.protocol.iec61850.application.config.Iec61850Config;
+import com.alliander.osgp.adapter.protocol.iec61850.application.config.Iec61850PersistenceConfig;
+import com.alliander.osgp.adapter.protocol.iec61850.application.config.MessagingConfig;
+import com.alliander.osgp.adapter.protocol.iec61850.device.FirmwareLocation;
+import com.alliander.osgp.core.db.api.iec61850.application.config.Iec61850OsgpCoreDbApiPersistenceConfig;
+import com.alliander.osgp.shared.application.config.AbstractConfig;
+
+/**
+ * The application context of the adapter, as used by the
+ * {@link ThroughputHarness}: the same components and configuration as the
+ * {@link ApplicationContext} of the adapter, with the databases in memory.
+ * <p>
+ * The persistence configurations of the adapter are replaced by
+ * {@link ThroughputHarnessPersistenceConfig} and
+ * {@link ThroughputHarnessCoreDbApiPersistenceConfig}, the beans of the
+ * {@link ApplicationContext} are defined here. The harness sets the properties
+ * that depend on the run, like the URL of its embedded broker.
+ */
+@Configuration
+@ComponentScan(basePackages = { "com.alliander.osgp.adapter.protocol.iec61850",
+        "com.alliander.osgp.core.db.api" }, excludeFilters = @Filter(type = FilterType.ASSIGNABLE_TYPE, value = {
+                ApplicationContext.class, Iec61850PersistenceConfig.class,
+                Iec61850OsgpCoreDbApiPersistenceConfig.class }))
+@EnableTransactionManagement()
+@EnableMBeanExport(registration = RegistrationPolicy.IGNORE_EXISTING)
+@Import({ MessagingConfig.class, ThroughputHarnessPersistenceConfig.class,
+        ThroughputHarnessCoreDbApiPersistenceConfig.class, Iec61850Config.class })
+@PropertySource("classpath:osgp-adapter-protocol-iec61850.properties")
+public class ThroughputHarnessConfig extends AbstractConfig {
+
+    private static final String PROPERTY_NAME_MAX_RETRY_COUNT = "retrycount.max";
+    private static final String PROPERTY_NAME_SELFTEST_TIMEOUT = "selftest.timeout";
+
+    private static final String PROPERTY_NAME_CONNECTION_RESPONSE_TIMEOUT = "connection.response.timeout";
+
+    private static final String PROPERTY_NAME_FIRMWARE_PROTOCOL = "firmware.protocol";
+    private static final String PROPERTY_NAME_FIRMWARE_DOMAIN = "firmware.domain";
+    private static final String PROPERTY_NAME_FIRMWARE_PORT = "firmware.port";
+    private static final String PROPERTY_NAME_FIRMWARE_PATH = "firmware.path";
+
+    private static final String PROPERTY_NAME_USE_COMBINED_LOAD = "use.combined.load";
+
+    @Bean
+    public int maxRetryCount() {
+        return Integer.parseInt(this.environment.getRequiredProperty(PROPERTY_NAME_MAX_RETRY_COUNT));
+    }
+
+    @Bean
+    public int responseTimeout() {
+        return Integer.parseInt(this.environment.getRequiredProperty(PROPERTY_NAME_CONNECTION_RESPONSE_TIMEOUT));
+    }
+
+    @Bean
+    public int selftestTimeout() {
+        return Integer.parseInt(this.environment.getRequiredProperty(PROPERTY_NAME_SELFTEST_TIMEOUT));
+    }
+
+    @Bean
+    public FirmwareLocation firmwareLocation() {
+        return new FirmwareLocation(this.environment.getProperty(PROPERTY_NAME_FIRMWARE_PROTOCOL),
+                this.environment.getProperty(PROPERTY_NAME_FIRMWARE_DOMAIN),
+                Integer.parseInt(this.environment.getRequiredProperty(PROPERTY_NAME_FIRMWARE_PORT)),
+                this.environment.getProperty(PROPERTY_NAME_FIRMWARE_PATH));
+    }
+
+    @Bean
+    public Boolean defaultUseCombinedLoad() {
+        return Boolean.parseBoolean(this.environment.getProperty(PROPERTY_NAME_USE_COMBINED_LOAD));
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.benchmarks.iec61850;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+
+import com.alliander.osgp.core.db.api.iec61850.application.config.Iec61850OsgpCoreDbApiPersistenceConfig;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * The configuration of the access to the OSGP core database, with the
+ * database in memory for the {@link ThroughputHarness}.
+ * <p>
+ * The adapter only reads the SSLDs and their output settings from the OSGP
+ * core database, the tables are created from its entities.
+ */
+@Configuration
+public class ThroughputHarnessCoreDbApiPersistenceConfig extends Iec61850OsgpCoreDbApiPersistenceConfig {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:osgp_core;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+    private static final String PROPERTY_NAME_DATABASE_MAX_POOL_SIZE = "db.max_pool_size";
+
+    private static final String HIBERNATE_HBM2DDL_AUTO_KEY = "hibernate.hbm2ddl.auto";
+
+    private HikariDataSource h2DataSource;
+
+    @Override
+    public DataSource getOsgpCoreDbApiDataSource() {
+        if (this.h2DataSource == null) {
+            final HikariConfig hikariConfig = new HikariConfig();
+            hikariConfig.setJdbcUrl(JDBC_URL);
+            hikariConfig.setUsername("sa");
+            hikariConfig.setMaximumPoolSize(
+                    Integer.parseInt(ENVIRONMENT.getRequiredProperty(PROPERTY_NAME_DATABASE_MAX_POOL_SIZE)));
+            this.h2DataSource = new HikariDataSource(hikariConfig);
+        }
+        return this.h2DataSource;
+    }
+
+    @Override
+    @Bean
+    public LocalContainerEntityManagerFactoryBean iec61850OsgpCoreDbApiEntityManagerFactory()
+            throws ClassNotFoundException {
+        final LocalContainerEntityManagerFactoryBean entityManagerFactoryBean = super
+                .iec61850OsgpCoreDbApiEntityManagerFactory();
+        entityManagerFactoryBean.getJpaPropertyMap().put(HIBERNATE_HBM2DDL_AUTO_KEY, "create");
+        return entityManagerFactoryBean;
+    }
+
+    @Override
+    @PreDestroy
+    public void destroyDataSource() {
+        if (this.h2DataSource != null) {
+            this.h2DataSource.close();
+        }
+    }
+}
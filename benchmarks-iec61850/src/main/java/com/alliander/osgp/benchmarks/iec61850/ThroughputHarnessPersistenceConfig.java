@@ -0,0 +1,72 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.benchmarks.iec61850;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.alliander.osgp.adapter.protocol.iec61850.application.config.Iec61850PersistenceConfig;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * The persistence configuration of the adapter, with the database of the
+ * adapter in memory for the {@link ThroughputHarness}.
+ * <p>
+ * The migrations of the adapter are PostgreSQL specific, the tables are
+ * created by the migrations in {@code db/throughput} instead, which result in
+ * the same tables in H2.
+ */
+@Configuration
+public class ThroughputHarnessPersistenceConfig extends Iec61850PersistenceConfig {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:osgp_adapter_protocol_iec61850;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+    private static final String MIGRATIONS_LOCATION = "classpath:db/throughput";
+
+    private static final String PROPERTY_NAME_DATABASE_MAX_POOL_SIZE = "db.max_pool_size";
+    private static final String PROPERTY_NAME_DATABASE_AUTO_COMMIT = "db.auto_commit";
+
+    private HikariDataSource h2DataSource;
+
+    @Override
+    public DataSource iec61850DataSource() {
+        if (this.h2DataSource == null) {
+            final HikariConfig hikariConfig = new HikariConfig();
+            hikariConfig.setJdbcUrl(JDBC_URL);
+            hikariConfig.setUsername("sa");
+            hikariConfig.setMaximumPoolSize(
+                    Integer.parseInt(this.environment.getRequiredProperty(PROPERTY_NAME_DATABASE_MAX_POOL_SIZE)));
+            hikariConfig.setAutoCommit(
+                    Boolean.parseBoolean(this.environment.getRequiredProperty(PROPERTY_NAME_DATABASE_AUTO_COMMIT)));
+            this.h2DataSource = new HikariDataSource(hikariConfig);
+        }
+        return this.h2DataSource;
+    }
+
+    @Override
+    @Bean(initMethod = "migrate")
+    public Flyway iec61850Flyway() {
+        final Flyway flyway = new Flyway();
+        flyway.setLocations(MIGRATIONS_LOCATION);
+        flyway.setDataSource(this.iec61850DataSource());
+        return flyway;
+    }
+
+    @Override
+    @PreDestroy
+    public void destroyDataSource() {
+        if (this.h2DataSource != null) {
+            this.h2DataSource.close();
+        }
+    }
+}
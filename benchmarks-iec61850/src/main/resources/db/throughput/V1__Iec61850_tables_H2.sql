@@ -0,0 +1,81 @@
+-- The tables of the adapter after all migrations in db/migration, for the
+-- H2 database of the throughput harness. The migrations of the adapter are
+-- PostgreSQL DO blocks, which H2 does not support.
+
+CREATE TABLE iec61850_device (
+  id bigint AUTO_INCREMENT NOT NULL,
+  creation_time timestamp NOT NULL,
+  modification_time timestamp NOT NULL,
+  version bigint,
+  device_identification character varying(40) NOT NULL,
+  icd_filename character varying(255),
+  port integer,
+  server_name character varying(25),
+  enable_all_reports_on_connect boolean DEFAULT FALSE NOT NULL,
+  use_combined_load boolean DEFAULT FALSE NOT NULL,
+  CONSTRAINT iec61850_device_pkey PRIMARY KEY (id),
+  CONSTRAINT iec61850_device_device_identification_key UNIQUE (device_identification)
+);
+
+CREATE TABLE iec61850_report (
+  id bigint AUTO_INCREMENT NOT NULL,
+  creation_time timestamp NOT NULL,
+  modification_time timestamp NOT NULL,
+  version bigint,
+  logical_device character varying(255) NOT NULL,
+  logical_node character varying(255) NOT NULL,
+  name character varying(255) NOT NULL,
+  CONSTRAINT iec61850_report_pkey PRIMARY KEY (id),
+  CONSTRAINT iec61850_report_ukey_name UNIQUE (name)
+);
+
+CREATE TABLE iec61850_report_group (
+  id bigint AUTO_INCREMENT NOT NULL,
+  creation_time timestamp NOT NULL,
+  modification_time timestamp NOT NULL,
+  version bigint,
+  name character varying(255) NOT NULL,
+  CONSTRAINT iec61850_report_group_pkey PRIMARY KEY (id),
+  CONSTRAINT iec61850_report_group_ukey_name UNIQUE (name)
+);
+
+CREATE TABLE iec61850_report_report_group (
+  id bigint AUTO_INCREMENT NOT NULL,
+  creation_time timestamp NOT NULL,
+  modification_time timestamp NOT NULL,
+  version bigint,
+  report_id bigint NOT NULL,
+  report_group_id bigint NOT NULL,
+  CONSTRAINT iec61850_report_report_group_pkey PRIMARY KEY (id),
+  CONSTRAINT iec61850_report_report_group_ukey UNIQUE (report_id, report_group_id)
+);
+
+CREATE TABLE iec61850_device_report_group (
+  id bigint AUTO_INCREMENT NOT NULL,
+  creation_time timestamp NOT NULL,
+  modification_time timestamp NOT NULL,
+  version bigint,
+  device_identification character varying(40) NOT NULL,
+  report_group_id bigint NOT NULL,
+  enabled boolean NOT NULL,
+  report_data_set character varying(255) NOT NULL,
+  domain character varying(255) NOT NULL,
+  domain_version character varying(255) NOT NULL,
+  CONSTRAINT iec61850_device_report_group_pkey PRIMARY KEY (id),
+  CONSTRAINT iec61850_device_report_group_ukey UNIQUE (device_identification, report_group_id),
+  CONSTRAINT iec61850_device_report_group_fkey_report_group FOREIGN KEY (report_group_id)
+    REFERENCES iec61850_report_group (id)
+);
+
+CREATE TABLE iec61850_report_entry (
+  id bigint AUTO_INCREMENT NOT NULL,
+  creation_time timestamp NOT NULL,
+  modification_time timestamp NOT NULL,
+  version bigint,
+  device_identification character varying(40) NOT NULL,
+  report_id character varying(255) NOT NULL,
+  entry_id bytea NOT NULL,
+  sq_num integer,
+  CONSTRAINT iec61850_report_entry_pkey PRIMARY KEY (id),
+  CONSTRAINT iec61850_report_entry_ukey UNIQUE (device_identification, report_id)
+);
@@ -62,6 +62,9 @@ public class Iec61850OsgpCoreDbApiPersistenceConfig extends AbstractCustomConfig
 
     private static final String PROPERTY_NAME_ENTITYMANAGER_PACKAGES_TO_SCAN = "api.entitymanager.packages.to.scan.iec61850";
 
+    private static final String PROPERTY_NAME_SSLD_DATA_CACHE_MAX_SIZE = "api.ssld.data.cache.max.size.iec61850";
+    private static final String PROPERTY_NAME_SSLD_DATA_CACHE_TIME_TO_LIVE = "api.ssld.data.cache.time.to.live.iec61850";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(Iec61850OsgpCoreDbApiPersistenceConfig.class);
 
     private HikariDataSource dataSource;
@@ -172,6 +175,28 @@ public class Iec61850OsgpCoreDbApiPersistenceConfig extends AbstractCustomConfig
         return entityManagerFactoryBean;
     }
 
+    /**
+     * The maximum number of SSLDs cached by the SsldDataService.
+     */
+    @Bean
+    public int ssldDataCacheMaxSize() {
+        final int maxSize = Integer.parseInt(ENVIRONMENT.getProperty(PROPERTY_NAME_SSLD_DATA_CACHE_MAX_SIZE, "10000"));
+        LOGGER.info("Caching at most {} SSLDs", maxSize);
+        return maxSize;
+    }
+
+    /**
+     * The number of milliseconds a cached SSLD is used before it is read from
+     * the database again.
+     */
+    @Bean
+    public int ssldDataCacheTimeToLive() {
+        final int timeToLive = Integer.parseInt(ENVIRONMENT.getProperty(PROPERTY_NAME_SSLD_DATA_CACHE_TIME_TO_LIVE,
+                "60000"));
+        LOGGER.info("Caching SSLDs for {} milliseconds", timeToLive);
+        return timeToLive;
+    }
+
     @PreDestroy
     public void destroyDataSource() {
         if (this.dataSource != null) {
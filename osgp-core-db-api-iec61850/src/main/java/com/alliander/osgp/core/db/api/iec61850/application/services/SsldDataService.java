@@ -7,8 +7,9 @@
  */
 package com.alliander.osgp.core.db.api.iec61850.application.services;
 
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -21,6 +22,16 @@ import com.alliander.osgp.core.db.api.iec61850.repositories.SsldDataRepository;
 import com.alliander.osgp.core.db.api.iec61850valueobjects.RelayType;
 import com.alliander.osgp.dto.valueobjects.GpsCoordinatesDto;
 
+/**
+ * Provides the SSLDs from the OSGP core database, and the relay configuration
+ * of an SSLD as a {@link SsldRelayTable}.
+ * <p>
+ * Found SSLDs are cached together with their relay table, so requests and
+ * reports for a device do not query the database every time. A device is
+ * looked up again when its entry is older than the time to live, or after it
+ * is invalidated because its relay configuration changed. The cached SSLDs are
+ * shared, they must not be modified.
+ */
 @Service
 @Transactional(value = "iec61850OsgpCoreDbApiTransactionManager", readOnly = true)
 public class SsldDataService {
@@ -28,8 +39,84 @@ public class SsldDataService {
     @Autowired
     private SsldDataRepository ssldDataRepository;
 
+    @Autowired
+    private int ssldDataCacheMaxSize;
+
+    @Autowired
+    private int ssldDataCacheTimeToLive;
+
+    private final Map<String, CachedSsld> cachedSslds = new LinkedHashMap<String, CachedSsld>(16, 0.75f, true) {
+        private static final long serialVersionUID = -2350814327306515713L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, CachedSsld> eldest) {
+            return this.size() > SsldDataService.this.ssldDataCacheMaxSize;
+        }
+    };
+
     public Ssld findDevice(final String deviceIdentification) {
-        return this.ssldDataRepository.findByDeviceIdentification(deviceIdentification);
+        final CachedSsld cachedSsld = this.findCachedSsld(deviceIdentification);
+        return cachedSsld == null ? null : cachedSsld.getSsld();
+    }
+
+    /**
+     * @return The relay table of the device, or null if the device is not
+     *         found.
+     */
+    public SsldRelayTable findRelayTable(final String deviceIdentification) {
+        final CachedSsld cachedSsld = this.findCachedSsld(deviceIdentification);
+        return cachedSsld == null ? null : cachedSsld.getRelayTable();
+    }
+
+    /**
+     * Returns the relay table of the given SSLD, which is cached if the SSLD
+     * was found by this service.
+     */
+    public SsldRelayTable getRelayTable(final Ssld ssld) {
+        final CachedSsld cachedSsld;
+        synchronized (this.cachedSslds) {
+            cachedSsld = this.cachedSslds.get(ssld.getDeviceIdentification());
+        }
+        if (cachedSsld != null && cachedSsld.getSsld() == ssld) {
+            return cachedSsld.getRelayTable();
+        }
+        return new SsldRelayTable(ssld.getOutputSettings());
+    }
+
+    /**
+     * Removes the device from the cache, to be called when the relay
+     * configuration of the device is changed.
+     */
+    public void invalidate(final String deviceIdentification) {
+        synchronized (this.cachedSslds) {
+            this.cachedSslds.remove(deviceIdentification);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (this.cachedSslds) {
+            this.cachedSslds.clear();
+        }
+    }
+
+    private CachedSsld findCachedSsld(final String deviceIdentification) {
+        final long now = System.currentTimeMillis();
+        synchronized (this.cachedSslds) {
+            final CachedSsld cachedSsld = this.cachedSslds.get(deviceIdentification);
+            if (cachedSsld != null && now - cachedSsld.getLoadTime() < this.ssldDataCacheTimeToLive) {
+                return cachedSsld;
+            }
+        }
+
+        final Ssld ssld = this.ssldDataRepository.findByDeviceIdentification(deviceIdentification);
+        if (ssld == null) {
+            return null;
+        }
+        final CachedSsld cachedSsld = new CachedSsld(ssld, new SsldRelayTable(ssld.getOutputSettings()), now);
+        synchronized (this.cachedSslds) {
+            this.cachedSslds.put(deviceIdentification, cachedSsld);
+        }
+        return cachedSsld;
     }
 
     /**
@@ -39,19 +126,14 @@ public class SsldDataService {
      */
     public int convertToExternalIndex(final Ssld ssld, final int internalIndex) {
 
-        int output = 0;
-
-        for (final DeviceOutputSetting deviceOutputSetting : ssld.getOutputSettings()) {
-            if (deviceOutputSetting.getInternalId() == internalIndex) {
-                output = deviceOutputSetting.getExternalId();
-            }
-        }
+        final DeviceOutputSetting deviceOutputSetting = this.getDeviceOutputSettingForInternalIndex(ssld,
+                internalIndex);
 
-        if (output == 0) {
+        if (deviceOutputSetting == null || deviceOutputSetting.getExternalId() == 0) {
             throw new IllegalArgumentException("Unknown external id");
         }
 
-        return output;
+        return deviceOutputSetting.getExternalId();
     }
 
     /**
@@ -77,42 +159,21 @@ public class SsldDataService {
      * {@link RelayType}
      */
     public List<DeviceOutputSetting> findByRelayType(final Ssld ssld, final RelayType relayType) {
-
-        final List<DeviceOutputSetting> output = new ArrayList<>();
-
-        for (final DeviceOutputSetting d : ssld.getOutputSettings()) {
-            if (relayType.equals(d.getRelayType())) {
-                output.add(d);
-            }
-        }
-
-        return output;
+        return this.getRelayTable(ssld).findByRelayType(relayType);
     }
 
     /**
      * Returns the {@link DeviceOutputSetting} for the given external index
      */
     public DeviceOutputSetting getDeviceOutputSettingForExternalIndex(final Ssld ssld, final int index) {
-        for (final DeviceOutputSetting d : ssld.getOutputSettings()) {
-            if (d.getExternalId() == index) {
-                return d;
-            }
-        }
-
-        return null;
+        return this.getRelayTable(ssld).getDeviceOutputSettingForExternalIndex(index);
     }
 
     /**
      * Returns the {@link DeviceOutputSetting} for the given internal index
      */
     public DeviceOutputSetting getDeviceOutputSettingForInternalIndex(final Ssld ssld, final int index) {
-        for (final DeviceOutputSetting d : ssld.getOutputSettings()) {
-            if (d.getInternalId() == index) {
-                return d;
-            }
-        }
-
-        return null;
+        return this.getRelayTable(ssld).getDeviceOutputSettingForInternalIndex(index);
     }
 
     public GpsCoordinatesDto getGpsCoordinatesForDevice(final String deviceIdentification) {
@@ -123,4 +184,29 @@ public class SsldDataService {
 
         return null;
     }
+
+    private static final class CachedSsld {
+
+        private final Ssld ssld;
+        private final SsldRelayTable relayTable;
+        private final long loadTime;
+
+        CachedSsld(final Ssld ssld, final SsldRelayTable relayTable, final long loadTime) {
+            this.ssld = ssld;
+            this.relayTable = relayTable;
+            this.loadTime = loadTime;
+        }
+
+        Ssld getSsld() {
+            return this.ssld;
+        }
+
+        SsldRelayTable getRelayTable() {
+            return this.relayTable;
+        }
+
+        long getLoadTime() {
+            return this.loadTime;
+        }
+    }
 }
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.core.db.api.iec61850.application.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alliander.osgp.core.db.api.iec61850.entities.DeviceOutputSetting;
+import com.alliander.osgp.core.db.api.iec61850valueobjects.RelayType;
+
+/**
+ * The relay configuration ({@link DeviceOutputSetting}s) of an SSLD, indexed
+ * by internal index, by external index and by {@link RelayType}, so looking up
+ * a relay does not scan all output settings. A relay table is immutable.
+ */
+public final class SsldRelayTable {
+
+    private final List<DeviceOutputSetting> outputSettings;
+    private final DeviceOutputSetting[] byInternalIndex;
+    private final DeviceOutputSetting[] byExternalIndex;
+    private final Map<RelayType, List<DeviceOutputSetting>> byRelayType = new EnumMap<>(RelayType.class);
+
+    public SsldRelayTable(final List<DeviceOutputSetting> outputSettings) {
+        this.outputSettings = Collections.unmodifiableList(new ArrayList<>(outputSettings));
+
+        int maxInternalIndex = 0;
+        int maxExternalIndex = 0;
+        for (final DeviceOutputSetting outputSetting : this.outputSettings) {
+            maxInternalIndex = Math.max(maxInternalIndex, outputSetting.getInternalId());
+            maxExternalIndex = Math.max(maxExternalIndex, outputSetting.getExternalId());
+        }
+        this.byInternalIndex = new DeviceOutputSetting[maxInternalIndex + 1];
+        this.byExternalIndex = new DeviceOutputSetting[maxExternalIndex + 1];
+
+        final Map<RelayType, List<DeviceOutputSetting>> relayTypeSettings = new EnumMap<>(RelayType.class);
+        for (final DeviceOutputSetting outputSetting : this.outputSettings) {
+            putIfAbsent(this.byInternalIndex, outputSetting.getInternalId(), outputSetting);
+            putIfAbsent(this.byExternalIndex, outputSetting.getExternalId(), outputSetting);
+            if (outputSetting.getRelayType() != null) {
+                relayTypeSettings.computeIfAbsent(outputSetting.getRelayType(), k -> new ArrayList<>()).add(
+                        outputSetting);
+            }
+        }
+        for (final Map.Entry<RelayType, List<DeviceOutputSetting>> entry : relayTypeSettings.entrySet()) {
+            this.byRelayType.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+    }
+
+    private static void putIfAbsent(final DeviceOutputSetting[] index, final int id,
+            final DeviceOutputSetting outputSetting) {
+        if (id >= 0 && index[id] == null) {
+            index[id] = outputSetting;
+        }
+    }
+
+    /**
+     * @return All output settings, in the order of the device.
+     */
+    public List<DeviceOutputSetting> getOutputSettings() {
+        return this.outputSettings;
+    }
+
+    /**
+     * @return The output settings of the relays of the given type, in the
+     *         order of the device.
+     */
+    public List<DeviceOutputSetting> findByRelayType(final RelayType relayType) {
+        final List<DeviceOutputSetting> outputSettings = this.byRelayType.get(relayType);
+        return outputSettings == null ? Collections.<DeviceOutputSetting> emptyList() : outputSettings;
+    }
+
+    /**
+     * @return The output setting for the given internal index, or null if it
+     *         is not configured.
+     */
+    public DeviceOutputSetting getDeviceOutputSettingForInternalIndex(final int index) {
+        return index >= 0 && index < this.byInternalIndex.length ? this.byInternalIndex[index] : null;
+    }
+
+    /**
+     * @return The output setting for the given external index, or null if it
+     *         is not configured.
+     */
+    public DeviceOutputSetting getDeviceOutputSettingForExternalIndex(final int index) {
+        return index >= 0 && index < this.byExternalIndex.length ? this.byExternalIndex[index] : null;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("{");
+        for (final DeviceOutputSetting outputSetting : this.outputSettings) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(outputSetting.getInternalId()).append('=').append(outputSetting.getExternalId());
+        }
+        return sb.append('}').toString();
+    }
+}
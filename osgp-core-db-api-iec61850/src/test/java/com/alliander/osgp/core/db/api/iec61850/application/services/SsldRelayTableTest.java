@@ -0,0 +1,108 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.core.db.api.iec61850.application.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.alliander.osgp.core.db.api.iec61850.entities.DeviceOutputSetting;
+import com.alliander.osgp.core.db.api.iec61850valueobjects.RelayType;
+
+public class SsldRelayTableTest {
+
+    private static final DeviceOutputSetting RELAY_1 = new DeviceOutputSetting(1, 3, RelayType.LIGHT);
+    private static final DeviceOutputSetting RELAY_2 = new DeviceOutputSetting(2, 1, RelayType.TARIFF);
+    private static final DeviceOutputSetting RELAY_3 = new DeviceOutputSetting(3, 2, RelayType.LIGHT);
+    private static final DeviceOutputSetting RELAY_4 = new DeviceOutputSetting(4, 4, null);
+
+    private final SsldRelayTable relayTable = new SsldRelayTable(
+            Arrays.asList(RELAY_1, RELAY_2, RELAY_3, RELAY_4));
+
+    @Test
+    public void testLookupByInternalIndex() {
+        assertSame(RELAY_1, this.relayTable.getDeviceOutputSettingForInternalIndex(1));
+        assertSame(RELAY_3, this.relayTable.getDeviceOutputSettingForInternalIndex(3));
+    }
+
+    @Test
+    public void testLookupByExternalIndex() {
+        assertSame(RELAY_2, this.relayTable.getDeviceOutputSettingForExternalIndex(1));
+        assertSame(RELAY_1, this.relayTable.getDeviceOutputSettingForExternalIndex(3));
+    }
+
+    @Test
+    public void testLookupOfUnconfiguredIndexReturnsNull() {
+        assertNull(this.relayTable.getDeviceOutputSettingForInternalIndex(0));
+        assertNull(this.relayTable.getDeviceOutputSettingForInternalIndex(5));
+        assertNull(this.relayTable.getDeviceOutputSettingForInternalIndex(-1));
+        assertNull(this.relayTable.getDeviceOutputSettingForExternalIndex(0));
+        assertNull(this.relayTable.getDeviceOutputSettingForExternalIndex(5));
+        assertNull(this.relayTable.getDeviceOutputSettingForExternalIndex(-1));
+    }
+
+    @Test
+    public void testFirstOutputSettingWinsForDuplicateIndex() {
+        final DeviceOutputSetting duplicate = new DeviceOutputSetting(1, 3, RelayType.TARIFF);
+        final SsldRelayTable table = new SsldRelayTable(Arrays.asList(RELAY_1, duplicate));
+
+        assertSame(RELAY_1, table.getDeviceOutputSettingForInternalIndex(1));
+        assertSame(RELAY_1, table.getDeviceOutputSettingForExternalIndex(3));
+    }
+
+    @Test
+    public void testFindByRelayTypeKeepsOrderOfDevice() {
+        assertEquals(Arrays.asList(RELAY_1, RELAY_3), this.relayTable.findByRelayType(RelayType.LIGHT));
+        assertEquals(Collections.singletonList(RELAY_2), this.relayTable.findByRelayType(RelayType.TARIFF));
+        assertTrue(this.relayTable.findByRelayType(RelayType.TARIFF_REVERSED).isEmpty());
+    }
+
+    @Test
+    public void testOutputSettingsAreCopied() {
+        final List<DeviceOutputSetting> outputSettings = new ArrayList<>(Arrays.asList(RELAY_1, RELAY_2));
+        final SsldRelayTable table = new SsldRelayTable(outputSettings);
+
+        outputSettings.add(RELAY_3);
+
+        assertEquals(Arrays.asList(RELAY_1, RELAY_2), table.getOutputSettings());
+        assertNull(table.getDeviceOutputSettingForInternalIndex(3));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testOutputSettingsCannotBeModified() {
+        this.relayTable.getOutputSettings().add(RELAY_1);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testOutputSettingsByRelayTypeCannotBeModified() {
+        this.relayTable.findByRelayType(RelayType.LIGHT).add(RELAY_2);
+    }
+
+    @Test
+    public void testEmptyTable() {
+        final SsldRelayTable table = new SsldRelayTable(Collections.<DeviceOutputSetting> emptyList());
+
+        assertTrue(table.getOutputSettings().isEmpty());
+        assertNull(table.getDeviceOutputSettingForInternalIndex(0));
+        assertTrue(table.findByRelayType(RelayType.LIGHT).isEmpty());
+        assertEquals("{}", table.toString());
+    }
+
+    @Test
+    public void testToStringMapsInternalToExternalIndex() {
+        assertEquals("{1=3, 2=1, 3=2, 4=4}", this.relayTable.toString());
+    }
+}
@@ -10,9 +10,11 @@ package com.alliander.osgp.adapter.protocol.iec61850.application.config;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableMBeanExport;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.context.annotation.PropertySources;
+import org.springframework.jmx.support.RegistrationPolicy;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 import com.alliander.osgp.adapter.protocol.iec61850.device.FirmwareLocation;
@@ -25,6 +27,7 @@ import com.alliander.osgp.shared.application.config.AbstractConfig;
 @Configuration
 @ComponentScan(basePackages = { "com.alliander.osgp.adapter.protocol.iec61850", "com.alliander.osgp.core.db.api" })
 @EnableTransactionManagement()
+@EnableMBeanExport(registration = RegistrationPolicy.IGNORE_EXISTING)
 @Import({ MessagingConfig.class, Iec61850OsgpCoreDbApiPersistenceConfig.class, Iec61850Config.class })
 @PropertySources({ @PropertySource("classpath:osgp-adapter-protocol-iec61850.properties"),
         @PropertySource(value = "file:${osgp/Global/config}", ignoreResourceNotFound = true),
@@ -34,6 +34,7 @@ import com.alliander.osgp.adapter.protocol.iec61850.domain.entities.Iec61850Devi
 import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ProtocolAdapterException;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850ChannelHandlerServer;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.RegisterDeviceRequestDecoder;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.reporting.Iec61850ReportIngestionService.OverflowPolicy;
 import com.alliander.osgp.shared.application.config.AbstractConfig;
 
 @Configuration
@@ -57,13 +58,53 @@ public class Iec61850Config extends AbstractConfig {
 
     private static final String PROPERTY_NAME_IEC61850_DELAY_AFTER_DEVICE_REGISTRATION = "iec61850.delay.after.device.registration";
     private static final String PROPERTY_NAME_IEC61850_IS_REPORTING_AFTER_DEVICE_REGISTRATION_ENABLED = "iec61850.is.reporting.after.device.registration.enabled";
+    private static final String PROPERTY_NAME_IEC61850_DISCONNECT_SCHEDULER_POOL_SIZE = "iec61850.disconnect.scheduler.pool.size";
     private static final String PROPERTY_NAME_IEC61850_DISCONNECT_DELAY = "iec61850.disconnect.delay";
+    private static final String PROPERTY_NAME_IEC61850_REGISTRATION_POOL_SIZE = "iec61850.registration.pool.size";
+    private static final String PROPERTY_NAME_IEC61850_REGISTRATION_QUEUE_CAPACITY = "iec61850.registration.queue.capacity";
+    private static final String PROPERTY_NAME_IEC61850_REGISTRATION_COALESCE_WINDOW = "iec61850.registration.coalesce.window";
 
     private static final String PROPERTY_NAME_IEC61850_ICD_FILE_PATH = "iec61850.icd.file.path";
     private static final String PROPERTY_NAME_IEC61850_ICD_FILE_USE = "iec61850.icd.file.use";
 
     private static final String PROPERTY_NAME_IEC61850_ICD_FILES_FOLDER = "iec61850.icd.files.folder";
 
+    private static final String PROPERTY_NAME_IEC61850_SERVER_MODEL_CACHE_MAX_SIZE = "iec61850.server.model.cache.max.size";
+
+    private static final String PROPERTY_NAME_IEC61850_DEVICE_CACHE_MAX_SIZE = "iec61850.device.cache.max.size";
+    private static final String PROPERTY_NAME_IEC61850_DEVICE_CACHE_TIME_TO_LIVE = "iec61850.device.cache.time.to.live";
+    private static final String PROPERTY_NAME_IEC61850_LMD_INDEX_REFRESH_INTERVAL = "iec61850.lmd.index.refresh.interval";
+
+    private static final String PROPERTY_NAME_IEC61850_EVENT_NOTIFICATION_BATCH_SIZE = "iec61850.event.notification.batch.size";
+    private static final String PROPERTY_NAME_IEC61850_EVENT_NOTIFICATION_BATCH_DELAY = "iec61850.event.notification.batch.delay";
+    private static final String PROPERTY_NAME_IEC61850_REPORT_ENTRY_PERSIST_INTERVAL = "iec61850.report.entry.persist.interval";
+    private static final String PROPERTY_NAME_IEC61850_REPORT_ENTRY_RESYNC_TIMEOUT = "iec61850.report.entry.resync.timeout";
+
+    private static final String PROPERTY_NAME_IEC61850_CONNECTION_POOL_MAX_SIZE = "iec61850.connection.pool.max.size";
+    private static final String PROPERTY_NAME_IEC61850_CONNECTION_POOL_LEASE_TIMEOUT = "iec61850.connection.pool.lease.timeout";
+    private static final String PROPERTY_NAME_IEC61850_CONNECTION_POOL_MAX_IDLE_TIME = "iec61850.connection.pool.max.idle.time";
+    private static final String PROPERTY_NAME_IEC61850_CONNECTION_POOL_KEEP_ALIVE_INTERVAL = "iec61850.connection.pool.keep.alive.interval";
+
+    private static final String PROPERTY_NAME_IEC61850_REQUEST_DISPATCHER_POOL_SIZE = "iec61850.request.dispatcher.pool.size";
+    private static final String PROPERTY_NAME_IEC61850_REQUEST_DISPATCHER_MAX_PENDING = "iec61850.request.dispatcher.max.pending";
+    private static final String PROPERTY_NAME_IEC61850_REPORT_INGESTION_POOL_SIZE = "iec61850.report.ingestion.pool.size";
+    private static final String PROPERTY_NAME_IEC61850_REPORT_INGESTION_QUEUE_CAPACITY = "iec61850.report.ingestion.queue.capacity";
+    private static final String PROPERTY_NAME_IEC61850_REPORT_INGESTION_DEVICE_QUEUE_CAPACITY = "iec61850.report.ingestion.device.queue.capacity";
+    private static final String PROPERTY_NAME_IEC61850_REPORT_INGESTION_OVERFLOW_POLICY = "iec61850.report.ingestion.overflow.policy";
+
+    private static final String PROPERTY_NAME_IEC61850_REQUEST_DISPATCHER_DISPATCH_TIMEOUT = "iec61850.request.dispatcher.dispatch.timeout";
+
+    private static final String PROPERTY_NAME_IEC61850_RETRY_BACKOFF_INITIAL = "iec61850.retry.backoff.initial";
+    private static final String PROPERTY_NAME_IEC61850_RETRY_BACKOFF_MAX = "iec61850.retry.backoff.max";
+    private static final String PROPERTY_NAME_IEC61850_RETRY_BUDGET_PERCENTAGE = "iec61850.retry.budget.percentage";
+    private static final String PROPERTY_NAME_IEC61850_RETRY_BUDGET_MAX = "iec61850.retry.budget.max";
+    private static final String PROPERTY_NAME_IEC61850_CIRCUIT_BREAKER_FAILURE_THRESHOLD = "iec61850.circuit.breaker.failure.threshold";
+    private static final String PROPERTY_NAME_IEC61850_CIRCUIT_BREAKER_OPEN_TIME = "iec61850.circuit.breaker.open.time";
+
+    private static final String PROPERTY_NAME_IEC61850_BULK_OPERATION_PARALLELISM = "iec61850.bulk.operation.parallelism";
+    private static final String PROPERTY_NAME_IEC61850_BULK_OPERATION_SUBNET_RATE = "iec61850.bulk.operation.subnet.rate";
+    private static final String PROPERTY_NAME_IEC61850_BULK_OPERATION_SUBNET_PREFIX_LENGTH = "iec61850.bulk.operation.subnet.prefix.length";
+
     private static final String PROPERTY_NAME_IEC61850_IS_BUFFERED_REPORTING_ENABLED = "iec61850.is.buffered.reporting.enabled";
 
     private static final String PROPERTY_NAME_OSLP_DEFAULT_LATITUDE = "iec61850.default.latitude";
@@ -134,7 +175,7 @@ public class Iec61850Config extends AbstractConfig {
     private ChannelPipeline createChannelPipeline(final ChannelHandler handler) throws ProtocolAdapterException {
         final ChannelPipeline pipeline = Channels.pipeline();
 
-        pipeline.addLast("loggingHandler", new LoggingHandler(InternalLogLevel.INFO, true));
+        pipeline.addLast("loggingHandler", new LoggingHandler(InternalLogLevel.DEBUG, true));
 
         pipeline.addLast("iec61850RegisterDeviceRequestDecoder", new RegisterDeviceRequestDecoder());
 
@@ -223,6 +264,83 @@ public class Iec61850Config extends AbstractConfig {
         return milliSeconds;
     }
 
+    /**
+     * Used to configure the number of threads disconnecting from devices after
+     * the delay to allow the device to send reports. If this property is not
+     * set, the default value of 4 is used.
+     */
+    @Bean
+    public int disconnectSchedulerPoolSize() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_DISCONNECT_SCHEDULER_POOL_SIZE);
+        int poolSize;
+        if (StringUtils.isEmpty(property)) {
+            poolSize = 4;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, poolSize, PROPERTY_NAME_IEC61850_DISCONNECT_SCHEDULER_POOL_SIZE);
+        } else {
+            poolSize = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_DISCONNECT_SCHEDULER_POOL_SIZE, poolSize);
+        }
+        return poolSize;
+    }
+
+    /**
+     * Used to configure the number of threads disabling the registration of
+     * devices that registered with the platform. If this property is not set,
+     * the default value of 4 is used.
+     */
+    @Bean
+    public int registrationPoolSize() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_REGISTRATION_POOL_SIZE);
+        int poolSize;
+        if (StringUtils.isEmpty(property)) {
+            poolSize = 4;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, poolSize, PROPERTY_NAME_IEC61850_REGISTRATION_POOL_SIZE);
+        } else {
+            poolSize = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_REGISTRATION_POOL_SIZE, poolSize);
+        }
+        return poolSize;
+    }
+
+    /**
+     * Used to configure the maximum number of registrations waiting to be
+     * disabled. If this property is not set, the default value of 1000 is
+     * used.
+     */
+    @Bean
+    public int registrationQueueCapacity() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_REGISTRATION_QUEUE_CAPACITY);
+        int queueCapacity;
+        if (StringUtils.isEmpty(property)) {
+            queueCapacity = 1000;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, queueCapacity, PROPERTY_NAME_IEC61850_REGISTRATION_QUEUE_CAPACITY);
+        } else {
+            queueCapacity = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_REGISTRATION_QUEUE_CAPACITY, queueCapacity);
+        }
+        return queueCapacity;
+    }
+
+    /**
+     * Used to configure how long (in milliseconds) after the registration of a
+     * device has been disabled new registrations of the device are ignored. If
+     * this property is not set, the default value of 30000 milliseconds is
+     * used.
+     */
+    @Bean
+    public int registrationCoalesceWindow() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_REGISTRATION_COALESCE_WINDOW);
+        int milliSeconds;
+        if (StringUtils.isEmpty(property)) {
+            milliSeconds = 30000;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, milliSeconds, PROPERTY_NAME_IEC61850_REGISTRATION_COALESCE_WINDOW);
+        } else {
+            milliSeconds = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_REGISTRATION_COALESCE_WINDOW, milliSeconds);
+        }
+        return milliSeconds;
+    }
+
     @Bean
     public boolean isIcdFileUsed() {
         return Boolean.parseBoolean(this.environment.getRequiredProperty(PROPERTY_NAME_IEC61850_ICD_FILE_USE));
@@ -256,6 +374,547 @@ public class Iec61850Config extends AbstractConfig {
         return filesFolder;
     }
 
+    /**
+     * Used to configure how many ServerModel templates read from SCL / ICD
+     * files are cached. If this property is not set, the default value of 16
+     * is used.
+     */
+    @Bean
+    public int serverModelCacheMaxSize() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_SERVER_MODEL_CACHE_MAX_SIZE);
+        int maxSize;
+        if (StringUtils.isEmpty(property)) {
+            maxSize = 16;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, maxSize, PROPERTY_NAME_IEC61850_SERVER_MODEL_CACHE_MAX_SIZE);
+        } else {
+            maxSize = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_SERVER_MODEL_CACHE_MAX_SIZE, maxSize);
+        }
+        return maxSize;
+    }
+
+    /**
+     * Used to configure of how many devices the configuration from the
+     * protocol database is cached. If this property is not set, the default
+     * value of 10000 is used.
+     */
+    @Bean
+    public int deviceCacheMaxSize() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_DEVICE_CACHE_MAX_SIZE);
+        int maxSize;
+        if (StringUtils.isEmpty(property)) {
+            maxSize = 10000;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, maxSize, PROPERTY_NAME_IEC61850_DEVICE_CACHE_MAX_SIZE);
+        } else {
+            maxSize = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_DEVICE_CACHE_MAX_SIZE, maxSize);
+        }
+        return maxSize;
+    }
+
+    /**
+     * Used to configure how long the cached configuration of a device is used
+     * before it is read from the protocol database again. If this property is
+     * not set, the default value of 60000 milliseconds is used.
+     */
+    @Bean
+    public int deviceCacheTimeToLive() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_DEVICE_CACHE_TIME_TO_LIVE);
+        int milliSeconds;
+        if (StringUtils.isEmpty(property)) {
+            milliSeconds = 60000;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, milliSeconds, PROPERTY_NAME_IEC61850_DEVICE_CACHE_TIME_TO_LIVE);
+        } else {
+            milliSeconds = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_DEVICE_CACHE_TIME_TO_LIVE, milliSeconds);
+        }
+        return milliSeconds;
+    }
+
+    /**
+     * Used to configure how long the light measurement devices by digital
+     * input, used to route light sensor reports, are used before they are read
+     * from the OSGP core database again. If this property is not set, the
+     * default value of 300000 milliseconds is used.
+     */
+    @Bean
+    public int lmdIndexRefreshInterval() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_LMD_INDEX_REFRESH_INTERVAL);
+        int milliSeconds;
+        if (StringUtils.isEmpty(property)) {
+            milliSeconds = 300000;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, milliSeconds, PROPERTY_NAME_IEC61850_LMD_INDEX_REFRESH_INTERVAL);
+        } else {
+            milliSeconds = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_LMD_INDEX_REFRESH_INTERVAL, milliSeconds);
+        }
+        return milliSeconds;
+    }
+
+    /**
+     * Used to configure the maximum number of event notifications reported by
+     * an SSLD that are sent to OSGP in one message. If this property is not
+     * set, the default value of 100 is used.
+     */
+    @Bean
+    public int eventNotificationBatchSize() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_EVENT_NOTIFICATION_BATCH_SIZE);
+        int batchSize;
+        if (StringUtils.isEmpty(property)) {
+            batchSize = 100;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, batchSize, PROPERTY_NAME_IEC61850_EVENT_NOTIFICATION_BATCH_SIZE);
+        } else {
+            batchSize = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_EVENT_NOTIFICATION_BATCH_SIZE, batchSize);
+        }
+        return batchSize;
+    }
+
+    /**
+     * Used to configure the maximum amount of time an event notification
+     * reported by an SSLD waits for more event notifications, before it is
+     * sent to OSGP. If this property is not set, the default value of 1000
+     * milliseconds is used.
+     */
+    @Bean
+    public int eventNotificationBatchDelay() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_EVENT_NOTIFICATION_BATCH_DELAY);
+        int milliSeconds;
+        if (StringUtils.isEmpty(property)) {
+            milliSeconds = 1000;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, milliSeconds, PROPERTY_NAME_IEC61850_EVENT_NOTIFICATION_BATCH_DELAY);
+        } else {
+            milliSeconds = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_EVENT_NOTIFICATION_BATCH_DELAY, milliSeconds);
+        }
+        return milliSeconds;
+    }
+
+    /**
+     * Used to configure how often the last processed entries of buffered
+     * reports are saved, besides when the association with a device is
+     * closed. If this property is not set, the default value of 60000
+     * milliseconds is used.
+     */
+    @Bean
+    public int reportEntryPersistInterval() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_REPORT_ENTRY_PERSIST_INTERVAL);
+        int milliSeconds;
+        if (StringUtils.isEmpty(property)) {
+            milliSeconds = 60000;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, milliSeconds, PROPERTY_NAME_IEC61850_REPORT_ENTRY_PERSIST_INTERVAL);
+        } else {
+            milliSeconds = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_REPORT_ENTRY_PERSIST_INTERVAL, milliSeconds);
+        }
+        return milliSeconds;
+    }
+
+    /**
+     * Used to configure how long reports are skipped while buffered reporting
+     * is resynced after a gap in the reports, waiting for the reports after
+     * the last processed entry. If this property is not set, the default value
+     * of 60000 milliseconds is used.
+     */
+    @Bean
+    public int reportEntryResyncTimeout() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_REPORT_ENTRY_RESYNC_TIMEOUT);
+        int milliSeconds;
+        if (StringUtils.isEmpty(property)) {
+            milliSeconds = 60000;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, milliSeconds, PROPERTY_NAME_IEC61850_REPORT_ENTRY_RESYNC_TIMEOUT);
+        } else {
+            milliSeconds = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_REPORT_ENTRY_RESYNC_TIMEOUT, milliSeconds);
+        }
+        return milliSeconds;
+    }
+
+    /**
+     * Used to configure the maximum number of cached connections (client
+     * associations) to devices. If this property is not set, the default value
+     * of 1000 is used.
+     */
+    @Bean
+    public int connectionPoolMaxSize() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_CONNECTION_POOL_MAX_SIZE);
+        int maxSize;
+        if (StringUtils.isEmpty(property)) {
+            maxSize = 1000;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, maxSize, PROPERTY_NAME_IEC61850_CONNECTION_POOL_MAX_SIZE);
+        } else {
+            maxSize = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_CONNECTION_POOL_MAX_SIZE, maxSize);
+        }
+        return maxSize;
+    }
+
+    /**
+     * Used to configure the number of milliseconds a request waits for a cached
+     * connection that is in use by another request for the same device. If
+     * this property is not set, the default value of 30000 is used.
+     */
+    @Bean
+    public int connectionPoolLeaseTimeout() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_CONNECTION_POOL_LEASE_TIMEOUT);
+        int leaseTimeout;
+        if (StringUtils.isEmpty(property)) {
+            leaseTimeout = 30000;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, leaseTimeout, PROPERTY_NAME_IEC61850_CONNECTION_POOL_LEASE_TIMEOUT);
+        } else {
+            leaseTimeout = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_CONNECTION_POOL_LEASE_TIMEOUT, leaseTimeout);
+        }
+        return leaseTimeout;
+    }
+
+    /**
+     * Used to configure the number of milliseconds after which an unused cached
+     * connection is closed. If this property is not set, the default value of
+     * 0 is used, meaning cached connections are not closed for being idle,
+     * because devices keep sending reports over these connections.
+     */
+    @Bean
+    public int connectionPoolMaxIdleTime() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_CONNECTION_POOL_MAX_IDLE_TIME);
+        int maxIdleTime;
+        if (StringUtils.isEmpty(property)) {
+            maxIdleTime = 0;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, maxIdleTime, PROPERTY_NAME_IEC61850_CONNECTION_POOL_MAX_IDLE_TIME);
+        } else {
+            maxIdleTime = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_CONNECTION_POOL_MAX_IDLE_TIME, maxIdleTime);
+        }
+        return maxIdleTime;
+    }
+
+    /**
+     * Used to configure the number of milliseconds between checks whether
+     * cached connections are still alive. If this property is not set, the
+     * default value of 60000 is used.
+     */
+    @Bean
+    public int connectionPoolKeepAliveInterval() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_CONNECTION_POOL_KEEP_ALIVE_INTERVAL);
+        int keepAliveInterval;
+        if (StringUtils.isEmpty(property)) {
+            keepAliveInterval = 60000;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, keepAliveInterval, PROPERTY_NAME_IEC61850_CONNECTION_POOL_KEEP_ALIVE_INTERVAL);
+        } else {
+            keepAliveInterval = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_CONNECTION_POOL_KEEP_ALIVE_INTERVAL, keepAliveInterval);
+        }
+        return keepAliveInterval;
+    }
+
+    /**
+     * Used to configure the number of threads processing device requests. If
+     * this property is not set, the default value of 25 is used.
+     */
+    @Bean
+    public int requestDispatcherPoolSize() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_REQUEST_DISPATCHER_POOL_SIZE);
+        int poolSize;
+        if (StringUtils.isEmpty(property)) {
+            poolSize = 25;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, poolSize, PROPERTY_NAME_IEC61850_REQUEST_DISPATCHER_POOL_SIZE);
+        } else {
+            poolSize = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_REQUEST_DISPATCHER_POOL_SIZE, poolSize);
+        }
+        return poolSize;
+    }
+
+    /**
+     * Used to configure the maximum number of received device requests that
+     * have not been processed yet. If this property is not set, the default
+     * value of 1000 is used.
+     */
+    @Bean
+    public int requestDispatcherMaxPending() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_REQUEST_DISPATCHER_MAX_PENDING);
+        int maxPending;
+        if (StringUtils.isEmpty(property)) {
+            maxPending = 1000;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, maxPending, PROPERTY_NAME_IEC61850_REQUEST_DISPATCHER_MAX_PENDING);
+        } else {
+            maxPending = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_REQUEST_DISPATCHER_MAX_PENDING, maxPending);
+        }
+        return maxPending;
+    }
+
+    /**
+     * Used to configure the number of milliseconds a received device request
+     * waits for room among the pending requests, before it is handed back to
+     * the message broker for redelivery. If this property is not set, the
+     * default value of 30000 is used.
+     */
+    @Bean
+    public int requestDispatcherDispatchTimeout() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_REQUEST_DISPATCHER_DISPATCH_TIMEOUT);
+        int dispatchTimeout;
+        if (StringUtils.isEmpty(property)) {
+            dispatchTimeout = 30000;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, dispatchTimeout, PROPERTY_NAME_IEC61850_REQUEST_DISPATCHER_DISPATCH_TIMEOUT);
+        } else {
+            dispatchTimeout = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_REQUEST_DISPATCHER_DISPATCH_TIMEOUT, dispatchTimeout);
+        }
+        return dispatchTimeout;
+    }
+
+    /**
+     * Used to configure the number of threads processing reports received
+     * from devices. If this property is not set, the default value of 4 is
+     * used.
+     */
+    @Bean
+    public int reportIngestionPoolSize() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_REPORT_INGESTION_POOL_SIZE);
+        int poolSize;
+        if (StringUtils.isEmpty(property)) {
+            poolSize = 4;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, poolSize, PROPERTY_NAME_IEC61850_REPORT_INGESTION_POOL_SIZE);
+        } else {
+            poolSize = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_REPORT_INGESTION_POOL_SIZE, poolSize);
+        }
+        return poolSize;
+    }
+
+    /**
+     * Used to configure the maximum number of received reports waiting to be
+     * processed. If this property is not set, the default value of 10000 is
+     * used.
+     */
+    @Bean
+    public int reportIngestionQueueCapacity() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_REPORT_INGESTION_QUEUE_CAPACITY);
+        int queueCapacity;
+        if (StringUtils.isEmpty(property)) {
+            queueCapacity = 10000;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, queueCapacity, PROPERTY_NAME_IEC61850_REPORT_INGESTION_QUEUE_CAPACITY);
+        } else {
+            queueCapacity = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_REPORT_INGESTION_QUEUE_CAPACITY, queueCapacity);
+        }
+        return queueCapacity;
+    }
+
+    /**
+     * Used to configure the maximum number of received reports of a single
+     * device waiting to be processed. If this property is not set, the default
+     * value of 1000 is used.
+     */
+    @Bean
+    public int reportIngestionDeviceQueueCapacity() {
+        final String property = this.environment
+                .getProperty(PROPERTY_NAME_IEC61850_REPORT_INGESTION_DEVICE_QUEUE_CAPACITY);
+        int deviceQueueCapacity;
+        if (StringUtils.isEmpty(property)) {
+            deviceQueueCapacity = 1000;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, deviceQueueCapacity,
+                    PROPERTY_NAME_IEC61850_REPORT_INGESTION_DEVICE_QUEUE_CAPACITY);
+        } else {
+            deviceQueueCapacity = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_REPORT_INGESTION_DEVICE_QUEUE_CAPACITY,
+                    deviceQueueCapacity);
+        }
+        return deviceQueueCapacity;
+    }
+
+    /**
+     * Used to configure what happens to a received report when the maximum
+     * number of reports are waiting to be processed, either BLOCK or DISCARD.
+     * If this property is not set, the default value of BLOCK is used.
+     */
+    @Bean
+    public OverflowPolicy reportIngestionOverflowPolicy() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_REPORT_INGESTION_OVERFLOW_POLICY);
+        OverflowPolicy overflowPolicy;
+        if (StringUtils.isEmpty(property)) {
+            overflowPolicy = OverflowPolicy.BLOCK;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, overflowPolicy,
+                    PROPERTY_NAME_IEC61850_REPORT_INGESTION_OVERFLOW_POLICY);
+        } else {
+            overflowPolicy = OverflowPolicy.valueOf(property.trim().toUpperCase());
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_REPORT_INGESTION_OVERFLOW_POLICY, overflowPolicy);
+        }
+        return overflowPolicy;
+    }
+
+    /**
+     * Used to configure the initial maximum amount of time waited before retrying
+     * communication with a device, which doubles for every next retry. If this
+     * property is not set, the default value of 100 milliseconds is used.
+     */
+    @Bean
+    public int retryBackoffInitial() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_RETRY_BACKOFF_INITIAL);
+        int milliSeconds;
+        if (StringUtils.isEmpty(property)) {
+            milliSeconds = 100;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, milliSeconds, PROPERTY_NAME_IEC61850_RETRY_BACKOFF_INITIAL);
+        } else {
+            milliSeconds = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_RETRY_BACKOFF_INITIAL, milliSeconds);
+        }
+        return milliSeconds;
+    }
+
+    /**
+     * Used to configure the maximum amount of time waited before retrying
+     * communication with a device. If this property is not set, the default
+     * value of 2000 milliseconds is used.
+     */
+    @Bean
+    public int retryBackoffMax() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_RETRY_BACKOFF_MAX);
+        int milliSeconds;
+        if (StringUtils.isEmpty(property)) {
+            milliSeconds = 2000;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, milliSeconds, PROPERTY_NAME_IEC61850_RETRY_BACKOFF_MAX);
+        } else {
+            milliSeconds = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_RETRY_BACKOFF_MAX, milliSeconds);
+        }
+        return milliSeconds;
+    }
+
+    /**
+     * Used to configure the percentage of a retry added to the retry budgets of a
+     * device and its IED type for every request. If this property is not set,
+     * the default value of 20 is used.
+     */
+    @Bean
+    public int retryBudgetPercentage() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_RETRY_BUDGET_PERCENTAGE);
+        int percentage;
+        if (StringUtils.isEmpty(property)) {
+            percentage = 20;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, percentage, PROPERTY_NAME_IEC61850_RETRY_BUDGET_PERCENTAGE);
+        } else {
+            percentage = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_RETRY_BUDGET_PERCENTAGE, percentage);
+        }
+        return percentage;
+    }
+
+    /**
+     * Used to configure the maximum number of retries in the retry budgets of a
+     * device and of an IED type. If this property is not set, the default value
+     * of 10 is used.
+     */
+    @Bean
+    public int retryBudgetMax() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_RETRY_BUDGET_MAX);
+        int maxRetries;
+        if (StringUtils.isEmpty(property)) {
+            maxRetries = 10;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, maxRetries, PROPERTY_NAME_IEC61850_RETRY_BUDGET_MAX);
+        } else {
+            maxRetries = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_RETRY_BUDGET_MAX, maxRetries);
+        }
+        return maxRetries;
+    }
+
+    /**
+     * Used to configure the number of consecutive connection failures or
+     * time-outs after which communication with a device is stopped for a while.
+     * If this property is not set, the default value of 3 is used.
+     */
+    @Bean
+    public int circuitBreakerFailureThreshold() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_CIRCUIT_BREAKER_FAILURE_THRESHOLD);
+        int threshold;
+        if (StringUtils.isEmpty(property)) {
+            threshold = 3;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, threshold, PROPERTY_NAME_IEC61850_CIRCUIT_BREAKER_FAILURE_THRESHOLD);
+        } else {
+            threshold = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_CIRCUIT_BREAKER_FAILURE_THRESHOLD, threshold);
+        }
+        return threshold;
+    }
+
+    /**
+     * Used to configure the amount of time communication with a device is
+     * stopped after repeated connection failures or time-outs. If this property
+     * is not set, the default value of 60000 milliseconds is used.
+     */
+    @Bean
+    public int circuitBreakerOpenTime() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_CIRCUIT_BREAKER_OPEN_TIME);
+        int milliSeconds;
+        if (StringUtils.isEmpty(property)) {
+            milliSeconds = 60000;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, milliSeconds, PROPERTY_NAME_IEC61850_CIRCUIT_BREAKER_OPEN_TIME);
+        } else {
+            milliSeconds = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_CIRCUIT_BREAKER_OPEN_TIME, milliSeconds);
+        }
+        return milliSeconds;
+    }
+
+    /**
+     * Used to configure the maximum number of devices of bulk operations
+     * dispatched at the same time to the threads processing device requests.
+     * If this property is not set, the default value of 50 is used.
+     */
+    @Bean
+    public int bulkOperationParallelism() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_BULK_OPERATION_PARALLELISM);
+        int parallelism;
+        if (StringUtils.isEmpty(property)) {
+            parallelism = 50;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, parallelism, PROPERTY_NAME_IEC61850_BULK_OPERATION_PARALLELISM);
+        } else {
+            parallelism = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_BULK_OPERATION_PARALLELISM, parallelism);
+        }
+        return parallelism;
+    }
+
+    /**
+     * Used to configure the maximum number of devices in the same subnet per
+     * second dispatched by bulk operations, 0 for no limit. If this property
+     * is not set, the default value of 10 is used.
+     */
+    @Bean
+    public int bulkOperationSubnetRate() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_BULK_OPERATION_SUBNET_RATE);
+        int rate;
+        if (StringUtils.isEmpty(property)) {
+            rate = 10;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, rate, PROPERTY_NAME_IEC61850_BULK_OPERATION_SUBNET_RATE);
+        } else {
+            rate = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_BULK_OPERATION_SUBNET_RATE, rate);
+        }
+        return rate;
+    }
+
+    /**
+     * Used to configure the prefix length of the subnets of which the rate of
+     * devices dispatched by bulk operations is limited. If this property is
+     * not set, the default value of 24 is used.
+     */
+    @Bean
+    public int bulkOperationSubnetPrefixLength() {
+        final String property = this.environment.getProperty(PROPERTY_NAME_IEC61850_BULK_OPERATION_SUBNET_PREFIX_LENGTH);
+        int prefixLength;
+        if (StringUtils.isEmpty(property)) {
+            prefixLength = 24;
+            LOGGER.info(DEFAULT_PROPERTY_MESSAGE, prefixLength, PROPERTY_NAME_IEC61850_BULK_OPERATION_SUBNET_PREFIX_LENGTH);
+        } else {
+            prefixLength = Integer.parseInt(property);
+            LOGGER.info(PROPERTY_IS_VALUE, PROPERTY_NAME_IEC61850_BULK_OPERATION_SUBNET_PREFIX_LENGTH, prefixLength);
+        }
+        return prefixLength;
+    }
+
     @Bean
     public Boolean isBufferedReportingEnabled() {
         final Boolean isBufferedReportingEnabled = Boolean.parseBoolean(this.environment
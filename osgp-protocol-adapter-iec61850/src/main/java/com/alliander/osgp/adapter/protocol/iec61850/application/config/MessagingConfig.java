@@ -55,9 +55,22 @@ public class MessagingConfig extends AbstractMessagingConfig {
 
     @Bean
     public DefaultMessageListenerContainer iec61850RequestsMessageListenerContainer(
-            final JmsConfiguration iec61850RequestJmsConfiguration) {
+            final JmsConfiguration iec61850RequestJmsConfiguration,
+            @Qualifier("requestDispatcherPoolSize") final int requestDispatcherPoolSize) {
         final DefaultMessageListenerContainer messageListenerContainer = iec61850RequestJmsConfiguration
                 .getMessageListenerContainer();
+        // A consumer keeps the message of a request until the request has
+        // finished on a worker thread of the DeviceRequestDispatcher, so
+        // consumers beyond the number of worker threads would only hold
+        // messages while waiting for a worker.
+        if (messageListenerContainer.getConcurrentConsumers() > requestDispatcherPoolSize) {
+            messageListenerContainer.setConcurrentConsumers(requestDispatcherPoolSize);
+        }
+        if (messageListenerContainer.getMaxConcurrentConsumers() > requestDispatcherPoolSize) {
+            LOGGER.info("Limiting consumers of IEC61850 requests to the {} request dispatcher threads",
+                    requestDispatcherPoolSize);
+            messageListenerContainer.setMaxConcurrentConsumers(requestDispatcherPoolSize);
+        }
         messageListenerContainer.setErrorHandler(new ErrorHandler() {
             @Override
             public void handleError(final Throwable t) {
@@ -9,6 +9,7 @@ package com.alliander.osgp.adapter.protocol.iec61850.application.services;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.osgpfoundation.osgp.dto.da.GetPQValuesResponseDto;
 import org.slf4j.Logger;
@@ -22,11 +23,11 @@ import com.alliander.osgp.adapter.protocol.iec61850.domain.repositories.Iec61850
 import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ProtocolAdapterException;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.messaging.DeviceResponseMessageSender;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.messaging.OsgpRequestMessageSender;
-import com.alliander.osgp.core.db.api.iec61850.entities.DeviceOutputSetting;
+import com.alliander.osgp.core.db.api.iec61850.application.services.SsldDataService;
+import com.alliander.osgp.core.db.api.iec61850.application.services.SsldRelayTable;
 import com.alliander.osgp.core.db.api.iec61850.entities.LightMeasurementDevice;
 import com.alliander.osgp.core.db.api.iec61850.entities.Ssld;
 import com.alliander.osgp.core.db.api.iec61850.repositories.LmdDataRepository;
-import com.alliander.osgp.core.db.api.iec61850.repositories.SsldDataRepository;
 import com.alliander.osgp.dto.valueobjects.DeviceFunctionDto;
 import com.alliander.osgp.dto.valueobjects.EventNotificationDto;
 import com.alliander.osgp.dto.valueobjects.microgrids.GetDataResponseDto;
@@ -42,7 +43,7 @@ public class DeviceManagementService {
     private static final Logger LOGGER = LoggerFactory.getLogger(DeviceManagementService.class);
 
     @Autowired
-    private SsldDataRepository ssldDataRepository;
+    private SsldDataService ssldDataService;
 
     @Autowired
     private LmdDataRepository lmdDataRepository;
@@ -82,7 +83,7 @@ public class DeviceManagementService {
     public void addEventNotifications(final String deviceIdentification,
             final List<EventNotificationDto> eventNotifications) throws ProtocolAdapterException {
 
-        final Ssld ssldDevice = this.ssldDataRepository.findByDeviceIdentification(deviceIdentification);
+        final Ssld ssldDevice = this.ssldDataService.findDevice(deviceIdentification);
         if (ssldDevice == null) {
             final LightMeasurementDevice lmd = this.lmdDataRepository.findByDeviceIdentification(deviceIdentification);
             if (lmd == null) {
@@ -92,6 +93,28 @@ public class DeviceManagementService {
             }
         }
 
+        this.sendEventNotifications(deviceIdentification, eventNotifications);
+    }
+
+    /**
+     * Send the event notifications of light measurement devices to OSGP Core,
+     * without looking up the devices in the database.
+     *
+     * @param eventNotificationsPerDevice
+     *            The event notifications by the identification of the light
+     *            measurement device they are for.
+     */
+    public void addLightMeasurementDeviceEventNotifications(
+            final Map<String, List<EventNotificationDto>> eventNotificationsPerDevice) {
+
+        for (final Map.Entry<String, List<EventNotificationDto>> entry : eventNotificationsPerDevice.entrySet()) {
+            this.sendEventNotifications(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void sendEventNotifications(final String deviceIdentification,
+            final List<EventNotificationDto> eventNotifications) {
+
         LOGGER.info("addEventNotifications called for device {}: {}", deviceIdentification, eventNotifications);
 
         final RequestMessage requestMessage = new RequestMessage("no-correlationUid", "no-organisation",
@@ -101,26 +124,25 @@ public class DeviceManagementService {
     }
 
     /**
-     * Get the device output setting (relay configuration) for a given device.
+     * Get the relay configuration for a given device.
      *
      * @param deviceIdentification
      *            The device identification.
      *
-     * @return The {@link DeviceOutputSetting} for the device.
+     * @return The {@link SsldRelayTable} for the device.
      *
      * @throws ProtocolAdapterException
      *             In case the device can not be found in the database.
      */
-    public List<DeviceOutputSetting> getDeviceOutputSettings(final String deviceIdentification)
-            throws ProtocolAdapterException {
+    public SsldRelayTable getSsldRelayTable(final String deviceIdentification) throws ProtocolAdapterException {
 
-        final Ssld ssldDevice = this.ssldDataRepository.findByDeviceIdentification(deviceIdentification);
-        if (ssldDevice == null) {
+        final SsldRelayTable relayTable = this.ssldDataService.findRelayTable(deviceIdentification);
+        if (relayTable == null) {
             throw new ProtocolAdapterException("Unable to find device using deviceIdentification: "
                     + deviceIdentification);
         }
 
-        return ssldDevice.getOutputSettings();
+        return relayTable;
     }
 
     public void sendMeasurements(final String deviceIdentification, final GetDataResponseDto response)
@@ -0,0 +1,320 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.application.services;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.IED;
+
+/**
+ * Disables the registration of devices that registered with the platform on a
+ * bounded pool of worker threads, so the thread receiving the register device
+ * requests is not held up by communicating with the devices.
+ * <p>
+ * A device is handled by one worker at a time. A registration of a device
+ * that is waiting to be handled replaces the IP address of the waiting
+ * registration, a registration of a device that is being handled, or of
+ * which the registration has been disabled within the coalesce window, is
+ * ignored. Devices keep registering once a minute until their registration
+ * is disabled, so a registration that is rejected because the queue is full
+ * is handled after the next attempt of the device.
+ */
+@Component
+@ManagedResource(description = "Asynchronous disabling of the registration of devices")
+public class DeviceRegistrationQueue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeviceRegistrationQueue.class);
+
+    private final DeviceRegistrationService deviceRegistrationService;
+
+    private final ThreadPoolExecutor workers;
+
+    private final int registrationQueueCapacity;
+
+    private final int registrationCoalesceWindow;
+
+    /**
+     * Source of the time in nanoseconds, like {@link System#nanoTime()}.
+     */
+    private final LongSupplier nanoTime;
+
+    /**
+     * Registrations waiting to be handled or being handled per device
+     * identification. Guarded by synchronizing on the map, like
+     * {@link #recentlyDisabled}.
+     */
+    private final Map<String, Registration> registrations = new HashMap<>();
+
+    /**
+     * The time (from {@link #nanoTime}) the registration was disabled
+     * per device identification, oldest first. Entries older than the coalesce
+     * window are pruned on every submit.
+     */
+    private final Map<String, Long> recentlyDisabled = new LinkedHashMap<>();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong disabled = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalWaitTime = new AtomicLong();
+    private final AtomicLong maxWaitTime = new AtomicLong();
+    private final AtomicLong totalProcessingTime = new AtomicLong();
+    private final AtomicLong maxProcessingTime = new AtomicLong();
+
+    @Autowired
+    public DeviceRegistrationQueue(final DeviceRegistrationService deviceRegistrationService,
+            @Qualifier("registrationPoolSize") final int registrationPoolSize,
+            @Qualifier("registrationQueueCapacity") final int registrationQueueCapacity,
+            @Qualifier("registrationCoalesceWindow") final int registrationCoalesceWindow) {
+        this(deviceRegistrationService, new ThreadPoolExecutor(registrationPoolSize, registrationPoolSize, 0L,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(registrationQueueCapacity)),
+                registrationCoalesceWindow, System::nanoTime);
+    }
+
+    /**
+     * @param workers
+     *            The workers disabling the registrations, of which the queue
+     *            bounds the number of registrations waiting to be disabled.
+     */
+    DeviceRegistrationQueue(final DeviceRegistrationService deviceRegistrationService,
+            final ThreadPoolExecutor workers, final int registrationCoalesceWindow, final LongSupplier nanoTime) {
+        this.deviceRegistrationService = deviceRegistrationService;
+        this.workers = workers;
+        this.registrationQueueCapacity = workers.getQueue().remainingCapacity();
+        this.registrationCoalesceWindow = registrationCoalesceWindow;
+        this.nanoTime = nanoTime;
+    }
+
+    @PreDestroy
+    void destroy() {
+        this.workers.shutdown();
+    }
+
+    /**
+     * Queues disabling the registration of a device, unless the registration
+     * of the device is already waiting to be disabled, being disabled, or has
+     * been disabled recently.
+     *
+     * @param deviceIdentification
+     *            The device identification.
+     * @param ipAddress
+     *            The IP address of the device.
+     * @param ied
+     *            The type of IED.
+     * @param serverName
+     *            The server name.
+     */
+    public void submit(final String deviceIdentification, final String ipAddress, final IED ied,
+            final String serverName) {
+        final long now = this.nanoTime.getAsLong();
+
+        synchronized (this.registrations) {
+            this.pruneRecentlyDisabled(now);
+            final Long disabledAt = this.recentlyDisabled.get(deviceIdentification);
+            if (disabledAt != null) {
+                this.coalesced.incrementAndGet();
+                LOGGER.info("Ignoring registration of device: {}, registration was disabled {} ms ago",
+                        deviceIdentification, TimeUnit.NANOSECONDS.toMillis(now - disabledAt));
+                return;
+            }
+
+            final Registration pending = this.registrations.get(deviceIdentification);
+            if (pending != null) {
+                this.coalesced.incrementAndGet();
+                if (!pending.started) {
+                    pending.ipAddress = ipAddress;
+                }
+                LOGGER.info("Registration of device: {} is already {}", deviceIdentification,
+                        pending.started ? "being disabled" : "waiting to be disabled");
+                return;
+            }
+
+            final Registration registration = new Registration(deviceIdentification, ipAddress, ied, serverName, now);
+            try {
+                this.workers.execute(() -> this.process(registration));
+            } catch (final RejectedExecutionException e) {
+                this.rejected.incrementAndGet();
+                LOGGER.warn("Unable to queue disabling the registration of device: {}, {} registrations are waiting",
+                        deviceIdentification, this.registrationQueueCapacity);
+                return;
+            }
+            this.registrations.put(deviceIdentification, registration);
+            this.submitted.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes the devices of which the registration was disabled longer than
+     * the coalesce window ago. Guarded by synchronizing on the registrations.
+     */
+    private void pruneRecentlyDisabled(final long now) {
+        final long coalesceWindow = TimeUnit.MILLISECONDS.toNanos(this.registrationCoalesceWindow);
+        final Iterator<Long> iterator = this.recentlyDisabled.values().iterator();
+        while (iterator.hasNext() && now - iterator.next() >= coalesceWindow) {
+            iterator.remove();
+        }
+    }
+
+    private void process(final Registration registration) {
+        final String ipAddress;
+        synchronized (this.registrations) {
+            registration.started = true;
+            ipAddress = registration.ipAddress;
+        }
+
+        final long start = this.nanoTime.getAsLong();
+        record(start - registration.submittedAt, this.totalWaitTime, this.maxWaitTime);
+
+        boolean success = false;
+        try {
+            this.deviceRegistrationService.disableRegistration(registration.deviceIdentification,
+                    InetAddress.getByName(ipAddress), registration.ied, registration.serverName);
+            success = true;
+            this.disabled.incrementAndGet();
+            LOGGER.info("Disabled registration for device: {}, at IP address: {}",
+                    registration.deviceIdentification, ipAddress);
+        } catch (final Exception e) {
+            this.failed.incrementAndGet();
+            LOGGER.error("Failed to disable registration for device: {}, at IP address: {}",
+                    registration.deviceIdentification, ipAddress, e);
+        } finally {
+            final long end = this.nanoTime.getAsLong();
+            record(end - start, this.totalProcessingTime, this.maxProcessingTime);
+
+            synchronized (this.registrations) {
+                this.registrations.remove(registration.deviceIdentification);
+                if (success) {
+                    // Remove first, so the entry moves to the end of the map.
+                    this.recentlyDisabled.remove(registration.deviceIdentification);
+                    this.recentlyDisabled.put(registration.deviceIdentification, end);
+                }
+            }
+        }
+    }
+
+    private static void record(final long nanos, final AtomicLong total, final AtomicLong max) {
+        total.addAndGet(nanos);
+        long currentMax = max.get();
+        while (nanos > currentMax && !max.compareAndSet(currentMax, nanos)) {
+            currentMax = max.get();
+        }
+    }
+
+    private static long averageMillis(final AtomicLong total, final long count) {
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(total.get() / count);
+    }
+
+    @ManagedAttribute(description = "Number of registrations waiting to be disabled")
+    public int getQueueDepth() {
+        return this.workers.getQueue().size();
+    }
+
+    @ManagedAttribute(description = "Maximum number of registrations waiting to be disabled")
+    public int getQueueCapacity() {
+        return this.registrationQueueCapacity;
+    }
+
+    @ManagedAttribute(description = "Number of registrations being disabled")
+    public int getInFlightCount() {
+        return this.workers.getActiveCount();
+    }
+
+    @ManagedAttribute(description = "Number of devices of which the registration was disabled recently")
+    public int getRecentlyDisabledCount() {
+        synchronized (this.registrations) {
+            return this.recentlyDisabled.size();
+        }
+    }
+
+    @ManagedAttribute(description = "Number of queued registrations")
+    public long getSubmittedCount() {
+        return this.submitted.get();
+    }
+
+    @ManagedAttribute(description = "Number of registrations ignored because they were already queued or disabled")
+    public long getCoalescedCount() {
+        return this.coalesced.get();
+    }
+
+    @ManagedAttribute(description = "Number of registrations rejected because the queue was full")
+    public long getRejectedCount() {
+        return this.rejected.get();
+    }
+
+    @ManagedAttribute(description = "Number of registrations disabled")
+    public long getDisabledCount() {
+        return this.disabled.get();
+    }
+
+    @ManagedAttribute(description = "Number of registrations that failed to be disabled")
+    public long getFailedCount() {
+        return this.failed.get();
+    }
+
+    @ManagedAttribute(description = "Average time in milliseconds a registration waited to be disabled")
+    public long getAverageWaitTime() {
+        return averageMillis(this.totalWaitTime, this.disabled.get() + this.failed.get());
+    }
+
+    @ManagedAttribute(description = "Maximum time in milliseconds a registration waited to be disabled")
+    public long getMaxWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(this.maxWaitTime.get());
+    }
+
+    @ManagedAttribute(description = "Average time in milliseconds disabling a registration took")
+    public long getAverageProcessingTime() {
+        return averageMillis(this.totalProcessingTime, this.disabled.get() + this.failed.get());
+    }
+
+    @ManagedAttribute(description = "Maximum time in milliseconds disabling a registration took")
+    public long getMaxProcessingTime() {
+        return TimeUnit.NANOSECONDS.toMillis(this.maxProcessingTime.get());
+    }
+
+    private static final class Registration {
+
+        private final String deviceIdentification;
+        private final IED ied;
+        private final String serverName;
+        private final long submittedAt;
+
+        // Guarded by synchronizing on the registrations.
+        private String ipAddress;
+        private boolean started;
+
+        Registration(final String deviceIdentification, final String ipAddress, final IED ied,
+                final String serverName, final long submittedAt) {
+            this.deviceIdentification = deviceIdentification;
+            this.ipAddress = ipAddress;
+            this.ied = ied;
+            this.serverName = serverName;
+            this.submittedAt = submittedAt;
+        }
+    }
+}
@@ -8,8 +8,6 @@
 package com.alliander.osgp.adapter.protocol.iec61850.application.services;
 
 import java.net.InetAddress;
-import java.util.Timer;
-import java.util.TimerTask;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,6 +24,7 @@ import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.Func
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.IED;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.LogicalDevice;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.Iec61850DeviceConnectionService;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.Iec61850DisconnectScheduler;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.commands.Iec61850ClearReportCommand;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.commands.Iec61850DisableRegistrationCommand;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.commands.Iec61850EnableReportingCommand;
@@ -47,6 +46,9 @@ public class DeviceRegistrationService {
     @Autowired
     private int delayAfterDeviceRegistration;
 
+    @Autowired
+    private Iec61850DisconnectScheduler iec61850DisconnectScheduler;
+
     @Autowired
     private boolean isReportingAfterDeviceRegistrationEnabled;
 
@@ -170,19 +172,15 @@ public class DeviceRegistrationService {
     }
 
     protected void waitClearReportAndDisconnect(final DeviceConnection deviceConnection) {
-        new Timer().schedule(new TimerTask() {
-            @Override
-            public void run() {
-                try {
-                    new Iec61850ClearReportCommand().clearReportOnDevice(deviceConnection);
-                } catch (final NodeNotFoundException e) {
-                    LOGGER.error("Unable to get fcModelnode for device: " + deviceConnection.getDeviceIdentification(),
-                            e);
-                } catch (final NodeException e) {
-                    LOGGER.error("Unable to clear report for device: " + deviceConnection.getDeviceIdentification(), e);
-                }
-                DeviceRegistrationService.this.iec61850DeviceConnectionService.disconnect(deviceConnection, null);
+        this.iec61850DisconnectScheduler.schedule(deviceConnection, () -> {
+            try {
+                new Iec61850ClearReportCommand().clearReportOnDevice(deviceConnection);
+            } catch (final NodeNotFoundException e) {
+                LOGGER.error("Unable to get fcModelnode for device: " + deviceConnection.getDeviceIdentification(), e);
+            } catch (final NodeException e) {
+                LOGGER.error("Unable to clear report for device: " + deviceConnection.getDeviceIdentification(), e);
             }
+            DeviceRegistrationService.this.iec61850DeviceConnectionService.disconnect(deviceConnection, null);
         }, DeviceRegistrationService.this.delayAfterDeviceRegistration);
     }
 }
@@ -0,0 +1,234 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.device.da.rtu;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.openmuc.openiec61850.BdaFloat32;
+import org.openmuc.openiec61850.BdaQuality;
+import org.openmuc.openiec61850.BdaTimestamp;
+import org.openmuc.openiec61850.ConstructedDataAttribute;
+import org.openmuc.openiec61850.Fc;
+import org.openmuc.openiec61850.FcModelNode;
+import org.openmuc.openiec61850.LogicalDevice;
+import org.openmuc.openiec61850.LogicalNode;
+import org.openmuc.openiec61850.ModelNode;
+import org.openmuc.openiec61850.ServerModel;
+import org.osgpfoundation.osgp.dto.da.iec61850.DataSampleDto;
+import org.osgpfoundation.osgp.dto.da.iec61850.LogicalDeviceDto;
+import org.osgpfoundation.osgp.dto.da.iec61850.LogicalNodeDto;
+
+/**
+ * The power quality values of a {@link ServerModel}: the measured values (MX)
+ * of all logical nodes, found once by walking the model.
+ * <p>
+ * Only the nodes returned by {@link #getNodes()} need to be read from the
+ * device, after which {@link #getValues()} collects the values from the model
+ * nodes without walking the model again. A plan does not keep state between
+ * calls, but reading the nodes and getting the values must not be done for
+ * the same {@link ServerModel} from more than one thread at a time.
+ */
+public class DaRtuPqValuesPlan {
+
+    private static final MathContext MATH_CONTEXT = new MathContext(3, RoundingMode.HALF_EVEN);
+
+    private final ServerModel serverModel;
+    private final List<FcModelNode> nodes = new ArrayList<>();
+    private final List<LogicalDevicePlan> logicalDevices = new ArrayList<>();
+
+    public DaRtuPqValuesPlan(final ServerModel serverModel) {
+        this.serverModel = serverModel;
+        for (final ModelNode node : serverModel.getChildren()) {
+            if (node instanceof LogicalDevice) {
+                final LogicalDevicePlan logicalDevice = new LogicalDevicePlan(node.getName());
+                this.addLogicalNodes((LogicalDevice) node, logicalDevice);
+                if (!logicalDevice.logicalNodes.isEmpty()) {
+                    this.logicalDevices.add(logicalDevice);
+                }
+            }
+        }
+    }
+
+    public ServerModel getServerModel() {
+        return this.serverModel;
+    }
+
+    /**
+     * @return The measured value nodes to read from the device.
+     */
+    public List<FcModelNode> getNodes() {
+        return Collections.unmodifiableList(this.nodes);
+    }
+
+    /**
+     * @return The power quality values currently in the model nodes.
+     */
+    public List<LogicalDeviceDto> getValues() {
+        final List<LogicalDeviceDto> logicalDeviceDtos = new ArrayList<>(this.logicalDevices.size());
+        for (final LogicalDevicePlan logicalDevice : this.logicalDevices) {
+            final List<LogicalNodeDto> logicalNodeDtos = new ArrayList<>(logicalDevice.logicalNodes.size());
+            for (final LogicalNodePlan logicalNode : logicalDevice.logicalNodes) {
+                final List<DataSampleDto> samples = new ArrayList<>(logicalNode.samples.size());
+                for (final SamplePlan sample : logicalNode.samples) {
+                    samples.add(sample.getValue());
+                }
+                logicalNodeDtos.add(new LogicalNodeDto(logicalNode.name, samples));
+            }
+            logicalDeviceDtos.add(new LogicalDeviceDto(logicalDevice.name, logicalNodeDtos));
+        }
+        return logicalDeviceDtos;
+    }
+
+    private void addLogicalNodes(final LogicalDevice node, final LogicalDevicePlan logicalDevice) {
+        for (final ModelNode subNode : node.getChildren()) {
+            if (subNode instanceof LogicalNode) {
+                final LogicalNodePlan logicalNode = new LogicalNodePlan(subNode.getName());
+                this.addSamples(subNode, logicalNode);
+                if (!logicalNode.samples.isEmpty()) {
+                    logicalDevice.logicalNodes.add(logicalNode);
+                }
+            }
+        }
+    }
+
+    private void addSamples(final ModelNode logicalNode, final LogicalNodePlan logicalNodePlan) {
+        for (final ModelNode child : logicalNode.getChildren()) {
+            final FcModelNode node = (FcModelNode) child;
+            if (Fc.MX != node.getFc() || node.getChildren() == null) {
+                continue;
+            }
+            this.nodes.add(node);
+            if (this.nodeHasBdaQualityChild(node)) {
+                logicalNodePlan.samples.add(this.createSample(node));
+            } else {
+                for (final ModelNode subNode : node.getChildren()) {
+                    logicalNodePlan.samples.add(this.createSample(node, subNode));
+                }
+            }
+        }
+    }
+
+    private boolean nodeHasBdaQualityChild(final ModelNode node) {
+        for (final ModelNode subNode : node.getChildren()) {
+            if (subNode instanceof BdaQuality) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sample of a measured value, with the value in for instance mag.f.
+     */
+    private SamplePlan createSample(final ModelNode node) {
+        if (node.getChildren() == null) {
+            return new SamplePlan(null, null, null);
+        }
+        final BdaFloat32 floatNode = this.findBdaFloat32NodeInConstructedDataAttribute(node);
+        final String type = floatNode == null ? null
+                : node.getName() + "." + floatNode.getParent().getName() + "." + floatNode.getName();
+        return new SamplePlan(type, this.findBdaTimestampNode(node), floatNode);
+    }
+
+    /**
+     * Sample of a sub node of a measured value, with the value in for instance
+     * cVal.mag.f.
+     */
+    private SamplePlan createSample(final ModelNode parentNode, final ModelNode node) {
+        if (node.getChildren() == null) {
+            return new SamplePlan(null, null, null);
+        }
+        final BdaFloat32 floatNode = this.findDeeperBdaFloat32NodeInConstructedDataAttributeChildren(node);
+        final String type = floatNode == null ? null
+                : parentNode.getName() + "." + node.getName() + "." + floatNode.getParent().getParent().getName()
+                        + "." + floatNode.getParent().getName() + "." + floatNode.getName();
+        return new SamplePlan(type, this.findBdaTimestampNode(node), floatNode);
+    }
+
+    private BdaTimestamp findBdaTimestampNode(final ModelNode node) {
+        BdaTimestamp timestamp = null;
+        for (final ModelNode subNode : node.getChildren()) {
+            if (subNode instanceof BdaTimestamp) {
+                timestamp = (BdaTimestamp) subNode;
+            }
+        }
+        return timestamp;
+    }
+
+    private BdaFloat32 findBdaFloat32NodeInConstructedDataAttribute(final ModelNode node) {
+        BdaFloat32 floatNode = null;
+        for (final ModelNode subNode : node.getChildren()) {
+            if (subNode instanceof ConstructedDataAttribute && subNode.getChildren() != null) {
+                floatNode = this.findBdaFloat32Node(subNode);
+            }
+        }
+        return floatNode;
+    }
+
+    private BdaFloat32 findBdaFloat32Node(final ModelNode node) {
+        BdaFloat32 floatNode = null;
+        for (final ModelNode subNode : node.getChildren()) {
+            if (subNode instanceof BdaFloat32) {
+                floatNode = (BdaFloat32) subNode;
+            }
+        }
+        return floatNode;
+    }
+
+    private BdaFloat32 findDeeperBdaFloat32NodeInConstructedDataAttributeChildren(final ModelNode node) {
+        BdaFloat32 floatNode = null;
+        for (final ModelNode subNode : node.getChildren()) {
+            if (subNode instanceof ConstructedDataAttribute && subNode.getChildren() != null) {
+                floatNode = this.findBdaFloat32NodeInConstructedDataAttribute(subNode);
+            }
+        }
+        return floatNode;
+    }
+
+    private static final class LogicalDevicePlan {
+        private final String name;
+        private final List<LogicalNodePlan> logicalNodes = new ArrayList<>();
+
+        LogicalDevicePlan(final String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class LogicalNodePlan {
+        private final String name;
+        private final List<SamplePlan> samples = new ArrayList<>();
+
+        LogicalNodePlan(final String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class SamplePlan {
+        private final String type;
+        private final BdaTimestamp timestampNode;
+        private final BdaFloat32 floatNode;
+
+        SamplePlan(final String type, final BdaTimestamp timestampNode, final BdaFloat32 floatNode) {
+            this.type = type;
+            this.timestampNode = timestampNode;
+            this.floatNode = floatNode;
+        }
+
+        DataSampleDto getValue() {
+            final BigDecimal value = this.floatNode == null ? null
+                    : new BigDecimal(this.floatNode.getFloat(), MATH_CONTEXT);
+            return new DataSampleDto(this.type, this.timestampNode == null ? null : this.timestampNode.getDate(),
+                    value);
+        }
+    }
+}
@@ -8,6 +8,7 @@
 package com.alliander.osgp.adapter.protocol.iec61850.device.rtu;
 
 import com.alliander.osgp.adapter.protocol.iec61850.exceptions.NodeException;
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.NodeNotFoundException;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850Client;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.DeviceConnection;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.LogicalDevice;
@@ -17,5 +18,14 @@ public interface RtuReadCommand<T> {
     T execute(Iec61850Client client, DeviceConnection connection, LogicalDevice logicalDevice, int logicalDeviceIndex)
             throws NodeException;
 
+    /**
+     * Returns the node that is read by
+     * {@link #execute(Iec61850Client, DeviceConnection, LogicalDevice, int)},
+     * without reading it. This allows the reads of several commands to be
+     * combined, see {@link RtuReadPlan}.
+     */
+    NodeContainer getContainingNode(DeviceConnection connection, LogicalDevice logicalDevice, int logicalDeviceIndex)
+            throws NodeNotFoundException;
+
     T translate(final NodeContainer containingNode);
 }
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.device.rtu;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.openmuc.openiec61850.FcModelNode;
+
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.NodeNotFoundException;
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.NodeReadException;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850Client;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.DeviceConnection;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.LogicalDevice;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.NodeContainer;
+
+/**
+ * Collects the {@link RtuReadCommand}s for a logical device, so the nodes they
+ * need can be read from the device with as few requests as possible. The
+ * values are translated locally after all nodes have been read.
+ * <p>
+ * The results of each command are added to the list given with the command,
+ * in the order the commands were added.
+ */
+public class RtuReadPlan {
+
+    private final DeviceConnection connection;
+    private final LogicalDevice logicalDevice;
+    private final int logicalDeviceIndex;
+
+    private final List<PlannedRead<?>> plannedReads = new ArrayList<>();
+
+    public RtuReadPlan(final DeviceConnection connection, final LogicalDevice logicalDevice,
+            final int logicalDeviceIndex) {
+        this.connection = connection;
+        this.logicalDevice = logicalDevice;
+        this.logicalDeviceIndex = logicalDeviceIndex;
+    }
+
+    /**
+     * Adds a command to the plan. The translated value is added to the given
+     * results when the plan is executed.
+     *
+     * @throws NodeNotFoundException
+     *             In case the node read by the command does not exist.
+     */
+    public <T> void add(final RtuReadCommand<T> command, final List<T> results) throws NodeNotFoundException {
+        final NodeContainer containingNode = command.getContainingNode(this.connection, this.logicalDevice,
+                this.logicalDeviceIndex);
+        this.plannedReads.add(new PlannedRead<>(command, containingNode, results));
+    }
+
+    /**
+     * Reads all nodes needed by the commands in this plan, and translates the
+     * values read for every command.
+     *
+     * @throws NodeReadException
+     *             In case the nodes could not be read.
+     */
+    public void execute(final Iec61850Client client) throws NodeReadException {
+        if (this.plannedReads.isEmpty()) {
+            return;
+        }
+
+        // Different commands may need the same node, read it only once.
+        final Set<FcModelNode> nodes = new LinkedHashSet<>();
+        for (final PlannedRead<?> plannedRead : this.plannedReads) {
+            nodes.add(plannedRead.containingNode.getFcmodelNode());
+        }
+
+        client.readNodesDataValues(this.connection.getConnection(), new ArrayList<>(nodes));
+
+        for (final PlannedRead<?> plannedRead : this.plannedReads) {
+            plannedRead.translate();
+        }
+    }
+
+    private static final class PlannedRead<T> {
+
+        private final RtuReadCommand<T> command;
+        private final NodeContainer containingNode;
+        private final List<T> results;
+
+        PlannedRead(final RtuReadCommand<T> command, final NodeContainer containingNode, final List<T> results) {
+            this.command = command;
+            this.containingNode = containingNode;
+            this.results = results;
+        }
+
+        void translate() {
+            this.results.add(this.command.translate(this.containingNode));
+        }
+    }
+}
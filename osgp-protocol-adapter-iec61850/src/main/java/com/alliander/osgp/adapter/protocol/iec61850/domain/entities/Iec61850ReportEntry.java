@@ -0,0 +1,105 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.domain.entities;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+import org.openmuc.openiec61850.HexConverter;
+
+import com.alliander.osgp.shared.domain.entities.AbstractEntity;
+
+/**
+ * The last entry of a buffered report control block of a device that has been
+ * processed, so buffered reporting can resume after this entry when the device
+ * is connected again.
+ */
+@Entity
+@Table(name = "iec61850_report_entry")
+public class Iec61850ReportEntry extends AbstractEntity {
+
+    /**
+     * Serial Version UID.
+     */
+    private static final long serialVersionUID = 7462309134811271904L;
+
+    @Column(nullable = false, length = 40)
+    private String deviceIdentification;
+
+    @Column(nullable = false, length = 255)
+    private String reportId;
+
+    @Column(nullable = false)
+    private byte[] entryId;
+
+    @Column
+    private Integer sqNum;
+
+    public Iec61850ReportEntry() {
+        // Default constructor
+    }
+
+    public Iec61850ReportEntry(final String deviceIdentification, final String reportId, final byte[] entryId,
+            final Integer sqNum) {
+        this.deviceIdentification = deviceIdentification;
+        this.reportId = reportId;
+        this.entryId = entryId;
+        this.sqNum = sqNum;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Iec61850ReportEntry[deviceIdentification=%s, reportId=%s, entryId=%s, sqNum=%s]",
+                this.deviceIdentification, this.reportId, HexConverter.toHexString(this.entryId), this.sqNum);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Iec61850ReportEntry)) {
+            return false;
+        }
+
+        final Iec61850ReportEntry reportEntry = (Iec61850ReportEntry) o;
+
+        return Objects.equals(this.deviceIdentification, reportEntry.deviceIdentification)
+                && Objects.equals(this.reportId, reportEntry.reportId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.deviceIdentification, this.reportId);
+    }
+
+    public String getDeviceIdentification() {
+        return this.deviceIdentification;
+    }
+
+    public String getReportId() {
+        return this.reportId;
+    }
+
+    public byte[] getEntryId() {
+        return Arrays.copyOf(this.entryId, this.entryId.length);
+    }
+
+    public Integer getSqNum() {
+        return this.sqNum;
+    }
+
+    public void updateEntry(final byte[] entryId, final Integer sqNum) {
+        this.entryId = Arrays.copyOf(entryId, entryId.length);
+        this.sqNum = sqNum;
+    }
+}
@@ -0,0 +1,299 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.messaging;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.jms.JMSException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs device requests on a bounded pool of worker threads. Requests for the
+ * same device are run one at a time, in the order in which they were
+ * dispatched, while requests for different devices run in parallel.
+ * <p>
+ * The number of dispatched requests that have not finished yet is bounded.
+ * When that bound is reached, {@link #dispatch(String, Request)} waits for
+ * requests to finish, which slows down the JMS listener container consuming
+ * the requests.
+ * <p>
+ * The JMS listener uses {@link #dispatchAndWait(String, Request)}, so a
+ * message is only acknowledged after its request has finished, and a
+ * {@link JMSException} thrown by the request, for instance to have the message
+ * redelivered after a connection failure, reaches the listener container. The
+ * acknowledgement cannot be left to the worker thread, as a JMS session may
+ * only be used by the thread of its consumer. Instead the listener container
+ * has no more consumers than there are worker threads, so a consumer waits
+ * for its own request only, never for a free worker.
+ */
+@Component
+@ManagedResource(description = "Dispatcher of device requests to worker threads")
+public class DeviceRequestDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeviceRequestDispatcher.class);
+
+    private final int requestDispatcherPoolSize;
+
+    private final int requestDispatcherMaxPending;
+
+    private final int requestDispatcherDispatchTimeout;
+
+    /**
+     * Queues of requests per device identification, for devices that have a
+     * request running. Guarded by synchronizing on the map.
+     */
+    private final Map<String, DeviceQueue> deviceQueues = new HashMap<>();
+
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalQueueTime = new AtomicLong();
+
+    private Semaphore pending;
+
+    private ExecutorService workers;
+
+    @Autowired
+    public DeviceRequestDispatcher(@Qualifier("requestDispatcherPoolSize") final int requestDispatcherPoolSize,
+            @Qualifier("requestDispatcherMaxPending") final int requestDispatcherMaxPending,
+            @Qualifier("requestDispatcherDispatchTimeout") final int requestDispatcherDispatchTimeout) {
+        this.requestDispatcherPoolSize = requestDispatcherPoolSize;
+        this.requestDispatcherMaxPending = requestDispatcherMaxPending;
+        this.requestDispatcherDispatchTimeout = requestDispatcherDispatchTimeout;
+    }
+
+    @PostConstruct
+    void init() {
+        this.pending = new Semaphore(this.requestDispatcherMaxPending);
+        this.workers = Executors.newFixedThreadPool(this.requestDispatcherPoolSize);
+    }
+
+    @PreDestroy
+    void destroy() {
+        this.workers.shutdown();
+    }
+
+    /**
+     * Dispatches a request for the given device to the worker threads, and
+     * waits for it to finish.
+     *
+     * @throws JMSException
+     *             In case the request could not be dispatched, or the request
+     *             itself threw a JMSException, so the JMS message will be
+     *             redelivered later.
+     */
+    public void dispatchAndWait(final String deviceIdentification, final Request request) throws JMSException {
+        final CompletableFuture<Void> completion = this.dispatch(deviceIdentification, request);
+        try {
+            completion.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JMSException("Interrupted while waiting for request for device: " + deviceIdentification);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof JMSException) {
+                throw (JMSException) e.getCause();
+            }
+            // Other exceptions are logged by the worker thread.
+        }
+    }
+
+    /**
+     * Dispatches a request for the given device to the worker threads.
+     *
+     * @return The completion of the request, which completes exceptionally if
+     *         the request throws an exception.
+     *
+     * @throws JMSException
+     *             In case the maximum number of pending requests is reached
+     *             and no request finished within the dispatch time-out, so the
+     *             JMS message will be redelivered later.
+     */
+    public CompletableFuture<Void> dispatch(final String deviceIdentification, final Request request)
+            throws JMSException {
+        try {
+            if (!this.pending.tryAcquire(this.requestDispatcherDispatchTimeout, TimeUnit.MILLISECONDS)) {
+                this.rejected.incrementAndGet();
+                throw new JMSException("Unable to dispatch request for device: " + deviceIdentification + ", "
+                        + this.requestDispatcherMaxPending + " requests are pending");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JMSException("Interrupted while dispatching request for device: " + deviceIdentification);
+        }
+        this.dispatched.incrementAndGet();
+
+        final QueuedRequest queuedRequest = new QueuedRequest(request);
+        synchronized (this.deviceQueues) {
+            DeviceQueue deviceQueue = this.deviceQueues.get(deviceIdentification);
+            if (deviceQueue == null) {
+                deviceQueue = new DeviceQueue(deviceIdentification);
+                this.deviceQueues.put(deviceIdentification, deviceQueue);
+                deviceQueue.add(queuedRequest);
+                this.schedule(deviceQueue);
+            } else {
+                // A request for the device is running, it schedules this
+                // request when it has finished.
+                deviceQueue.add(queuedRequest);
+            }
+        }
+        return queuedRequest.getCompletion();
+    }
+
+    private void schedule(final DeviceQueue deviceQueue) {
+        this.workers.execute(() -> this.runNext(deviceQueue));
+    }
+
+    /**
+     * Runs the first request for a device, and schedules the next one
+     * afterwards instead of running it directly, so requests for other
+     * devices get their turn.
+     */
+    private void runNext(final DeviceQueue deviceQueue) {
+        final QueuedRequest queuedRequest;
+        synchronized (this.deviceQueues) {
+            queuedRequest = deviceQueue.peek();
+        }
+
+        this.totalQueueTime.addAndGet(System.currentTimeMillis() - queuedRequest.getDispatchTime());
+        Exception failure = null;
+        try {
+            queuedRequest.getRequest().run();
+        } catch (final JMSException e) {
+            failure = e;
+        } catch (final RuntimeException e) {
+            LOGGER.error("Unexpected exception running request for device: " + deviceQueue.getDeviceIdentification(),
+                    e);
+            failure = e;
+        } finally {
+            this.pending.release();
+        }
+
+        synchronized (this.deviceQueues) {
+            deviceQueue.remove();
+            if (deviceQueue.isEmpty()) {
+                this.deviceQueues.remove(deviceQueue.getDeviceIdentification());
+            } else {
+                this.schedule(deviceQueue);
+            }
+        }
+
+        if (failure == null) {
+            queuedRequest.getCompletion().complete(null);
+        } else {
+            queuedRequest.getCompletion().completeExceptionally(failure);
+        }
+    }
+
+    @ManagedAttribute(description = "Number of dispatched requests that have not finished yet")
+    public int getPendingCount() {
+        return this.requestDispatcherMaxPending - this.pending.availablePermits();
+    }
+
+    @ManagedAttribute(description = "Number of devices with dispatched requests that have not finished yet")
+    public int getActiveDeviceCount() {
+        synchronized (this.deviceQueues) {
+            return this.deviceQueues.size();
+        }
+    }
+
+    @ManagedAttribute(description = "Number of dispatched requests")
+    public long getDispatchedCount() {
+        return this.dispatched.get();
+    }
+
+    @ManagedAttribute(description = "Number of requests that could not be dispatched within the dispatch time-out")
+    public long getRejectedCount() {
+        return this.rejected.get();
+    }
+
+    @ManagedAttribute(description = "Average time in milliseconds between dispatching and running a request")
+    public double getAverageQueueTime() {
+        final long dispatchedCount = this.dispatched.get();
+        return dispatchedCount == 0 ? 0 : (double) this.totalQueueTime.get() / dispatchedCount;
+    }
+
+    /**
+     * A request for a device, that may throw a JMSException to have the JMS
+     * message of the request redelivered.
+     */
+    @FunctionalInterface
+    public interface Request {
+        void run() throws JMSException;
+    }
+
+    private static final class QueuedRequest {
+
+        private final Request request;
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private final long dispatchTime = System.currentTimeMillis();
+
+        QueuedRequest(final Request request) {
+            this.request = request;
+        }
+
+        Request getRequest() {
+            return this.request;
+        }
+
+        CompletableFuture<Void> getCompletion() {
+            return this.completion;
+        }
+
+        long getDispatchTime() {
+            return this.dispatchTime;
+        }
+    }
+
+    private static final class DeviceQueue {
+
+        private final String deviceIdentification;
+        private final Queue<QueuedRequest> requests = new ArrayDeque<>();
+
+        DeviceQueue(final String deviceIdentification) {
+            this.deviceIdentification = deviceIdentification;
+        }
+
+        String getDeviceIdentification() {
+            return this.deviceIdentification;
+        }
+
+        void add(final QueuedRequest request) {
+            this.requests.add(request);
+        }
+
+        QueuedRequest peek() {
+            return this.requests.peek();
+        }
+
+        void remove() {
+            this.requests.remove();
+        }
+
+        boolean isEmpty() {
+            return this.requests.isEmpty();
+        }
+    }
+}
@@ -44,6 +44,9 @@ public class DeviceRequestMessageListener implements SessionAwareMessageListener
     @Autowired
     private DeviceResponseMessageSender deviceResponseMessageSender;
 
+    @Autowired
+    private DeviceRequestDispatcher deviceRequestDispatcher;
+
     /*
      * (non-Javadoc)
      *
@@ -55,17 +58,38 @@ public class DeviceRequestMessageListener implements SessionAwareMessageListener
     public void onMessage(final Message message, final Session session) throws JMSException {
         final ObjectMessage objectMessage = (ObjectMessage) message;
         String messageType = null;
+        String deviceIdentification = null;
         MessageProcessor processor = null;
         try {
             messageType = message.getJMSType();
-            LOGGER.info("Received message of type: {}", messageType);
+            deviceIdentification = message.getStringProperty(Constants.DEVICE_IDENTIFICATION);
+            LOGGER.info("Received message of type: {} for device: {}", messageType, deviceIdentification);
             processor = this.iec61850RequestMessageProcessorMap.getMessageProcessor(objectMessage);
         } catch (final IllegalArgumentException | JMSException e) {
             LOGGER.error("Unexpected IllegalArgumentException | JMSExceptionduring during onMessage(Message)", e);
             this.createAndSendException(objectMessage, messageType);
             return;
         }
-        processor.processMessage(objectMessage);
+
+        // Requests for the same device are processed one at a time, so they
+        // do not interleave on the connection to the device. The message is
+        // acknowledged after the request has finished, a JMSException thrown
+        // while processing it makes the message to be redelivered. There are
+        // no more consumers than worker threads, so this only waits for the
+        // request of this message, not for a free worker thread.
+        final MessageProcessor messageProcessor = processor;
+        final String requestMessageType = messageType;
+        this.deviceRequestDispatcher.dispatchAndWait(deviceIdentification,
+                () -> this.processMessage(messageProcessor, objectMessage, requestMessageType));
+    }
+
+    private void processMessage(final MessageProcessor processor, final ObjectMessage objectMessage,
+            final String messageType) throws JMSException {
+        try {
+            processor.processMessage(objectMessage);
+        } catch (final RuntimeException e) {
+            LOGGER.error("Unexpected exception processing message of type: " + messageType, e);
+        }
     }
 
     private void createAndSendException(final ObjectMessage objectMessage, final String messageType) {
@@ -20,6 +20,8 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.jms.core.MessageCreator;
 
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850LatencyMetrics;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850LatencyMetrics.Phase;
 import com.alliander.osgp.shared.infra.jms.Constants;
 import com.alliander.osgp.shared.infra.jms.ProtocolResponseMessage;
 import com.alliander.osgp.shared.infra.jms.ResponseMessage;
@@ -33,6 +35,9 @@ public class DeviceResponseMessageSender implements ResponseMessageSender {
     @Qualifier("iec61850ResponsesJmsTemplate")
     private JmsTemplate iec61850ResponsesJmsTemplate;
 
+    @Autowired
+    private Iec61850LatencyMetrics iec61850LatencyMetrics;
+
     @Override
     public void send(final ResponseMessage responseMessage) {
         if (!(responseMessage instanceof ProtocolResponseMessage)) {
@@ -46,7 +51,13 @@ public class DeviceResponseMessageSender implements ResponseMessageSender {
             return;
         }
 
-        this.sendMessage(msg);
+        final long start = System.nanoTime();
+        try {
+            this.sendMessage(msg);
+        } finally {
+            // The IED type of the device is not known to the response.
+            this.iec61850LatencyMetrics.record(Phase.RESPONSE_SEND, null, msg.getMessageType(), start);
+        }
     }
 
     private boolean checkMessage(final ProtocolResponseMessage msg) {
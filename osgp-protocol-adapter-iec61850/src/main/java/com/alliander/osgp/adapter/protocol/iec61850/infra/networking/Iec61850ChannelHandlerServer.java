@@ -7,7 +7,6 @@
  */
 package com.alliander.osgp.adapter.protocol.iec61850.infra.networking;
 
-import java.net.InetAddress;
 import java.util.UUID;
 
 import org.jboss.netty.channel.ChannelHandlerContext;
@@ -16,7 +15,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import com.alliander.osgp.adapter.protocol.iec61850.application.services.DeviceRegistrationService;
+import com.alliander.osgp.adapter.protocol.iec61850.application.services.DeviceRegistrationQueue;
 import com.alliander.osgp.adapter.protocol.iec61850.domain.repositories.Iec61850DeviceRepository;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.messaging.OsgpRequestMessageSender;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.IED;
@@ -34,7 +33,7 @@ public class Iec61850ChannelHandlerServer extends Iec61850ChannelHandler {
     private OsgpRequestMessageSender osgpRequestMessageSender;
 
     @Autowired
-    private DeviceRegistrationService deviceRegistrationService;
+    private DeviceRegistrationQueue deviceRegistrationQueue;
 
     @Autowired
     private String testDeviceId;
@@ -86,13 +85,6 @@ public class Iec61850ChannelHandlerServer extends Iec61850ChannelHandler {
         LOGGER.info("Sending register device request to OSGP with correlation ID: " + correlationId);
         this.osgpRequestMessageSender.send(requestMessage, DeviceFunctionDto.REGISTER_DEVICE.name());
 
-        try {
-            this.deviceRegistrationService.disableRegistration(deviceIdentification, InetAddress.getByName(ipAddress),
-                    ied, ied.getDescription());
-            LOGGER.info("Disabled registration for device: {}, at IP address: {}", deviceIdentification, ipAddress);
-        } catch (final Exception e) {
-            LOGGER.error("Failed to disable registration for device: {}, at IP address: {}", deviceIdentification,
-                    ipAddress, e);
-        }
+        this.deviceRegistrationQueue.submit(deviceIdentification, ipAddress, ied, ied.getDescription());
     }
 }
@@ -9,12 +9,15 @@ package com.alliander.osgp.adapter.protocol.iec61850.infra.networking;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.PostConstruct;
 
 import org.apache.commons.lang3.StringUtils;
 import org.openmuc.openiec61850.ClientAssociation;
 import org.openmuc.openiec61850.ClientSap;
+import org.openmuc.openiec61850.DataSet;
 import org.openmuc.openiec61850.FcModelNode;
 import org.openmuc.openiec61850.SclParseException;
 import org.openmuc.openiec61850.ServerModel;
@@ -26,9 +29,10 @@ import org.springframework.stereotype.Component;
 
 import com.alliander.osgp.adapter.protocol.iec61850.domain.valueobjects.DeviceMessageLog;
 import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ConnectionFailureException;
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.NodeException;
 import com.alliander.osgp.adapter.protocol.iec61850.exceptions.NodeReadException;
-import com.alliander.osgp.adapter.protocol.iec61850.exceptions.NodeWriteException;
 import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ProtocolAdapterException;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850LatencyMetrics.Phase;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.ConnectionState;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.Function;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.IED;
@@ -42,6 +46,14 @@ public class Iec61850Client {
     private static final Logger LOGGER = LoggerFactory.getLogger(Iec61850Client.class);
     private static final String COULD_NOT_EXECUTE_COMMAND = "Could not execute command";
 
+    /**
+     * Prefix for data sets that only exist for the duration of the association
+     * that created them.
+     */
+    private static final String NON_PERSISTENT_DATA_SET_PREFIX = "@OsgpRead";
+
+    private final AtomicInteger nonPersistentDataSetCounter = new AtomicInteger();
+
     @Autowired
     private int iec61850PortClient;
 
@@ -60,6 +72,12 @@ public class Iec61850Client {
     @Autowired
     private int maxRetryCount;
 
+    @Autowired
+    private Iec61850LatencyMetrics iec61850LatencyMetrics;
+
+    @Autowired
+    private Iec61850RetryPolicy iec61850RetryPolicy;
+
     @PostConstruct
     private void init() {
         LOGGER.info(
@@ -97,10 +115,12 @@ public class Iec61850Client {
         LOGGER.info("Attempting to connect to server: {} on port: {}, max redelivery count: {} and max retry count: {}",
                 ipAddress.getHostAddress(), port, this.maxRedeliveriesForIec61850Requests, this.maxRetryCount);
 
+        this.iec61850RetryPolicy.checkCircuit(deviceIdentification);
         try {
             final ClientAssociation association = clientSap.associate(ipAddress, port, null, reportListener);
             clientAssociation = new Iec61850ClientAssociation(association, reportListener);
         } catch (final IOException e) {
+            this.iec61850RetryPolicy.recordConnectionFailure(deviceIdentification);
             // An IOException will always indicate a fatal exception. It
             // indicates that the association was closed and
             // cannot be recovered. You will need to create a new association
@@ -229,6 +249,91 @@ public class Iec61850Client {
         }
     }
 
+    /**
+     * Read the values of all data attributes of the given data objects with as
+     * few requests as possible.
+     * <p>
+     * Multiple nodes are read in one request using a temporary, non-persistent
+     * data set, which is deleted afterwards. If the device does not allow the
+     * data set to be created or read, the nodes are read one by one, and no
+     * data sets are created on the connection anymore.
+     *
+     * @param connection
+     *            The {@link Iec61850Connection} to read with.
+     * @param modelNodes
+     *            The {@link FcModelNode}s to read.
+     *
+     * @throws NodeReadException
+     *             In case the read action fails.
+     */
+    public void readNodesDataValues(final Iec61850Connection connection, final List<FcModelNode> modelNodes)
+            throws NodeReadException {
+        final ClientAssociation clientAssociation = connection.getClientAssociation();
+        if (modelNodes.size() <= 1 || !connection.isDynamicDataSetsSupported()) {
+            this.readNodesOneByOne(clientAssociation, modelNodes);
+            return;
+        }
+
+        final DataSet dataSet = new DataSet(
+                NON_PERSISTENT_DATA_SET_PREFIX + this.nonPersistentDataSetCounter.incrementAndGet(), modelNodes);
+        try {
+            clientAssociation.createDataSet(dataSet);
+        } catch (final ServiceError e) {
+            LOGGER.warn("ServiceError creating data set {} for {} nodes, reading nodes one by one: {}",
+                    dataSet.getReferenceStr(), modelNodes.size(), e.getMessage());
+            this.dynamicDataSetFailed(connection, e);
+            this.readNodesOneByOne(clientAssociation, modelNodes);
+            return;
+        } catch (final IOException e) {
+            LOGGER.error("IOException during readNodesDataValues", e);
+            throw new NodeReadException(e.getMessage(), e, ConnectionState.BROKEN);
+        }
+
+        try {
+            this.readDataSetValues(clientAssociation, dataSet);
+        } catch (final ServiceError e) {
+            LOGGER.warn("ServiceError reading data set {}, reading nodes one by one: {}", dataSet.getReferenceStr(),
+                    e.getMessage());
+            this.dynamicDataSetFailed(connection, e);
+            this.readNodesOneByOne(clientAssociation, modelNodes);
+        } catch (final IOException e) {
+            LOGGER.error("IOException during readNodesDataValues", e);
+            throw new NodeReadException(e.getMessage(), e, ConnectionState.BROKEN);
+        } finally {
+            this.deleteDataSet(clientAssociation, dataSet);
+        }
+    }
+
+    private void dynamicDataSetFailed(final Iec61850Connection connection, final ServiceError e) {
+        // A time out says nothing about the support for data sets.
+        if (e.getErrorCode() != ServiceError.TIMEOUT) {
+            LOGGER.info("Reading nodes one by one on this connection, as data sets are not supported");
+            connection.setDynamicDataSetsUnsupported();
+        }
+    }
+
+    private void readNodesOneByOne(final ClientAssociation clientAssociation, final List<FcModelNode> modelNodes)
+            throws NodeReadException {
+        for (final FcModelNode modelNode : modelNodes) {
+            this.readNodeDataValues(clientAssociation, modelNode);
+        }
+    }
+
+    private void readDataSetValues(final ClientAssociation clientAssociation, final DataSet dataSet)
+            throws ServiceError, IOException {
+        clientAssociation.getDataSetValues(dataSet);
+    }
+
+    private void deleteDataSet(final ClientAssociation clientAssociation, final DataSet dataSet) {
+        try {
+            clientAssociation.deleteDataSet(dataSet);
+        } catch (final ServiceError | IOException e) {
+            // The data set is non-persistent, it is removed by the device when
+            // the association is closed.
+            LOGGER.debug("Unable to delete data set {}", dataSet.getReferenceStr(), e);
+        }
+    }
+
     /**
      * Executes the apply method of the given {@link Function} with retries.
      *
@@ -236,25 +341,23 @@ public class Iec61850Client {
      */
     public <T> T sendCommandWithRetry(final Function<T> function, final String deviceIdentification)
             throws ProtocolAdapterException {
-        T output = null;
+        return this.sendCommandWithRetry(function, null, null, deviceIdentification);
+    }
 
+    /**
+     * Executes the apply method of the given {@link Function} with retries,
+     * recording its duration for the given IED type and message type.
+     *
+     * @return The given T.
+     */
+    public <T> T sendCommandWithRetry(final Function<T> function, final IED ied, final String messageType,
+            final String deviceIdentification) throws ProtocolAdapterException {
+        final long start = System.nanoTime();
         try {
-            output = function.apply(null);
-        } catch (final NodeWriteException | NodeReadException e) {
-            if (ConnectionState.OK.equals(e.getConnectionState())) {
-                // ServiceError means we have to retry.
-                LOGGER.error("Caught ServiceError, retrying", e);
-                this.sendCommandWithRetry(function, deviceIdentification, 1, null);
-            } else {
-                LOGGER.error("Caught IOException, connection with device is broken.", e);
-            }
-        } catch (final ConnectionFailureException e) {
-            throw e;
-        } catch (final Exception e) {
-            throw new ProtocolAdapterException(e.getMessage() == null ? COULD_NOT_EXECUTE_COMMAND : e.getMessage(), e);
+            return this.executeWithRetry(function, ied, deviceIdentification, null);
+        } finally {
+            this.iec61850LatencyMetrics.record(Phase.FUNCTION, ied, messageType, start);
         }
-
-        return output;
     }
 
     /**
@@ -265,51 +368,68 @@ public class Iec61850Client {
      */
     public <T> T sendCommandWithRetry(final Function<T> function, final String functionName,
             final String deviceIdentification) throws ProtocolAdapterException {
-        T output = null;
         final DeviceMessageLog deviceMessageLog = new DeviceMessageLog(IED.FLEX_OVL, LogicalDevice.LIGHTING,
                 functionName);
+        final long start = System.nanoTime();
         try {
-            output = function.apply(deviceMessageLog);
-        } catch (final NodeWriteException | NodeReadException e) {
-            if (ConnectionState.OK.equals(e.getConnectionState())) {
-                // ServiceError means we have to retry.
-                LOGGER.error("Caught ServiceError, retrying", e);
-                this.sendCommandWithRetry(function, deviceIdentification, 1, deviceMessageLog);
-            } else {
-                LOGGER.error("Caught IOException, connection with device is broken.", e);
-            }
-        } catch (final ConnectionFailureException e) {
-            throw e;
-        } catch (final Exception e) {
-            throw new ProtocolAdapterException(e.getMessage() == null ? COULD_NOT_EXECUTE_COMMAND : e.getMessage(), e);
+            return this.executeWithRetry(function, IED.FLEX_OVL, deviceIdentification, deviceMessageLog);
+        } finally {
+            this.iec61850LatencyMetrics.record(Phase.FUNCTION, IED.FLEX_OVL, functionName, start);
         }
-
-        return output;
     }
 
     /**
-     * Basically the same as sendCommandWithRetry, but with a retry parameter.
+     * Executes the apply method of the given {@link Function}, retrying after
+     * a {@link ServiceError} as allowed by the {@link Iec61850RetryPolicy}.
+     * <p>
+     * A broken connection or a time-out is not retried, it is registered with
+     * the circuit breaker of the device and reported as a
+     * {@link ConnectionFailureException}, leaving it to the redelivery of the
+     * request to try again later.
      */
-    private <T> T sendCommandWithRetry(final Function<T> function, final String deviceIdentification,
-            final int retryCount, final DeviceMessageLog deviceMessageLog) throws ProtocolAdapterException {
-
-        T output = null;
-
-        LOGGER.info("retry: {} of {} for deviceIdentification: {}", retryCount, this.maxRetryCount,
-                deviceIdentification);
-
-        try {
-            output = function.apply(deviceMessageLog);
-        } catch (final ProtocolAdapterException e) {
-            if (retryCount >= this.maxRetryCount) {
+    private <T> T executeWithRetry(final Function<T> function, final IED ied, final String deviceIdentification,
+            final DeviceMessageLog deviceMessageLog) throws ProtocolAdapterException {
+
+        this.iec61850RetryPolicy.beforeRequest(deviceIdentification, ied);
+
+        int retryCount = 0;
+        while (true) {
+            try {
+                final T output = function.apply(deviceMessageLog);
+                this.iec61850RetryPolicy.recordSuccess(deviceIdentification);
+                return output;
+            } catch (final NodeException e) {
+                if (ConnectionState.BROKEN.equals(e.getConnectionState()) || isTimeout(e)) {
+                    LOGGER.error("Caught IOException or time-out, connection with device is broken.", e);
+                    this.iec61850RetryPolicy.recordConnectionFailure(deviceIdentification);
+                    throw new ConnectionFailureException(
+                            e.getMessage() == null ? COULD_NOT_EXECUTE_COMMAND : e.getMessage(), e);
+                }
+                if (!ConnectionState.OK.equals(e.getConnectionState())) {
+                    throw e;
+                }
+                // ServiceError means we have to retry, the device is reachable.
+                retryCount++;
+                if (!this.iec61850RetryPolicy.mayRetry(deviceIdentification, ied, retryCount)) {
+                    throw e;
+                }
+                LOGGER.error("Caught ServiceError, retry: {} of {} for deviceIdentification: {}", retryCount,
+                        this.maxRetryCount, deviceIdentification, e);
+                this.iec61850RetryPolicy.backOff(retryCount);
+            } catch (final ConnectionFailureException e) {
+                this.iec61850RetryPolicy.recordConnectionFailure(deviceIdentification);
+                throw e;
+            } catch (final ProtocolAdapterException e) {
                 throw e;
-            } else {
-                this.sendCommandWithRetry(function, deviceIdentification, retryCount + 1, deviceMessageLog);
+            } catch (final Exception e) {
+                throw new ProtocolAdapterException(e.getMessage() == null ? COULD_NOT_EXECUTE_COMMAND : e.getMessage(),
+                        e);
             }
-        } catch (final Exception e) {
-            throw new ProtocolAdapterException(e.getMessage() == null ? COULD_NOT_EXECUTE_COMMAND : e.getMessage(), e);
         }
+    }
 
-        return output;
+    private static boolean isTimeout(final NodeException e) {
+        return e.getCause() instanceof ServiceError
+                && ((ServiceError) e.getCause()).getErrorCode() == ServiceError.TIMEOUT;
     }
 }
@@ -38,4 +38,13 @@ public class Iec61850ClientAssociation {
     public Iec61850ClientBaseEventListener getReportListener() {
         return this.reportListener;
     }
+
+    /**
+     * @return false if the association has been closed, as far as the report
+     *         listener has been told by the device or the transport layer.
+     */
+    public boolean isOpen() {
+        return this.clientAssociation != null
+                && (this.reportListener == null || !this.reportListener.isAssociationClosed());
+    }
 }
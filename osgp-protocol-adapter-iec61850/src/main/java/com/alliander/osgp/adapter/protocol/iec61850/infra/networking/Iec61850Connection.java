@@ -7,10 +7,15 @@
  */
 package com.alliander.osgp.adapter.protocol.iec61850.infra.networking;
 
+import java.util.Objects;
+
 import org.joda.time.DateTime;
 import org.openmuc.openiec61850.ClientAssociation;
 import org.openmuc.openiec61850.ServerModel;
 
+import com.alliander.osgp.adapter.protocol.iec61850.device.da.rtu.DaRtuPqValuesPlan;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.FcModelNodeIndex;
+
 public class Iec61850Connection {
 
     private Iec61850ClientAssociation clientAssociation;
@@ -19,6 +24,12 @@ public class Iec61850Connection {
 
     private DateTime connectionStartTime;
 
+    private volatile FcModelNodeIndex fcModelNodeIndex;
+
+    private volatile DaRtuPqValuesPlan pqValuesPlan;
+
+    private volatile boolean dynamicDataSetsUnsupported;
+
     public Iec61850Connection(final Iec61850ClientAssociation clientAssociation, final ServerModel serverModel) {
         this.clientAssociation = clientAssociation;
         this.serverModel = serverModel;
@@ -44,6 +55,47 @@ public class Iec61850Connection {
         return this.serverModel;
     }
 
+    /**
+     * Returns the index of nodes found in the server model of this connection,
+     * for the given server name. A new index is created when the server model
+     * or server name differs from the one the index was created for.
+     */
+    public FcModelNodeIndex getFcModelNodeIndex(final String serverName) {
+        FcModelNodeIndex index = this.fcModelNodeIndex;
+        if (index == null || index.getServerModel() != this.serverModel
+                || !Objects.equals(index.getServerName(), serverName)) {
+            index = new FcModelNodeIndex(this.serverModel, serverName);
+            this.fcModelNodeIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the power quality values plan for the server model of this
+     * connection. The plan is kept with the connection, so it is released
+     * together with the server model when the connection is closed.
+     */
+    public DaRtuPqValuesPlan getPqValuesPlan() {
+        DaRtuPqValuesPlan plan = this.pqValuesPlan;
+        if (plan == null || plan.getServerModel() != this.serverModel) {
+            plan = new DaRtuPqValuesPlan(this.serverModel);
+            this.pqValuesPlan = plan;
+        }
+        return plan;
+    }
+
+    /**
+     * @return false if the device refused to create or read a non-persistent
+     *         data set on this connection, so nodes are read one by one.
+     */
+    public boolean isDynamicDataSetsSupported() {
+        return !this.dynamicDataSetsUnsupported;
+    }
+
+    public void setDynamicDataSetsUnsupported() {
+        this.dynamicDataSetsUnsupported = true;
+    }
+
     public DateTime getConnectionStartTime() {
         return this.connectionStartTime;
     }
@@ -0,0 +1,274 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.networking;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.IED;
+
+/**
+ * Timers of the phases of handling a request for a device, tagged by IED type
+ * and message type, to tell whether slow requests spend their time on the
+ * network, on reading the server model, or elsewhere.
+ * <p>
+ * Every timer counts the durations in a fixed histogram, next to the count,
+ * total and maximum duration. The timers are exported via JMX, and can be
+ * exported to a metrics registry using {@link #getSnapshots()}: a snapshot has
+ * a name, tags, a count, a total time and cumulative histogram buckets, which
+ * is what registries like Micrometer expect of a function timer.
+ */
+@Component
+@ManagedResource(description = "Latency of the phases of handling requests for IEC61850 devices")
+public class Iec61850LatencyMetrics {
+
+    public enum Phase {
+        /**
+         * Setting up the TCP connection and the MMS association.
+         */
+        ASSOCIATE,
+        /**
+         * Obtaining the server model from an SCL file, or from the server
+         * model cache.
+         */
+        SERVER_MODEL_FILE,
+        /**
+         * Retrieving the server model from the device.
+         */
+        SERVER_MODEL_DEVICE,
+        /**
+         * Enabling the reports of the device.
+         */
+        ENABLE_REPORTING,
+        /**
+         * Executing a {@link com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.Function}
+         * with retries.
+         */
+        FUNCTION,
+        /**
+         * Sending the response message to OSGP.
+         */
+        RESPONSE_SEND
+    }
+
+    public static final String TAG_IED = "ied";
+    public static final String TAG_MESSAGE_TYPE = "messageType";
+
+    private static final String UNKNOWN = "unknown";
+
+    /**
+     * Upper bounds of the histogram buckets in milliseconds, durations above
+     * the last bound are counted in an extra bucket.
+     */
+    private static final long[] BUCKET_BOUNDS = { 1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000,
+            30000 };
+
+    private final ConcurrentHashMap<TimerKey, PhaseTimer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * Records the duration of a phase.
+     *
+     * @param ied
+     *            The IED type of the device, or null if unknown.
+     * @param messageType
+     *            The message type of the request, or null if unknown.
+     * @param startNanos
+     *            The start of the phase, as given by {@link System#nanoTime()}.
+     */
+    public void record(final Phase phase, final IED ied, final String messageType, final long startNanos) {
+        final long duration = System.nanoTime() - startNanos;
+        final TimerKey key = new TimerKey(phase, ied == null ? UNKNOWN : ied.name(),
+                messageType == null ? UNKNOWN : messageType);
+        this.timers.computeIfAbsent(key, k -> new PhaseTimer()).record(duration);
+    }
+
+    /**
+     * @return The state of all timers, ordered by phase.
+     */
+    public List<Snapshot> getSnapshots() {
+        final List<Snapshot> snapshots = new ArrayList<>(this.timers.size());
+        for (final Map.Entry<TimerKey, PhaseTimer> entry : this.timers.entrySet()) {
+            snapshots.add(entry.getValue().snapshot(entry.getKey()));
+        }
+        snapshots.sort((first, second) -> first.getPhase().compareTo(second.getPhase()));
+        return snapshots;
+    }
+
+    @ManagedAttribute(description = "Count, average, maximum and histogram in milliseconds per phase, IED type and message type")
+    public String[] getTimers() {
+        final List<Snapshot> snapshots = this.getSnapshots();
+        final String[] timers = new String[snapshots.size()];
+        for (int i = 0; i < timers.length; i++) {
+            timers[i] = snapshots.get(i).toString();
+        }
+        return timers;
+    }
+
+    @ManagedOperation(description = "Clears all timers")
+    public void reset() {
+        this.timers.clear();
+    }
+
+    public static final class Snapshot {
+
+        private final Phase phase;
+        private final Map<String, String> tags;
+        private final long count;
+        private final long totalTimeNanos;
+        private final long maxNanos;
+        private final long[] cumulativeBucketCounts;
+
+        private Snapshot(final TimerKey key, final long count, final long totalTimeNanos, final long maxNanos,
+                final long[] cumulativeBucketCounts) {
+            this.phase = key.phase;
+            final Map<String, String> keyTags = new LinkedHashMap<>();
+            keyTags.put(TAG_IED, key.ied);
+            keyTags.put(TAG_MESSAGE_TYPE, key.messageType);
+            this.tags = Collections.unmodifiableMap(keyTags);
+            this.count = count;
+            this.totalTimeNanos = totalTimeNanos;
+            this.maxNanos = maxNanos;
+            this.cumulativeBucketCounts = cumulativeBucketCounts;
+        }
+
+        public Phase getPhase() {
+            return this.phase;
+        }
+
+        /**
+         * @return The name of the timer, for instance
+         *         {@code iec61850.phase.associate}.
+         */
+        public String getName() {
+            return "iec61850.phase." + this.phase.name().toLowerCase(Locale.ROOT);
+        }
+
+        public Map<String, String> getTags() {
+            return this.tags;
+        }
+
+        public long getCount() {
+            return this.count;
+        }
+
+        public double getTotalTime(final TimeUnit unit) {
+            return (double) this.totalTimeNanos / unit.toNanos(1);
+        }
+
+        public double getMax(final TimeUnit unit) {
+            return (double) this.maxNanos / unit.toNanos(1);
+        }
+
+        /**
+         * @return The upper bounds in milliseconds of the histogram buckets,
+         *         the last bucket has no upper bound.
+         */
+        public long[] getBucketBounds() {
+            return BUCKET_BOUNDS.clone();
+        }
+
+        /**
+         * @return For every bucket, the number of durations less than or equal
+         *         to its upper bound. The last element equals the count.
+         */
+        public long[] getCumulativeBucketCounts() {
+            return this.cumulativeBucketCounts.clone();
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder();
+            sb.append(this.phase).append(" ied=").append(this.tags.get(TAG_IED)).append(" messageType=")
+                    .append(this.tags.get(TAG_MESSAGE_TYPE)).append(" count=").append(this.count)
+                    .append(String.format(Locale.ROOT, " avg=%.1f max=%.1f", this.count == 0 ? 0
+                            : this.getTotalTime(TimeUnit.MILLISECONDS) / this.count,
+                            this.getMax(TimeUnit.MILLISECONDS)));
+            for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+                sb.append(" le").append(BUCKET_BOUNDS[i]).append('=').append(this.cumulativeBucketCounts[i]);
+            }
+            return sb.toString();
+        }
+    }
+
+    private static final class TimerKey {
+
+        private final Phase phase;
+        private final String ied;
+        private final String messageType;
+
+        TimerKey(final Phase phase, final String ied, final String messageType) {
+            this.phase = phase;
+            this.ied = ied;
+            this.messageType = messageType;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof TimerKey)) {
+                return false;
+            }
+            final TimerKey other = (TimerKey) obj;
+            return this.phase == other.phase && this.ied.equals(other.ied)
+                    && this.messageType.equals(other.messageType);
+        }
+
+        @Override
+        public int hashCode() {
+            return (this.phase.hashCode() * 31 + this.ied.hashCode()) * 31 + this.messageType.hashCode();
+        }
+    }
+
+    private static final class PhaseTimer {
+
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalTime = new AtomicLong();
+        private final AtomicLong maxTime = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+
+        void record(final long durationNanos) {
+            this.count.incrementAndGet();
+            this.totalTime.addAndGet(durationNanos);
+            this.maxTime.accumulateAndGet(durationNanos, Math::max);
+            this.buckets.incrementAndGet(bucketIndex(TimeUnit.NANOSECONDS.toMillis(durationNanos)));
+        }
+
+        Snapshot snapshot(final TimerKey key) {
+            final long[] cumulative = new long[BUCKET_BOUNDS.length + 1];
+            long sum = 0;
+            for (int i = 0; i < cumulative.length; i++) {
+                sum += this.buckets.get(i);
+                cumulative[i] = sum;
+            }
+            return new Snapshot(key, this.count.get(), this.totalTime.get(), this.maxTime.get(), cumulative);
+        }
+
+        private static int bucketIndex(final long millis) {
+            int i = 0;
+            while (i < BUCKET_BOUNDS.length && millis > BUCKET_BOUNDS[i]) {
+                i++;
+            }
+            return i;
+        }
+    }
+}
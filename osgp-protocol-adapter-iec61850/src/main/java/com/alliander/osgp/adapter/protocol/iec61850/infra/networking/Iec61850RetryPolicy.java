@@ -0,0 +1,411 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.networking;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ConnectionFailureException;
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ProtocolAdapterException;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.IED;
+
+/**
+ * Decides if and when communication with a device is retried, and stops
+ * communication with devices that keep failing.
+ * <p>
+ * Retries are delayed by an exponential backoff with full jitter, so requests
+ * failing at the same moment do not retry at the same moment. Retries are
+ * limited by the maximum retry count per request, and by retry budgets per
+ * device and per IED type: every request adds a percentage of a retry to the
+ * budgets, every retry takes a whole retry from them. This bounds the extra
+ * load retries put on devices that fail for many requests.
+ * <p>
+ * A circuit breaker per device opens after a number of consecutive connection
+ * failures or time-outs. While it is open, requests for the device fail
+ * immediately with a {@link ConnectionFailureException}, instead of each
+ * waiting for the connect or response time-out. After the open time one
+ * request is let through to the device: the circuit closes when it succeeds,
+ * and opens again when it fails.
+ * <p>
+ * Budgets and circuit breakers of devices that are no longer communicated
+ * with are removed periodically, once they are back in their initial state.
+ */
+@Component
+@ManagedResource(description = "Retries and circuit breakers of communication with IEC61850 devices")
+public class Iec61850RetryPolicy {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Iec61850RetryPolicy.class);
+
+    /**
+     * Budgets are kept in hundredths of a retry, so the budget percentage
+     * added for every request is a whole number.
+     */
+    private static final int RETRY = 100;
+
+    private static final String UNKNOWN_IED = "unknown";
+
+    /**
+     * Interval in milliseconds of removing budgets and circuit breakers of
+     * devices that are idle.
+     */
+    private static final long PRUNE_INTERVAL = 60000;
+
+    private final int maxRetryCount;
+
+    private final int retryBackoffInitial;
+
+    private final int retryBackoffMax;
+
+    private final int retryBudgetPercentage;
+
+    private final int retryBudgetMax;
+
+    private final int circuitBreakerFailureThreshold;
+
+    private final int circuitBreakerOpenTime;
+
+    /**
+     * Source of the time in milliseconds, like
+     * {@link System#currentTimeMillis()}.
+     */
+    private final LongSupplier clock;
+
+    private final ConcurrentHashMap<String, RetryBudget> deviceBudgets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, RetryBudget> iedBudgets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong exhaustedBudgets = new AtomicLong();
+    private final AtomicLong circuitOpenings = new AtomicLong();
+    private final AtomicLong fastFailures = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public Iec61850RetryPolicy(@Qualifier("maxRetryCount") final int maxRetryCount,
+            @Qualifier("retryBackoffInitial") final int retryBackoffInitial,
+            @Qualifier("retryBackoffMax") final int retryBackoffMax,
+            @Qualifier("retryBudgetPercentage") final int retryBudgetPercentage,
+            @Qualifier("retryBudgetMax") final int retryBudgetMax,
+            @Qualifier("circuitBreakerFailureThreshold") final int circuitBreakerFailureThreshold,
+            @Qualifier("circuitBreakerOpenTime") final int circuitBreakerOpenTime) {
+        this(maxRetryCount, retryBackoffInitial, retryBackoffMax, retryBudgetPercentage, retryBudgetMax,
+                circuitBreakerFailureThreshold, circuitBreakerOpenTime, System::currentTimeMillis);
+    }
+
+    Iec61850RetryPolicy(final int maxRetryCount, final int retryBackoffInitial, final int retryBackoffMax,
+            final int retryBudgetPercentage, final int retryBudgetMax, final int circuitBreakerFailureThreshold,
+            final int circuitBreakerOpenTime, final LongSupplier clock) {
+        this.maxRetryCount = maxRetryCount;
+        this.retryBackoffInitial = retryBackoffInitial;
+        this.retryBackoffMax = retryBackoffMax;
+        this.retryBudgetPercentage = retryBudgetPercentage;
+        this.retryBudgetMax = retryBudgetMax;
+        this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+        this.circuitBreakerOpenTime = circuitBreakerOpenTime;
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    void init() {
+        LOGGER.info(
+                "maxRetryCount: {}, retryBackoffInitial: {}, retryBackoffMax: {}, retryBudgetPercentage: {}, retryBudgetMax: {}, circuitBreakerFailureThreshold: {}, circuitBreakerOpenTime: {}",
+                this.maxRetryCount, this.retryBackoffInitial, this.retryBackoffMax, this.retryBudgetPercentage,
+                this.retryBudgetMax, this.circuitBreakerFailureThreshold, this.circuitBreakerOpenTime);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.scheduler.scheduleWithFixedDelay(this::prune, PRUNE_INTERVAL, PRUNE_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void destroy() {
+        this.scheduler.shutdown();
+    }
+
+    /**
+     * Checks the circuit breaker of the device before communicating with it,
+     * and adds to the retry budgets for the request.
+     *
+     * @throws ConnectionFailureException
+     *             If the circuit breaker of the device is open.
+     */
+    public void beforeRequest(final String deviceIdentification, final IED ied) throws ConnectionFailureException {
+        this.checkCircuit(deviceIdentification);
+        this.budget(this.deviceBudgets, deviceIdentification).deposit(this.retryBudgetPercentage);
+        this.budget(this.iedBudgets, iedKey(ied)).deposit(this.retryBudgetPercentage);
+    }
+
+    /**
+     * Checks the circuit breaker of the device before connecting to it.
+     *
+     * @throws ConnectionFailureException
+     *             If the circuit breaker of the device is open.
+     */
+    public void checkCircuit(final String deviceIdentification) throws ConnectionFailureException {
+        final CircuitBreaker circuitBreaker = this.circuitBreakers.get(deviceIdentification);
+        if (circuitBreaker != null && !circuitBreaker.allowRequest(this.clock.getAsLong(),
+                this.circuitBreakerOpenTime)) {
+            this.fastFailures.incrementAndGet();
+            throw new ConnectionFailureException("Circuit breaker is open for device: " + deviceIdentification
+                    + ", not communicating with the device after repeated connection failures");
+        }
+    }
+
+    /**
+     * Determines if a failed attempt may be retried, taking a retry from the
+     * budgets of the device and the IED type if so.
+     *
+     * @param retryCount
+     *            The number of the retry, starting at 1.
+     */
+    public boolean mayRetry(final String deviceIdentification, final IED ied, final int retryCount) {
+        if (retryCount > this.maxRetryCount) {
+            return false;
+        }
+        final RetryBudget deviceBudget = this.budget(this.deviceBudgets, deviceIdentification);
+        if (!deviceBudget.withdraw()) {
+            this.exhaustedBudgets.incrementAndGet();
+            LOGGER.warn("Retry budget exhausted for device: {}", deviceIdentification);
+            return false;
+        }
+        if (!this.budget(this.iedBudgets, iedKey(ied)).withdraw()) {
+            deviceBudget.deposit(RETRY);
+            this.exhaustedBudgets.incrementAndGet();
+            LOGGER.warn("Retry budget exhausted for IED type: {}", iedKey(ied));
+            return false;
+        }
+        this.retries.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Waits before a retry, for a random time between zero and the initial
+     * backoff doubled for every earlier retry, limited to the maximum backoff.
+     *
+     * @param retryCount
+     *            The number of the retry, starting at 1.
+     */
+    public void backOff(final int retryCount) throws ProtocolAdapterException {
+        final long ceiling = Math.min(this.retryBackoffMax,
+                (long) this.retryBackoffInitial << Math.min(retryCount - 1, 30));
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProtocolAdapterException("Interrupted while waiting to retry", e);
+        }
+    }
+
+    /**
+     * Registers a request to the device that completed, closing the circuit
+     * breaker of the device, if any.
+     */
+    public void recordSuccess(final String deviceIdentification) {
+        if (this.circuitBreakers.remove(deviceIdentification) != null) {
+            LOGGER.info("Circuit breaker closed for device: {}", deviceIdentification);
+        }
+    }
+
+    /**
+     * Registers a failure to connect to, or a time-out communicating with, the
+     * device. Opens the circuit breaker of the device after the configured
+     * number of consecutive failures.
+     */
+    public void recordConnectionFailure(final String deviceIdentification) {
+        final CircuitBreaker circuitBreaker = this.circuitBreakers.computeIfAbsent(deviceIdentification,
+                k -> new CircuitBreaker());
+        if (circuitBreaker.recordFailure(this.clock.getAsLong(), this.circuitBreakerFailureThreshold,
+                this.circuitBreakerOpenTime)) {
+            this.circuitOpenings.incrementAndGet();
+            LOGGER.warn("Circuit breaker opened for device: {} for {} ms", deviceIdentification,
+                    this.circuitBreakerOpenTime);
+        }
+    }
+
+    /**
+     * Removes device budgets that are full and circuit breakers that are
+     * closed and have not registered a failure during the open time, as these
+     * are the same as the ones created when the device is communicated with
+     * again. A retry or failure registered on a removed entry by a concurrent
+     * request is lost, which does no harm.
+     */
+    void prune() {
+        final long now = this.clock.getAsLong();
+        for (final String deviceIdentification : this.deviceBudgets.keySet()) {
+            this.deviceBudgets.computeIfPresent(deviceIdentification, (k, budget) -> budget.isFull() ? null : budget);
+        }
+        for (final String deviceIdentification : this.circuitBreakers.keySet()) {
+            this.circuitBreakers.computeIfPresent(deviceIdentification,
+                    (k, circuitBreaker) -> circuitBreaker.isIdle(now, this.circuitBreakerOpenTime) ? null
+                            : circuitBreaker);
+        }
+    }
+
+    private RetryBudget budget(final ConcurrentHashMap<String, RetryBudget> budgets, final String key) {
+        return budgets.computeIfAbsent(key, k -> new RetryBudget(this.retryBudgetMax * RETRY));
+    }
+
+    private static String iedKey(final IED ied) {
+        return ied == null ? UNKNOWN_IED : ied.name();
+    }
+
+    @ManagedAttribute(description = "Number of retries")
+    public long getRetryCount() {
+        return this.retries.get();
+    }
+
+    @ManagedAttribute(description = "Number of retries not done because a retry budget was exhausted")
+    public long getExhaustedBudgetCount() {
+        return this.exhaustedBudgets.get();
+    }
+
+    @ManagedAttribute(description = "Number of times a circuit breaker opened")
+    public long getCircuitOpeningCount() {
+        return this.circuitOpenings.get();
+    }
+
+    @ManagedAttribute(description = "Number of requests failed because a circuit breaker was open")
+    public long getFastFailureCount() {
+        return this.fastFailures.get();
+    }
+
+    @ManagedAttribute(description = "Number of devices with a retry budget")
+    public int getDeviceBudgetCount() {
+        return this.deviceBudgets.size();
+    }
+
+    @ManagedAttribute(description = "Number of devices with a circuit breaker")
+    public int getCircuitBreakerCount() {
+        return this.circuitBreakers.size();
+    }
+
+    @ManagedAttribute(description = "Number of devices with an open circuit breaker")
+    public int getOpenCircuitCount() {
+        final long now = this.clock.getAsLong();
+        int open = 0;
+        for (final CircuitBreaker circuitBreaker : this.circuitBreakers.values()) {
+            if (circuitBreaker.isOpen(now)) {
+                open++;
+            }
+        }
+        return open;
+    }
+
+    @ManagedOperation(description = "Closes the circuit breaker of a device")
+    public void closeCircuit(final String deviceIdentification) {
+        this.recordSuccess(deviceIdentification);
+    }
+
+    private static final class RetryBudget {
+
+        private final long max;
+        private final AtomicLong balance;
+
+        RetryBudget(final long max) {
+            this.max = max;
+            this.balance = new AtomicLong(max);
+        }
+
+        void deposit(final long amount) {
+            this.balance.accumulateAndGet(amount, (current, added) -> Math.min(this.max, current + added));
+        }
+
+        boolean withdraw() {
+            long current;
+            do {
+                current = this.balance.get();
+                if (current < RETRY) {
+                    return false;
+                }
+            } while (!this.balance.compareAndSet(current, current - RETRY));
+            return true;
+        }
+
+        boolean isFull() {
+            return this.balance.get() >= this.max;
+        }
+    }
+
+    private static final class CircuitBreaker {
+
+        private int consecutiveFailures;
+        private long lastFailure;
+        private long openUntil;
+
+        /**
+         * The thread running the trial request, which connects to the device
+         * and then communicates with it, or null if there is no trial.
+         */
+        private Thread trialThread;
+
+        /**
+         * @return true if a request may communicate with the device: when the
+         *         circuit is closed, or when it is the one trial request after
+         *         the open time. The circuit stays open during the trial, a
+         *         trial that does not finish within the open time is followed
+         *         by another one.
+         */
+        synchronized boolean allowRequest(final long now, final long openTime) {
+            if (this.openUntil == 0) {
+                return true;
+            }
+            if (now < this.openUntil) {
+                return this.trialThread == Thread.currentThread();
+            }
+            this.openUntil = now + openTime;
+            this.trialThread = Thread.currentThread();
+            return true;
+        }
+
+        /**
+         * @return true if the circuit opened because of this failure.
+         */
+        synchronized boolean recordFailure(final long now, final int threshold, final long openTime) {
+            this.consecutiveFailures++;
+            this.lastFailure = now;
+            if (this.trialThread != null || (this.openUntil == 0 && this.consecutiveFailures >= threshold)) {
+                this.openUntil = now + openTime;
+                this.trialThread = null;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * @return true if the circuit is not open, so a trial has ended as
+         *         well, and no failure has been registered during the open
+         *         time.
+         */
+        synchronized boolean isIdle(final long now, final long openTime) {
+            return !this.isOpen(now) && now - this.lastFailure >= openTime;
+        }
+
+        synchronized boolean isOpen(final long now) {
+            return this.openUntil != 0 && now < this.openUntil;
+        }
+    }
+}
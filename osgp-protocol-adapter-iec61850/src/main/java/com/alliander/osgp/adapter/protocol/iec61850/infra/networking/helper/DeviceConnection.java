@@ -44,70 +44,56 @@ public class DeviceConnection {
      */
     public NodeContainer getFcModelNode(final LogicalDevice logicalDevice, final LogicalNode logicalNode,
             final DataAttribute dataAttribute, final Fc fc) throws NodeNotFoundException {
-        final ObjectReference objectReference = this.createObjectReference(logicalDevice, logicalNode, dataAttribute);
-        final FcModelNode fcModelNode = (FcModelNode) this.connection.getServerModel().findModelNode(objectReference,
-                fc);
-        if (fcModelNode == null) {
-            LOGGER.error("FcModelNode is null, most likely the data attribute: {} does not exist",
-                    dataAttribute.getDescription());
-            throw new NodeNotFoundException(
-                    String.format("FcModelNode with objectReference %s does not exist", objectReference));
-        }
-
-        return new NodeContainer(this, fcModelNode);
+        return this.getFcModelNode(logicalDevice, FcModelNodeIndex.NO_LOGICAL_DEVICE_INDEX, logicalNode,
+                dataAttribute, fc);
     }
 
     /**
      * Returns a {@link NodeContainer} for the given {@link ObjectReference}
      * data and the Functional constraint.
+     * <p>
+     * Nodes are found in the server model once per connection, after that
+     * they are taken from the {@link FcModelNodeIndex} of the connection.
      *
      * @throws NodeNotFoundException
      */
     public NodeContainer getFcModelNode(final LogicalDevice logicalDevice, final int logicalDeviceIndex,
             final LogicalNode logicalNode, final DataAttribute dataAttribute, final Fc fc)
             throws NodeNotFoundException {
+        final FcModelNodeIndex index = this.connection.getFcModelNodeIndex(this.serverName);
+        final FcModelNode indexedNode = index.get(logicalDevice, logicalDeviceIndex, logicalNode, dataAttribute, fc);
+        if (indexedNode != null) {
+            return new NodeContainer(this, indexedNode);
+        }
+
         final ObjectReference objectReference = this.createObjectReference(logicalDevice, logicalDeviceIndex,
                 logicalNode, dataAttribute);
-        final FcModelNode fcModelNode = (FcModelNode) this.connection.getServerModel().findModelNode(objectReference,
-                fc);
+        final FcModelNode fcModelNode = (FcModelNode) index.getServerModel().findModelNode(objectReference, fc);
         if (fcModelNode == null) {
             LOGGER.error("FcModelNode is null, most likely the data attribute: {} does not exist",
                     dataAttribute.getDescription());
             throw new NodeNotFoundException(
                     String.format("FcModelNode with objectReference %s does not exist", objectReference));
         }
+        index.put(logicalDevice, logicalDeviceIndex, logicalNode, dataAttribute, fc, fcModelNode);
 
         return new NodeContainer(this, fcModelNode);
     }
 
-    /**
-     * Creates a correct ObjectReference.
-     */
-    private ObjectReference createObjectReference(final LogicalDevice logicalDevice, final LogicalNode logicalNode,
-            final DataAttribute dataAttribute) {
-        final String logicalDevicePrefix = this.serverName + logicalDevice.getDescription();
-
-        final String objectReference = logicalDevicePrefix.concat(LOGICAL_NODE_SEPARATOR)
-                .concat(logicalNode.getDescription()).concat(DATA_ATTRIBUTE_SEPARATOR)
-                .concat(dataAttribute.getDescription());
-
-        LOGGER.info("Device: {}, ObjectReference: {}", this.deviceIdentification, objectReference);
-
-        return new ObjectReference(objectReference);
-    }
-
     /**
      * Creates a correct ObjectReference.
      */
     private ObjectReference createObjectReference(final LogicalDevice logicalDevice, final int logicalDeviceIndex,
             final LogicalNode logicalNode, final DataAttribute dataAttribute) {
-        final String logicalDevicePrefix = this.serverName + logicalDevice.getDescription() + logicalDeviceIndex;
+        final String logicalDevicePrefix = logicalDeviceIndex == FcModelNodeIndex.NO_LOGICAL_DEVICE_INDEX
+                ? this.serverName + logicalDevice.getDescription()
+                : this.serverName + logicalDevice.getDescription() + logicalDeviceIndex;
 
         final String objectReference = logicalDevicePrefix.concat(LOGICAL_NODE_SEPARATOR)
                 .concat(logicalNode.getDescription()).concat(DATA_ATTRIBUTE_SEPARATOR)
                 .concat(dataAttribute.getDescription());
 
-        LOGGER.info("Device: {}, ObjectReference: {}", this.deviceIdentification, objectReference);
+        LOGGER.debug("Device: {}, ObjectReference: {}", this.deviceIdentification, objectReference);
 
         return new ObjectReference(objectReference);
     }
@@ -0,0 +1,95 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openmuc.openiec61850.Fc;
+import org.openmuc.openiec61850.FcModelNode;
+import org.openmuc.openiec61850.ServerModel;
+
+/**
+ * Index of the {@link FcModelNode}s of a {@link ServerModel} that have been
+ * found for a {@link LogicalDevice}, logical device index, {@link LogicalNode},
+ * {@link DataAttribute} and {@link Fc}, so they can be found again without
+ * creating an object reference and searching the model.
+ * <p>
+ * An index belongs to one server model, and one server name that is used as
+ * prefix of the logical devices. Nodes that are not found in the model are
+ * not indexed.
+ */
+public class FcModelNodeIndex {
+
+    /**
+     * Logical device index for nodes of a logical device without index.
+     */
+    public static final int NO_LOGICAL_DEVICE_INDEX = -1;
+
+    private static final int MAX_LOGICAL_DEVICE_INDEX = 0xFFFE;
+
+    /**
+     * Key for nodes that are not indexed, which does not occur as key of an
+     * indexed node.
+     */
+    private static final long NOT_INDEXED = -1L;
+
+    private final ServerModel serverModel;
+    private final String serverName;
+
+    private final Map<Long, FcModelNode> nodes = new ConcurrentHashMap<>();
+
+    public FcModelNodeIndex(final ServerModel serverModel, final String serverName) {
+        this.serverModel = serverModel;
+        this.serverName = serverName;
+    }
+
+    public ServerModel getServerModel() {
+        return this.serverModel;
+    }
+
+    public String getServerName() {
+        return this.serverName;
+    }
+
+    /**
+     * @return The indexed node, or null if the node has not been indexed.
+     */
+    public FcModelNode get(final LogicalDevice logicalDevice, final int logicalDeviceIndex,
+            final LogicalNode logicalNode, final DataAttribute dataAttribute, final Fc fc) {
+        final long key = key(logicalDevice, logicalDeviceIndex, logicalNode, dataAttribute, fc);
+        return key == NOT_INDEXED ? null : this.nodes.get(key);
+    }
+
+    public void put(final LogicalDevice logicalDevice, final int logicalDeviceIndex, final LogicalNode logicalNode,
+            final DataAttribute dataAttribute, final Fc fc, final FcModelNode fcModelNode) {
+        final long key = key(logicalDevice, logicalDeviceIndex, logicalNode, dataAttribute, fc);
+        if (key != NOT_INDEXED) {
+            this.nodes.put(key, fcModelNode);
+        }
+    }
+
+    public int size() {
+        return this.nodes.size();
+    }
+
+    /**
+     * Packs the ordinals of the enums and the logical device index in a long:
+     * 8 bits for the functional constraint, 16 bits for each of the data
+     * attribute, the logical node and the logical device index, and 8 bits for
+     * the logical device.
+     */
+    private static long key(final LogicalDevice logicalDevice, final int logicalDeviceIndex,
+            final LogicalNode logicalNode, final DataAttribute dataAttribute, final Fc fc) {
+        if (logicalDeviceIndex < NO_LOGICAL_DEVICE_INDEX || logicalDeviceIndex > MAX_LOGICAL_DEVICE_INDEX) {
+            return NOT_INDEXED;
+        }
+        return ((long) logicalDevice.ordinal() << 56) | ((long) (logicalDeviceIndex + 1) << 40)
+                | ((long) logicalNode.ordinal() << 24) | ((long) dataAttribute.ordinal() << 8) | fc.ordinal();
+    }
+}
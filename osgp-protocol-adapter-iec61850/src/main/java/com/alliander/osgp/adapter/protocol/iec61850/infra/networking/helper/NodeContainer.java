@@ -21,6 +21,7 @@ import org.openmuc.openiec61850.BdaInt32U;
 import org.openmuc.openiec61850.BdaInt64;
 import org.openmuc.openiec61850.BdaInt8;
 import org.openmuc.openiec61850.BdaInt8U;
+import org.openmuc.openiec61850.BdaOctetString;
 import org.openmuc.openiec61850.BdaQuality;
 import org.openmuc.openiec61850.BdaTimestamp;
 import org.openmuc.openiec61850.BdaVisibleString;
@@ -131,6 +132,16 @@ public class NodeContainer {
         this.writeNode(bdaBoolean);
     }
 
+    public BdaOctetString getOctetString(final SubDataAttribute child) {
+        return (BdaOctetString) this.parent.getChild(child.getDescription());
+    }
+
+    public void writeOctetString(final SubDataAttribute child, final byte[] value) throws NodeWriteException {
+        final BdaOctetString bdaOctetString = (BdaOctetString) this.parent.getChild(child.getDescription());
+        bdaOctetString.setValue(value);
+        this.writeNode(bdaOctetString);
+    }
+
     public BdaInt8 getByte(final SubDataAttribute child) {
         return (BdaInt8) this.parent.getChild(child.getDescription());
     }
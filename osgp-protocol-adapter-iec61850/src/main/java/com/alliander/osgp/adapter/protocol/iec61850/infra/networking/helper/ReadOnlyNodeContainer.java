@@ -50,6 +50,11 @@ public final class ReadOnlyNodeContainer extends NodeContainer {
         throw new NotImplementedException(NOT_SUPPORTED);
     }
 
+    @Override
+    public void writeOctetString(final SubDataAttribute child, final byte[] value) {
+        throw new NotImplementedException(NOT_SUPPORTED);
+    }
+
     @Override
     public void writeShort(final SubDataAttribute child, final Short value) {
         throw new NotImplementedException(NOT_SUPPORTED);
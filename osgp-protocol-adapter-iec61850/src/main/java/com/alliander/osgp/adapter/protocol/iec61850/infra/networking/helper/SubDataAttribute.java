@@ -73,6 +73,12 @@ public enum SubDataAttribute {
      * reset to false by the device once the reports are sent.
      */
     ENABLE_REPORTING("RptEna"),
+    /**
+     * Property of a buffered RCB, the EntryID of the last entry sent. Setting
+     * it before {@link #ENABLE_REPORTING} is set to true makes the device send the
+     * entries after it.
+     */
+    ENTRY_ID("EntryID"),
     /**
      * Attribute of the CSLC Event Buffer configuration, filter for enabled
      * event types.
@@ -136,7 +142,7 @@ public enum SubDataAttribute {
      */
     REPORT_ID("RptID"),
     /**
-     * Property of RCB, Reserve. Must be set before {@link RptEna} is set to
+     * Property of RCB, Reserve. Must be set before {@link #ENABLE_REPORTING} is set to
      * true.
      */
     RESERVE_REPORTING_CONTROL_BLOCK("Resv"),
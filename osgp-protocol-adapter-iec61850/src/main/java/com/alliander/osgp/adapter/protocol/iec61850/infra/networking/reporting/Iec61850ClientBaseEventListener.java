@@ -32,6 +32,14 @@ public abstract class Iec61850ClientBaseEventListener implements ClientEventList
      */
     protected static final long IEC61850_ENTRY_TIME_OFFSET = 441763200000L;
 
+    /**
+     * Called when the association with the device is closed, for instance to
+     * remove the connection from the connection pool.
+     */
+    private volatile Runnable associationClosedHandler;
+
+    private volatile boolean associationClosed;
+
     public Iec61850ClientBaseEventListener(final String deviceIdentification,
             final DeviceManagementService deviceManagementService, final Class<?> loggerClass)
             throws ProtocolAdapterException {
@@ -44,6 +52,26 @@ public abstract class Iec61850ClientBaseEventListener implements ClientEventList
         return this.deviceIdentification;
     }
 
+    public boolean isAssociationClosed() {
+        return this.associationClosed;
+    }
+
+    public void setAssociationClosedHandler(final Runnable associationClosedHandler) {
+        this.associationClosedHandler = associationClosedHandler;
+    }
+
+    /**
+     * Runs the association closed handler, to be called by
+     * {@link #associationClosed(java.io.IOException)} implementations.
+     */
+    protected void handleAssociationClosed() {
+        this.associationClosed = true;
+        final Runnable handler = this.associationClosedHandler;
+        if (handler != null) {
+            handler.run();
+        }
+    }
+
     /**
      * Before enabling reporting on the device, set the SqNum of the buffered
      * report data to be able to check if incoming reports have been received
@@ -36,22 +36,38 @@ import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.Ie
 
 public class Iec61850ClientDaRTUEventListener extends Iec61850ClientBaseEventListener {
 
+    private final Iec61850ReportIngestionService reportIngestionService;
+
+    private final Iec61850ReportEntryTracker reportEntryTracker;
+
     public Iec61850ClientDaRTUEventListener(final String deviceIdentification,
-            final DeviceManagementService deviceManagementService) throws ProtocolAdapterException {
+            final DeviceManagementService deviceManagementService,
+            final Iec61850ReportIngestionService reportIngestionService,
+            final Iec61850ReportEntryTracker reportEntryTracker) throws ProtocolAdapterException {
         super(deviceIdentification, deviceManagementService, Iec61850ClientDaRTUEventListener.class);
+        this.reportIngestionService = reportIngestionService;
+        this.reportEntryTracker = reportEntryTracker;
     }
 
     @Override
     public void newReport(final Report report) {
+        this.reportIngestionService.ingest(this.deviceIdentification, report, this::handleReport);
+    }
+
+    private void handleReport(final Report report) {
         final DateTime timeOfEntry = report.getTimeOfEntry() == null ? null
                 : new DateTime(report.getTimeOfEntry().getTimestampValue() + IEC61850_ENTRY_TIME_OFFSET);
 
         final String reportDescription = this.getReportDescription(report, timeOfEntry);
 
         this.logger.info("newReport for {}", reportDescription);
+        if (!this.reportEntryTracker.accept(this.deviceIdentification, report)) {
+            return;
+        }
         this.logReportDetails(report);
         try {
             this.processReport(report, reportDescription);
+            this.reportEntryTracker.processed(this.deviceIdentification, report);
         } catch (final ProtocolAdapterException e) {
             this.logger.warn("Unable to process report, discarding report", e);
         }
@@ -284,6 +300,8 @@ public class Iec61850ClientDaRTUEventListener extends Iec61850ClientBaseEventLis
     public void associationClosed(final IOException e) {
         this.logger.info("associationClosed for device: {}, {}", this.deviceIdentification,
                 e == null ? "no IOException" : "IOException: " + e.getMessage());
+        this.reportEntryTracker.persist(this.deviceIdentification);
+        this.handleAssociationClosed();
     }
 
 }
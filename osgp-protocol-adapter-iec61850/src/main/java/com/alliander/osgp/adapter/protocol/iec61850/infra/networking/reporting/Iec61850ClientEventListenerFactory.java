@@ -9,30 +9,64 @@ package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.reporting;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.alliander.osgp.adapter.protocol.iec61850.application.services.DeviceManagementService;
+import com.alliander.osgp.adapter.protocol.iec61850.domain.entities.Iec61850Device;
 import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ProtocolAdapterException;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.IED;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.Iec61850DeviceCache;
 
 @Component
 public class Iec61850ClientEventListenerFactory {
     private static final Logger LOGGER = LoggerFactory.getLogger(Iec61850ClientEventListenerFactory.class);
 
+    @Autowired
+    private Iec61850DeviceCache iec61850DeviceCache;
+
+    @Autowired
+    private Boolean defaultUseCombinedLoad;
+
+    @Autowired
+    private Iec61850ReportIngestionService iec61850ReportIngestionService;
+
+    @Autowired
+    private Iec61850ReportEntryTracker iec61850ReportEntryTracker;
+
+    @Autowired
+    private Iec61850LightMeasurementDeviceIndex iec61850LightMeasurementDeviceIndex;
+
+    @Autowired
+    private Iec61850EventNotificationEmitter iec61850EventNotificationEmitter;
+
     public Iec61850ClientBaseEventListener getEventListener(final IED ied, final String deviceIdentification,
             final DeviceManagementService deviceManagementService) throws ProtocolAdapterException {
         switch (ied) {
         case FLEX_OVL:
-            return new Iec61850ClientSSLDEventListener(deviceIdentification, deviceManagementService);
+            return new Iec61850ClientSSLDEventListener(deviceIdentification, deviceManagementService,
+                    this.iec61850EventNotificationEmitter);
         case ABB_RTU:
-            return new Iec61850ClientLMDEventListener(deviceIdentification, deviceManagementService);
+            return new Iec61850ClientLMDEventListener(deviceIdentification, deviceManagementService,
+                    this.iec61850ReportIngestionService, this.iec61850LightMeasurementDeviceIndex);
         case ZOWN_RTU:
-            return new Iec61850ClientRTUEventListener(deviceIdentification, deviceManagementService);
+            return new Iec61850ClientRTUEventListener(deviceIdentification, deviceManagementService,
+                    this.iec61850ReportIngestionService, this.iec61850ReportEntryTracker,
+                    this.useCombinedLoad(deviceIdentification));
         case DA_RTU:
-            return new Iec61850ClientDaRTUEventListener(deviceIdentification, deviceManagementService);
+            return new Iec61850ClientDaRTUEventListener(deviceIdentification, deviceManagementService,
+                    this.iec61850ReportIngestionService, this.iec61850ReportEntryTracker);
         default:
             LOGGER.warn("Unknown IED {}, could not create event listener for device {}", ied, deviceIdentification);
             return null;
         }
     }
+
+    private boolean useCombinedLoad(final String deviceIdentification) {
+        final Iec61850Device device = this.iec61850DeviceCache.getDevice(deviceIdentification);
+        if (device != null) {
+            return device.isUseCombinedLoad();
+        }
+        return this.defaultUseCombinedLoad;
+    }
 }
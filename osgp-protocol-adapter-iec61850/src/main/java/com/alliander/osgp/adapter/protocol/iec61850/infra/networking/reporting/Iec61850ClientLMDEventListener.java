@@ -8,10 +8,12 @@
 package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.reporting;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -33,13 +35,32 @@ import com.alliander.osgp.dto.valueobjects.EventTypeDto;
 
 public class Iec61850ClientLMDEventListener extends Iec61850ClientBaseEventListener {
 
+    private static final int MAX_DIGITAL_INPUT = Iec61850LightMeasurementDeviceIndex.MAX_DIGITAL_INPUT;
+
+    private final Iec61850ReportIngestionService reportIngestionService;
+    private final Iec61850LightMeasurementDeviceIndex lightMeasurementDeviceIndex;
+
+    /**
+     * The digital input of every member of a data set, or 0 if the member is
+     * not of a digital input, by data set reference.
+     */
+    private final Map<String, int[]> digitalInputsPerDataSet = new ConcurrentHashMap<>();
+
     public Iec61850ClientLMDEventListener(final String deviceIdentification,
-            final DeviceManagementService deviceManagementService) throws ProtocolAdapterException {
+            final DeviceManagementService deviceManagementService,
+            final Iec61850ReportIngestionService reportIngestionService,
+            final Iec61850LightMeasurementDeviceIndex lightMeasurementDeviceIndex) throws ProtocolAdapterException {
         super(deviceIdentification, deviceManagementService, Iec61850ClientLMDEventListener.class);
+        this.reportIngestionService = reportIngestionService;
+        this.lightMeasurementDeviceIndex = lightMeasurementDeviceIndex;
     }
 
     @Override
     public void newReport(final Report report) {
+        this.reportIngestionService.ingest(this.deviceIdentification, report, this::handleReport);
+    }
+
+    private void handleReport(final Report report) {
 
         final DateTime timeOfEntry = this.getTimeOfEntry(report);
 
@@ -63,43 +84,56 @@ public class Iec61850ClientLMDEventListener extends Iec61850ClientBaseEventListe
             return;
         }
 
-        final Map<LightMeasurementDevice, FcModelNode> reportMemberPerDevice = this
-                .processReportedDataForLightMeasurementDevices(dataSet.getMembers());
-
-        for (final LightMeasurementDevice lmd : reportMemberPerDevice.keySet()) {
-            final String deviceIdentification = lmd.getDeviceIdentification();
-            final Short index = lmd.getDigitalInput();
-            final FcModelNode member = reportMemberPerDevice.get(lmd);
-            final EventNotificationDto eventNotification = this.getEventNotificationForReportedData(member,
-                    timeOfEntry, reportDescription, deviceIdentification, index.intValue());
-
-            try {
-                this.deviceManagementService.addEventNotifications(deviceIdentification,
-                        Arrays.asList(eventNotification));
-            } catch (final ProtocolAdapterException pae) {
-                this.logger.error("Error adding device notifications for device: " + deviceIdentification, pae);
+        final List<FcModelNode> members = dataSet.getMembers();
+        final int[] digitalInputs = this.getDigitalInputs(dataSet.getReferenceStr(), members);
+        final FcModelNode[] memberPerDigitalInput = new FcModelNode[MAX_DIGITAL_INPUT + 1];
+        for (int i = 0; i < digitalInputs.length; i++) {
+            if (digitalInputs[i] != 0) {
+                memberPerDigitalInput[digitalInputs[i]] = members.get(i);
             }
         }
 
-    }
-
-    private Map<LightMeasurementDevice, FcModelNode> processReportedDataForLightMeasurementDevices(
-            final List<FcModelNode> dataSetMembers) {
-        final Map<LightMeasurementDevice, FcModelNode> result = new HashMap<>();
+        final Map<String, List<EventNotificationDto>> eventNotificationsPerDevice = new LinkedHashMap<>();
+        for (int digitalInput = 1; digitalInput < memberPerDigitalInput.length; digitalInput++) {
+            final FcModelNode member = memberPerDigitalInput[digitalInput];
+            if (member == null) {
+                continue;
+            }
+            for (final LightMeasurementDevice lmd : this.lightMeasurementDeviceIndex.getDevices(digitalInput)) {
+                final String deviceIdentification = lmd.getDeviceIdentification();
+                final EventNotificationDto eventNotification = this.getEventNotificationForReportedData(member,
+                        timeOfEntry, reportDescription, deviceIdentification, digitalInput);
+                eventNotificationsPerDevice.computeIfAbsent(deviceIdentification, k -> new ArrayList<>()).add(
+                        eventNotification);
+            }
+        }
 
-        final List<LightMeasurementDevice> lmds = this.deviceManagementService.findAllLightMeasurementDevices();
+        this.deviceManagementService.addLightMeasurementDeviceEventNotifications(eventNotificationsPerDevice);
+    }
 
-        for (final LightMeasurementDevice lmd : lmds) {
-            final String nodeName = LogicalNode.getSpggioByIndex(lmd.getDigitalInput()).getDescription().concat(".");
+    /**
+     * Determines the digital input (SPGGIO) of every member of a data set
+     * once, the members of a data set do not change while the association is
+     * open.
+     */
+    private int[] getDigitalInputs(final String dataSetReference, final List<FcModelNode> members) {
+        final int[] cached = this.digitalInputsPerDataSet.get(dataSetReference);
+        if (cached != null && cached.length == members.size()) {
+            return cached;
+        }
 
-            for (final FcModelNode member : dataSetMembers) {
-                if (member.getReference().toString().contains(nodeName)) {
-                    result.put(lmd, member);
+        final int[] digitalInputs = new int[members.size()];
+        for (int i = 0; i < digitalInputs.length; i++) {
+            final String reference = members.get(i).getReference().toString();
+            for (int digitalInput = 1; digitalInput <= MAX_DIGITAL_INPUT; digitalInput++) {
+                if (reference.contains(LogicalNode.getSpggioByIndex(digitalInput).getDescription().concat("."))) {
+                    digitalInputs[i] = digitalInput;
+                    break;
                 }
             }
         }
-
-        return result;
+        this.digitalInputsPerDataSet.put(dataSetReference, digitalInputs);
+        return digitalInputs;
     }
 
     private DateTime getTimeOfEntry(final Report report) {
@@ -232,5 +266,6 @@ public class Iec61850ClientLMDEventListener extends Iec61850ClientBaseEventListe
     public void associationClosed(final IOException e) {
         this.logger.info("associationClosed() for device: {}, {}", this.deviceIdentification,
                 e.getMessage() == null ? "no IOException" : "IOException: " + e.getMessage());
+        this.handleAssociationClosed();
     }
 }
@@ -8,13 +8,13 @@
 package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.reporting;
 
 import java.io.IOException;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -24,13 +24,8 @@ import org.openmuc.openiec61850.DataSet;
 import org.openmuc.openiec61850.FcModelNode;
 import org.openmuc.openiec61850.HexConverter;
 import org.openmuc.openiec61850.Report;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import com.alliander.osgp.adapter.protocol.iec61850.application.config.BeanUtil;
 import com.alliander.osgp.adapter.protocol.iec61850.application.services.DeviceManagementService;
-import com.alliander.osgp.adapter.protocol.iec61850.domain.entities.Iec61850Device;
-import com.alliander.osgp.adapter.protocol.iec61850.domain.repositories.Iec61850DeviceRepository;
 import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ProtocolAdapterException;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.ReadOnlyNodeContainer;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.Iec61850BdaOptFldsHelper;
@@ -41,68 +36,85 @@ import com.alliander.osgp.dto.valueobjects.microgrids.ReportDto;
 
 public class Iec61850ClientRTUEventListener extends Iec61850ClientBaseEventListener {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(Iec61850ClientRTUEventListener.class);
-
     private static final String NODE_NAMES = "(RTU|PV|BATTERY|ENGINE|LOAD|CHP|HEAT_BUFFER|GAS_FURNACE|HEAT_PUMP|BOILER|WIND)";
     private static final Pattern REPORT_PATTERN = Pattern
             .compile("\\A(.*)" + NODE_NAMES + "([1-9]\\d*+)/LLN0\\$(Status|Measurements|Heartbeat)\\Z");
 
-    private static final Map<String, Class<? extends Iec61850ReportHandler>> REPORT_HANDLERS_MAP = new HashMap<>();
+    private static final Map<String, IntFunction<Iec61850ReportHandler>> REPORT_HANDLERS_MAP = new HashMap<>();
 
     static {
-        REPORT_HANDLERS_MAP.put("RTU", Iec61850RtuReportHandler.class);
-        REPORT_HANDLERS_MAP.put("PV", Iec61850PvReportHandler.class);
-        REPORT_HANDLERS_MAP.put("BATTERY", Iec61850BatteryReportHandler.class);
-        REPORT_HANDLERS_MAP.put("ENGINE", Iec61850EngineReportHandler.class);
-        REPORT_HANDLERS_MAP.put("LOAD", Iec61850LoadReportHandler.class);
-        REPORT_HANDLERS_MAP.put("LOAD_COMBINED", Iec61850CombinedLoadReportHandler.class);
-        REPORT_HANDLERS_MAP.put("CHP", Iec61850ChpReportHandler.class);
-        REPORT_HANDLERS_MAP.put("HEAT_BUFFER", Iec61850HeatBufferReportHandler.class);
-        REPORT_HANDLERS_MAP.put("GAS_FURNACE", Iec61850GasFurnaceReportHandler.class);
-        REPORT_HANDLERS_MAP.put("HEAT_PUMP", Iec61850HeatPumpReportHandler.class);
-        REPORT_HANDLERS_MAP.put("BOILER", Iec61850BoilerReportHandler.class);
-        REPORT_HANDLERS_MAP.put("WIND", Iec61850WindReportHandler.class);
+        REPORT_HANDLERS_MAP.put("RTU", Iec61850RtuReportHandler::new);
+        REPORT_HANDLERS_MAP.put("PV", Iec61850PvReportHandler::new);
+        REPORT_HANDLERS_MAP.put("BATTERY", Iec61850BatteryReportHandler::new);
+        REPORT_HANDLERS_MAP.put("ENGINE", Iec61850EngineReportHandler::new);
+        REPORT_HANDLERS_MAP.put("LOAD", Iec61850LoadReportHandler::new);
+        REPORT_HANDLERS_MAP.put("LOAD_COMBINED", Iec61850CombinedLoadReportHandler::new);
+        REPORT_HANDLERS_MAP.put("CHP", Iec61850ChpReportHandler::new);
+        REPORT_HANDLERS_MAP.put("HEAT_BUFFER", Iec61850HeatBufferReportHandler::new);
+        REPORT_HANDLERS_MAP.put("GAS_FURNACE", Iec61850GasFurnaceReportHandler::new);
+        REPORT_HANDLERS_MAP.put("HEAT_PUMP", Iec61850HeatPumpReportHandler::new);
+        REPORT_HANDLERS_MAP.put("BOILER", Iec61850BoilerReportHandler::new);
+        REPORT_HANDLERS_MAP.put("WIND", Iec61850WindReportHandler::new);
     }
 
+    private final Iec61850ReportIngestionService reportIngestionService;
+
+    private final Iec61850ReportEntryTracker reportEntryTracker;
+
+    private final boolean useCombinedLoad;
+
+    /**
+     * Report handlers by DataSetRef. Report handlers do not keep state between
+     * reports, so the same handler is used for all reports of a data set.
+     */
+    private final Map<String, Iec61850ReportHandler> reportHandlers = new ConcurrentHashMap<>();
+
     public Iec61850ClientRTUEventListener(final String deviceIdentification,
-            final DeviceManagementService deviceManagementService) throws ProtocolAdapterException {
+            final DeviceManagementService deviceManagementService,
+            final Iec61850ReportIngestionService reportIngestionService,
+            final Iec61850ReportEntryTracker reportEntryTracker, final boolean useCombinedLoad)
+            throws ProtocolAdapterException {
         super(deviceIdentification, deviceManagementService, Iec61850ClientRTUEventListener.class);
+        this.reportIngestionService = reportIngestionService;
+        this.reportEntryTracker = reportEntryTracker;
+        this.useCombinedLoad = useCombinedLoad;
     }
 
     private Iec61850ReportHandler getReportHandler(final String dataSetRef) {
+        final Iec61850ReportHandler reportHandler = this.reportHandlers.get(dataSetRef);
+        if (reportHandler != null) {
+            return reportHandler;
+        }
+
+        final Iec61850ReportHandler newReportHandler = this.createReportHandler(dataSetRef);
+        if (newReportHandler != null) {
+            this.reportHandlers.put(dataSetRef, newReportHandler);
+        }
+        return newReportHandler;
+    }
+
+    private Iec61850ReportHandler createReportHandler(final String dataSetRef) {
 
         final Matcher reportMatcher = REPORT_PATTERN.matcher(dataSetRef);
         if (reportMatcher.matches()) {
             String node = reportMatcher.group(2);
 
-            if ("LOAD".equals(node) && this.useCombinedLoad()) {
+            if ("LOAD".equals(node) && this.useCombinedLoad) {
                 node += "_COMBINED";
             }
 
             final int systemId = Integer.parseInt(reportMatcher.group(3));
-            final Class<?> clazz = REPORT_HANDLERS_MAP.get(node);
-            try {
-                final Constructor<?> ctor = clazz.getConstructor(new Class<?>[] { int.class });
-                return (Iec61850ReportHandler) ctor.newInstance(systemId);
-            } catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-                    | InvocationTargetException | NoSuchMethodException ex) {
-                LOGGER.error("Unable to instantiate Iec61850ReportHandler ", ex);
-            }
+            return REPORT_HANDLERS_MAP.get(node).apply(systemId);
         }
         return null;
     }
 
-    private boolean useCombinedLoad() {
-        final Iec61850DeviceRepository repository = BeanUtil.getBean(Iec61850DeviceRepository.class);
-        final Iec61850Device device = repository.findByDeviceIdentification(this.deviceIdentification);
-        if (device != null) {
-            return device.isUseCombinedLoad();
-        }
-        return BeanUtil.getBeanByName("defaultUseCombinedLoad", Boolean.class);
-    }
-
     @Override
     public void newReport(final Report report) {
+        this.reportIngestionService.ingest(this.deviceIdentification, report, this::handleReport);
+    }
+
+    private void handleReport(final Report report) {
         final DateTime timeOfEntry = report.getTimeOfEntry() == null ? null
                 : new DateTime(report.getTimeOfEntry().getTimestampValue() + IEC61850_ENTRY_TIME_OFFSET);
 
@@ -119,15 +131,23 @@ public class Iec61850ClientRTUEventListener extends Iec61850ClientBaseEventListe
             return;
         }
 
+        this.handleNewReport(report, reportDescription);
+    }
+
+    private void handleNewReport(final Report report, final String reportDescription) {
         final Iec61850ReportHandler reportHandler = this.getReportHandler(report.getDataSetRef());
         if (reportHandler == null) {
             this.logger.warn("Skipping report because dataset is not supported {}", report.getDataSetRef());
             return;
         }
+        if (!this.reportEntryTracker.accept(this.deviceIdentification, report)) {
+            return;
+        }
 
         this.logReportDetails(report);
         try {
             this.processReport(report, reportDescription, reportHandler);
+            this.reportEntryTracker.processed(this.deviceIdentification, report);
         } catch (final ProtocolAdapterException e) {
             this.logger.warn("Unable to process report, discarding report", e);
         }
@@ -251,6 +271,8 @@ public class Iec61850ClientRTUEventListener extends Iec61850ClientBaseEventListe
     public void associationClosed(final IOException e) {
         this.logger.info("associationClosed for device: {}, {}", this.deviceIdentification,
                 e == null ? "no IOException" : "IOException: " + e.getMessage());
+        this.reportEntryTracker.persist(this.deviceIdentification);
+        this.handleAssociationClosed();
     }
 
 }
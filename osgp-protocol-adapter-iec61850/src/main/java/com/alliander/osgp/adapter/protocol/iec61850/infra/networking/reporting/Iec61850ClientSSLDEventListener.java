@@ -8,10 +8,7 @@
 package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.reporting;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -31,6 +28,7 @@ import com.alliander.osgp.adapter.protocol.iec61850.application.services.DeviceM
 import com.alliander.osgp.adapter.protocol.iec61850.domain.valueobjects.EventType;
 import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ProtocolAdapterException;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.Iec61850BdaOptFldsHelper;
+import com.alliander.osgp.core.db.api.iec61850.application.services.SsldRelayTable;
 import com.alliander.osgp.core.db.api.iec61850.entities.DeviceOutputSetting;
 import com.alliander.osgp.dto.valueobjects.EventNotificationDto;
 import com.alliander.osgp.dto.valueobjects.EventTypeDto;
@@ -49,13 +47,6 @@ public class Iec61850ClientSSLDEventListener extends Iec61850ClientBaseEventList
 
     private static final Map<Short, String> TRG_TYPE_DESCRIPTION_PER_CODE = new TreeMap<>();
 
-    private static final Comparator<EventNotificationDto> NOTIFICATIONS_BY_TIME = new Comparator<EventNotificationDto>() {
-        @Override
-        public int compare(final EventNotificationDto o1, final EventNotificationDto o2) {
-            return o1.getDateTime().compareTo(o2.getDateTime());
-        }
-    };
-
     static {
         TRG_TYPE_DESCRIPTION_PER_CODE.put((short) 1, "light trigger (sensor trigger)");
         TRG_TYPE_DESCRIPTION_PER_CODE.put((short) 2, "ad-hoc trigger");
@@ -63,32 +54,17 @@ public class Iec61850ClientSSLDEventListener extends Iec61850ClientBaseEventList
         TRG_TYPE_DESCRIPTION_PER_CODE.put((short) 4, "autonomous trigger");
     }
 
-    private final List<EventNotificationDto> eventNotifications = new ArrayList<>();
-    private final Map<Integer, Integer> externalIndexByInternalIndex = new TreeMap<>();
+    private final Iec61850EventNotificationEmitter eventNotificationEmitter;
+    private final SsldRelayTable relayTable;
 
     public Iec61850ClientSSLDEventListener(final String deviceIdentification,
-            final DeviceManagementService deviceManagementService) throws ProtocolAdapterException {
+            final DeviceManagementService deviceManagementService,
+            final Iec61850EventNotificationEmitter eventNotificationEmitter) throws ProtocolAdapterException {
         super(deviceIdentification, deviceManagementService, Iec61850ClientSSLDEventListener.class);
-        this.externalIndexByInternalIndex.putAll(this.buildExternalByInternalIndexMap(this.deviceManagementService,
-                this.deviceIdentification));
-    }
-
-    private Map<Integer, Integer> buildExternalByInternalIndexMap(
-            final DeviceManagementService deviceManagementService, final String deviceIdentification)
-            throws ProtocolAdapterException {
-
-        final Map<Integer, Integer> indexMap = new TreeMap<>();
-        indexMap.put(0, 0);
-
-        final List<DeviceOutputSetting> deviceOutputSettings = deviceManagementService
-                .getDeviceOutputSettings(deviceIdentification);
-        for (final DeviceOutputSetting outputSetting : deviceOutputSettings) {
-            indexMap.put(outputSetting.getInternalId(), outputSetting.getExternalId());
-        }
-
-        this.logger.info("Retrieved internal to external index map for device {}: {}", deviceIdentification, indexMap);
-
-        return indexMap;
+        this.eventNotificationEmitter = eventNotificationEmitter;
+        this.relayTable = this.deviceManagementService.getSsldRelayTable(this.deviceIdentification);
+        this.logger.info("Retrieved internal to external index map for device {}: {}", deviceIdentification,
+                this.relayTable);
     }
 
     @Override
@@ -164,9 +140,7 @@ public class Iec61850ClientSSLDEventListener extends Iec61850ClientBaseEventList
 
         final EventNotificationDto eventNotification = new EventNotificationDto(this.deviceIdentification, dateTime,
                 eventType, description, index);
-        synchronized (this.eventNotifications) {
-            this.eventNotifications.add(eventNotification);
-        }
+        this.eventNotificationEmitter.emit(this.deviceIdentification, eventNotification);
     }
 
     private EventTypeDto determineEventType(final FcModelNode evnRpn, final String reportDescription) {
@@ -191,15 +165,18 @@ public class Iec61850ClientSSLDEventListener extends Iec61850ClientBaseEventList
         }
 
         final Short swNum = swNumNode.getValue();
-        final Integer externalIndex = this.externalIndexByInternalIndex.get(swNum.intValue());
-        if (externalIndex == null) {
+        if (swNum == 0) {
+            return 0;
+        }
+        final DeviceOutputSetting outputSetting = this.relayTable.getDeviceOutputSettingForInternalIndex(swNum);
+        if (outputSetting == null) {
             this.logger.error(
                     "No external index configured for internal index: {} for device: {}, using '0' for event", swNum,
                     this.deviceIdentification);
             return 0;
         }
 
-        return externalIndex;
+        return outputSetting.getExternalId();
     }
 
     private String determineDescription(final FcModelNode evnRpn) {
@@ -398,17 +375,7 @@ public class Iec61850ClientSSLDEventListener extends Iec61850ClientBaseEventList
         this.logger.info("associationClosed() for device: {}, {}", this.deviceIdentification,
                 e == null ? "no IOException" : "IOException: " + e.getMessage());
 
-        synchronized (this.eventNotifications) {
-            if (this.eventNotifications.isEmpty()) {
-                this.logger.info("No event notifications received from device: {}", this.deviceIdentification);
-                return;
-            }
-            Collections.sort(this.eventNotifications, NOTIFICATIONS_BY_TIME);
-            try {
-                this.deviceManagementService.addEventNotifications(this.deviceIdentification, this.eventNotifications);
-            } catch (final ProtocolAdapterException pae) {
-                this.logger.error("Error adding device notifications for device: " + this.deviceIdentification, pae);
-            }
-        }
+        this.eventNotificationEmitter.flush(this.deviceIdentification);
+        this.handleAssociationClosed();
     }
 }
@@ -0,0 +1,228 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.reporting;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.alliander.osgp.adapter.protocol.iec61850.application.services.DeviceManagementService;
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ProtocolAdapterException;
+import com.alliander.osgp.dto.valueobjects.EventNotificationDto;
+
+/**
+ * Sends the event notifications reported by SSLDs to OSGP in batches, while
+ * the association with the device is open.
+ * <p>
+ * The event notifications of a device are sent when the batch size is
+ * reached, when the oldest event notification waited for the batch delay, or
+ * when the association is closed. The event notifications in a batch are
+ * sorted by time, batches of a device are sent in the order in which they were
+ * filled. As at most a batch of event notifications is kept per device, the
+ * replay of a large number of buffered reports after a reconnect is sent in
+ * batches as it is received.
+ */
+@Component
+@ManagedResource(description = "Batched sending of event notifications reported by SSLDs")
+public class Iec61850EventNotificationEmitter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Iec61850EventNotificationEmitter.class);
+
+    private static final Comparator<EventNotificationDto> NOTIFICATIONS_BY_TIME = new Comparator<EventNotificationDto>() {
+        @Override
+        public int compare(final EventNotificationDto o1, final EventNotificationDto o2) {
+            return o1.getDateTime().compareTo(o2.getDateTime());
+        }
+    };
+
+    private final DeviceManagementService deviceManagementService;
+
+    private final int eventNotificationBatchSize;
+
+    private final int eventNotificationBatchDelay;
+
+    /**
+     * Sends the batches of which the oldest event notification waited for the
+     * batch delay.
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * The batch per device identification, for devices that have an open
+     * association. Guarded by synchronizing on the map.
+     */
+    private final Map<String, Batch> batches = new HashMap<>();
+
+    private final AtomicLong emitted = new AtomicLong();
+    private final AtomicLong sentBatches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    @Autowired
+    public Iec61850EventNotificationEmitter(final DeviceManagementService deviceManagementService,
+            @Qualifier("eventNotificationBatchSize") final int eventNotificationBatchSize,
+            @Qualifier("eventNotificationBatchDelay") final int eventNotificationBatchDelay) {
+        this(deviceManagementService, eventNotificationBatchSize, eventNotificationBatchDelay,
+                Executors.newSingleThreadScheduledExecutor());
+    }
+
+    Iec61850EventNotificationEmitter(final DeviceManagementService deviceManagementService,
+            final int eventNotificationBatchSize, final int eventNotificationBatchDelay,
+            final ScheduledExecutorService scheduler) {
+        this.deviceManagementService = deviceManagementService;
+        this.eventNotificationBatchSize = eventNotificationBatchSize;
+        this.eventNotificationBatchDelay = eventNotificationBatchDelay;
+        this.scheduler = scheduler;
+    }
+
+    @PreDestroy
+    void destroy() {
+        final List<Batch> openBatches;
+        synchronized (this.batches) {
+            openBatches = new ArrayList<>(this.batches.values());
+            this.batches.clear();
+        }
+        for (final Batch batch : openBatches) {
+            batch.close();
+        }
+        this.scheduler.shutdown();
+    }
+
+    /**
+     * Adds an event notification to the batch of the device.
+     */
+    public void emit(final String deviceIdentification, final EventNotificationDto eventNotification) {
+        this.emitted.incrementAndGet();
+        boolean added;
+        do {
+            final Batch batch;
+            synchronized (this.batches) {
+                batch = this.batches.computeIfAbsent(deviceIdentification, Batch::new);
+            }
+            // A batch that is closed concurrently is replaced by a new one.
+            added = batch.add(eventNotification);
+        } while (!added);
+    }
+
+    /**
+     * Sends the remaining event notifications of the device, to be called when
+     * the association with the device is closed.
+     */
+    public void flush(final String deviceIdentification) {
+        final Batch batch;
+        synchronized (this.batches) {
+            batch = this.batches.remove(deviceIdentification);
+        }
+        if (batch == null) {
+            LOGGER.info("No event notifications received from device: {}", deviceIdentification);
+            return;
+        }
+        batch.close();
+    }
+
+    @ManagedAttribute(description = "Number of event notifications received from devices")
+    public long getEmittedCount() {
+        return this.emitted.get();
+    }
+
+    @ManagedAttribute(description = "Number of batches sent to OSGP")
+    public long getSentBatchCount() {
+        return this.sentBatches.get();
+    }
+
+    @ManagedAttribute(description = "Number of batches that could not be sent to OSGP")
+    public long getFailedBatchCount() {
+        return this.failedBatches.get();
+    }
+
+    @ManagedAttribute(description = "Number of devices with an open batch")
+    public int getOpenBatchCount() {
+        synchronized (this.batches) {
+            return this.batches.size();
+        }
+    }
+
+    private final class Batch {
+
+        private final String deviceIdentification;
+        private final List<EventNotificationDto> eventNotifications = new ArrayList<>();
+        private ScheduledFuture<?> scheduledSend;
+        private boolean closed;
+
+        Batch(final String deviceIdentification) {
+            this.deviceIdentification = deviceIdentification;
+        }
+
+        /**
+         * @return false if the batch is closed, and the event notification is
+         *         not added.
+         */
+        synchronized boolean add(final EventNotificationDto eventNotification) {
+            if (this.closed) {
+                return false;
+            }
+            this.eventNotifications.add(eventNotification);
+            if (this.eventNotifications.size() >= Iec61850EventNotificationEmitter.this.eventNotificationBatchSize) {
+                this.send();
+            } else if (this.scheduledSend == null) {
+                this.scheduledSend = Iec61850EventNotificationEmitter.this.scheduler.schedule(this::sendScheduled,
+                        Iec61850EventNotificationEmitter.this.eventNotificationBatchDelay, TimeUnit.MILLISECONDS);
+            }
+            return true;
+        }
+
+        synchronized void close() {
+            this.closed = true;
+            this.send();
+        }
+
+        private synchronized void sendScheduled() {
+            this.scheduledSend = null;
+            this.send();
+        }
+
+        private void send() {
+            if (this.scheduledSend != null) {
+                this.scheduledSend.cancel(false);
+                this.scheduledSend = null;
+            }
+            if (this.eventNotifications.isEmpty()) {
+                return;
+            }
+
+            final List<EventNotificationDto> batch = new ArrayList<>(this.eventNotifications);
+            this.eventNotifications.clear();
+            batch.sort(NOTIFICATIONS_BY_TIME);
+            try {
+                Iec61850EventNotificationEmitter.this.deviceManagementService.addEventNotifications(
+                        this.deviceIdentification, batch);
+                Iec61850EventNotificationEmitter.this.sentBatches.incrementAndGet();
+            } catch (final ProtocolAdapterException | RuntimeException e) {
+                Iec61850EventNotificationEmitter.this.failedBatches.incrementAndGet();
+                LOGGER.error("Error adding " + batch.size() + " device notifications for device: "
+                        + this.deviceIdentification, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.reporting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.alliander.osgp.adapter.protocol.iec61850.application.services.DeviceManagementService;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.LogicalNode;
+import com.alliander.osgp.core.db.api.iec61850.entities.LightMeasurementDevice;
+
+/**
+ * The light measurement devices by the digital input (SPGGIO) of the light
+ * measurement RTU they are connected to, so a light sensor report is routed to
+ * its devices without reading all light measurement devices from the database
+ * for every report.
+ * <p>
+ * The index is read from the database when it is first used, and again when it
+ * is older than the refresh interval or after a refresh through JMX.
+ */
+@Component
+@ManagedResource(description = "Light measurement devices by digital input")
+public class Iec61850LightMeasurementDeviceIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Iec61850LightMeasurementDeviceIndex.class);
+
+    /**
+     * The highest digital input, see {@link LogicalNode#getSpggioByIndex(int)}.
+     */
+    static final int MAX_DIGITAL_INPUT = 4;
+
+    @Autowired
+    private DeviceManagementService deviceManagementService;
+
+    @Autowired
+    private int lmdIndexRefreshInterval;
+
+    private volatile Index index;
+
+    private final AtomicLong refreshes = new AtomicLong();
+
+    /**
+     * @return The light measurement devices connected to the digital input,
+     *         empty if there are none.
+     */
+    public List<LightMeasurementDevice> getDevices(final int digitalInput) {
+        return this.currentIndex().getDevices(digitalInput);
+    }
+
+    private Index currentIndex() {
+        final Index current = this.index;
+        if (current != null && System.currentTimeMillis() - current.getLoadTime() < this.lmdIndexRefreshInterval) {
+            return current;
+        }
+        synchronized (this) {
+            if (this.index == current) {
+                this.index = this.load();
+            }
+            return this.index;
+        }
+    }
+
+    private Index load() {
+        final long now = System.currentTimeMillis();
+        final Index loaded = new Index(this.deviceManagementService.findAllLightMeasurementDevices(), now);
+        this.refreshes.incrementAndGet();
+        LOGGER.info("Loaded {} light measurement devices by digital input", loaded.getDeviceCount());
+        return loaded;
+    }
+
+    @ManagedOperation(description = "Reads the light measurement devices from the database again")
+    public synchronized void refresh() {
+        this.index = this.load();
+    }
+
+    @ManagedAttribute(description = "Number of light measurement devices with a valid digital input")
+    public int getDeviceCount() {
+        final Index current = this.index;
+        return current == null ? 0 : current.getDeviceCount();
+    }
+
+    @ManagedAttribute(description = "Number of times the light measurement devices were read from the database")
+    public long getRefreshCount() {
+        return this.refreshes.get();
+    }
+
+    private static final class Index {
+
+        private final List<List<LightMeasurementDevice>> devicesByDigitalInput = new ArrayList<>();
+        private final long loadTime;
+        private int deviceCount;
+
+        Index(final List<LightMeasurementDevice> lmds, final long loadTime) {
+            this.loadTime = loadTime;
+            for (int i = 0; i <= MAX_DIGITAL_INPUT; i++) {
+                this.devicesByDigitalInput.add(new ArrayList<LightMeasurementDevice>());
+            }
+            for (final LightMeasurementDevice lmd : lmds) {
+                final Short digitalInput = lmd.getDigitalInput();
+                if (digitalInput == null || digitalInput < 1 || digitalInput > MAX_DIGITAL_INPUT) {
+                    LOGGER.warn("Ignoring light measurement device {} with invalid digital input: {}",
+                            lmd.getDeviceIdentification(), digitalInput);
+                    continue;
+                }
+                this.devicesByDigitalInput.get(digitalInput).add(lmd);
+                this.deviceCount++;
+            }
+            for (int i = 0; i <= MAX_DIGITAL_INPUT; i++) {
+                this.devicesByDigitalInput.set(i, Collections.unmodifiableList(this.devicesByDigitalInput.get(i)));
+            }
+        }
+
+        List<LightMeasurementDevice> getDevices(final int digitalInput) {
+            if (digitalInput < 1 || digitalInput > MAX_DIGITAL_INPUT) {
+                return Collections.emptyList();
+            }
+            return this.devicesByDigitalInput.get(digitalInput);
+        }
+
+        long getLoadTime() {
+            return this.loadTime;
+        }
+
+        int getDeviceCount() {
+            return this.deviceCount;
+        }
+    }
+}
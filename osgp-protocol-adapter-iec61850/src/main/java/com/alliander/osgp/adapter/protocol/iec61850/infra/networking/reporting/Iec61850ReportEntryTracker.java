@@ -0,0 +1,442 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.reporting;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.openmuc.openiec61850.BdaOctetString;
+import org.openmuc.openiec61850.Report;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.alliander.osgp.adapter.protocol.iec61850.domain.entities.Iec61850ReportEntry;
+import com.alliander.osgp.adapter.protocol.iec61850.domain.repositories.Iec61850ReportEntryRepository;
+
+/**
+ * Keeps track of the last processed entry (EntryID and SqNum) of the buffered
+ * reports of devices, per report ID, so buffered reporting resumes after this
+ * entry when reporting is enabled again, instead of replaying the whole buffer
+ * of the device.
+ * <p>
+ * The entries are kept in memory while reports are processed, and are saved
+ * in the database when the association with the device is closed, and every
+ * persist interval.
+ * <p>
+ * The SqNum of a report is expected to follow the SqNum of the previous
+ * report. A gap means reports were not processed, for instance because they
+ * were discarded by the {@link Iec61850ReportIngestionService} or could not be
+ * handled. The entry then stays at the last entry before the gap, and the
+ * {@link ResyncHandler} resumes buffered reporting of just that report ID from
+ * it, so the device sends the missing entries again. Reports of the report ID
+ * are skipped until the device sends the entry after the last processed one,
+ * as they are sent again as well.
+ * <p>
+ * A gap that remains after resuming from the same entry, or a report with a
+ * buffer overflow, means the entries are no longer in the buffer of the
+ * device. Such a gap is logged as lost, and the entry moves forward.
+ */
+@Component
+@ManagedResource(description = "Last processed buffered report entries of devices")
+public class Iec61850ReportEntryTracker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Iec61850ReportEntryTracker.class);
+
+    private final Iec61850ReportEntryRepository iec61850ReportEntryRepository;
+
+    private final int reportEntryPersistInterval;
+
+    private final int reportEntryResyncTimeout;
+
+    private volatile ResyncHandler resyncHandler;
+
+    /**
+     * The entries by report ID, by device identification.
+     */
+    private final Map<String, Map<String, ReportEntry>> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong resumed = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong lostGaps = new AtomicLong();
+    private final AtomicLong persisted = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public Iec61850ReportEntryTracker(final Iec61850ReportEntryRepository iec61850ReportEntryRepository,
+            @Qualifier("reportEntryPersistInterval") final int reportEntryPersistInterval,
+            @Qualifier("reportEntryResyncTimeout") final int reportEntryResyncTimeout) {
+        this.iec61850ReportEntryRepository = iec61850ReportEntryRepository;
+        this.reportEntryPersistInterval = reportEntryPersistInterval;
+        this.reportEntryResyncTimeout = reportEntryResyncTimeout;
+    }
+
+    @PostConstruct
+    void init() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.scheduler.scheduleWithFixedDelay(this::persistAll, this.reportEntryPersistInterval,
+                this.reportEntryPersistInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void destroy() {
+        this.scheduler.shutdown();
+        this.persistAll();
+    }
+
+    /**
+     * Sets the handler resuming buffered reporting of a report ID after a gap
+     * in the reports.
+     */
+    public void setResyncHandler(final ResyncHandler resyncHandler) {
+        this.resyncHandler = resyncHandler;
+    }
+
+    /**
+     * Returns the EntryID to write to the buffered report control block
+     * before reporting is enabled.
+     *
+     * @return The EntryID of the last processed entry, or null if no entry
+     *         has been processed for the report ID.
+     */
+    public byte[] getEntryIdToResumeFrom(final String deviceIdentification, final String reportId) {
+        final ReportEntry reportEntry = this.getDeviceEntries(deviceIdentification).computeIfAbsent(reportId,
+                k -> this.load(deviceIdentification, reportId));
+        final byte[] entryId = reportEntry.resume();
+        if (entryId != null) {
+            this.resumed.incrementAndGet();
+        }
+        return entryId;
+    }
+
+    /**
+     * Checks if a report is to be processed, to be called before processing
+     * it. A gap between the report and the last processed entry of the report
+     * ID starts a resync. Reports without an EntryID, like unbuffered reports,
+     * are always processed.
+     *
+     * @return false if the report is to be skipped, because the device sends
+     *         it again after the resync.
+     */
+    public boolean accept(final String deviceIdentification, final Report report) {
+        if (!hasEntryId(report)) {
+            return true;
+        }
+
+        final ReportEntry reportEntry = this.getDeviceEntries(deviceIdentification).computeIfAbsent(
+                report.getRptId(), k -> new ReportEntry(deviceIdentification, report.getRptId(), null, null));
+        final Integer lastSqNum = reportEntry.getSqNum();
+        switch (reportEntry.check(report.getSqNum(), report.isBufOvfl(), System.currentTimeMillis(),
+                this.reportEntryResyncTimeout)) {
+        case RESYNC:
+            this.resyncs.incrementAndGet();
+            LOGGER.warn("Gap in reports for device: {}, reportId: {}, sqNum: {} after sqNum: {}, "
+                    + "resuming reporting after the last processed entry", deviceIdentification,
+                    report.getRptId(), report.getSqNum(), lastSqNum);
+            this.resync(deviceIdentification, report.getRptId());
+            return false;
+        case SKIP:
+            this.skipped.incrementAndGet();
+            LOGGER.debug("Skipping report of device: {}, reportId: {}, sqNum: {}, waiting for resync after sqNum: {}",
+                    deviceIdentification, report.getRptId(), report.getSqNum(), lastSqNum);
+            return false;
+        case LOST:
+            this.lostGaps.incrementAndGet();
+            LOGGER.warn("Reports lost for device: {}, reportId: {}, sqNum: {} after sqNum: {}, buffer overflow: {}",
+                    deviceIdentification, report.getRptId(), report.getSqNum(), lastSqNum, report.isBufOvfl());
+            return true;
+        default:
+            return true;
+        }
+    }
+
+    /**
+     * Records a report that has been processed. Reports without an EntryID,
+     * like unbuffered reports, are ignored.
+     */
+    public void processed(final String deviceIdentification, final Report report) {
+        if (!hasEntryId(report)) {
+            return;
+        }
+
+        final ReportEntry reportEntry = this.getDeviceEntries(deviceIdentification).computeIfAbsent(
+                report.getRptId(), k -> new ReportEntry(deviceIdentification, report.getRptId(), null, null));
+        reportEntry.record(report.getEntryId().getValue(), report.getSqNum());
+    }
+
+    /**
+     * Stops skipping the reports of a report ID, to be called when buffered
+     * reporting could not be resumed after a gap. The next gap after the same
+     * entry is logged as lost.
+     */
+    public void resyncFailed(final String deviceIdentification, final String reportId) {
+        final Map<String, ReportEntry> deviceEntries = this.entries.get(deviceIdentification);
+        final ReportEntry reportEntry = deviceEntries == null ? null : deviceEntries.get(reportId);
+        if (reportEntry != null) {
+            reportEntry.resyncFailed();
+        }
+    }
+
+    private void resync(final String deviceIdentification, final String reportId) {
+        final ResyncHandler handler = this.resyncHandler;
+        if (handler == null) {
+            LOGGER.warn("Unable to resync reportId: {} of device: {}, no resync handler", reportId,
+                    deviceIdentification);
+            this.resyncFailed(deviceIdentification, reportId);
+            return;
+        }
+        try {
+            handler.resync(deviceIdentification, reportId);
+        } catch (final RuntimeException e) {
+            LOGGER.error("Unable to resync reportId: " + reportId + " of device: " + deviceIdentification, e);
+            this.resyncFailed(deviceIdentification, reportId);
+        }
+    }
+
+    private static boolean hasEntryId(final Report report) {
+        final BdaOctetString entryId = report.getEntryId();
+        return entryId != null && entryId.getValue() != null && entryId.getValue().length != 0
+                && report.getRptId() != null;
+    }
+
+    /**
+     * Saves the processed entries of the device, to be called when the
+     * association with the device is closed.
+     */
+    public void persist(final String deviceIdentification) {
+        final Map<String, ReportEntry> deviceEntries = this.entries.get(deviceIdentification);
+        if (deviceEntries == null) {
+            return;
+        }
+        for (final ReportEntry reportEntry : deviceEntries.values()) {
+            this.persist(reportEntry);
+        }
+    }
+
+    @ManagedOperation(description = "Saves the processed entries of all devices")
+    public void persistAll() {
+        for (final String deviceIdentification : this.entries.keySet()) {
+            this.persist(deviceIdentification);
+        }
+    }
+
+    private void persist(final ReportEntry reportEntry) {
+        try {
+            if (reportEntry.persist(this.iec61850ReportEntryRepository)) {
+                this.persisted.incrementAndGet();
+            }
+        } catch (final RuntimeException e) {
+            LOGGER.error("Unable to save last processed entry for device: " + reportEntry.getDeviceIdentification()
+                    + ", reportId: " + reportEntry.getReportId(), e);
+        }
+    }
+
+    private Map<String, ReportEntry> getDeviceEntries(final String deviceIdentification) {
+        return this.entries.computeIfAbsent(deviceIdentification, k -> new ConcurrentHashMap<>());
+    }
+
+    private ReportEntry load(final String deviceIdentification, final String reportId) {
+        final Iec61850ReportEntry entity = this.iec61850ReportEntryRepository
+                .findByDeviceIdentificationAndReportId(deviceIdentification, reportId);
+        if (entity == null) {
+            return new ReportEntry(deviceIdentification, reportId, null, null);
+        }
+        return new ReportEntry(deviceIdentification, reportId, entity.getEntryId(), entity.getSqNum());
+    }
+
+    @ManagedAttribute(description = "Number of times buffered reporting resumed after a processed entry")
+    public long getResumedCount() {
+        return this.resumed.get();
+    }
+
+    @ManagedAttribute(description = "Number of gaps in reports after which reporting was resumed")
+    public long getResyncCount() {
+        return this.resyncs.get();
+    }
+
+    @ManagedAttribute(description = "Number of reports skipped while waiting for reporting to be resumed")
+    public long getSkippedCount() {
+        return this.skipped.get();
+    }
+
+    @ManagedAttribute(description = "Number of gaps in reports that are no longer in the buffer of the device")
+    public long getLostGapCount() {
+        return this.lostGaps.get();
+    }
+
+    @ManagedAttribute(description = "Number of times a processed entry was saved in the database")
+    public long getPersistedCount() {
+        return this.persisted.get();
+    }
+
+    /**
+     * Resumes buffered reporting of a report ID of a device after the last
+     * processed entry, by writing its EntryID to the buffered report control
+     * block and enabling it again. Called on the thread processing the report
+     * that shows the gap, so the handler is expected to do this in the
+     * background, and to call
+     * {@link Iec61850ReportEntryTracker#resyncFailed(String, String)} if it
+     * cannot be done.
+     */
+    @FunctionalInterface
+    public interface ResyncHandler {
+        void resync(String deviceIdentification, String reportId);
+    }
+
+    private enum Outcome {
+        PROCESS,
+        RESYNC,
+        SKIP,
+        LOST
+    }
+
+    private static final class ReportEntry {
+
+        private final String deviceIdentification;
+        private final String reportId;
+        private byte[] entryId;
+        private Integer sqNum;
+        private boolean dirty;
+
+        /**
+         * The SqNum of the entry reporting was last resumed from, a gap after
+         * this entry is not resynced again.
+         */
+        private Integer resumedSqNum;
+        private boolean resyncing;
+        private long resyncStart;
+
+        /**
+         * Serializes saving this entry, so an older state is never saved after
+         * a newer one.
+         */
+        private final Object persistLock = new Object();
+
+        ReportEntry(final String deviceIdentification, final String reportId, final byte[] entryId,
+                final Integer sqNum) {
+            this.deviceIdentification = deviceIdentification;
+            this.reportId = reportId;
+            this.entryId = entryId;
+            this.sqNum = sqNum;
+        }
+
+        String getDeviceIdentification() {
+            return this.deviceIdentification;
+        }
+
+        String getReportId() {
+            return this.reportId;
+        }
+
+        synchronized Integer getSqNum() {
+            return this.sqNum;
+        }
+
+        synchronized byte[] resume() {
+            this.resumedSqNum = this.sqNum;
+            return this.entryId == null ? null : Arrays.copyOf(this.entryId, this.entryId.length);
+        }
+
+        synchronized Outcome check(final Integer sqNum, final boolean bufOvfl, final long now,
+                final long resyncTimeout) {
+            if (this.sqNum == null || sqNum == null || isContiguous(this.sqNum, sqNum)) {
+                this.resyncing = false;
+                return Outcome.PROCESS;
+            }
+            if (this.resyncing) {
+                // Reports received before reporting was resumed are sent
+                // again, the first report after resuming follows the entry.
+                if (!bufOvfl && now - this.resyncStart < resyncTimeout) {
+                    return Outcome.SKIP;
+                }
+                this.resyncing = false;
+                return Outcome.LOST;
+            }
+            if (bufOvfl || Objects.equals(this.resumedSqNum, this.sqNum)) {
+                return Outcome.LOST;
+            }
+            this.resyncing = true;
+            this.resyncStart = now;
+            this.resumedSqNum = this.sqNum;
+            return Outcome.RESYNC;
+        }
+
+        synchronized void resyncFailed() {
+            this.resyncing = false;
+        }
+
+        synchronized void record(final byte[] entryId, final Integer sqNum) {
+            this.entryId = Arrays.copyOf(entryId, entryId.length);
+            this.sqNum = sqNum;
+            this.dirty = true;
+        }
+
+        /**
+         * @return true if the entry is the same as the previous one (another
+         *         segment of the same report), or the next one, also when the
+         *         SqNum wraps around.
+         */
+        private static boolean isContiguous(final int previousSqNum, final int sqNum) {
+            return sqNum == previousSqNum || sqNum == previousSqNum + 1
+                    || (sqNum == 0 && (previousSqNum == 0xFF || previousSqNum == 0xFFFF));
+        }
+
+        /**
+         * @return true if the entry was saved, false if there was nothing new
+         *         to save.
+         */
+        boolean persist(final Iec61850ReportEntryRepository repository) {
+            synchronized (this.persistLock) {
+                final byte[] entryIdToSave;
+                final Integer sqNumToSave;
+                synchronized (this) {
+                    if (!this.dirty) {
+                        return false;
+                    }
+                    entryIdToSave = this.entryId;
+                    sqNumToSave = this.sqNum;
+                    this.dirty = false;
+                }
+
+                try {
+                    Iec61850ReportEntry entity = repository.findByDeviceIdentificationAndReportId(
+                            this.deviceIdentification, this.reportId);
+                    if (entity == null) {
+                        entity = new Iec61850ReportEntry(this.deviceIdentification, this.reportId, entryIdToSave,
+                                sqNumToSave);
+                    } else {
+                        entity.updateEntry(entryIdToSave, sqNumToSave);
+                    }
+                    repository.save(entity);
+                    return true;
+                } catch (final RuntimeException e) {
+                    synchronized (this) {
+                        this.dirty = true;
+                    }
+                    throw e;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.reporting;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.openmuc.openiec61850.Report;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Processes reports received from devices on a pool of worker threads, so the
+ * thread receiving data from the association is not held up by translating
+ * and publishing reports.
+ * <p>
+ * Reports from the same device are processed one at a time, in the order in
+ * which they were received, which is the order of their SqNum. The number of
+ * reports waiting to be processed is bounded, in total and per device, so a
+ * single device sending a burst of reports can not take all room in the queue
+ * from the other devices. What happens when a bound is reached is determined
+ * by the {@link OverflowPolicy}. Blocking on the bound of a device only holds
+ * up the thread receiving data from that device.
+ */
+@Component
+@ManagedResource(description = "Asynchronous processing of reports received from devices")
+public class Iec61850ReportIngestionService {
+
+    /**
+     * What to do with a report that is received when the maximum number of
+     * reports are waiting to be processed.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait until there is room for the report. This holds up the thread
+         * receiving data from the device, like processing the report directly
+         * would.
+         */
+        BLOCK,
+        /**
+         * Discard the report.
+         */
+        DISCARD
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Iec61850ReportIngestionService.class);
+
+    @Autowired
+    private int reportIngestionPoolSize;
+
+    @Autowired
+    private int reportIngestionQueueCapacity;
+
+    @Autowired
+    private int reportIngestionDeviceQueueCapacity;
+
+    @Autowired
+    private OverflowPolicy reportIngestionOverflowPolicy;
+
+    /**
+     * Reports waiting to be processed per device identification, for devices
+     * that have a report being processed. Guarded by synchronizing on the map.
+     */
+    private final Map<String, Queue<PendingReport>> deviceQueues = new HashMap<>();
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong blocked = new AtomicLong();
+    private final AtomicLong deviceLimited = new AtomicLong();
+    private final AtomicLong maxQueueDepth = new AtomicLong();
+
+    private Semaphore capacity;
+
+    private ExecutorService workers;
+
+    @PostConstruct
+    private void init() {
+        this.capacity = new Semaphore(this.reportIngestionQueueCapacity);
+        this.workers = Executors.newFixedThreadPool(this.reportIngestionPoolSize);
+    }
+
+    @PreDestroy
+    private void destroy() {
+        this.workers.shutdown();
+    }
+
+    /**
+     * Queues a report for processing by the given handler.
+     * <p>
+     * The {@link Report} is not modified after it is passed to the event
+     * listener of the association, every received report has its own copy of
+     * the data set values, so it can be processed later.
+     */
+    public void ingest(final String deviceIdentification, final Report report, final Consumer<Report> handler) {
+        this.received.incrementAndGet();
+        if (!this.awaitDeviceCapacity(deviceIdentification, report)) {
+            return;
+        }
+        if (!this.capacity.tryAcquire()) {
+            if (this.reportIngestionOverflowPolicy == OverflowPolicy.DISCARD) {
+                this.discarded.incrementAndGet();
+                LOGGER.warn("Discarding report with SqNum: {} from device: {}, {} reports are waiting to be processed",
+                        report.getSqNum(), deviceIdentification, this.reportIngestionQueueCapacity);
+                return;
+            }
+            this.blocked.incrementAndGet();
+            LOGGER.warn("Waiting to queue report with SqNum: {} from device: {}, {} reports are waiting to be processed",
+                    report.getSqNum(), deviceIdentification, this.reportIngestionQueueCapacity);
+            this.capacity.acquireUninterruptibly();
+        }
+        this.updateMaxQueueDepth();
+
+        final PendingReport pendingReport = new PendingReport(report, handler);
+        synchronized (this.deviceQueues) {
+            Queue<PendingReport> deviceQueue = this.deviceQueues.get(deviceIdentification);
+            if (deviceQueue == null) {
+                deviceQueue = new ArrayDeque<>();
+                this.deviceQueues.put(deviceIdentification, deviceQueue);
+                deviceQueue.add(pendingReport);
+                this.schedule(deviceIdentification, deviceQueue);
+            } else {
+                // A report of the device is being processed, the next report
+                // is scheduled after it has been processed.
+                deviceQueue.add(pendingReport);
+            }
+        }
+    }
+
+    /**
+     * Applies the overflow policy when the maximum number of reports of the
+     * device are waiting to be processed.
+     *
+     * @return false if the report is discarded.
+     */
+    private boolean awaitDeviceCapacity(final String deviceIdentification, final Report report) {
+        synchronized (this.deviceQueues) {
+            Queue<PendingReport> deviceQueue = this.deviceQueues.get(deviceIdentification);
+            if (deviceQueue == null || deviceQueue.size() < this.reportIngestionDeviceQueueCapacity) {
+                return true;
+            }
+            this.deviceLimited.incrementAndGet();
+            if (this.reportIngestionOverflowPolicy == OverflowPolicy.DISCARD) {
+                this.discarded.incrementAndGet();
+                LOGGER.warn("Discarding report with SqNum: {} from device: {}, {} reports of the device are waiting "
+                        + "to be processed", report.getSqNum(), deviceIdentification,
+                        this.reportIngestionDeviceQueueCapacity);
+                return false;
+            }
+            this.blocked.incrementAndGet();
+            LOGGER.warn("Waiting to queue report with SqNum: {} from device: {}, {} reports of the device are waiting "
+                    + "to be processed", report.getSqNum(), deviceIdentification,
+                    this.reportIngestionDeviceQueueCapacity);
+            while (deviceQueue != null && deviceQueue.size() >= this.reportIngestionDeviceQueueCapacity) {
+                try {
+                    this.deviceQueues.wait();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    this.discarded.incrementAndGet();
+                    LOGGER.warn("Interrupted while waiting to queue report with SqNum: {} from device: {}, "
+                            + "discarding report", report.getSqNum(), deviceIdentification);
+                    return false;
+                }
+                deviceQueue = this.deviceQueues.get(deviceIdentification);
+            }
+            return true;
+        }
+    }
+
+    private void schedule(final String deviceIdentification, final Queue<PendingReport> deviceQueue) {
+        this.workers.execute(() -> this.processNext(deviceIdentification, deviceQueue));
+    }
+
+    private void processNext(final String deviceIdentification, final Queue<PendingReport> deviceQueue) {
+        final PendingReport pendingReport;
+        synchronized (this.deviceQueues) {
+            pendingReport = deviceQueue.peek();
+        }
+
+        try {
+            pendingReport.getHandler().accept(pendingReport.getReport());
+        } catch (final RuntimeException e) {
+            LOGGER.error("Unexpected exception processing report from device: " + deviceIdentification, e);
+        } finally {
+            this.processed.incrementAndGet();
+            this.capacity.release();
+        }
+
+        synchronized (this.deviceQueues) {
+            deviceQueue.remove();
+            this.deviceQueues.notifyAll();
+            if (deviceQueue.isEmpty()) {
+                this.deviceQueues.remove(deviceIdentification);
+            } else {
+                this.schedule(deviceIdentification, deviceQueue);
+            }
+        }
+    }
+
+    private void updateMaxQueueDepth() {
+        final long queueDepth = this.getQueueDepth();
+        long max = this.maxQueueDepth.get();
+        while (queueDepth > max && !this.maxQueueDepth.compareAndSet(max, queueDepth)) {
+            max = this.maxQueueDepth.get();
+        }
+    }
+
+    @ManagedAttribute(description = "Number of reports waiting to be processed or being processed")
+    public int getQueueDepth() {
+        return this.reportIngestionQueueCapacity - this.capacity.availablePermits();
+    }
+
+    @ManagedAttribute(description = "Maximum number of reports waiting to be processed or being processed")
+    public long getMaxQueueDepth() {
+        return this.maxQueueDepth.get();
+    }
+
+    @ManagedAttribute(description = "Maximum number of reports waiting to be processed")
+    public int getQueueCapacity() {
+        return this.reportIngestionQueueCapacity;
+    }
+
+    @ManagedAttribute(description = "Maximum number of reports of a single device waiting to be processed")
+    public int getDeviceQueueCapacity() {
+        return this.reportIngestionDeviceQueueCapacity;
+    }
+
+    @ManagedAttribute(description = "Number of devices with reports waiting to be processed")
+    public int getActiveDeviceCount() {
+        synchronized (this.deviceQueues) {
+            return this.deviceQueues.size();
+        }
+    }
+
+    @ManagedAttribute(description = "Number of received reports")
+    public long getReceivedCount() {
+        return this.received.get();
+    }
+
+    @ManagedAttribute(description = "Number of processed reports")
+    public long getProcessedCount() {
+        return this.processed.get();
+    }
+
+    @ManagedAttribute(description = "Number of reports discarded because the queue was full")
+    public long getDiscardedCount() {
+        return this.discarded.get();
+    }
+
+    @ManagedAttribute(description = "Number of reports that waited for room in the queue")
+    public long getBlockedCount() {
+        return this.blocked.get();
+    }
+
+    @ManagedAttribute(description = "Number of reports that were discarded or waited because of the device limit")
+    public long getDeviceLimitedCount() {
+        return this.deviceLimited.get();
+    }
+
+    private static final class PendingReport {
+
+        private final Report report;
+        private final Consumer<Report> handler;
+
+        PendingReport(final Report report, final Consumer<Report> handler) {
+            this.report = report;
+            this.handler = handler;
+        }
+
+        Report getReport() {
+            return this.report;
+        }
+
+        Consumer<Report> getHandler() {
+            return this.handler;
+        }
+    }
+}
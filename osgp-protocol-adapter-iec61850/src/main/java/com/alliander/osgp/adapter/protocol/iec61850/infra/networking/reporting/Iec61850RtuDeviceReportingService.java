@@ -10,8 +10,16 @@ package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.reporting;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-import org.openmuc.openiec61850.ClientAssociation;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.openmuc.openiec61850.BdaVisibleString;
+import org.openmuc.openiec61850.Brcb;
+import org.openmuc.openiec61850.FcModelNode;
+import org.openmuc.openiec61850.HexConverter;
 import org.openmuc.openiec61850.Rcb;
 import org.openmuc.openiec61850.ServerModel;
 import org.openmuc.openiec61850.ServiceError;
@@ -25,11 +33,16 @@ import com.alliander.osgp.adapter.protocol.iec61850.domain.entities.Iec61850Devi
 import com.alliander.osgp.adapter.protocol.iec61850.domain.entities.Iec61850Report;
 import com.alliander.osgp.adapter.protocol.iec61850.domain.entities.Iec61850ReportGroup;
 import com.alliander.osgp.adapter.protocol.iec61850.domain.repositories.Iec61850DeviceReportGroupRepository;
-import com.alliander.osgp.adapter.protocol.iec61850.domain.repositories.Iec61850DeviceRepository;
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ConnectionFailureException;
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.NodeException;
 import com.alliander.osgp.adapter.protocol.iec61850.exceptions.NodeWriteException;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850Client;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850Connection;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.DeviceConnection;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.NodeContainer;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.SubDataAttribute;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.Iec61850ConnectionPool;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.Iec61850DeviceCache;
 
 @Service
 public class Iec61850RtuDeviceReportingService {
@@ -37,16 +50,44 @@ public class Iec61850RtuDeviceReportingService {
     private static final Logger LOGGER = LoggerFactory.getLogger(Iec61850RtuDeviceReportingService.class);
 
     @Autowired
-    private Iec61850DeviceRepository iec61850DeviceRepository;
+    private Iec61850DeviceCache iec61850DeviceCache;
 
     @Autowired
     private Iec61850DeviceReportGroupRepository iec61850DeviceReportRepository;
 
+    @Autowired
+    private Iec61850ReportEntryTracker iec61850ReportEntryTracker;
+
+    @Autowired
+    private Iec61850Client iec61850Client;
+
+    @Autowired
+    private Iec61850ConnectionPool iec61850ConnectionPool;
+
+    /**
+     * Resumes buffered reporting after gaps in the reports, off the threads
+     * processing the reports.
+     */
+    private ExecutorService resyncExecutor;
+
+    @PostConstruct
+    void init() {
+        this.resyncExecutor = Executors.newSingleThreadExecutor();
+        this.iec61850ReportEntryTracker.setResyncHandler(
+                (deviceIdentification, reportId) -> this.resyncExecutor
+                        .execute(() -> this.resync(deviceIdentification, reportId)));
+    }
+
+    @PreDestroy
+    void destroy() {
+        this.iec61850ReportEntryTracker.setResyncHandler(null);
+        this.resyncExecutor.shutdownNow();
+    }
+
     public void enableReportingForDevice(final DeviceConnection connection, final String deviceIdentification,
             final String serverName) {
         try {
-            final Iec61850Device device = this.iec61850DeviceRepository
-                    .findByDeviceIdentification(deviceIdentification);
+            final Iec61850Device device = this.iec61850DeviceCache.getDevice(deviceIdentification);
 
             if (device.isEnableAllReportsOnConnect()) {
                 this.enableAllReports(connection, deviceIdentification);
@@ -75,6 +116,7 @@ public class Iec61850RtuDeviceReportingService {
             final String reportReference = report.getReference().toString();
             try {
                 LOGGER.info("Enable reporting for report {} on device {}.", reportReference, deviceIdentification);
+                this.resumeBufferedReporting(connection, deviceIdentification, report);
                 final NodeContainer node = new NodeContainer(connection, report);
                 node.writeBoolean(SubDataAttribute.ENABLE_REPORTING, true);
             } catch (final NullPointerException e) {
@@ -92,32 +134,29 @@ public class Iec61850RtuDeviceReportingService {
             final String serverName) {
 
         final ServerModel serverModel = connection.getConnection().getServerModel();
-        final ClientAssociation clientAssociation = connection.getConnection().getClientAssociation();
 
         final List<Iec61850DeviceReportGroup> deviceReportGroups = this.iec61850DeviceReportRepository
                 .findByDeviceIdentificationAndEnabled(deviceIdentification, true);
         for (final Iec61850DeviceReportGroup deviceReportGroup : deviceReportGroups) {
             this.enableReportGroup(serverName, deviceIdentification, deviceReportGroup.getIec61850ReportGroup(),
-                    serverModel, clientAssociation);
+                    serverModel, connection);
         }
     }
 
     private void enableReportGroup(final String serverName, final String deviceIdentification,
-            final Iec61850ReportGroup reportGroup, final ServerModel serverModel,
-            final ClientAssociation clientAssociation) {
+            final Iec61850ReportGroup reportGroup, final ServerModel serverModel, final DeviceConnection connection) {
         for (final Iec61850Report iec61850Report : reportGroup.getIec61850Reports()) {
-            this.enableReport(serverName, deviceIdentification, iec61850Report, serverModel, clientAssociation);
+            this.enableReport(serverName, deviceIdentification, iec61850Report, serverModel, connection);
         }
     }
 
     private void enableReport(final String serverName, final String deviceIdentification,
-            final Iec61850Report iec61850Report, final ServerModel serverModel,
-            final ClientAssociation clientAssociation) {
+            final Iec61850Report iec61850Report, final ServerModel serverModel, final DeviceConnection connection) {
         int i = 1;
         Rcb rcb = this.getRcb(serverModel,
                 this.getReportNode(serverName, iec61850Report.getLogicalDevice(), i, iec61850Report.getLogicalNode()));
         while (rcb != null) {
-            this.enableRcb(deviceIdentification, clientAssociation, rcb);
+            this.enableRcb(deviceIdentification, connection, rcb);
             i += 1;
             rcb = this.getRcb(
                     serverModel,
@@ -139,9 +178,10 @@ public class Iec61850RtuDeviceReportingService {
         return rcb;
     }
 
-    private void enableRcb(final String deviceIdentification, final ClientAssociation clientAssociation, final Rcb rcb) {
+    private void enableRcb(final String deviceIdentification, final DeviceConnection connection, final Rcb rcb) {
+        this.resumeBufferedReporting(connection, deviceIdentification, rcb);
         try {
-            clientAssociation.enableReporting(rcb);
+            connection.getConnection().getClientAssociation().enableReporting(rcb);
         } catch (final IOException e) {
             LOGGER.error("IOException: unable to enable reporting for deviceIdentification " + deviceIdentification, e);
         } catch (final ServiceError e) {
@@ -149,4 +189,112 @@ public class Iec61850RtuDeviceReportingService {
         }
     }
 
+    /**
+     * Resumes buffered reporting of the given report ID after the last
+     * processed entry, after a gap in the reports. Reporting of the buffered
+     * report control block is disabled and enabled again the same way as
+     * when connecting, so the device sends the missing entries again. The
+     * other report control blocks of the device are not touched.
+     */
+    void resync(final String deviceIdentification, final String reportId) {
+        final Iec61850Connection connection;
+        try {
+            connection = this.iec61850ConnectionPool.lease(deviceIdentification);
+        } catch (final ConnectionFailureException e) {
+            LOGGER.warn("Unable to resync report {} on device {}: {}", reportId, deviceIdentification, e.getMessage());
+            this.iec61850ReportEntryTracker.resyncFailed(deviceIdentification, reportId);
+            return;
+        }
+        if (connection == null) {
+            LOGGER.warn("Unable to resync report {} on device {}, no connection", reportId, deviceIdentification);
+            this.iec61850ReportEntryTracker.resyncFailed(deviceIdentification, reportId);
+            return;
+        }
+
+        try {
+            final Brcb brcb = this.findBrcb(connection.getServerModel(), reportId);
+            if (brcb == null) {
+                LOGGER.warn("Unable to resync report {} on device {}, no buffered report control block found",
+                        reportId, deviceIdentification);
+                this.iec61850ReportEntryTracker.resyncFailed(deviceIdentification, reportId);
+                return;
+            }
+            LOGGER.info("Resync report {} on device {}.", brcb.getReference(), deviceIdentification);
+            connection.getClientAssociation().disableReporting(brcb);
+            this.enableRcb(deviceIdentification, new DeviceConnection(connection, deviceIdentification, null, null),
+                    brcb);
+        } catch (final IOException | ServiceError | RuntimeException e) {
+            LOGGER.error("Unable to resync report " + reportId + " on device " + deviceIdentification, e);
+            this.iec61850ReportEntryTracker.resyncFailed(deviceIdentification, reportId);
+        } finally {
+            this.iec61850ConnectionPool.release(deviceIdentification, connection);
+        }
+    }
+
+    /**
+     * @return The buffered report control block with the given report ID, as
+     *         read when reporting was enabled, or with the given reference
+     *         when no RptID is set.
+     */
+    private Brcb findBrcb(final ServerModel serverModel, final String reportId) {
+        for (final Brcb brcb : serverModel.getBrcbs()) {
+            final BdaVisibleString reportIdNode = (BdaVisibleString) brcb.getChild(SubDataAttribute.REPORT_ID
+                    .getDescription());
+            final String rptId = reportIdNode == null ? null : reportIdNode.getStringValue();
+            if (reportId.equals(rptId) || reportId.equals(brcb.getReference().toString())) {
+                return brcb;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the EntryID of the last processed entry to a buffered report
+     * control block, before reporting is enabled, so the device only sends
+     * the entries after it. Without the EntryID the device sends all entries
+     * in its buffer.
+     */
+    private void resumeBufferedReporting(final DeviceConnection connection, final String deviceIdentification,
+            final Rcb rcb) {
+        if (!(rcb instanceof Brcb)) {
+            return;
+        }
+        final String reportReference = rcb.getReference().toString();
+        try {
+            final String reportId = this.readReportId(connection, rcb);
+            final byte[] entryId = this.iec61850ReportEntryTracker.getEntryIdToResumeFrom(deviceIdentification,
+                    reportId);
+            if (entryId == null) {
+                LOGGER.info("No processed entry for report {} on device {}, all buffered entries will be sent.",
+                        reportReference, deviceIdentification);
+                return;
+            }
+            new NodeContainer(connection, rcb).writeOctetString(SubDataAttribute.ENTRY_ID, entryId);
+            LOGGER.info("Resume reporting for report {} on device {} after entry {}.", reportReference,
+                    deviceIdentification, HexConverter.toHexString(entryId));
+        } catch (final NodeException e) {
+            LOGGER.debug("NodeException", e);
+            LOGGER.warn("Resume reporting for report {} on device {} failed with exception: {}, "
+                    + "all buffered entries will be sent.", reportReference, deviceIdentification, e.getMessage());
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Resume reporting for report " + reportReference + " on device " + deviceIdentification
+                    + " failed, all buffered entries will be sent.", e);
+        }
+    }
+
+    /**
+     * @return The RptID of the report control block, which is the report ID
+     *         of the reports the device sends, or the reference of the report
+     *         control block when no RptID is set.
+     */
+    private String readReportId(final DeviceConnection connection, final Rcb rcb) throws NodeException {
+        final FcModelNode reportIdNode = (FcModelNode) rcb.getChild(SubDataAttribute.REPORT_ID.getDescription());
+        this.iec61850Client.readNodeDataValues(connection.getConnection().getClientAssociation(), reportIdNode);
+        final String reportId = ((BdaVisibleString) reportIdNode).getStringValue();
+        if (reportId == null || reportId.isEmpty()) {
+            return rcb.getReference().toString();
+        }
+        return reportId;
+    }
+
 }
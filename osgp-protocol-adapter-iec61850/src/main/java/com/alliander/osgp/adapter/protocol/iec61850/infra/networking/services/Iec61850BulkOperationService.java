@@ -0,0 +1,502 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import javax.annotation.PreDestroy;
+import javax.jms.JMSException;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.alliander.osgp.adapter.protocol.iec61850.device.DeviceMessageStatus;
+import com.alliander.osgp.adapter.protocol.iec61850.device.DeviceRequest;
+import com.alliander.osgp.adapter.protocol.iec61850.device.DeviceResponseHandler;
+import com.alliander.osgp.adapter.protocol.iec61850.device.ssld.requests.SetLightDeviceRequest;
+import com.alliander.osgp.adapter.protocol.iec61850.device.ssld.requests.SetScheduleDeviceRequest;
+import com.alliander.osgp.adapter.protocol.iec61850.device.ssld.responses.EmptyDeviceResponse;
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ProtocolAdapterException;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.messaging.DeviceRequestDispatcher;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.commands.Iec61850SchedulePlan;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.commands.Iec61850SetScheduleCommand;
+import com.alliander.osgp.core.db.api.iec61850.application.services.SsldDataService;
+import com.alliander.osgp.core.db.api.iec61850.entities.DeviceOutputSetting;
+import com.alliander.osgp.core.db.api.iec61850.entities.Ssld;
+import com.alliander.osgp.dto.valueobjects.LightValueMessageDataContainerDto;
+import com.alliander.osgp.dto.valueobjects.RelayTypeDto;
+import com.alliander.osgp.dto.valueobjects.ScheduleMessageDataContainerDto;
+
+/**
+ * Executes one operation, like setting a schedule, for a set of SSLDs.
+ * <p>
+ * A schedule is translated into schedule entries once for every distinct
+ * configuration of the relays of the devices, instead of once for every
+ * device.
+ * <p>
+ * The devices are run as requests of the {@link DeviceRequestDispatcher}, so
+ * they are serialized with the other requests for the same device. At most
+ * the configured number of devices of all bulk operations is dispatched at
+ * the same time, the other devices wait in the order in which they were
+ * submitted. Devices in the same subnet are released to that window at a
+ * limited rate, so a campaign does not flood the network of a single
+ * substation or concentrator.
+ * <p>
+ * The result for a device is passed to the given {@link DeviceResponseHandler}
+ * as soon as the device is done, in the same way as for a request for a
+ * single device.
+ */
+@Component
+@ManagedResource(description = "Operations executed for a set of SSLDs")
+public class Iec61850BulkOperationService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Iec61850BulkOperationService.class);
+
+    private static final int BITS_PER_BYTE = 8;
+
+    /**
+     * The minimum amount of time in milliseconds between removing the subnets
+     * of which the next start time has passed.
+     */
+    private static final long SUBNET_PRUNE_INTERVAL = 1000;
+
+    private final Iec61850SsldDeviceService iec61850SsldDeviceService;
+
+    private final SsldDataService ssldDataService;
+
+    private final DeviceRequestDispatcher deviceRequestDispatcher;
+
+    private final int bulkOperationParallelism;
+
+    private final int bulkOperationSubnetRate;
+
+    private final int bulkOperationSubnetPrefixLength;
+
+    /**
+     * Releases devices when the rate of their subnet allows, and dispatches
+     * the devices in the window.
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Source of the time in milliseconds, like
+     * {@link System#currentTimeMillis()}.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * Devices released by the rate of their subnet, waiting for room in the
+     * window. Guarded by synchronizing on the queue, like
+     * {@link #dispatchedDevices}.
+     */
+    private final Queue<BulkDevice> releasedDevices = new ArrayDeque<>();
+
+    private int dispatchedDevices;
+
+    /**
+     * The next time a device of a subnet may be released, per subnet. Guarded
+     * by synchronizing on the map, like {@link #lastPruneTime}.
+     */
+    private final Map<String, Long> nextSubnetStartTimes = new HashMap<>();
+
+    private long lastPruneTime;
+
+    private final AtomicLong operations = new AtomicLong();
+    private final AtomicLong completedDevices = new AtomicLong();
+    private final AtomicInteger pendingDevices = new AtomicInteger();
+    private final AtomicLong schedulePlans = new AtomicLong();
+
+    @Autowired
+    public Iec61850BulkOperationService(final Iec61850SsldDeviceService iec61850SsldDeviceService,
+            final SsldDataService ssldDataService, final DeviceRequestDispatcher deviceRequestDispatcher,
+            @Qualifier("bulkOperationParallelism") final int bulkOperationParallelism,
+            @Qualifier("bulkOperationSubnetRate") final int bulkOperationSubnetRate,
+            @Qualifier("bulkOperationSubnetPrefixLength") final int bulkOperationSubnetPrefixLength) {
+        this(iec61850SsldDeviceService, ssldDataService, deviceRequestDispatcher, bulkOperationParallelism,
+                bulkOperationSubnetRate, bulkOperationSubnetPrefixLength,
+                Executors.newSingleThreadScheduledExecutor(), System::currentTimeMillis);
+    }
+
+    Iec61850BulkOperationService(final Iec61850SsldDeviceService iec61850SsldDeviceService,
+            final SsldDataService ssldDataService, final DeviceRequestDispatcher deviceRequestDispatcher,
+            final int bulkOperationParallelism, final int bulkOperationSubnetRate,
+            final int bulkOperationSubnetPrefixLength, final ScheduledExecutorService scheduler,
+            final LongSupplier clock) {
+        this.iec61850SsldDeviceService = iec61850SsldDeviceService;
+        this.ssldDataService = ssldDataService;
+        this.deviceRequestDispatcher = deviceRequestDispatcher;
+        this.bulkOperationParallelism = bulkOperationParallelism;
+        this.bulkOperationSubnetRate = bulkOperationSubnetRate;
+        this.bulkOperationSubnetPrefixLength = bulkOperationSubnetPrefixLength;
+        this.scheduler = scheduler;
+        this.clock = clock;
+    }
+
+    @PreDestroy
+    void destroy() {
+        this.scheduler.shutdownNow();
+    }
+
+    /**
+     * Sets the same schedule on all given devices.
+     *
+     * @param devices
+     *            The devices, with the identification, IP address and
+     *            correlation UID used for the device, and the domain and
+     *            message type of the response.
+     *
+     * @return A future that completes when all devices are done.
+     */
+    public CompletableFuture<Void> setSchedule(final Collection<DeviceRequest> devices, final RelayTypeDto relayType,
+            final ScheduleMessageDataContainerDto scheduleMessageDataContainer,
+            final DeviceResponseHandler deviceResponseHandler) {
+
+        final ConcurrentHashMap<String, SchedulePlanResult> plans = new ConcurrentHashMap<>();
+
+        return this.execute(devices, deviceResponseHandler, device -> {
+            final SetScheduleDeviceRequest deviceRequest = new SetScheduleDeviceRequest(
+                    device.getOrganisationIdentification(), device.getDeviceIdentification(),
+                    device.getCorrelationUid(), scheduleMessageDataContainer, relayType, device.getDomain(),
+                    device.getDomainVersion(), device.getMessageType(), device.getIpAddress(),
+                    device.getRetryCount(), device.isScheduled());
+
+            final Ssld ssld = this.ssldDataService.findDevice(device.getDeviceIdentification());
+            if (ssld == null) {
+                deviceResponseHandler.handleException(
+                        new ProtocolAdapterException("Unknown SSLD: " + device.getDeviceIdentification()),
+                        createFailureResponse(device));
+                return;
+            }
+
+            final SchedulePlanResult planResult = plans.computeIfAbsent(relayConfiguration(ssld),
+                    key -> this.createSchedulePlan(relayType, scheduleMessageDataContainer, ssld));
+            if (planResult.error != null) {
+                deviceResponseHandler.handleException(planResult.error, createFailureResponse(device));
+                return;
+            }
+
+            this.iec61850SsldDeviceService.setSchedule(deviceRequest, planResult.plan, deviceResponseHandler);
+        });
+    }
+
+    /**
+     * Sets the same light values on all given devices.
+     *
+     * @param devices
+     *            The devices, with the identification, IP address and
+     *            correlation UID used for the device, and the domain and
+     *            message type of the response.
+     *
+     * @return A future that completes when all devices are done.
+     */
+    public CompletableFuture<Void> setLight(final Collection<DeviceRequest> devices,
+            final LightValueMessageDataContainerDto lightValuesContainer,
+            final DeviceResponseHandler deviceResponseHandler) {
+
+        return this.execute(devices, deviceResponseHandler,
+                device -> this.iec61850SsldDeviceService.setLight(new SetLightDeviceRequest(
+                        device.getOrganisationIdentification(), device.getDeviceIdentification(),
+                        device.getCorrelationUid(), lightValuesContainer, device.getDomain(),
+                        device.getDomainVersion(), device.getMessageType(), device.getIpAddress(),
+                        device.getRetryCount(), device.isScheduled()), deviceResponseHandler));
+    }
+
+    private CompletableFuture<Void> execute(final Collection<DeviceRequest> devices,
+            final DeviceResponseHandler deviceResponseHandler, final DeviceOperation deviceOperation) {
+        final BulkOperation operation = new BulkOperation(devices.size(), deviceResponseHandler, deviceOperation);
+        this.operations.incrementAndGet();
+        this.pendingDevices.addAndGet(devices.size());
+        LOGGER.info("Starting bulk operation for {} devices", devices.size());
+
+        if (devices.isEmpty()) {
+            operation.completion.complete(null);
+            return operation.completion;
+        }
+
+        final long now = this.clock.getAsLong();
+        for (final DeviceRequest device : devices) {
+            final BulkDevice bulkDevice = new BulkDevice(operation, device);
+            final String subnet = subnet(device.getIpAddress(), this.bulkOperationSubnetPrefixLength);
+            final long delay = this.reserveStartTime(subnet, now) - now;
+            if (delay > 0) {
+                this.scheduler.schedule(() -> this.release(bulkDevice), delay, TimeUnit.MILLISECONDS);
+            } else {
+                this.scheduler.execute(() -> this.release(bulkDevice));
+            }
+        }
+        return operation.completion;
+    }
+
+    /**
+     * Adds a device to the devices waiting for room in the window, and
+     * dispatches the waiting devices that fit. Runs on the scheduler.
+     */
+    private void release(final BulkDevice device) {
+        synchronized (this.releasedDevices) {
+            this.releasedDevices.add(device);
+        }
+        this.dispatchReleasedDevices();
+    }
+
+    /**
+     * Dispatches waiting devices until the window is full. Runs on the
+     * scheduler, which is held up while the dispatcher has no room for more
+     * requests.
+     */
+    private void dispatchReleasedDevices() {
+        while (true) {
+            final BulkDevice device;
+            synchronized (this.releasedDevices) {
+                if (this.dispatchedDevices >= this.bulkOperationParallelism || this.releasedDevices.isEmpty()) {
+                    return;
+                }
+                device = this.releasedDevices.remove();
+                this.dispatchedDevices++;
+            }
+            this.dispatch(device);
+        }
+    }
+
+    private void dispatch(final BulkDevice device) {
+        final String deviceIdentification = device.request.getDeviceIdentification();
+        try {
+            this.deviceRequestDispatcher
+                    .dispatch(deviceIdentification, () -> device.operation.deviceOperation.execute(device.request))
+                    .whenComplete((result, failure) -> this.done(device, failure));
+        } catch (final JMSException e) {
+            LOGGER.warn("Unable to dispatch bulk operation for device: {}", deviceIdentification, e);
+            this.handleException(device, e);
+            this.done(device, null);
+        }
+    }
+
+    /**
+     * Completes a device, and dispatches the next waiting device on the
+     * scheduler, not on the thread of the dispatcher running the device.
+     */
+    private void done(final BulkDevice device, final Throwable failure) {
+        if (failure instanceof JMSException) {
+            // Thrown by the response handler, another response would fail
+            // in the same way.
+            LOGGER.error("Unable to send response of bulk operation for device: {}",
+                    device.request.getDeviceIdentification(), failure);
+        } else if (failure != null) {
+            this.handleException(device, failure);
+        }
+
+        synchronized (this.releasedDevices) {
+            this.dispatchedDevices--;
+        }
+        this.pendingDevices.decrementAndGet();
+        this.completedDevices.incrementAndGet();
+        if (device.operation.remaining.decrementAndGet() == 0) {
+            LOGGER.info("Completed bulk operation for {} devices", device.operation.size);
+            device.operation.completion.complete(null);
+        }
+
+        if (!this.scheduler.isShutdown()) {
+            this.scheduler.execute(this::dispatchReleasedDevices);
+        }
+    }
+
+    private void handleException(final BulkDevice device, final Throwable failure) {
+        try {
+            device.operation.deviceResponseHandler.handleException(failure, createFailureResponse(device.request));
+        } catch (final RuntimeException e) {
+            LOGGER.error("Unable to handle failure of bulk operation for device: {}",
+                    device.request.getDeviceIdentification(), e);
+        }
+    }
+
+    /**
+     * Reserves the next start time for a device in the given subnet, spacing
+     * the start times of a subnet by the configured rate. Subnets of which the
+     * next start time has passed are removed, at most once per
+     * {@link #SUBNET_PRUNE_INTERVAL}.
+     */
+    private long reserveStartTime(final String subnet, final long now) {
+        if (this.bulkOperationSubnetRate <= 0) {
+            return now;
+        }
+        final long interval = TimeUnit.SECONDS.toMillis(1) / this.bulkOperationSubnetRate;
+        synchronized (this.nextSubnetStartTimes) {
+            if (now - this.lastPruneTime >= SUBNET_PRUNE_INTERVAL) {
+                this.nextSubnetStartTimes.values().removeIf(nextStartTime -> nextStartTime <= now);
+                this.lastPruneTime = now;
+            }
+            final Long nextStartTime = this.nextSubnetStartTimes.get(subnet);
+            final long startTime = nextStartTime == null ? now : Math.max(now, nextStartTime);
+            this.nextSubnetStartTimes.put(subnet, startTime + interval);
+            return startTime;
+        }
+    }
+
+    /**
+     * @return The network address of the given IP address for the given prefix
+     *         length, or the IP address itself if it can not be parsed.
+     */
+    private static String subnet(final String ipAddress, final int prefixLength) {
+        if (StringUtils.isBlank(ipAddress)) {
+            return "";
+        }
+        final byte[] address;
+        try {
+            address = InetAddress.getByName(ipAddress).getAddress();
+        } catch (final UnknownHostException e) {
+            LOGGER.debug("Unable to determine subnet of IP address: {}", ipAddress, e);
+            return ipAddress;
+        }
+        for (int i = 0; i < address.length; i++) {
+            final int bitsToKeep = Math.max(0, Math.min(BITS_PER_BYTE, prefixLength - i * BITS_PER_BYTE));
+            address[i] &= (byte) (0xFF << (BITS_PER_BYTE - bitsToKeep));
+        }
+        try {
+            return InetAddress.getByAddress(address).getHostAddress() + "/" + prefixLength;
+        } catch (final UnknownHostException e) {
+            return ipAddress;
+        }
+    }
+
+    /**
+     * @return A key that is equal for SSLDs with the same relay configuration.
+     */
+    private static String relayConfiguration(final Ssld ssld) {
+        final List<DeviceOutputSetting> outputSettings = new ArrayList<>(ssld.getOutputSettings());
+        outputSettings.sort(Comparator.comparingInt(DeviceOutputSetting::getInternalId));
+        final StringBuilder sb = new StringBuilder();
+        for (final DeviceOutputSetting outputSetting : outputSettings) {
+            sb.append(outputSetting.getInternalId()).append(':').append(outputSetting.getExternalId()).append(':')
+                    .append(outputSetting.getRelayType()).append(';');
+        }
+        return sb.toString();
+    }
+
+    private SchedulePlanResult createSchedulePlan(final RelayTypeDto relayType,
+            final ScheduleMessageDataContainerDto scheduleMessageDataContainer, final Ssld ssld) {
+        this.schedulePlans.incrementAndGet();
+        try {
+            return new SchedulePlanResult(new Iec61850SetScheduleCommand().createSchedulePlan(relayType,
+                    scheduleMessageDataContainer.getScheduleList(), ssld, this.ssldDataService), null);
+        } catch (final ProtocolAdapterException e) {
+            LOGGER.warn("Unable to create schedule plan for relay configuration of device: {}",
+                    ssld.getDeviceIdentification(), e);
+            return new SchedulePlanResult(null, e);
+        } catch (final IllegalArgumentException e) {
+            // Thrown for light values of relays that are not configured.
+            LOGGER.warn("Unable to create schedule plan for relay configuration of device: {}",
+                    ssld.getDeviceIdentification(), e);
+            return new SchedulePlanResult(null, new ProtocolAdapterException(e.getMessage(), e));
+        }
+    }
+
+    private static EmptyDeviceResponse createFailureResponse(final DeviceRequest device) {
+        return new EmptyDeviceResponse(device.getOrganisationIdentification(), device.getDeviceIdentification(),
+                device.getCorrelationUid(), DeviceMessageStatus.FAILURE);
+    }
+
+    @ManagedAttribute(description = "Number of bulk operations started")
+    public long getOperationCount() {
+        return this.operations.get();
+    }
+
+    @ManagedAttribute(description = "Number of devices done in bulk operations")
+    public long getCompletedDeviceCount() {
+        return this.completedDevices.get();
+    }
+
+    @ManagedAttribute(description = "Number of devices waiting or in progress in bulk operations")
+    public int getPendingDeviceCount() {
+        return this.pendingDevices.get();
+    }
+
+    @ManagedAttribute(description = "Number of devices of bulk operations dispatched and not done yet")
+    public int getDispatchedDeviceCount() {
+        synchronized (this.releasedDevices) {
+            return this.dispatchedDevices;
+        }
+    }
+
+    @ManagedAttribute(description = "Number of subnets of which the rate of bulk operations is limited")
+    public int getRateLimitedSubnetCount() {
+        synchronized (this.nextSubnetStartTimes) {
+            return this.nextSubnetStartTimes.size();
+        }
+    }
+
+    @ManagedAttribute(description = "Number of schedules translated for a relay configuration")
+    public long getSchedulePlanCount() {
+        return this.schedulePlans.get();
+    }
+
+    @FunctionalInterface
+    private interface DeviceOperation {
+        void execute(DeviceRequest device) throws JMSException;
+    }
+
+    private static final class BulkOperation {
+
+        private final int size;
+        private final AtomicInteger remaining;
+        private final DeviceResponseHandler deviceResponseHandler;
+        private final DeviceOperation deviceOperation;
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+        BulkOperation(final int size, final DeviceResponseHandler deviceResponseHandler,
+                final DeviceOperation deviceOperation) {
+            this.size = size;
+            this.remaining = new AtomicInteger(size);
+            this.deviceResponseHandler = deviceResponseHandler;
+            this.deviceOperation = deviceOperation;
+        }
+    }
+
+    private static final class BulkDevice {
+
+        private final BulkOperation operation;
+        private final DeviceRequest request;
+
+        BulkDevice(final BulkOperation operation, final DeviceRequest request) {
+            this.operation = operation;
+            this.request = request;
+        }
+    }
+
+    private static final class SchedulePlanResult {
+
+        private final Iec61850SchedulePlan plan;
+        private final ProtocolAdapterException error;
+
+        SchedulePlanResult(final Iec61850SchedulePlan plan, final ProtocolAdapterException error) {
+            this.plan = plan;
+            this.error = error;
+        }
+    }
+}
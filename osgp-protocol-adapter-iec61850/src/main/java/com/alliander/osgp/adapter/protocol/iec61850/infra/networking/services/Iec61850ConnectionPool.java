@@ -0,0 +1,518 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.openmuc.openiec61850.ClientAssociation;
+import org.openmuc.openiec61850.FcModelNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ConnectionFailureException;
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.NodeReadException;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850Client;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850Connection;
+
+/**
+ * Pool of cached {@link Iec61850Connection} instances, holding at most one
+ * connection per device.
+ * <p>
+ * A connection is leased by one request at a time, other requests for the same
+ * device wait until the connection is released. The total number of
+ * connections is bounded, when the pool is full the least recently used
+ * connection that is not leased is closed to make room for a new one.
+ * <p>
+ * Connections that are not leased are checked in the background: connections
+ * that have been idle for too long are closed, and the others are probed to
+ * find out if they are still alive, so requests do not have to do this before
+ * using a connection.
+ */
+@Component
+@ManagedResource(description = "Pool of cached connections to IEC61850 devices")
+public class Iec61850ConnectionPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Iec61850ConnectionPool.class);
+
+    private final Iec61850Client iec61850Client;
+
+    private final int connectionPoolMaxSize;
+
+    private final int connectionPoolLeaseTimeout;
+
+    private final int connectionPoolMaxIdleTime;
+
+    private final int connectionPoolKeepAliveInterval;
+
+    private final ConcurrentHashMap<String, PooledConnection> connections = new ConcurrentHashMap<>();
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong leases = new AtomicLong();
+    private final AtomicLong totalLeaseWaitTime = new AtomicLong();
+    private final AtomicLong maxLeaseWaitTime = new AtomicLong();
+    private final AtomicLong leaseTimeouts = new AtomicLong();
+    private final AtomicLong idleEvictions = new AtomicLong();
+    private final AtomicLong capacityEvictions = new AtomicLong();
+    private final AtomicLong keepAliveFailures = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public Iec61850ConnectionPool(final Iec61850Client iec61850Client,
+            @Qualifier("connectionPoolMaxSize") final int connectionPoolMaxSize,
+            @Qualifier("connectionPoolLeaseTimeout") final int connectionPoolLeaseTimeout,
+            @Qualifier("connectionPoolMaxIdleTime") final int connectionPoolMaxIdleTime,
+            @Qualifier("connectionPoolKeepAliveInterval") final int connectionPoolKeepAliveInterval) {
+        this.iec61850Client = iec61850Client;
+        this.connectionPoolMaxSize = connectionPoolMaxSize;
+        this.connectionPoolLeaseTimeout = connectionPoolLeaseTimeout;
+        this.connectionPoolMaxIdleTime = connectionPoolMaxIdleTime;
+        this.connectionPoolKeepAliveInterval = connectionPoolKeepAliveInterval;
+    }
+
+    @PostConstruct
+    void init() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.scheduler.scheduleWithFixedDelay(this::checkConnections, this.connectionPoolKeepAliveInterval,
+                this.connectionPoolKeepAliveInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void destroy() {
+        this.scheduler.shutdownNow();
+    }
+
+    /**
+     * Leases the cached connection for the given device, waiting for another
+     * request to release it if necessary. A leased connection must be returned
+     * by calling {@link #release(String, Iec61850Connection)}.
+     *
+     * @return The cached connection, or null if there is no cached connection
+     *         for the device.
+     *
+     * @throws ConnectionFailureException
+     *             In case the connection is not released by another request
+     *             within the lease time-out.
+     */
+    public Iec61850Connection lease(final String deviceIdentification) throws ConnectionFailureException {
+        final PooledConnection pooledConnection = this.connections.get(deviceIdentification);
+        if (pooledConnection == null) {
+            LOGGER.info("No connection found in pool for device: {}", deviceIdentification);
+            return null;
+        }
+
+        final long start = System.currentTimeMillis();
+        final boolean acquired;
+        this.waiting.incrementAndGet();
+        try {
+            acquired = pooledConnection.lease(this.connectionPoolLeaseTimeout);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectionFailureException("Interrupted while waiting for connection to device: "
+                    + deviceIdentification, e);
+        } finally {
+            this.waiting.decrementAndGet();
+        }
+        this.recordLeaseWaitTime(System.currentTimeMillis() - start);
+
+        if (!acquired && pooledConnection.isRemoved()) {
+            LOGGER.info("Connection in pool was closed for device: {}", deviceIdentification);
+            return null;
+        }
+        if (!acquired) {
+            this.leaseTimeouts.incrementAndGet();
+            throw new ConnectionFailureException("Timed out waiting for connection to device: " + deviceIdentification
+                    + " after " + this.connectionPoolLeaseTimeout + " milliseconds");
+        }
+
+        if (this.connections.get(deviceIdentification) != pooledConnection) {
+            // The connection was closed while waiting for it.
+            pooledConnection.release();
+            LOGGER.info("Connection in pool was closed for device: {}", deviceIdentification);
+            return null;
+        }
+
+        pooledConnection.touch();
+        return pooledConnection.getConnection();
+    }
+
+    /**
+     * Adds a new connection to the pool. The connection is leased by the
+     * caller, and must be returned by calling
+     * {@link #release(String, Iec61850Connection)}. A connection that was
+     * cached earlier for the device is closed as soon as it is no longer
+     * leased.
+     *
+     * @param keepAliveNode
+     *            The node read to check if the connection is still alive, or
+     *            null if all data values are to be read.
+     *
+     * @throws ConnectionFailureException
+     *             In case the pool is full and all connections are leased.
+     */
+    public void add(final String deviceIdentification, final Iec61850Connection connection,
+            final FcModelNode keepAliveNode) throws ConnectionFailureException {
+        final PooledConnection pooledConnection = new PooledConnection(connection, keepAliveNode);
+        pooledConnection.tryLease();
+
+        synchronized (this.connections) {
+            final PooledConnection previous = this.connections.remove(deviceIdentification);
+            if (previous != null) {
+                // A leased previous connection is closed when it is released.
+                if (previous.tryLease()) {
+                    this.close(deviceIdentification, previous);
+                }
+                previous.markRemoved();
+            }
+            this.ensureCapacity();
+            this.connections.put(deviceIdentification, pooledConnection);
+        }
+    }
+
+    /**
+     * Checks if there is room in the pool for a new connection, closing the
+     * least recently used connection that is not leased if the pool is full.
+     *
+     * @throws ConnectionFailureException
+     *             In case the pool is full and all connections are leased.
+     */
+    public void ensureCapacity() throws ConnectionFailureException {
+        synchronized (this.connections) {
+            while (this.connections.size() >= this.connectionPoolMaxSize) {
+                if (!this.evictLeastRecentlyUsed()) {
+                    throw new ConnectionFailureException("Connection pool is full, all " + this.connections.size()
+                            + " connections are in use");
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a leased connection to the pool. A connection that has been
+     * removed from the pool while it was leased is closed.
+     */
+    public void release(final String deviceIdentification, final Iec61850Connection connection) {
+        final PooledConnection pooledConnection = this.connections.get(deviceIdentification);
+        if (pooledConnection != null && pooledConnection.getConnection() == connection) {
+            pooledConnection.touch();
+            pooledConnection.release();
+        } else if (connection.getClientAssociation() != null) {
+            connection.getClientAssociation().disconnect();
+        }
+    }
+
+    /**
+     * Returns the cached connection for the given device without leasing it,
+     * for use by the request holding the lease.
+     */
+    public Iec61850Connection get(final String deviceIdentification) {
+        final PooledConnection pooledConnection = this.connections.get(deviceIdentification);
+        return pooledConnection == null ? null : pooledConnection.getConnection();
+    }
+
+    /**
+     * Removes the connection for the given device from the pool, without
+     * closing it.
+     *
+     * @return The removed connection, or null if there is no cached connection
+     *         for the device.
+     */
+    public Iec61850Connection remove(final String deviceIdentification) {
+        final PooledConnection pooledConnection = this.connections.remove(deviceIdentification);
+        if (pooledConnection == null) {
+            return null;
+        }
+        pooledConnection.markRemoved();
+        return pooledConnection.getConnection();
+    }
+
+    /**
+     * Removes the given connection from the pool, if it is the cached
+     * connection for the device.
+     */
+    public void remove(final String deviceIdentification, final Iec61850Connection connection) {
+        final PooledConnection pooledConnection = this.connections.get(deviceIdentification);
+        if (pooledConnection != null && pooledConnection.getConnection() == connection
+                && this.connections.remove(deviceIdentification, pooledConnection)) {
+            pooledConnection.markRemoved();
+        }
+    }
+
+    private void checkConnections() {
+        for (final Map.Entry<String, PooledConnection> entry : this.connections.entrySet()) {
+            try {
+                this.checkConnection(entry.getKey(), entry.getValue());
+            } catch (final RuntimeException e) {
+                LOGGER.error("Unexpected exception checking connection for device: " + entry.getKey(), e);
+            }
+        }
+    }
+
+    private void checkConnection(final String deviceIdentification, final PooledConnection pooledConnection) {
+        if (!pooledConnection.tryLease()) {
+            // Leased by a request, so it is in use.
+            return;
+        }
+        try {
+            if (this.connections.get(deviceIdentification) != pooledConnection) {
+                return;
+            }
+            final long idleTime = System.currentTimeMillis() - pooledConnection.getLastUsed();
+            if (this.connectionPoolMaxIdleTime > 0 && idleTime > this.connectionPoolMaxIdleTime) {
+                LOGGER.info("Closing connection for device: {}, idle for {} milliseconds", deviceIdentification,
+                        idleTime);
+                this.idleEvictions.incrementAndGet();
+                this.removeAndClose(deviceIdentification, pooledConnection);
+                return;
+            }
+            this.keepAlive(deviceIdentification, pooledConnection);
+        } finally {
+            pooledConnection.release();
+        }
+    }
+
+    private void keepAlive(final String deviceIdentification, final PooledConnection pooledConnection) {
+        final ClientAssociation clientAssociation = pooledConnection.getConnection().getClientAssociation();
+        try {
+            if (pooledConnection.getKeepAliveNode() != null) {
+                this.iec61850Client.readNodeDataValues(clientAssociation, pooledConnection.getKeepAliveNode());
+            } else {
+                this.iec61850Client.readAllDataValues(clientAssociation);
+            }
+            LOGGER.debug("Connection is still active for device: {}", deviceIdentification);
+        } catch (final NodeReadException e) {
+            LOGGER.warn("Connection is no longer active, removing connection from pool for device: "
+                    + deviceIdentification, e);
+            this.keepAliveFailures.incrementAndGet();
+            this.removeAndClose(deviceIdentification, pooledConnection);
+        }
+    }
+
+    private boolean evictLeastRecentlyUsed() {
+        String eldestDeviceIdentification = null;
+        PooledConnection eldest = null;
+        for (final Map.Entry<String, PooledConnection> entry : this.connections.entrySet()) {
+            final PooledConnection candidate = entry.getValue();
+            if (!candidate.isLeased()
+                    && (eldest == null || candidate.getLastUse() < eldest.getLastUse())) {
+                eldestDeviceIdentification = entry.getKey();
+                eldest = candidate;
+            }
+        }
+        if (eldest == null || !eldest.tryLease()) {
+            return false;
+        }
+        LOGGER.info("Connection pool is full, closing least recently used connection for device: {}",
+                eldestDeviceIdentification);
+        this.capacityEvictions.incrementAndGet();
+        this.removeAndClose(eldestDeviceIdentification, eldest);
+        return true;
+    }
+
+    private void removeAndClose(final String deviceIdentification, final PooledConnection pooledConnection) {
+        if (this.connections.remove(deviceIdentification, pooledConnection)) {
+            pooledConnection.markRemoved();
+            this.close(deviceIdentification, pooledConnection);
+        }
+    }
+
+    private void close(final String deviceIdentification, final PooledConnection pooledConnection) {
+        final ClientAssociation clientAssociation = pooledConnection.getConnection().getClientAssociation();
+        if (clientAssociation != null) {
+            clientAssociation.disconnect();
+        }
+        LOGGER.info("Closed pooled connection for device: {}", deviceIdentification);
+    }
+
+    private void recordLeaseWaitTime(final long waitTime) {
+        this.leases.incrementAndGet();
+        this.totalLeaseWaitTime.addAndGet(waitTime);
+        long max = this.maxLeaseWaitTime.get();
+        while (waitTime > max && !this.maxLeaseWaitTime.compareAndSet(max, waitTime)) {
+            max = this.maxLeaseWaitTime.get();
+        }
+    }
+
+    @ManagedAttribute(description = "Number of cached connections")
+    public int getSize() {
+        return this.connections.size();
+    }
+
+    @ManagedAttribute(description = "Number of cached connections leased by a request")
+    public int getLeasedCount() {
+        int leased = 0;
+        for (final PooledConnection pooledConnection : this.connections.values()) {
+            if (pooledConnection.isLeased()) {
+                leased++;
+            }
+        }
+        return leased;
+    }
+
+    @ManagedAttribute(description = "Number of requests waiting for a cached connection")
+    public int getWaitingCount() {
+        return this.waiting.get();
+    }
+
+    @ManagedAttribute(description = "Maximum number of cached connections")
+    public int getMaxSize() {
+        return this.connectionPoolMaxSize;
+    }
+
+    @ManagedAttribute(description = "Number of leases of cached connections")
+    public long getLeaseCount() {
+        return this.leases.get();
+    }
+
+    @ManagedAttribute(description = "Average time in milliseconds waited for a cached connection")
+    public double getAverageLeaseWaitTime() {
+        final long leaseCount = this.leases.get();
+        return leaseCount == 0 ? 0 : (double) this.totalLeaseWaitTime.get() / leaseCount;
+    }
+
+    @ManagedAttribute(description = "Maximum time in milliseconds waited for a cached connection")
+    public long getMaxLeaseWaitTime() {
+        return this.maxLeaseWaitTime.get();
+    }
+
+    @ManagedAttribute(description = "Number of requests that timed out waiting for a cached connection")
+    public long getLeaseTimeoutCount() {
+        return this.leaseTimeouts.get();
+    }
+
+    @ManagedAttribute(description = "Number of connections closed for being idle")
+    public long getIdleEvictionCount() {
+        return this.idleEvictions.get();
+    }
+
+    @ManagedAttribute(description = "Number of connections closed to make room for a new connection")
+    public long getCapacityEvictionCount() {
+        return this.capacityEvictions.get();
+    }
+
+    @ManagedAttribute(description = "Number of connections removed because they were no longer alive")
+    public long getKeepAliveFailureCount() {
+        return this.keepAliveFailures.get();
+    }
+
+    /**
+     * A cached connection, that is leased by at most one request at a time.
+     * Only the holder of the lease releases it, and a connection that has been
+     * removed from the pool can no longer be leased.
+     */
+    private static final class PooledConnection {
+
+        /**
+         * Orders the uses of all connections, as uses in the same millisecond
+         * cannot be told apart by their time.
+         */
+        private static final AtomicLong USES = new AtomicLong();
+
+        private final Iec61850Connection connection;
+        private final FcModelNode keepAliveNode;
+        private volatile long lastUsed = System.currentTimeMillis();
+        private volatile long lastUse = USES.incrementAndGet();
+
+        /**
+         * Guarded by synchronizing on this pooled connection.
+         */
+        private boolean leased;
+        private boolean removed;
+
+        PooledConnection(final Iec61850Connection connection, final FcModelNode keepAliveNode) {
+            this.connection = connection;
+            this.keepAliveNode = keepAliveNode;
+        }
+
+        Iec61850Connection getConnection() {
+            return this.connection;
+        }
+
+        FcModelNode getKeepAliveNode() {
+            return this.keepAliveNode;
+        }
+
+        /**
+         * Leases the connection, waiting for the holder of the lease to
+         * release it if necessary.
+         *
+         * @return true if the connection is leased, false if it was not
+         *         released within the time-out or if it has been removed.
+         */
+        synchronized boolean lease(final long timeout) throws InterruptedException {
+            final long deadline = System.currentTimeMillis() + timeout;
+            long remaining = timeout;
+            while (this.leased && !this.removed && remaining > 0) {
+                this.wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+            return this.tryLease();
+        }
+
+        /**
+         * @return true if the connection is leased, false if it is leased
+         *         already or if it has been removed.
+         */
+        synchronized boolean tryLease() {
+            if (this.leased || this.removed) {
+                return false;
+            }
+            this.leased = true;
+            return true;
+        }
+
+        synchronized void release() {
+            this.leased = false;
+            this.notifyAll();
+        }
+
+        /**
+         * Marks the connection as removed from the pool, waking up requests
+         * waiting to lease it.
+         */
+        synchronized void markRemoved() {
+            this.removed = true;
+            this.notifyAll();
+        }
+
+        synchronized boolean isLeased() {
+            return this.leased;
+        }
+
+        synchronized boolean isRemoved() {
+            return this.removed;
+        }
+
+        long getLastUsed() {
+            return this.lastUsed;
+        }
+
+        long getLastUse() {
+            return this.lastUse;
+        }
+
+        void touch() {
+            this.lastUsed = System.currentTimeMillis();
+            this.lastUse = USES.incrementAndGet();
+        }
+    }
+}
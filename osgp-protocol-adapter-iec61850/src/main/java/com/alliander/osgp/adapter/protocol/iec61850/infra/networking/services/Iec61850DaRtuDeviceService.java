@@ -11,8 +11,6 @@ import java.io.Serializable;
 
 import javax.jms.JMSException;
 
-import org.openmuc.openiec61850.ClientAssociation;
-import org.openmuc.openiec61850.ServerModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,13 +24,10 @@ import com.alliander.osgp.adapter.protocol.iec61850.device.da.rtu.DaDeviceRespon
 import com.alliander.osgp.adapter.protocol.iec61850.device.da.rtu.DaRtuDeviceService;
 import com.alliander.osgp.adapter.protocol.iec61850.device.ssld.responses.EmptyDeviceResponse;
 import com.alliander.osgp.adapter.protocol.iec61850.domain.entities.Iec61850Device;
-import com.alliander.osgp.adapter.protocol.iec61850.domain.repositories.Iec61850DeviceRepository;
 import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ConnectionFailureException;
 import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ProtocolAdapterException;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.messaging.DaRtuDeviceRequestMessageProcessor;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850Client;
-import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850ClientAssociation;
-import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850Connection;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.DeviceConnection;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.Function;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.IED;
@@ -50,26 +45,17 @@ public class Iec61850DaRtuDeviceService implements DaRtuDeviceService {
     private Iec61850Client iec61850Client;
 
     @Autowired
-    private Iec61850DeviceRepository iec61850DeviceRepository;
+    private Iec61850DeviceCache iec61850DeviceCache;
 
     @Override
     public void getData(final DaDeviceRequest deviceRequest, final DeviceResponseHandler deviceResponseHandler,
             final DaRtuDeviceRequestMessageProcessor messageProcessor) throws JMSException {
+        DeviceConnection deviceConnection = null;
         try {
             final String serverName = this.getServerName(deviceRequest);
-            final ServerModel serverModel = this.connectAndRetrieveServerModel(deviceRequest, serverName);
+            deviceConnection = this.connectToDevice(deviceRequest, serverName);
 
-            final ClientAssociation clientAssociation = this.iec61850DeviceConnectionService
-                    .getClientAssociation(deviceRequest.getDeviceIdentification());
-
-            final Serializable dataResponse = this
-                    .handleGetData(
-                            new DeviceConnection(
-                                    new Iec61850Connection(new Iec61850ClientAssociation(clientAssociation, null),
-                                            serverModel),
-                                    deviceRequest.getDeviceIdentification(),
-                                    deviceRequest.getOrganisationIdentification(), serverName),
-                            deviceRequest, messageProcessor);
+            final Serializable dataResponse = this.handleGetData(deviceConnection, deviceRequest, messageProcessor);
 
             final DaDeviceResponse deviceResponse = new DaDeviceResponse(deviceRequest.getOrganisationIdentification(),
                     deviceRequest.getDeviceIdentification(), deviceRequest.getCorrelationUid(), DeviceMessageStatus.OK,
@@ -78,6 +64,7 @@ public class Iec61850DaRtuDeviceService implements DaRtuDeviceService {
             deviceResponseHandler.handleResponse(deviceResponse);
         } catch (final ConnectionFailureException se) {
             LOGGER.error("Could not connect to device after all retries", se);
+            this.iec61850DeviceConnectionService.removeBrokenConnection(deviceConnection, se);
 
             final EmptyDeviceResponse deviceResponse = new EmptyDeviceResponse(
                     deviceRequest.getOrganisationIdentification(), deviceRequest.getDeviceIdentification(),
@@ -86,12 +73,15 @@ public class Iec61850DaRtuDeviceService implements DaRtuDeviceService {
             deviceResponseHandler.handleConnectionFailure(se, deviceResponse);
         } catch (final Exception e) {
             LOGGER.error("Unexpected exception during Get Data", e);
+            this.iec61850DeviceConnectionService.removeBrokenConnection(deviceConnection, e);
 
             final EmptyDeviceResponse deviceResponse = new EmptyDeviceResponse(
                     deviceRequest.getOrganisationIdentification(), deviceRequest.getDeviceIdentification(),
                     deviceRequest.getCorrelationUid(), DeviceMessageStatus.FAILURE);
 
             deviceResponseHandler.handleException(e, deviceResponse);
+        } finally {
+            this.iec61850DeviceConnectionService.releaseConnection(deviceConnection);
         }
     }
 
@@ -99,13 +89,11 @@ public class Iec61850DaRtuDeviceService implements DaRtuDeviceService {
     // PRIVATE DEVICE COMMUNICATION METHODS =
     // ======================================
 
-    private ServerModel connectAndRetrieveServerModel(final DeviceRequest deviceRequest, final String serverName)
+    private DeviceConnection connectToDevice(final DeviceRequest deviceRequest, final String serverName)
             throws ProtocolAdapterException {
 
-        this.iec61850DeviceConnectionService.connect(deviceRequest.getIpAddress(),
-                deviceRequest.getDeviceIdentification(), deviceRequest.getOrganisationIdentification(), IED.DA_RTU,
-                serverName, LogicalDevice.RTU.getDescription() + 1);
-        return this.iec61850DeviceConnectionService.getServerModel(deviceRequest.getDeviceIdentification());
+        return this.iec61850DeviceConnectionService.connect(deviceRequest, IED.DA_RTU, serverName,
+                LogicalDevice.RTU.getDescription() + 1);
     }
 
     // ========================
@@ -115,12 +103,13 @@ public class Iec61850DaRtuDeviceService implements DaRtuDeviceService {
     private <T> T handleGetData(final DeviceConnection connection, final DaDeviceRequest deviceRequest,
             final DaRtuDeviceRequestMessageProcessor messageProcessor) throws ProtocolAdapterException {
         final Function<T> function = messageProcessor.getDataFunction(this.iec61850Client, connection, deviceRequest);
-        return this.iec61850Client.sendCommandWithRetry(function, deviceRequest.getDeviceIdentification());
+        return this.iec61850Client.sendCommandWithRetry(function, IED.DA_RTU, deviceRequest.getMessageType(),
+                deviceRequest.getDeviceIdentification());
     }
 
     private String getServerName(final DeviceRequest deviceRequest) {
-        final Iec61850Device iec61850Device = this.iec61850DeviceRepository
-                .findByDeviceIdentification(deviceRequest.getDeviceIdentification());
+        final Iec61850Device iec61850Device = this.iec61850DeviceCache
+                .getDevice(deviceRequest.getDeviceIdentification());
         if (iec61850Device != null && iec61850Device.getServerName() != null) {
             return iec61850Device.getServerName();
         } else {
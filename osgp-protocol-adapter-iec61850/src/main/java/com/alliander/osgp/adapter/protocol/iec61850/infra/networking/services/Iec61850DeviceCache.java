@@ -0,0 +1,139 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.alliander.osgp.adapter.protocol.iec61850.domain.entities.Iec61850Device;
+import com.alliander.osgp.adapter.protocol.iec61850.domain.repositories.Iec61850DeviceRepository;
+
+/**
+ * Keeps the {@link Iec61850Device} configuration of devices, like the server
+ * name, port and ICD file, so handling a request or a report does not query
+ * the database every time the configuration is used.
+ * <p>
+ * A device is looked up again when its entry is older than the time to live,
+ * or after it is invalidated. Devices without configuration are cached as
+ * well. The number of devices is bounded, the least recently used device is
+ * evicted first.
+ * <p>
+ * The cached devices are shared, they must not be modified.
+ */
+@Component
+@ManagedResource(description = "Cache of the IEC61850 configuration of devices")
+public class Iec61850DeviceCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Iec61850DeviceCache.class);
+
+    @Autowired
+    private Iec61850DeviceRepository iec61850DeviceRepository;
+
+    @Autowired
+    private int deviceCacheMaxSize;
+
+    @Autowired
+    private int deviceCacheTimeToLive;
+
+    private final Map<String, CachedDevice> devices = new LinkedHashMap<String, CachedDevice>(16, 0.75f, true) {
+        private static final long serialVersionUID = 3514960651238014372L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, CachedDevice> eldest) {
+            return this.size() > Iec61850DeviceCache.this.deviceCacheMaxSize;
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @return The configuration of the device, or null if the device has no
+     *         IEC61850 configuration.
+     */
+    public Iec61850Device getDevice(final String deviceIdentification) {
+        final long now = System.currentTimeMillis();
+
+        final CachedDevice cachedDevice;
+        synchronized (this.devices) {
+            cachedDevice = this.devices.get(deviceIdentification);
+        }
+
+        if (cachedDevice != null && now - cachedDevice.getLoadTime() < this.deviceCacheTimeToLive) {
+            this.hits.incrementAndGet();
+            return cachedDevice.getDevice();
+        }
+
+        this.misses.incrementAndGet();
+        final Iec61850Device device = this.iec61850DeviceRepository.findByDeviceIdentification(deviceIdentification);
+        LOGGER.debug("Loaded IEC61850 configuration for device: {}", deviceIdentification);
+        synchronized (this.devices) {
+            this.devices.put(deviceIdentification, new CachedDevice(device, now));
+        }
+        return device;
+    }
+
+    @ManagedOperation(description = "Removes the configuration of a device, so it is looked up again")
+    public void invalidate(final String deviceIdentification) {
+        synchronized (this.devices) {
+            this.devices.remove(deviceIdentification);
+        }
+    }
+
+    @ManagedOperation(description = "Removes the configuration of all devices")
+    public void invalidateAll() {
+        synchronized (this.devices) {
+            this.devices.clear();
+        }
+    }
+
+    @ManagedAttribute(description = "Number of cached devices")
+    public int getSize() {
+        synchronized (this.devices) {
+            return this.devices.size();
+        }
+    }
+
+    @ManagedAttribute(description = "Number of lookups answered from the cache")
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    @ManagedAttribute(description = "Number of lookups in the database")
+    public long getMissCount() {
+        return this.misses.get();
+    }
+
+    private static final class CachedDevice {
+
+        private final Iec61850Device device;
+        private final long loadTime;
+
+        CachedDevice(final Iec61850Device device, final long loadTime) {
+            this.device = device;
+            this.loadTime = loadTime;
+        }
+
+        Iec61850Device getDevice() {
+            return this.device;
+        }
+
+        long getLoadTime() {
+            return this.loadTime;
+        }
+    }
+}
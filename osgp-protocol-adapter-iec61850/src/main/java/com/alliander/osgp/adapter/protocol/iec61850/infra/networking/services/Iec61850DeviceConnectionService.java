@@ -10,7 +10,6 @@ package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.nio.file.Paths;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.joda.time.DateTime;
@@ -26,13 +25,16 @@ import org.springframework.stereotype.Component;
 import com.alliander.osgp.adapter.protocol.iec61850.application.services.DeviceManagementService;
 import com.alliander.osgp.adapter.protocol.iec61850.device.DeviceRequest;
 import com.alliander.osgp.adapter.protocol.iec61850.domain.entities.Iec61850Device;
-import com.alliander.osgp.adapter.protocol.iec61850.domain.repositories.Iec61850DeviceRepository;
 import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ConnectionFailureException;
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.NodeException;
 import com.alliander.osgp.adapter.protocol.iec61850.exceptions.NodeReadException;
 import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ProtocolAdapterException;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850Client;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850ClientAssociation;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850Connection;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850LatencyMetrics;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850LatencyMetrics.Phase;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.ConnectionState;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.DataAttribute;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.DeviceConnection;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.Function;
@@ -47,15 +49,13 @@ public class Iec61850DeviceConnectionService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Iec61850DeviceConnectionService.class);
 
-    private static ConcurrentHashMap<String, Iec61850Connection> cache = new ConcurrentHashMap<>();
-
     private static final int IEC61850_DEFAULT_PORT = 102;
 
     @Autowired
     private DeviceManagementService deviceManagementService;
 
     @Autowired
-    private Iec61850DeviceRepository iec61850DeviceRepository;
+    private Iec61850DeviceCache iec61850DeviceCache;
 
     @Autowired
     private Iec61850RtuDeviceReportingService iec61850RtuDeviceReportingService;
@@ -66,6 +66,15 @@ public class Iec61850DeviceConnectionService {
     @Autowired
     private Iec61850Client iec61850Client;
 
+    @Autowired
+    private Iec61850ServerModelCache iec61850ServerModelCache;
+
+    @Autowired
+    private Iec61850ConnectionPool iec61850ConnectionPool;
+
+    @Autowired
+    private Iec61850LatencyMetrics iec61850LatencyMetrics;
+
     @Autowired
     private int iec61850SsldPortServer;
 
@@ -88,29 +97,52 @@ public class Iec61850DeviceConnectionService {
             final String organisationIdentification, final IED ied, final String serverName, final String logicalDevice)
             throws ConnectionFailureException {
         return this.connect(ipAddress, deviceIdentification, organisationIdentification, ied, serverName, logicalDevice,
-                false);
+                false, null);
+    }
+
+    public DeviceConnection connectWithoutConnectionCaching(final DeviceRequest deviceRequest, final IED ied,
+            final String serverName, final String logicalDevice) throws ConnectionFailureException {
+        return this.connect(deviceRequest.getIpAddress(), deviceRequest.getDeviceIdentification(),
+                deviceRequest.getOrganisationIdentification(), ied, serverName, logicalDevice, false,
+                deviceRequest.getMessageType());
     }
 
     public DeviceConnection connect(final String ipAddress, final String deviceIdentification,
             final String organisationIdentification, final IED ied, final String serverName, final String logicalDevice)
             throws ConnectionFailureException {
         return this.connect(ipAddress, deviceIdentification, organisationIdentification, ied, serverName, logicalDevice,
-                true);
+                true, null);
+    }
+
+    public DeviceConnection connect(final DeviceRequest deviceRequest, final IED ied, final String serverName,
+            final String logicalDevice) throws ConnectionFailureException {
+        return this.connect(deviceRequest.getIpAddress(), deviceRequest.getDeviceIdentification(),
+                deviceRequest.getOrganisationIdentification(), ied, serverName, logicalDevice, true,
+                deviceRequest.getMessageType());
     }
 
+    /**
+     * Connects to the device, recording the duration of the phases of setting
+     * up the connection in {@link Iec61850LatencyMetrics} for the given IED
+     * type and message type.
+     *
+     * @param messageType
+     *            The message type of the request, or null if unknown.
+     */
     public DeviceConnection connect(final String ipAddress, final String deviceIdentification,
             final String organisationIdentification, final IED ied, final String serverName, final String logicalDevice,
-            final boolean cacheConnection) throws ConnectionFailureException {
+            final boolean cacheConnection, final String messageType) throws ConnectionFailureException {
         // When connection-caching is used, check if a connection is available
-        // an usable for the given deviceIdentification.
-        try {
-            if (cacheConnection
-                    && this.testIfConnectionIsCachedAndAlive(deviceIdentification, ied, serverName, logicalDevice)) {
-                return new DeviceConnection(this.fetchIec61850Connection(deviceIdentification), deviceIdentification,
-                        organisationIdentification, serverName);
+        // for the given deviceIdentification. Cached connections are checked
+        // in the background by the connection pool.
+        if (cacheConnection) {
+            final Iec61850Connection iec61850Connection = this.iec61850ConnectionPool.lease(deviceIdentification);
+            if (iec61850Connection != null) {
+                LOGGER.info("Using cached connection for deviceIdentification: {}", deviceIdentification);
+                return new DeviceConnection(iec61850Connection, deviceIdentification, organisationIdentification,
+                        serverName);
             }
-        } catch (final ProtocolAdapterException e) {
-            this.logProtocolAdapterException(deviceIdentification, e);
+            this.iec61850ConnectionPool.ensureCapacity();
         }
 
         if (StringUtils.isEmpty(ipAddress)) {
@@ -133,21 +165,23 @@ public class Iec61850DeviceConnectionService {
             this.logProtocolAdapterException(deviceIdentification, e);
         }
 
-        final Iec61850Device iec61850Device = this.iec61850DeviceRepository
-                .findByDeviceIdentification(deviceIdentification);
+        final Iec61850Device iec61850Device = this.iec61850DeviceCache.getDevice(deviceIdentification);
 
         final int port = this.determinePortForIec61850Device(ied, iec61850Device);
 
         // Try to connect and receive the ClientAssociation.
+        final long associateStart = System.nanoTime();
         final Iec61850ClientAssociation iec61850ClientAssociation = this.iec61850Client.connect(deviceIdentification,
                 inetAddress, eventListener, port);
+        this.iec61850LatencyMetrics.record(Phase.ASSOCIATE, ied, messageType, associateStart);
         final ClientAssociation clientAssociation = iec61850ClientAssociation.getClientAssociation();
         // Set response time-out.
         clientAssociation.setResponseTimeout(this.responseTimeout);
         // Read the ServerModel, either from the device or from a SCL file.
         ServerModel serverModel;
         try {
-            serverModel = this.readServerModel(clientAssociation, deviceIdentification, iec61850Device, ied);
+            serverModel = this.readServerModel(clientAssociation, deviceIdentification, iec61850Device, ied,
+                    messageType);
         } catch (final ProtocolAdapterException e) {
             LOGGER.error("ProtocolAdapterException: unable to read ServerModel for deviceIdentification "
                     + deviceIdentification, e);
@@ -158,13 +192,38 @@ public class Iec61850DeviceConnectionService {
         final Iec61850Connection iec61850Connection = new Iec61850Connection(iec61850ClientAssociation, serverModel,
                 startTime);
         if (cacheConnection) {
-            this.cacheIec61850Connection(deviceIdentification, iec61850Connection);
+            if (eventListener != null) {
+                // Remove the connection from the pool as soon as the
+                // association is closed, instead of waiting for the pool to
+                // find out it is no longer alive.
+                eventListener.setAssociationClosedHandler(
+                        () -> this.iec61850ConnectionPool.remove(deviceIdentification, iec61850Connection));
+            }
+            try {
+                this.iec61850ConnectionPool.add(deviceIdentification, iec61850Connection,
+                        this.getKeepAliveNode(deviceIdentification, ied, serverName, logicalDevice,
+                                iec61850Connection));
+            } catch (final ConnectionFailureException e) {
+                clientAssociation.disconnect();
+                throw e;
+            }
         }
 
         final DeviceConnection connection = new DeviceConnection(iec61850Connection, deviceIdentification,
                 organisationIdentification, serverName);
 
-        this.iec61850RtuDeviceReportingService.enableReportingForDevice(connection, deviceIdentification, serverName);
+        try {
+            final long enableReportingStart = System.nanoTime();
+            this.iec61850RtuDeviceReportingService.enableReportingForDevice(connection, deviceIdentification,
+                    serverName);
+            this.iec61850LatencyMetrics.record(Phase.ENABLE_REPORTING, ied, messageType, enableReportingStart);
+        } catch (final RuntimeException e) {
+            // The caller does not get the connection, so it does not release
+            // the lease on the cached connection either.
+            this.iec61850ConnectionPool.remove(deviceIdentification, iec61850Connection);
+            clientAssociation.disconnect();
+            throw e;
+        }
 
         final DateTime endTime = DateTime.now();
         LOGGER.info(
@@ -200,40 +259,24 @@ public class Iec61850DeviceConnectionService {
         return port;
     }
 
-    private boolean testIfConnectionIsCachedAndAlive(final String deviceIdentification, final IED ied,
-            final String serverName, final String logicalDevice) throws ProtocolAdapterException {
+    /**
+     * Determines the node read by the connection pool to check if a cached
+     * connection is still alive. Reading the physical name node (only) is much
+     * faster than reading all data values, which is done when this method
+     * returns null.
+     */
+    private FcModelNode getKeepAliveNode(final String deviceIdentification, final IED ied, final String serverName,
+            final String logicalDevice, final Iec61850Connection iec61850Connection) {
+        if (ied == null || logicalDevice == null) {
+            return null;
+        }
         try {
-            LOGGER.info("Trying to find connection in cache for deviceIdentification: {}", deviceIdentification);
-            final Iec61850Connection iec61850Connection = this.fetchIec61850Connection(deviceIdentification);
-            if (iec61850Connection != null) {
-                // Already connected, check if connection is still usable.
-                LOGGER.info("Connection found for deviceIdentification: {}", deviceIdentification);
-                // Read physical name node (only), which is much faster, but
-                // requires manual reads of remote data.
-                if (ied != null && logicalDevice != null) {
-                    final String description = this.getActualServerName(ied, serverName);
-                    LOGGER.info("Testing if connection is alive using {}{}/{}.{} for deviceIdentification: {}",
-                            description, logicalDevice, LogicalNode.LOGICAL_NODE_ZERO.getDescription(),
-                            DataAttribute.NAME_PLATE.getDescription(), deviceIdentification);
-
-                    final FcModelNode modelNode = this.getModelNode(logicalDevice, iec61850Connection, description);
-                    this.iec61850Client.readNodeDataValues(iec61850Connection.getClientAssociation(), modelNode);
-                } else {
-                    // Read all data values, which is much slower, but requires
-                    // no manual reads of remote data.
-                    LOGGER.info("Testing if connection is alive using readAllDataValues() for deviceIdentification: {}",
-                            deviceIdentification);
-                    this.iec61850Client.readAllDataValues(iec61850Connection.getClientAssociation());
-                }
-                LOGGER.info("Connection is still active for deviceIdentification: {}", deviceIdentification);
-                return true;
-            }
-        } catch (final NodeReadException e) {
-            LOGGER.error("Connection is no longer active, removing connection from cache for deviceIdentification: "
-                    + deviceIdentification, e);
-            this.removeIec61850Connection(deviceIdentification);
+            return this.getModelNode(logicalDevice, iec61850Connection, this.getActualServerName(ied, serverName));
+        } catch (final ProtocolAdapterException e) {
+            LOGGER.warn("Unable to find physical name node, using readAllDataValues() to test if connection is alive"
+                    + " for deviceIdentification: " + deviceIdentification, e);
+            return null;
         }
-        return false;
     }
 
     private FcModelNode getModelNode(final String logicalDevice, final Iec61850Connection iec61850Connection,
@@ -269,24 +312,28 @@ public class Iec61850DeviceConnectionService {
      * .
      */
     private ServerModel readServerModel(final ClientAssociation clientAssociation, final String deviceIdentification,
-            final Iec61850Device iec61850Device, final IED ied) throws ProtocolAdapterException {
+            final Iec61850Device iec61850Device, final IED ied, final String messageType)
+            throws ProtocolAdapterException {
         if (IED.ABB_RTU.equals(ied)) {
             LOGGER.info("Reading ServerModel from device: {} of type: {} using readServerModelFromDevice()",
                     deviceIdentification, ied.name());
-            return this.iec61850Client.readServerModelFromDevice(clientAssociation);
+            return this.readServerModelFromDevice(clientAssociation, ied, messageType);
         } else {
-            return this.readServerModel(clientAssociation, deviceIdentification, iec61850Device);
+            return this.readServerModel(clientAssociation, deviceIdentification, iec61850Device, ied, messageType,
+                    System.nanoTime());
         }
     }
 
     private ServerModel readServerModel(final ClientAssociation clientAssociation, final String deviceIdentification,
-            final Iec61850Device iec61850Device) throws ProtocolAdapterException {
+            final Iec61850Device iec61850Device, final IED ied, final String messageType, final long start)
+            throws ProtocolAdapterException {
 
         ServerModel serverModel;
         try {
             serverModel = this.readServerModelConfiguredForDevice(clientAssociation, deviceIdentification,
                     iec61850Device);
             if (serverModel != null) {
+                this.iec61850LatencyMetrics.record(Phase.SERVER_MODEL_FILE, ied, messageType, start);
                 return serverModel;
             }
         } catch (final ProtocolAdapterException e) {
@@ -296,13 +343,22 @@ public class Iec61850DeviceConnectionService {
         try {
             serverModel = this.readServerModelFromConfiguredIcdFile(clientAssociation);
             if (serverModel != null) {
+                this.iec61850LatencyMetrics.record(Phase.SERVER_MODEL_FILE, ied, messageType, start);
                 return serverModel;
             }
         } catch (final ProtocolAdapterException e) {
             LOGGER.warn("Ignore exception reading server model based on configured ICD file.", e);
         }
         LOGGER.info("Reading ServerModel from device: {} using readServerModelFromDevice()", deviceIdentification);
-        return this.iec61850Client.readServerModelFromDevice(clientAssociation);
+        return this.readServerModelFromDevice(clientAssociation, ied, messageType);
+    }
+
+    private ServerModel readServerModelFromDevice(final ClientAssociation clientAssociation, final IED ied,
+            final String messageType) throws ProtocolAdapterException {
+        final long start = System.nanoTime();
+        final ServerModel serverModel = this.iec61850Client.readServerModelFromDevice(clientAssociation);
+        this.iec61850LatencyMetrics.record(Phase.SERVER_MODEL_DEVICE, ied, messageType, start);
+        return serverModel;
     }
 
     private ServerModel readServerModelConfiguredForDevice(final ClientAssociation clientAssociation,
@@ -324,7 +380,7 @@ public class Iec61850DeviceConnectionService {
         final String filePath = Paths.get(this.icdFilesFolder, iec61850Device.getIcdFilename()).toString();
         LOGGER.info("Reading ServerModel from SCL / ICD file: {} configured for device: {}", filePath,
                 deviceIdentification);
-        return this.iec61850Client.readServerModelFromSclFile(clientAssociation, filePath);
+        return this.iec61850ServerModelCache.getServerModel(clientAssociation, filePath);
     }
 
     private ServerModel readServerModelFromConfiguredIcdFile(final ClientAssociation clientAssociation)
@@ -335,7 +391,7 @@ public class Iec61850DeviceConnectionService {
         }
 
         LOGGER.info("Reading ServerModel from SCL / ICD file: {}", this.icdFilePath);
-        return this.iec61850Client.readServerModelFromSclFile(clientAssociation, this.icdFilePath);
+        return this.iec61850ServerModelCache.getServerModel(clientAssociation, this.icdFilePath);
     }
 
     /**
@@ -344,10 +400,9 @@ public class Iec61850DeviceConnectionService {
      */
     public void disconnect(final String deviceIdentification) {
         LOGGER.info("Trying to disconnect from deviceIdentification: {}", deviceIdentification);
-        final Iec61850Connection iec61850Connection = this.fetchIec61850Connection(deviceIdentification);
+        final Iec61850Connection iec61850Connection = this.iec61850ConnectionPool.remove(deviceIdentification);
         if (iec61850Connection != null) {
             iec61850Connection.getClientAssociation().disconnect();
-            this.removeIec61850Connection(deviceIdentification);
             LOGGER.info("Disconnected from deviceIdentification: {}", deviceIdentification);
         } else {
             LOGGER.info("Unable to disconnect from deviceIdentification: {}, no cached connection was found",
@@ -357,6 +412,8 @@ public class Iec61850DeviceConnectionService {
 
     public void disconnect(final DeviceConnection deviceConnection, final DeviceRequest deviceRequest) {
         try {
+            this.iec61850ConnectionPool.remove(deviceConnection.getDeviceIdentification(),
+                    deviceConnection.getConnection());
             deviceConnection.getConnection().getIec61850ClientAssociation().getClientAssociation().disconnect();
             this.logDuration(deviceConnection, deviceRequest);
         } catch (final NullPointerException e) {
@@ -364,6 +421,40 @@ public class Iec61850DeviceConnectionService {
         }
     }
 
+    /**
+     * Removes the cached connection from the connection pool if the given
+     * exception shows it is no longer usable, so the next request for the
+     * device sets up a new connection instead of leasing the broken one. The
+     * connection is closed when it is released by
+     * {@link #releaseConnection(DeviceConnection)}.
+     */
+    public void removeBrokenConnection(final DeviceConnection deviceConnection, final Exception e) {
+        if (deviceConnection == null) {
+            return;
+        }
+        final boolean broken = e instanceof ConnectionFailureException
+                || (e instanceof NodeException && ((NodeException) e).getConnectionState() == ConnectionState.BROKEN);
+        if (broken) {
+            LOGGER.info("Removing broken connection from pool for deviceIdentification: {}",
+                    deviceConnection.getDeviceIdentification());
+            this.iec61850ConnectionPool.remove(deviceConnection.getDeviceIdentification(),
+                    deviceConnection.getConnection());
+        }
+    }
+
+    /**
+     * Returns a connection obtained by
+     * {@link #connect(String, String, String, IED, String, String)} to the
+     * connection pool, so it can be used by other requests for the device.
+     */
+    public void releaseConnection(final DeviceConnection deviceConnection) {
+        if (deviceConnection == null) {
+            return;
+        }
+        this.iec61850ConnectionPool.release(deviceConnection.getDeviceIdentification(),
+                deviceConnection.getConnection());
+    }
+
     private void logDuration(final DeviceConnection deviceConnection, final DeviceRequest deviceRequest) {
         if (deviceConnection == null) {
             return;
@@ -429,23 +520,14 @@ public class Iec61850DeviceConnectionService {
         return this.iec61850Client.sendCommandWithRetry(function, deviceIdentification);
     }
 
-    private void cacheIec61850Connection(final String deviceIdentification,
-            final Iec61850Connection iec61850Connection) {
-        cache.put(deviceIdentification, iec61850Connection);
-    }
-
     private Iec61850Connection fetchIec61850Connection(final String deviceIdentification) {
-        final Iec61850Connection iec61850Connection = cache.get(deviceIdentification);
+        final Iec61850Connection iec61850Connection = this.iec61850ConnectionPool.get(deviceIdentification);
         if (iec61850Connection == null) {
             LOGGER.info("No connection found for device: {}", deviceIdentification);
         }
         return iec61850Connection;
     }
 
-    private void removeIec61850Connection(final String deviceIdentification) {
-        cache.remove(deviceIdentification);
-    }
-
     private InetAddress convertIpAddress(final String ipAddress) throws ConnectionFailureException {
         try {
             return InetAddress.getByName(ipAddress);
@@ -0,0 +1,251 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.DeviceConnection;
+
+/**
+ * Schedules delayed disconnects from devices, for connections that are kept
+ * open for a while so the device is able to send reports.
+ * <p>
+ * There is at most one pending disconnect per device. Scheduling a disconnect
+ * for a device with a pending disconnect of the same connection extends the
+ * delay. A new request for a device can take over the connection of a pending
+ * disconnect by cancelling it, instead of connecting again. When the request
+ * is done, it hands the connection back, so the cancelled disconnect is
+ * scheduled again and the device is still able to send reports.
+ */
+@Component
+@ManagedResource(description = "Scheduler of delayed disconnects from devices")
+public class Iec61850DisconnectScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Iec61850DisconnectScheduler.class);
+
+    @Autowired
+    private int disconnectSchedulerPoolSize;
+
+    /**
+     * Pending disconnects per device identification. Guarded by synchronizing
+     * on the map.
+     */
+    private final Map<String, PendingDisconnect> pendingDisconnects = new HashMap<>();
+
+    /**
+     * Cancelled disconnects per device identification, of connections that
+     * are used by a request, until the connection is handed back. Guarded by
+     * synchronizing on {@link #pendingDisconnects}.
+     */
+    private final Map<String, PendingDisconnect> takenOverDisconnects = new HashMap<>();
+
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong extended = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong handedBack = new AtomicLong();
+    private final AtomicLong executed = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    private void init() {
+        this.scheduler = Executors.newScheduledThreadPool(this.disconnectSchedulerPoolSize);
+    }
+
+    @PreDestroy
+    private void destroy() {
+        this.scheduler.shutdown();
+    }
+
+    /**
+     * Schedules the disconnect of the given connection after the given delay.
+     * A pending disconnect of another connection to the same device is
+     * executed right away.
+     *
+     * @param deviceConnection
+     *            The connection to disconnect.
+     * @param disconnectAction
+     *            The action that disconnects, and possibly cleans up the
+     *            connection.
+     * @param delay
+     *            The delay in milliseconds.
+     */
+    public void schedule(final DeviceConnection deviceConnection, final Runnable disconnectAction, final long delay) {
+        final String deviceIdentification = deviceConnection.getDeviceIdentification();
+        final PendingDisconnect pendingDisconnect = new PendingDisconnect(deviceConnection, disconnectAction);
+
+        synchronized (this.pendingDisconnects) {
+            this.takenOverDisconnects.remove(deviceIdentification);
+            final PendingDisconnect previous = this.pendingDisconnects.remove(deviceIdentification);
+            if (previous != null && previous.getFuture().cancel(false)) {
+                if (previous.getDeviceConnection().getConnection() == deviceConnection.getConnection()) {
+                    this.extended.incrementAndGet();
+                    LOGGER.info("Extending delay before disconnecting from device: {}", deviceIdentification);
+                } else {
+                    this.scheduler.execute(() -> this.execute(previous));
+                }
+            }
+            this.scheduled.incrementAndGet();
+            pendingDisconnect.setFuture(this.scheduler.schedule(() -> this.execute(pendingDisconnect), delay,
+                    TimeUnit.MILLISECONDS));
+            this.pendingDisconnects.put(deviceIdentification, pendingDisconnect);
+        }
+    }
+
+    /**
+     * Cancels the pending disconnect for the given device, so its connection
+     * can be used by another request. The request hands the connection back
+     * with {@link #handBack(DeviceConnection, long)} when it is done.
+     *
+     * @return The connection of the cancelled disconnect, or null if there is
+     *         no pending disconnect that could be cancelled.
+     */
+    public DeviceConnection cancel(final String deviceIdentification) {
+        synchronized (this.pendingDisconnects) {
+            final PendingDisconnect pendingDisconnect = this.pendingDisconnects.get(deviceIdentification);
+            if (pendingDisconnect == null || !pendingDisconnect.getFuture().cancel(false)) {
+                return null;
+            }
+            this.pendingDisconnects.remove(deviceIdentification);
+            this.takenOverDisconnects.put(deviceIdentification, pendingDisconnect);
+            this.cancelled.incrementAndGet();
+            LOGGER.info("Cancelled pending disconnect from device: {}", deviceIdentification);
+            return pendingDisconnect.getDeviceConnection();
+        }
+    }
+
+    /**
+     * Schedules the disconnect that was cancelled by {@link #cancel(String)}
+     * again, for a connection that is no longer used by a request.
+     *
+     * @param deviceConnection
+     *            The connection used by the request, may be null.
+     * @param delay
+     *            The delay in milliseconds.
+     * @return true if the disconnect is scheduled again, false if the
+     *         connection was not taken over from a pending disconnect, and
+     *         has to be disconnected by the caller.
+     */
+    public boolean handBack(final DeviceConnection deviceConnection, final long delay) {
+        if (deviceConnection == null) {
+            return false;
+        }
+        final String deviceIdentification = deviceConnection.getDeviceIdentification();
+        synchronized (this.pendingDisconnects) {
+            final PendingDisconnect takenOver = this.takenOverDisconnects.get(deviceIdentification);
+            if (takenOver == null
+                    || takenOver.getDeviceConnection().getConnection() != deviceConnection.getConnection()) {
+                return false;
+            }
+            this.takenOverDisconnects.remove(deviceIdentification);
+            this.handedBack.incrementAndGet();
+            this.schedule(takenOver.getDeviceConnection(), takenOver.getDisconnectAction(), delay);
+            return true;
+        }
+    }
+
+    /**
+     * Forgets the disconnect that was cancelled by {@link #cancel(String)},
+     * for a connection that turned out to be closed already.
+     */
+    public void discard(final DeviceConnection deviceConnection) {
+        synchronized (this.pendingDisconnects) {
+            this.takenOverDisconnects.remove(deviceConnection.getDeviceIdentification());
+        }
+    }
+
+    private void execute(final PendingDisconnect pendingDisconnect) {
+        synchronized (this.pendingDisconnects) {
+            this.pendingDisconnects.remove(pendingDisconnect.getDeviceConnection().getDeviceIdentification(),
+                    pendingDisconnect);
+        }
+        this.executed.incrementAndGet();
+        try {
+            pendingDisconnect.getDisconnectAction().run();
+        } catch (final RuntimeException e) {
+            LOGGER.error("Unexpected exception disconnecting from device: "
+                    + pendingDisconnect.getDeviceConnection().getDeviceIdentification(), e);
+        }
+    }
+
+    @ManagedAttribute(description = "Number of pending disconnects")
+    public int getPendingCount() {
+        synchronized (this.pendingDisconnects) {
+            return this.pendingDisconnects.size();
+        }
+    }
+
+    @ManagedAttribute(description = "Number of scheduled disconnects")
+    public long getScheduledCount() {
+        return this.scheduled.get();
+    }
+
+    @ManagedAttribute(description = "Number of pending disconnects that were extended")
+    public long getExtendedCount() {
+        return this.extended.get();
+    }
+
+    @ManagedAttribute(description = "Number of pending disconnects cancelled to reuse the connection")
+    public long getCancelledCount() {
+        return this.cancelled.get();
+    }
+
+    @ManagedAttribute(description = "Number of cancelled disconnects scheduled again after the request")
+    public long getHandedBackCount() {
+        return this.handedBack.get();
+    }
+
+    @ManagedAttribute(description = "Number of executed disconnects")
+    public long getExecutedCount() {
+        return this.executed.get();
+    }
+
+    private static final class PendingDisconnect {
+
+        private final DeviceConnection deviceConnection;
+        private final Runnable disconnectAction;
+        private ScheduledFuture<?> future;
+
+        PendingDisconnect(final DeviceConnection deviceConnection, final Runnable disconnectAction) {
+            this.deviceConnection = deviceConnection;
+            this.disconnectAction = disconnectAction;
+        }
+
+        DeviceConnection getDeviceConnection() {
+            return this.deviceConnection;
+        }
+
+        Runnable getDisconnectAction() {
+            return this.disconnectAction;
+        }
+
+        ScheduledFuture<?> getFuture() {
+            return this.future;
+        }
+
+        void setFuture(final ScheduledFuture<?> future) {
+            this.future = future;
+        }
+    }
+}
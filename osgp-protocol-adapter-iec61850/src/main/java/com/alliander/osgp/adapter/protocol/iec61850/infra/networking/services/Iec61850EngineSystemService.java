@@ -16,6 +16,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.alliander.osgp.adapter.protocol.iec61850.device.rtu.RtuReadCommand;
+import com.alliander.osgp.adapter.protocol.iec61850.device.rtu.RtuReadPlan;
 import com.alliander.osgp.adapter.protocol.iec61850.device.rtu.RtuWriteCommand;
 import com.alliander.osgp.adapter.protocol.iec61850.exceptions.NodeException;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850Client;
@@ -48,6 +49,8 @@ public class Iec61850EngineSystemService implements SystemService {
 
         LOGGER.info("Get data called for logical device {}{}", DEVICE.getDescription(), logicalDeviceIndex);
 
+        final RtuReadPlan readPlan = new RtuReadPlan(connection, DEVICE, logicalDeviceIndex);
+
         final List<MeasurementDto> measurements = new ArrayList<>();
 
         for (final MeasurementFilterDto filter : systemFilter.getMeasurementFilters()) {
@@ -56,7 +59,7 @@ public class Iec61850EngineSystemService implements SystemService {
             if (command == null) {
                 LOGGER.warn("Unsupported data attribute [{}], skip get data for it", filter.getNode());
             } else {
-                measurements.add(command.execute(client, connection, DEVICE, logicalDeviceIndex));
+                readPlan.add(command, measurements);
             }
 
         }
@@ -70,10 +73,12 @@ public class Iec61850EngineSystemService implements SystemService {
             if (command == null) {
                 LOGGER.warn("Unsupported data attribute [{}], skip get data for it", filter.getNode());
             } else {
-                profiles.add(command.execute(client, connection, DEVICE, logicalDeviceIndex));
+                readPlan.add(command, profiles);
             }
         }
 
+        readPlan.execute(client);
+
         return new GetDataSystemIdentifierDto(systemFilter.getId(), systemFilter.getSystemType(), measurements,
                 profiles);
     }
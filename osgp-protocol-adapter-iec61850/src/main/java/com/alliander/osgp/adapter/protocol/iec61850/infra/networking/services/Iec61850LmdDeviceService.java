@@ -72,11 +72,14 @@ public class Iec61850LmdDeviceService implements LmdDeviceService {
 
             this.enableReporting(deviceConnection, deviceRequest);
         } catch (final ConnectionFailureException se) {
-            this.handleConnectionFailureException(deviceRequest, deviceResponseHandler, se);
+            // Disconnect first, handling the failure may throw a JMSException.
             this.iec61850DeviceConnectionService.disconnect(devCon, deviceRequest);
+            this.handleConnectionFailureException(deviceRequest, deviceResponseHandler, se);
         } catch (final Exception e) {
-            this.handleException(deviceRequest, deviceResponseHandler, e);
             this.iec61850DeviceConnectionService.disconnect(devCon, deviceRequest);
+            this.handleException(deviceRequest, deviceResponseHandler, e);
+        } finally {
+            this.iec61850DeviceConnectionService.releaseConnection(devCon);
         }
     }
 
@@ -85,8 +88,7 @@ public class Iec61850LmdDeviceService implements LmdDeviceService {
     // ======================================
 
     private DeviceConnection connectToDevice(final DeviceRequest deviceRequest) throws ConnectionFailureException {
-        return this.iec61850DeviceConnectionService.connect(deviceRequest.getIpAddress(),
-                deviceRequest.getDeviceIdentification(), deviceRequest.getOrganisationIdentification(), IED.ABB_RTU,
+        return this.iec61850DeviceConnectionService.connect(deviceRequest, IED.ABB_RTU,
                 IED.ABB_RTU.getDescription(), LogicalDevice.LD0.getDescription());
     }
 
@@ -18,8 +18,8 @@ import org.springframework.stereotype.Service;
 
 import com.alliander.osgp.adapter.protocol.iec61850.device.rtu.RtuReadCommand;
 import com.alliander.osgp.adapter.protocol.iec61850.device.rtu.RtuReadCommandFactory;
+import com.alliander.osgp.adapter.protocol.iec61850.device.rtu.RtuReadPlan;
 import com.alliander.osgp.adapter.protocol.iec61850.domain.entities.Iec61850Device;
-import com.alliander.osgp.adapter.protocol.iec61850.domain.repositories.Iec61850DeviceRepository;
 import com.alliander.osgp.adapter.protocol.iec61850.exceptions.NodeException;
 import com.alliander.osgp.adapter.protocol.iec61850.exceptions.NodeWriteException;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850Client;
@@ -42,7 +42,7 @@ public class Iec61850LoadSystemService implements SystemService {
     private Boolean defaultUseCombinedLoad = false;
 
     @Autowired
-    private Iec61850DeviceRepository iec61850DeviceRepository;
+    private Iec61850DeviceCache iec61850DeviceCache;
 
     @Autowired
     private Iec61850CombinedLoadCommandFactory iec61850CombinedLoadCommandFactory;
@@ -58,6 +58,8 @@ public class Iec61850LoadSystemService implements SystemService {
 
         LOGGER.info("Get data called for logical device {}{}", DEVICE.getDescription(), logicalDeviceIndex);
 
+        final RtuReadPlan readPlan = new RtuReadPlan(connection, DEVICE, logicalDeviceIndex);
+
         final List<MeasurementDto> measurements = new ArrayList<>();
 
         for (final MeasurementFilterDto filter : systemFilter.getMeasurementFilters()) {
@@ -67,10 +69,12 @@ public class Iec61850LoadSystemService implements SystemService {
             if (command == null) {
                 LOGGER.warn("Unsupported data attribute [{}], skip get data for it", filter.getNode());
             } else {
-                measurements.add(command.execute(client, connection, DEVICE, logicalDeviceIndex));
+                readPlan.add(command, measurements);
             }
         }
 
+        readPlan.execute(client);
+
         return new GetDataSystemIdentifierDto(systemFilter.getId(), systemFilter.getSystemType(), measurements);
     }
 
@@ -83,7 +87,7 @@ public class Iec61850LoadSystemService implements SystemService {
     }
 
     public RtuReadCommandFactory<MeasurementDto, MeasurementFilterDto> getFactory(final String deviceIdentification) {
-        final Iec61850Device device = this.iec61850DeviceRepository.findByDeviceIdentification(deviceIdentification);
+        final Iec61850Device device = this.iec61850DeviceCache.getDevice(deviceIdentification);
         if ((device == null && this.defaultUseCombinedLoad) || device.isUseCombinedLoad()) {
             return this.iec61850CombinedLoadCommandFactory;
         } else {
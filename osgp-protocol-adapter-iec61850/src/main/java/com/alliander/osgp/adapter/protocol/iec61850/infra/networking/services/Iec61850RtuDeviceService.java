@@ -12,8 +12,6 @@ import java.util.List;
 
 import javax.jms.JMSException;
 
-import org.openmuc.openiec61850.ClientAssociation;
-import org.openmuc.openiec61850.ServerModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,13 +26,10 @@ import com.alliander.osgp.adapter.protocol.iec61850.device.rtu.requests.SetDataD
 import com.alliander.osgp.adapter.protocol.iec61850.device.ssld.responses.EmptyDeviceResponse;
 import com.alliander.osgp.adapter.protocol.iec61850.device.ssld.responses.GetDataDeviceResponse;
 import com.alliander.osgp.adapter.protocol.iec61850.domain.entities.Iec61850Device;
-import com.alliander.osgp.adapter.protocol.iec61850.domain.repositories.Iec61850DeviceRepository;
 import com.alliander.osgp.adapter.protocol.iec61850.domain.valueobjects.DeviceMessageLog;
 import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ConnectionFailureException;
 import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ProtocolAdapterException;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850Client;
-import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850ClientAssociation;
-import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850Connection;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.SystemService;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.DeviceConnection;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.Function;
@@ -62,22 +57,17 @@ public class Iec61850RtuDeviceService implements RtuDeviceService {
     private Iec61850Client iec61850Client;
 
     @Autowired
-    private Iec61850DeviceRepository iec61850DeviceRepository;
+    private Iec61850DeviceCache iec61850DeviceCache;
 
     @Override
     public void getData(final GetDataDeviceRequest deviceRequest, final DeviceResponseHandler deviceResponseHandler)
             throws JMSException {
+        DeviceConnection deviceConnection = null;
         try {
             final String serverName = this.getServerName(deviceRequest);
-            final ServerModel serverModel = this.connectAndRetrieveServerModel(deviceRequest, serverName);
+            deviceConnection = this.connectToDevice(deviceRequest, serverName);
 
-            final ClientAssociation clientAssociation = this.iec61850DeviceConnectionService
-                    .getClientAssociation(deviceRequest.getDeviceIdentification());
-
-            final GetDataResponseDto getDataResponse = this.handleGetData(new DeviceConnection(
-                    new Iec61850Connection(new Iec61850ClientAssociation(clientAssociation, null), serverModel),
-                    deviceRequest.getDeviceIdentification(), deviceRequest.getOrganisationIdentification(), serverName),
-                    deviceRequest);
+            final GetDataResponseDto getDataResponse = this.handleGetData(deviceConnection, deviceRequest);
 
             final GetDataDeviceResponse deviceResponse = new GetDataDeviceResponse(
                     deviceRequest.getOrganisationIdentification(), deviceRequest.getDeviceIdentification(),
@@ -86,6 +76,7 @@ public class Iec61850RtuDeviceService implements RtuDeviceService {
             deviceResponseHandler.handleResponse(deviceResponse);
         } catch (final ConnectionFailureException se) {
             LOGGER.error("Could not connect to device after all retries", se);
+            this.iec61850DeviceConnectionService.removeBrokenConnection(deviceConnection, se);
 
             final EmptyDeviceResponse deviceResponse = new EmptyDeviceResponse(
                     deviceRequest.getOrganisationIdentification(), deviceRequest.getDeviceIdentification(),
@@ -94,28 +85,27 @@ public class Iec61850RtuDeviceService implements RtuDeviceService {
             deviceResponseHandler.handleConnectionFailure(se, deviceResponse);
         } catch (final Exception e) {
             LOGGER.error("Unexpected exception during Get Data", e);
+            this.iec61850DeviceConnectionService.removeBrokenConnection(deviceConnection, e);
 
             final EmptyDeviceResponse deviceResponse = new EmptyDeviceResponse(
                     deviceRequest.getOrganisationIdentification(), deviceRequest.getDeviceIdentification(),
                     deviceRequest.getCorrelationUid(), DeviceMessageStatus.FAILURE);
 
             deviceResponseHandler.handleException(e, deviceResponse);
+        } finally {
+            this.iec61850DeviceConnectionService.releaseConnection(deviceConnection);
         }
     }
 
     @Override
     public void setData(final SetDataDeviceRequest deviceRequest, final DeviceResponseHandler deviceResponseHandler)
             throws JMSException {
+        DeviceConnection deviceConnection = null;
         try {
             final String serverName = this.getServerName(deviceRequest);
-            final ServerModel serverModel = this.connectAndRetrieveServerModel(deviceRequest, serverName);
-            final ClientAssociation clientAssociation = this.iec61850DeviceConnectionService
-                    .getClientAssociation(deviceRequest.getDeviceIdentification());
+            deviceConnection = this.connectToDevice(deviceRequest, serverName);
 
-            this.handleSetData(new DeviceConnection(
-                    new Iec61850Connection(new Iec61850ClientAssociation(clientAssociation, null), serverModel),
-                    deviceRequest.getDeviceIdentification(), deviceRequest.getOrganisationIdentification(), serverName),
-                    deviceRequest);
+            this.handleSetData(deviceConnection, deviceRequest);
 
             final EmptyDeviceResponse deviceResponse = new EmptyDeviceResponse(
                     deviceRequest.getOrganisationIdentification(), deviceRequest.getDeviceIdentification(),
@@ -124,6 +114,7 @@ public class Iec61850RtuDeviceService implements RtuDeviceService {
             deviceResponseHandler.handleResponse(deviceResponse);
         } catch (final ConnectionFailureException se) {
             LOGGER.error("Could not connect to device after all retries", se);
+            this.iec61850DeviceConnectionService.removeBrokenConnection(deviceConnection, se);
 
             final EmptyDeviceResponse deviceResponse = new EmptyDeviceResponse(
                     deviceRequest.getOrganisationIdentification(), deviceRequest.getDeviceIdentification(),
@@ -132,12 +123,15 @@ public class Iec61850RtuDeviceService implements RtuDeviceService {
             deviceResponseHandler.handleConnectionFailure(se, deviceResponse);
         } catch (final Exception e) {
             LOGGER.error("Unexpected exception during Set Data", e);
+            this.iec61850DeviceConnectionService.removeBrokenConnection(deviceConnection, e);
 
             final EmptyDeviceResponse deviceResponse = new EmptyDeviceResponse(
                     deviceRequest.getOrganisationIdentification(), deviceRequest.getDeviceIdentification(),
                     deviceRequest.getCorrelationUid(), DeviceMessageStatus.FAILURE);
 
             deviceResponseHandler.handleException(e, deviceResponse);
+        } finally {
+            this.iec61850DeviceConnectionService.releaseConnection(deviceConnection);
         }
     }
 
@@ -145,13 +139,11 @@ public class Iec61850RtuDeviceService implements RtuDeviceService {
     // PRIVATE DEVICE COMMUNICATION METHODS =
     // ======================================
 
-    private ServerModel connectAndRetrieveServerModel(final DeviceRequest deviceRequest, final String serverName)
+    private DeviceConnection connectToDevice(final DeviceRequest deviceRequest, final String serverName)
             throws ProtocolAdapterException {
 
-        this.iec61850DeviceConnectionService.connect(deviceRequest.getIpAddress(),
-                deviceRequest.getDeviceIdentification(), deviceRequest.getOrganisationIdentification(), IED.ZOWN_RTU,
-                serverName, LogicalDevice.RTU.getDescription() + 1);
-        return this.iec61850DeviceConnectionService.getServerModel(deviceRequest.getDeviceIdentification());
+        return this.iec61850DeviceConnectionService.connect(deviceRequest, IED.ZOWN_RTU, serverName,
+                LogicalDevice.RTU.getDescription() + 1);
     }
 
     // ========================
@@ -181,7 +173,8 @@ public class Iec61850RtuDeviceService implements RtuDeviceService {
             }
         };
 
-        return this.iec61850Client.sendCommandWithRetry(function, deviceRequest.getDeviceIdentification());
+        return this.iec61850Client.sendCommandWithRetry(function, IED.ZOWN_RTU, deviceRequest.getMessageType(),
+                deviceRequest.getDeviceIdentification());
     }
 
     private void handleSetData(final DeviceConnection connection, final SetDataDeviceRequest deviceRequest)
@@ -205,12 +198,13 @@ public class Iec61850RtuDeviceService implements RtuDeviceService {
             }
         };
 
-        this.iec61850Client.sendCommandWithRetry(function, deviceRequest.getDeviceIdentification());
+        this.iec61850Client.sendCommandWithRetry(function, IED.ZOWN_RTU, deviceRequest.getMessageType(),
+                deviceRequest.getDeviceIdentification());
     }
 
     private String getServerName(final DeviceRequest deviceRequest) {
-        final Iec61850Device iec61850Device = this.iec61850DeviceRepository
-                .findByDeviceIdentification(deviceRequest.getDeviceIdentification());
+        final Iec61850Device iec61850Device = this.iec61850DeviceCache
+                .getDevice(deviceRequest.getDeviceIdentification());
         if (iec61850Device != null && iec61850Device.getServerName() != null) {
             return iec61850Device.getServerName();
         } else {
@@ -0,0 +1,157 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openmuc.openiec61850.ClientAssociation;
+import org.openmuc.openiec61850.ServerModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ProtocolAdapterException;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850Client;
+
+/**
+ * Keeps parsed {@link ServerModel} templates for SCL / ICD files, so the same
+ * file is not parsed again for every connection to a device.
+ * <p>
+ * Templates are keyed by file path and are replaced when the last modified
+ * time of the file changes. Every connection gets its own deep copy of the
+ * template, because the values of a {@link ServerModel} are updated by the
+ * {@link ClientAssociation} it belongs to. The number of templates is bounded,
+ * the least recently used template is evicted first.
+ */
+@Component
+@ManagedResource(description = "Cache of ServerModel templates read from SCL / ICD files")
+public class Iec61850ServerModelCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Iec61850ServerModelCache.class);
+
+    @Autowired
+    private Iec61850Client iec61850Client;
+
+    @Autowired
+    private int serverModelCacheMaxSize;
+
+    private final Map<String, ServerModelTemplate> templates = new LinkedHashMap<String, ServerModelTemplate>(16,
+            0.75f, true) {
+        private static final long serialVersionUID = -5402432128539524342L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, ServerModelTemplate> eldest) {
+            final boolean evict = this.size() > Iec61850ServerModelCache.this.serverModelCacheMaxSize;
+            if (evict) {
+                LOGGER.info("Evicting ServerModel template for SCL / ICD file: {}", eldest.getKey());
+            }
+            return evict;
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Returns a {@link ServerModel} for the given SCL / ICD file, and makes it
+     * the model used by the given {@link ClientAssociation}.
+     *
+     * @param clientAssociation
+     *            The {@link ClientAssociation} the model is used for.
+     * @param filePath
+     *            The path of the SCL / ICD file.
+     *
+     * @return A {@link ServerModel} that is not shared with any other
+     *         {@link ClientAssociation}.
+     *
+     * @throws ProtocolAdapterException
+     *             In case the SCL / ICD file could not be parsed.
+     */
+    public ServerModel getServerModel(final ClientAssociation clientAssociation, final String filePath)
+            throws ProtocolAdapterException {
+
+        final long lastModified = new File(filePath).lastModified();
+
+        final ServerModelTemplate template;
+        synchronized (this.templates) {
+            template = this.templates.get(filePath);
+        }
+
+        if (template != null && template.getLastModified() == lastModified) {
+            this.hits.incrementAndGet();
+            LOGGER.debug("Using cached ServerModel template for SCL / ICD file: {}", filePath);
+            final ServerModel serverModel = template.getServerModel().copy();
+            clientAssociation.setServerModel(serverModel);
+            return serverModel;
+        }
+
+        this.misses.incrementAndGet();
+        final ServerModel serverModel = this.iec61850Client.readServerModelFromSclFile(clientAssociation, filePath);
+        synchronized (this.templates) {
+            this.templates.put(filePath, new ServerModelTemplate(lastModified, serverModel.copy()));
+        }
+        return serverModel;
+    }
+
+    @ManagedOperation(description = "Removes all ServerModel templates")
+    public void clear() {
+        synchronized (this.templates) {
+            this.templates.clear();
+        }
+    }
+
+    @ManagedAttribute(description = "Number of cached ServerModel templates")
+    public int getSize() {
+        synchronized (this.templates) {
+            return this.templates.size();
+        }
+    }
+
+    @ManagedAttribute(description = "Number of ServerModels copied from a cached template")
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    @ManagedAttribute(description = "Number of ServerModels parsed from an SCL / ICD file")
+    public long getMissCount() {
+        return this.misses.get();
+    }
+
+    @ManagedAttribute(description = "Ratio of ServerModels copied from a cached template")
+    public double getHitRatio() {
+        final long hitCount = this.hits.get();
+        final long total = hitCount + this.misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private static final class ServerModelTemplate {
+
+        private final long lastModified;
+        private final ServerModel serverModel;
+
+        ServerModelTemplate(final long lastModified, final ServerModel serverModel) {
+            this.lastModified = lastModified;
+            this.serverModel = serverModel;
+        }
+
+        long getLastModified() {
+            return this.lastModified;
+        }
+
+        ServerModel getServerModel() {
+            return this.serverModel;
+        }
+    }
+}
@@ -9,8 +9,6 @@ package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 
 import javax.jms.JMSException;
 
@@ -52,6 +50,7 @@ import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.co
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.commands.Iec61850GetStatusCommand;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.commands.Iec61850PowerUsageHistoryCommand;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.commands.Iec61850RebootCommand;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.commands.Iec61850SchedulePlan;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.commands.Iec61850SetConfigurationCommand;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.commands.Iec61850SetEventNotificationFilterCommand;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.commands.Iec61850SetLightCommand;
@@ -98,6 +97,9 @@ public class Iec61850SsldDeviceService implements SsldDeviceService {
     @Autowired
     private int disconnectDelay;
 
+    @Autowired
+    private Iec61850DisconnectScheduler iec61850DisconnectScheduler;
+
     @Override
     public void getStatus(final DeviceRequest deviceRequest, final DeviceResponseHandler deviceResponseHandler)
             throws JMSException {
@@ -119,11 +121,12 @@ public class Iec61850SsldDeviceService implements SsldDeviceService {
 
             this.enableReporting(deviceConnection, deviceRequest);
         } catch (final ConnectionFailureException se) {
+            // Disconnect first, handling the failure may throw a JMSException.
+            this.disconnect(devCon, deviceRequest);
             this.handleConnectionFailureException(deviceRequest, deviceResponseHandler, se);
-            this.iec61850DeviceConnectionService.disconnect(devCon, deviceRequest);
         } catch (final Exception e) {
+            this.releaseConnection(devCon, deviceRequest);
             this.handleException(deviceRequest, deviceResponseHandler, e);
-            this.iec61850DeviceConnectionService.disconnect(devCon, deviceRequest);
         }
     }
 
@@ -152,8 +155,9 @@ public class Iec61850SsldDeviceService implements SsldDeviceService {
             this.handleConnectionFailureException(deviceRequest, deviceResponseHandler, se);
         } catch (final Exception e) {
             this.handleException(deviceRequest, deviceResponseHandler, e);
+        } finally {
+            this.releaseConnection(deviceConnection, deviceRequest);
         }
-        this.iec61850DeviceConnectionService.disconnect(deviceConnection, deviceRequest);
     }
 
     @Override
@@ -194,8 +198,9 @@ public class Iec61850SsldDeviceService implements SsldDeviceService {
             this.handleConnectionFailureException(deviceRequest, deviceResponseHandler, se);
         } catch (final Exception e) {
             this.handleException(deviceRequest, deviceResponseHandler, e);
+        } finally {
+            this.releaseConnection(deviceConnection, deviceRequest);
         }
-        this.iec61850DeviceConnectionService.disconnect(deviceConnection, deviceRequest);
     }
 
     private LightValueDto checkForIndex0(final List<LightValueDto> lightValues) {
@@ -269,13 +274,17 @@ public class Iec61850SsldDeviceService implements SsldDeviceService {
             new Iec61850SetConfigurationCommand().setConfigurationOnDevice(this.iec61850Client, deviceConnection,
                     configuration);
 
+            // The relay configuration may have changed.
+            this.ssldDataService.invalidate(deviceRequest.getDeviceIdentification());
+
             this.createSuccessfulDefaultResponse(deviceRequest, deviceResponseHandler);
         } catch (final ConnectionFailureException se) {
             this.handleConnectionFailureException(deviceRequest, deviceResponseHandler, se);
         } catch (final Exception e) {
             this.handleException(deviceRequest, deviceResponseHandler, e);
+        } finally {
+            this.releaseConnection(deviceConnection, deviceRequest);
         }
-        this.iec61850DeviceConnectionService.disconnect(deviceConnection, deviceRequest);
     }
 
     @Override
@@ -300,8 +309,9 @@ public class Iec61850SsldDeviceService implements SsldDeviceService {
             this.handleConnectionFailureException(deviceRequest, deviceResponseHandler, se);
         } catch (final Exception e) {
             this.handleException(deviceRequest, deviceResponseHandler, e);
+        } finally {
+            this.releaseConnection(deviceConnection, deviceRequest);
         }
-        this.iec61850DeviceConnectionService.disconnect(deviceConnection, deviceRequest);
     }
 
     @Override
@@ -318,8 +328,9 @@ public class Iec61850SsldDeviceService implements SsldDeviceService {
             this.handleConnectionFailureException(deviceRequest, deviceResponseHandler, se);
         } catch (final Exception e) {
             this.handleException(deviceRequest, deviceResponseHandler, e);
+        } finally {
+            this.releaseConnection(deviceConnection, deviceRequest);
         }
-        this.iec61850DeviceConnectionService.disconnect(deviceConnection, deviceRequest);
     }
 
     @Override
@@ -381,8 +392,9 @@ public class Iec61850SsldDeviceService implements SsldDeviceService {
             final TechnicalException te = new TechnicalException(ComponentType.PROTOCOL_IEC61850,
                     "Selftest failure - " + e.getMessage());
             this.handleException(deviceRequest, deviceResponseHandler, te);
+        } finally {
+            this.releaseConnection(deviceConnection, deviceRequest);
         }
-        this.iec61850DeviceConnectionService.disconnect(deviceConnection, deviceRequest);
     }
 
     private void selfTestSleep() throws TechnicalException {
@@ -417,8 +429,33 @@ public class Iec61850SsldDeviceService implements SsldDeviceService {
             this.handleProtocolAdapterException(deviceRequest, deviceResponseHandler, e);
         } catch (final Exception e) {
             this.handleException(deviceRequest, deviceResponseHandler, e);
+        } finally {
+            this.releaseConnection(deviceConnection, deviceRequest);
+        }
+    }
+
+    /**
+     * Sets the schedule of a device from a plan created for all devices with
+     * the same output settings, see {@link Iec61850BulkOperationService}.
+     */
+    public void setSchedule(final SetScheduleDeviceRequest deviceRequest, final Iec61850SchedulePlan schedulePlan,
+            final DeviceResponseHandler deviceResponseHandler) throws JMSException {
+        DeviceConnection deviceConnection = null;
+        try {
+            deviceConnection = this.connectToDevice(deviceRequest);
+
+            new Iec61850SetScheduleCommand().setScheduleOnDevice(this.iec61850Client, deviceConnection, schedulePlan);
+
+            this.createSuccessfulDefaultResponse(deviceRequest, deviceResponseHandler);
+        } catch (final ConnectionFailureException se) {
+            this.handleConnectionFailureException(deviceRequest, deviceResponseHandler, se);
+        } catch (final ProtocolAdapterException e) {
+            this.handleProtocolAdapterException(deviceRequest, deviceResponseHandler, e);
+        } catch (final Exception e) {
+            this.handleException(deviceRequest, deviceResponseHandler, e);
+        } finally {
+            this.releaseConnection(deviceConnection, deviceRequest);
         }
-        this.iec61850DeviceConnectionService.disconnect(deviceConnection, deviceRequest);
     }
 
     @Override
@@ -440,8 +477,9 @@ public class Iec61850SsldDeviceService implements SsldDeviceService {
             this.handleConnectionFailureException(deviceRequest, deviceResponseHandler, se);
         } catch (final Exception e) {
             this.handleException(deviceRequest, deviceResponseHandler, e);
+        } finally {
+            this.releaseConnection(deviceConnection, deviceRequest);
         }
-        this.iec61850DeviceConnectionService.disconnect(deviceConnection, deviceRequest);
     }
 
     @Override
@@ -459,11 +497,12 @@ public class Iec61850SsldDeviceService implements SsldDeviceService {
 
             this.enableReporting(deviceConnection, deviceRequest);
         } catch (final ConnectionFailureException se) {
+            // Disconnect first, handling the failure may throw a JMSException.
+            this.disconnect(devCon, deviceRequest);
             this.handleConnectionFailureException(deviceRequest, deviceResponseHandler, se);
-            this.iec61850DeviceConnectionService.disconnect(devCon, deviceRequest);
         } catch (final Exception e) {
+            this.releaseConnection(devCon, deviceRequest);
             this.handleException(deviceRequest, deviceResponseHandler, e);
-            this.iec61850DeviceConnectionService.disconnect(devCon, deviceRequest);
         }
     }
 
@@ -483,8 +522,9 @@ public class Iec61850SsldDeviceService implements SsldDeviceService {
             this.handleConnectionFailureException(deviceRequest, deviceResponseHandler, se);
         } catch (final Exception e) {
             this.handleException(deviceRequest, deviceResponseHandler, e);
+        } finally {
+            this.releaseConnection(deviceConnection, deviceRequest);
         }
-        this.iec61850DeviceConnectionService.disconnect(deviceConnection, deviceRequest);
     }
 
     @Override
@@ -502,8 +542,9 @@ public class Iec61850SsldDeviceService implements SsldDeviceService {
             this.handleConnectionFailureException(deviceRequest, deviceResponseHandler, se);
         } catch (final Exception e) {
             this.handleException(deviceRequest, deviceResponseHandler, e);
+        } finally {
+            this.releaseConnection(deviceConnection, deviceRequest);
         }
-        this.iec61850DeviceConnectionService.disconnect(deviceConnection, deviceRequest);
     }
 
     @Override
@@ -525,8 +566,9 @@ public class Iec61850SsldDeviceService implements SsldDeviceService {
             this.handleConnectionFailureException(deviceRequest, deviceResponseHandler, se);
         } catch (final Exception e) {
             this.handleException(deviceRequest, deviceResponseHandler, e);
+        } finally {
+            this.releaseConnection(deviceConnection, deviceRequest);
         }
-        this.iec61850DeviceConnectionService.disconnect(deviceConnection, deviceRequest);
     }
 
     // ======================================
@@ -534,11 +576,47 @@ public class Iec61850SsldDeviceService implements SsldDeviceService {
     // ======================================
 
     private DeviceConnection connectToDevice(final DeviceRequest deviceRequest) throws ConnectionFailureException {
-        return this.iec61850DeviceConnectionService.connectWithoutConnectionCaching(deviceRequest.getIpAddress(),
-                deviceRequest.getDeviceIdentification(), deviceRequest.getOrganisationIdentification(), IED.FLEX_OVL,
+        // Reuse the connection kept open for reporting, if any.
+        final DeviceConnection pendingConnection = this.iec61850DisconnectScheduler
+                .cancel(deviceRequest.getDeviceIdentification());
+        if (pendingConnection != null) {
+            if (pendingConnection.getConnection().getIec61850ClientAssociation().isOpen()) {
+                LOGGER.info("Reusing connection kept open for reporting for device: {}",
+                        deviceRequest.getDeviceIdentification());
+                return new DeviceConnection(pendingConnection.getConnection(),
+                        deviceRequest.getDeviceIdentification(), deviceRequest.getOrganisationIdentification(),
+                        IED.FLEX_OVL.getDescription());
+            }
+            LOGGER.info("Connection kept open for reporting for device: {} is closed, connecting again",
+                    deviceRequest.getDeviceIdentification());
+            this.disconnect(pendingConnection, deviceRequest);
+        }
+        return this.iec61850DeviceConnectionService.connectWithoutConnectionCaching(deviceRequest, IED.FLEX_OVL,
                 IED.FLEX_OVL.getDescription(), LogicalDevice.LIGHTING.getDescription());
     }
 
+    /**
+     * Hands a connection that was kept open for reporting back to the
+     * disconnect scheduler, so the device is still able to send reports.
+     * Other connections are disconnected.
+     */
+    private void releaseConnection(final DeviceConnection deviceConnection, final DeviceRequest deviceRequest) {
+        if (!this.iec61850DisconnectScheduler.handBack(deviceConnection, this.disconnectDelay)) {
+            this.iec61850DeviceConnectionService.disconnect(deviceConnection, deviceRequest);
+        }
+    }
+
+    /**
+     * Disconnects, also when the connection was kept open for reporting, for
+     * instance after a connection failure.
+     */
+    private void disconnect(final DeviceConnection deviceConnection, final DeviceRequest deviceRequest) {
+        if (deviceConnection != null) {
+            this.iec61850DisconnectScheduler.discard(deviceConnection);
+        }
+        this.iec61850DeviceConnectionService.disconnect(deviceConnection, deviceRequest);
+    }
+
     // ========================
     // PRIVATE HELPER METHODS =
     // ========================
@@ -617,17 +695,13 @@ public class Iec61850SsldDeviceService implements SsldDeviceService {
         new Iec61850EnableReportingCommand().enableReportingOnDeviceWithoutUsingSequenceNumber(this.iec61850Client,
                 deviceConnection);
         // Don't disconnect now! The device should be able to send reports.
-        new Timer().schedule(new TimerTask() {
-            @Override
-            public void run() {
-                try {
-                    new Iec61850ClearReportCommand().clearReportOnDevice(deviceConnection);
-                } catch (final ProtocolAdapterException e) {
-                    LOGGER.error("Unable to clear report for device: " + deviceRequest.getDeviceIdentification(), e);
-                }
-                Iec61850SsldDeviceService.this.iec61850DeviceConnectionService.disconnect(deviceConnection,
-                        deviceRequest);
+        this.iec61850DisconnectScheduler.schedule(deviceConnection, () -> {
+            try {
+                new Iec61850ClearReportCommand().clearReportOnDevice(deviceConnection);
+            } catch (final ProtocolAdapterException e) {
+                LOGGER.error("Unable to clear report for device: " + deviceRequest.getDeviceIdentification(), e);
             }
+            Iec61850SsldDeviceService.this.iec61850DeviceConnectionService.disconnect(deviceConnection, deviceRequest);
         }, this.disconnectDelay);
     }
 }
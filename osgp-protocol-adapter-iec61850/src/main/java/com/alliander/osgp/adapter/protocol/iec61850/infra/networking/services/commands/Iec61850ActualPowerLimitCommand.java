@@ -13,6 +13,7 @@ import org.openmuc.openiec61850.Fc;
 
 import com.alliander.osgp.adapter.protocol.iec61850.device.rtu.RtuReadCommand;
 import com.alliander.osgp.adapter.protocol.iec61850.exceptions.NodeException;
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.NodeNotFoundException;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850Client;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.DataAttribute;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.DeviceConnection;
@@ -28,12 +29,18 @@ public class Iec61850ActualPowerLimitCommand implements RtuReadCommand<Measureme
     @Override
     public MeasurementDto execute(final Iec61850Client client, final DeviceConnection connection,
             final LogicalDevice logicalDevice, final int logicalDeviceIndex) throws NodeException {
-        final NodeContainer containingNode = connection.getFcModelNode(logicalDevice, logicalDeviceIndex,
-                LogicalNode.DER_SUPERVISORY_CONTROL_ONE, DataAttribute.ACTUAL_POWER_LIMIT, Fc.SV);
+        final NodeContainer containingNode = this.getContainingNode(connection, logicalDevice, logicalDeviceIndex);
         client.readNodeDataValues(connection.getConnection().getClientAssociation(), containingNode.getFcmodelNode());
         return this.translate(containingNode);
     }
 
+    @Override
+    public NodeContainer getContainingNode(final DeviceConnection connection, final LogicalDevice logicalDevice,
+            final int logicalDeviceIndex) throws NodeNotFoundException {
+        return connection.getFcModelNode(logicalDevice, logicalDeviceIndex,
+                LogicalNode.DER_SUPERVISORY_CONTROL_ONE, DataAttribute.ACTUAL_POWER_LIMIT, Fc.SV);
+    }
+
     @Override
     public MeasurementDto translate(final NodeContainer containingNode) {
         return new MeasurementDto(1, DataAttribute.ACTUAL_POWER_LIMIT.getDescription(),
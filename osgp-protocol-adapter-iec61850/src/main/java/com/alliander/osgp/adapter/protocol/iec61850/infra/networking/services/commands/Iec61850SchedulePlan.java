@@ -0,0 +1,75 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.commands;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.alliander.osgp.adapter.protocol.iec61850.domain.valueobjects.ScheduleEntry;
+
+/**
+ * The schedule entries to write to the relays of an SSLD, as created by
+ * {@link Iec61850SetScheduleCommand#createSchedulePlan}. A plan is immutable,
+ * so it can be written to any number of devices with the same output settings.
+ */
+public final class Iec61850SchedulePlan {
+
+    private final String tariffOrLight;
+    private final Map<Integer, List<ScheduleEntry>> relaySchedulesEntries;
+    private final Set<Integer> relaysToDisable;
+    private final Set<Integer> relayIndexes;
+
+    Iec61850SchedulePlan(final String tariffOrLight, final Map<Integer, List<ScheduleEntry>> relaySchedulesEntries,
+            final Set<Integer> relaysToDisable) {
+        this.tariffOrLight = tariffOrLight;
+        final Map<Integer, List<ScheduleEntry>> entries = new HashMap<>();
+        for (final Map.Entry<Integer, List<ScheduleEntry>> relayScheduleEntries : relaySchedulesEntries.entrySet()) {
+            entries.put(relayScheduleEntries.getKey(),
+                    Collections.unmodifiableList(new ArrayList<>(relayScheduleEntries.getValue())));
+        }
+        this.relaySchedulesEntries = Collections.unmodifiableMap(entries);
+        this.relaysToDisable = Collections.unmodifiableSet(new HashSet<>(relaysToDisable));
+        final Set<Integer> indexes = new TreeSet<>(relaysToDisable);
+        indexes.addAll(relaySchedulesEntries.keySet());
+        this.relayIndexes = Collections.unmodifiableSet(indexes);
+    }
+
+    String getTariffOrLight() {
+        return this.tariffOrLight;
+    }
+
+    /**
+     * @return The indexes of all relays of which the schedule is written, in
+     *         ascending order.
+     */
+    public Set<Integer> getRelayIndexes() {
+        return this.relayIndexes;
+    }
+
+    /**
+     * @return The schedule entries for the relay, empty if none are set.
+     */
+    public List<ScheduleEntry> getScheduleEntries(final int relayIndex) {
+        final List<ScheduleEntry> scheduleEntries = this.relaySchedulesEntries.get(relayIndex);
+        return scheduleEntries == null ? Collections.<ScheduleEntry> emptyList() : scheduleEntries;
+    }
+
+    /**
+     * @return true if the schedule entries of the relay that are not set are
+     *         disabled.
+     */
+    public boolean isDisabledWhenNotSet(final int relayIndex) {
+        return this.relaysToDisable.contains(relayIndex);
+    }
+}
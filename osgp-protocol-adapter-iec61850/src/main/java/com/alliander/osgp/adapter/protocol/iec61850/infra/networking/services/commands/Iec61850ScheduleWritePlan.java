@@ -0,0 +1,236 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.openmuc.openiec61850.BdaBoolean;
+import org.openmuc.openiec61850.BdaInt16U;
+import org.openmuc.openiec61850.BdaInt32;
+import org.openmuc.openiec61850.BdaInt8;
+import org.openmuc.openiec61850.Fc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alliander.osgp.adapter.protocol.iec61850.domain.valueobjects.DeviceMessageLog;
+import com.alliander.osgp.adapter.protocol.iec61850.domain.valueobjects.ScheduleEntry;
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.NodeWriteException;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.ConnectionState;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.DataAttribute;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.LogicalNode;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.NodeContainer;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.SubDataAttribute;
+
+/**
+ * The writes needed to bring the schedule of one relay from the values read
+ * from the device to the desired schedule entries.
+ * <p>
+ * Only the schedule entries of which a value differs from the value read from
+ * the device are written, each with one write of the complete schedule entry.
+ * If the device does not accept a write of a complete schedule entry, the
+ * changed values are written one by one.
+ */
+public class Iec61850ScheduleWritePlan {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Iec61850ScheduleWritePlan.class);
+
+    // The value used to indicate that the time on or time off of a schedule
+    // entry is unused.
+    private static final int DEFAULT_SCHEDULE_VALUE = -1;
+
+    private final LogicalNode logicalNode;
+    private final NodeContainer schedule;
+
+    /**
+     * Desired schedule entries by entry number, null for entries that are to
+     * be disabled.
+     */
+    private final Map<Integer, ScheduleEntry> entries = new TreeMap<>();
+
+    private boolean writeValuesOneByOne;
+
+    /**
+     * @param logicalNode
+     *            The logical node of the relay.
+     * @param schedule
+     *            The schedule of the relay, with the values read from the
+     *            device.
+     */
+    public Iec61850ScheduleWritePlan(final LogicalNode logicalNode, final NodeContainer schedule) {
+        this.logicalNode = logicalNode;
+        this.schedule = schedule;
+    }
+
+    /**
+     * Sets the desired values of a schedule entry.
+     *
+     * @param entryNumber
+     *            The number of the schedule entry, starting at 1.
+     */
+    public void setEntry(final int entryNumber, final ScheduleEntry scheduleEntry) {
+        this.entries.put(entryNumber, scheduleEntry);
+    }
+
+    /**
+     * Disables a schedule entry, leaving its other values as they are.
+     *
+     * @param entryNumber
+     *            The number of the schedule entry, starting at 1.
+     */
+    public void disableEntry(final int entryNumber) {
+        this.entries.put(entryNumber, null);
+    }
+
+    /**
+     * Writes the schedule entries with changed values to the device, and adds
+     * the changed values to the device message log.
+     *
+     * @return The number of schedule entries written.
+     */
+    public int write(final DeviceMessageLog deviceMessageLog) throws NodeWriteException {
+        int written = 0;
+        for (final Map.Entry<Integer, ScheduleEntry> entry : this.entries.entrySet()) {
+            final String scheduleEntryName = SubDataAttribute.SCHEDULE_ENTRY.getDescription() + entry.getKey();
+            final NodeContainer scheduleNode = this.schedule.getChild(scheduleEntryName);
+
+            final List<ChangedValue> changedValues = entry.getValue() == null ? this.disable(scheduleNode)
+                    : this.update(scheduleNode, entry.getValue());
+            if (changedValues.isEmpty()) {
+                continue;
+            }
+
+            this.write(scheduleEntryName, scheduleNode, changedValues);
+            written++;
+
+            for (final ChangedValue changedValue : changedValues) {
+                deviceMessageLog.addVariable(this.logicalNode, DataAttribute.SCHEDULE, Fc.CF, scheduleEntryName,
+                        changedValue.subDataAttribute, changedValue.value);
+            }
+        }
+        LOGGER.info("Wrote {} of {} schedule entries for {}", written, this.entries.size(),
+                this.logicalNode.getDescription());
+        return written;
+    }
+
+    private void write(final String scheduleEntryName, final NodeContainer scheduleNode,
+            final List<ChangedValue> changedValues) throws NodeWriteException {
+        if (!this.writeValuesOneByOne) {
+            try {
+                scheduleNode.write();
+                return;
+            } catch (final NodeWriteException e) {
+                if (e.getConnectionState() != ConnectionState.OK) {
+                    throw e;
+                }
+                LOGGER.warn("Unable to write schedule entry {} of {} at once, writing changed values one by one",
+                        scheduleEntryName, this.logicalNode.getDescription());
+                this.writeValuesOneByOne = true;
+            }
+        }
+        for (final ChangedValue changedValue : changedValues) {
+            scheduleNode.getChild(changedValue.subDataAttribute).write();
+        }
+    }
+
+    private List<ChangedValue> disable(final NodeContainer scheduleNode) {
+        final List<ChangedValue> changedValues = new ArrayList<>(1);
+        this.setBoolean(scheduleNode, SubDataAttribute.SCHEDULE_ENABLE, false, changedValues);
+        return changedValues;
+    }
+
+    private List<ChangedValue> update(final NodeContainer scheduleNode, final ScheduleEntry scheduleEntry) {
+        final List<ChangedValue> changedValues = new ArrayList<>();
+
+        this.setBoolean(scheduleNode, SubDataAttribute.SCHEDULE_ENABLE, scheduleEntry.isEnabled(), changedValues);
+        this.setInteger(scheduleNode, SubDataAttribute.SCHEDULE_DAY, scheduleEntry.getDay(), changedValues);
+
+        /*
+         * A schedule entry on the platform is about switching on a certain
+         * time, or on a certain trigger. The schedule entries on the device are
+         * about a period with a time on and a time off. To bridge these
+         * different approaches, either the on or the off values on the device
+         * are set to a certain default to indicate they are not relevant to the
+         * schedule entry.
+         */
+        int timeOnValue = DEFAULT_SCHEDULE_VALUE;
+        byte timeOnTypeValue = DEFAULT_SCHEDULE_VALUE;
+        int timeOffValue = DEFAULT_SCHEDULE_VALUE;
+        byte timeOffTypeValue = DEFAULT_SCHEDULE_VALUE;
+
+        if (scheduleEntry.isOn()) {
+            timeOnValue = scheduleEntry.getTime();
+            timeOnTypeValue = (byte) scheduleEntry.getTriggerType().getIndex();
+        } else {
+            timeOffValue = scheduleEntry.getTime();
+            timeOffTypeValue = (byte) scheduleEntry.getTriggerType().getIndex();
+        }
+
+        this.setInteger(scheduleNode, SubDataAttribute.SCHEDULE_TIME_ON, timeOnValue, changedValues);
+        this.setByte(scheduleNode, SubDataAttribute.SCHEDULE_TIME_ON_TYPE, timeOnTypeValue, changedValues);
+        this.setInteger(scheduleNode, SubDataAttribute.SCHEDULE_TIME_OFF, timeOffValue, changedValues);
+        this.setByte(scheduleNode, SubDataAttribute.SCHEDULE_TIME_OFF_TYPE, timeOffTypeValue, changedValues);
+        this.setUnsignedShort(scheduleNode, SubDataAttribute.MINIMUM_TIME_ON, scheduleEntry.getMinimumLightsOn() / 60,
+                changedValues);
+        this.setUnsignedShort(scheduleNode, SubDataAttribute.SCHEDULE_TRIGGER_MINUTES_BEFORE,
+                scheduleEntry.getTriggerWindowMinutesBefore(), changedValues);
+        this.setUnsignedShort(scheduleNode, SubDataAttribute.SCHEDULE_TRIGGER_MINUTES_AFTER,
+                scheduleEntry.getTriggerWindowMinutesAfter(), changedValues);
+
+        return changedValues;
+    }
+
+    private void setBoolean(final NodeContainer scheduleNode, final SubDataAttribute subDataAttribute,
+            final boolean value, final List<ChangedValue> changedValues) {
+        final BdaBoolean node = scheduleNode.getBoolean(subDataAttribute);
+        if (node.getValue() != value) {
+            node.setValue(value);
+            changedValues.add(new ChangedValue(subDataAttribute, Boolean.toString(value)));
+        }
+    }
+
+    private void setByte(final NodeContainer scheduleNode, final SubDataAttribute subDataAttribute, final byte value,
+            final List<ChangedValue> changedValues) {
+        final BdaInt8 node = scheduleNode.getByte(subDataAttribute);
+        if (node.getValue() != value) {
+            node.setValue(value);
+            changedValues.add(new ChangedValue(subDataAttribute, Byte.toString(value)));
+        }
+    }
+
+    private void setInteger(final NodeContainer scheduleNode, final SubDataAttribute subDataAttribute,
+            final int value, final List<ChangedValue> changedValues) {
+        final BdaInt32 node = scheduleNode.getInteger(subDataAttribute);
+        if (node.getValue() != value) {
+            node.setValue(value);
+            changedValues.add(new ChangedValue(subDataAttribute, Integer.toString(value)));
+        }
+    }
+
+    private void setUnsignedShort(final NodeContainer scheduleNode, final SubDataAttribute subDataAttribute,
+            final int value, final List<ChangedValue> changedValues) {
+        final BdaInt16U node = scheduleNode.getUnsignedShort(subDataAttribute);
+        if (node.getValue() != value) {
+            node.setValue(value);
+            changedValues.add(new ChangedValue(subDataAttribute, Integer.toString(value)));
+        }
+    }
+
+    private static final class ChangedValue {
+
+        private final SubDataAttribute subDataAttribute;
+        private final String value;
+
+        ChangedValue(final SubDataAttribute subDataAttribute, final String value) {
+            this.subDataAttribute = subDataAttribute;
+            this.value = value;
+        }
+    }
+}
@@ -9,12 +9,14 @@ package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.c
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.joda.time.DateTime;
-import org.openmuc.openiec61850.BdaBoolean;
 import org.openmuc.openiec61850.Fc;
+import org.openmuc.openiec61850.FcModelNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,7 +33,6 @@ import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.Func
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.LogicalDevice;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.LogicalNode;
 import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.NodeContainer;
-import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.SubDataAttribute;
 import com.alliander.osgp.adapter.protocol.iec61850.services.DeviceMessageLoggingService;
 import com.alliander.osgp.core.db.api.iec61850.application.services.SsldDataService;
 import com.alliander.osgp.core.db.api.iec61850.entities.DeviceOutputSetting;
@@ -51,15 +52,24 @@ public class Iec61850SetScheduleCommand {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Iec61850SetScheduleCommand.class);
 
-    // The value used to indicate that the time on or time off of a schedule
-    // entry is unused.
-    private static final int DEFAULT_SCHEDULE_VALUE = -1;
     // The number of schedule entries available for a relay.
     private static final int MAX_NUMBER_OF_SCHEDULE_ENTRIES = 64;
 
     public void setScheduleOnDevice(final Iec61850Client iec61850Client, final DeviceConnection deviceConnection,
             final RelayTypeDto relayType, final List<ScheduleDto> scheduleList, final Ssld ssld,
             final SsldDataService ssldDataService) throws ProtocolAdapterException {
+        this.setScheduleOnDevice(iec61850Client, deviceConnection,
+                this.createSchedulePlan(relayType, scheduleList, ssld, ssldDataService));
+    }
+
+    /**
+     * Translates the given schedules into the schedule entries to write to
+     * the relays of the given SSLD. The result only depends on the schedules
+     * and the output settings of the SSLD, so it can be used for all devices
+     * with the same output settings.
+     */
+    public Iec61850SchedulePlan createSchedulePlan(final RelayTypeDto relayType, final List<ScheduleDto> scheduleList,
+            final Ssld ssld, final SsldDataService ssldDataService) throws ProtocolAdapterException {
         final String tariffOrLight = relayType.equals(RelayTypeDto.LIGHT) ? "light" : "tariff";
 
         try {
@@ -67,166 +77,96 @@ public class Iec61850SetScheduleCommand {
             final Map<Integer, List<ScheduleEntry>> relaySchedulesEntries = this.createScheduleEntries(scheduleList,
                     ssld, relayType, ssldDataService);
 
-            final Function<Void> function = new Function<Void>() {
+            for (final Map.Entry<Integer, List<ScheduleEntry>> relayScheduleEntries : relaySchedulesEntries
+                    .entrySet()) {
+                final int numberOfScheduleEntries = relayScheduleEntries.getValue().size();
+                if (numberOfScheduleEntries > MAX_NUMBER_OF_SCHEDULE_ENTRIES) {
+                    throw new ProtocolAdapterException("Received " + numberOfScheduleEntries + " " + tariffOrLight
+                            + " schedule entries for relay " + relayScheduleEntries.getKey() + " for device "
+                            + ssld.getDeviceIdentification() + ". Setting more than "
+                            + MAX_NUMBER_OF_SCHEDULE_ENTRIES + " is not possible.");
+                }
+            }
 
-                @Override
-                public Void apply(final DeviceMessageLog deviceMessageLog) throws Exception {
+            // The schedule entries of all relays of the given relay type that
+            // are not set are disabled.
+            final Set<Integer> relaysToDisable = new HashSet<>();
+            for (final DeviceOutputSetting deviceOutputSetting : ssldDataService.findByRelayType(ssld,
+                    RelayType.valueOf(relayType.name()))) {
+                relaysToDisable.add(deviceOutputSetting.getInternalId());
+            }
 
-                    Iec61850SetScheduleCommand.this.disableScheduleEntries(relayType, deviceConnection, iec61850Client,
-                            deviceMessageLog, ssld, ssldDataService);
+            return new Iec61850SchedulePlan(tariffOrLight, relaySchedulesEntries, relaysToDisable);
+        } catch (final FunctionalException e) {
+            throw new ProtocolAdapterException(e.getMessage(), e);
+        }
+    }
 
-                    for (final Integer relayIndex : relaySchedulesEntries.keySet()) {
-                        final List<ScheduleEntry> scheduleEntries = relaySchedulesEntries.get(relayIndex);
-                        final int numberOfScheduleEntries = scheduleEntries.size();
+    /**
+     * Writes the schedule entries of the given plan to the device.
+     */
+    public void setScheduleOnDevice(final Iec61850Client iec61850Client, final DeviceConnection deviceConnection,
+            final Iec61850SchedulePlan schedulePlan) throws ProtocolAdapterException {
 
-                        if (numberOfScheduleEntries > MAX_NUMBER_OF_SCHEDULE_ENTRIES) {
-                            throw new ProtocolAdapterException("Received " + numberOfScheduleEntries + " "
-                                    + tariffOrLight + " schedule entries for relay " + relayIndex + " for device "
-                                    + ssld.getDeviceIdentification() + ". Setting more than "
-                                    + MAX_NUMBER_OF_SCHEDULE_ENTRIES + " is not possible.");
-                        }
+        final Set<Integer> relayIndexes = schedulePlan.getRelayIndexes();
+
+        final Function<Void> function = new Function<Void>() {
+
+            @Override
+            public Void apply(final DeviceMessageLog deviceMessageLog) throws Exception {
+
+                final Map<Integer, NodeContainer> schedules = Iec61850SetScheduleCommand.this
+                        .readSchedules(iec61850Client, deviceConnection, relayIndexes);
+
+                for (final Integer relayIndex : relayIndexes) {
+                    final List<ScheduleEntry> scheduleEntries = schedulePlan.getScheduleEntries(relayIndex);
 
-                        final LogicalNode logicalNode = LogicalNode.getSwitchComponentByIndex(relayIndex);
-                        final NodeContainer schedule = deviceConnection.getFcModelNode(LogicalDevice.LIGHTING,
-                                logicalNode, DataAttribute.SCHEDULE, Fc.CF);
-                        iec61850Client.readNodeDataValues(deviceConnection.getConnection().getClientAssociation(),
-                                schedule.getFcmodelNode());
-
-                        for (int i = 0; i < numberOfScheduleEntries; i++) {
-
-                            LOGGER.info("Writing {} schedule entry {} for relay {}", tariffOrLight, i + 1, relayIndex);
-
-                            final ScheduleEntry scheduleEntry = scheduleEntries.get(i);
-
-                            final String scheduleEntryName = SubDataAttribute.SCHEDULE_ENTRY.getDescription() + (i + 1);
-                            final NodeContainer scheduleNode = schedule.getChild(scheduleEntryName);
-
-                            final BdaBoolean enabled = scheduleNode.getBoolean(SubDataAttribute.SCHEDULE_ENABLE);
-                            if (enabled.getValue() != scheduleEntry.isEnabled()) {
-                                scheduleNode.writeBoolean(SubDataAttribute.SCHEDULE_ENABLE, scheduleEntry.isEnabled());
-
-                                deviceMessageLog.addVariable(logicalNode, DataAttribute.SCHEDULE, Fc.CF,
-                                        scheduleEntryName, SubDataAttribute.SCHEDULE_ENABLE,
-                                        Boolean.toString(scheduleEntry.isEnabled()));
-                            }
-
-                            final Integer day = scheduleNode.getInteger(SubDataAttribute.SCHEDULE_DAY).getValue();
-                            if (day != scheduleEntry.getDay()) {
-                                scheduleNode.writeInteger(SubDataAttribute.SCHEDULE_DAY, scheduleEntry.getDay());
-
-                                deviceMessageLog.addVariable(logicalNode, DataAttribute.SCHEDULE, Fc.CF,
-                                        scheduleEntryName, SubDataAttribute.SCHEDULE_DAY,
-                                        Integer.toString(scheduleEntry.getDay()));
-                            }
-
-                            /*
-                             * A schedule entry on the platform is about
-                             * switching on a certain time, or on a certain
-                             * trigger. The schedule entries on the device are
-                             * about a period with a time on and a time off. To
-                             * bridge these different approaches, either the on
-                             * or the off values on the device are set to a
-                             * certain default to indicate they are not relevant
-                             * to the schedule entry.
-                             */
-                            int timeOnValue = DEFAULT_SCHEDULE_VALUE;
-                            byte timeOnTypeValue = DEFAULT_SCHEDULE_VALUE;
-                            int timeOffValue = DEFAULT_SCHEDULE_VALUE;
-                            byte timeOffTypeValue = DEFAULT_SCHEDULE_VALUE;
-
-                            if (scheduleEntry.isOn()) {
-                                timeOnValue = scheduleEntry.getTime();
-                                timeOnTypeValue = (byte) scheduleEntry.getTriggerType().getIndex();
-                            } else {
-                                timeOffValue = scheduleEntry.getTime();
-                                timeOffTypeValue = (byte) scheduleEntry.getTriggerType().getIndex();
-                            }
-
-                            final Integer timeOn = scheduleNode.getInteger(SubDataAttribute.SCHEDULE_TIME_ON)
-                                    .getValue();
-                            if (timeOn != timeOnValue) {
-                                scheduleNode.writeInteger(SubDataAttribute.SCHEDULE_TIME_ON, timeOnValue);
-
-                                deviceMessageLog.addVariable(logicalNode, DataAttribute.SCHEDULE, Fc.CF,
-                                        scheduleEntryName, SubDataAttribute.SCHEDULE_TIME_ON,
-                                        Integer.toString(timeOnValue));
-                            }
-
-                            final Byte timeOnActionTime = scheduleNode.getByte(SubDataAttribute.SCHEDULE_TIME_ON_TYPE)
-                                    .getValue();
-                            if (timeOnActionTime != timeOnTypeValue) {
-                                scheduleNode.writeByte(SubDataAttribute.SCHEDULE_TIME_ON_TYPE, timeOnTypeValue);
-
-                                deviceMessageLog.addVariable(logicalNode, DataAttribute.SCHEDULE, Fc.CF,
-                                        scheduleEntryName, SubDataAttribute.SCHEDULE_TIME_ON_TYPE,
-                                        Byte.toString(timeOnTypeValue));
-                            }
-
-                            final Integer timeOff = scheduleNode.getInteger(SubDataAttribute.SCHEDULE_TIME_OFF)
-                                    .getValue();
-                            if (timeOff != timeOffValue) {
-                                scheduleNode.writeInteger(SubDataAttribute.SCHEDULE_TIME_OFF, timeOffValue);
-
-                                deviceMessageLog.addVariable(logicalNode, DataAttribute.SCHEDULE, Fc.CF,
-                                        scheduleEntryName, SubDataAttribute.SCHEDULE_TIME_OFF,
-                                        Integer.toString(timeOffValue));
-                            }
-
-                            final Byte timeOffActionTime = scheduleNode.getByte(SubDataAttribute.SCHEDULE_TIME_OFF_TYPE)
-                                    .getValue();
-                            if (timeOffActionTime != timeOffTypeValue) {
-                                scheduleNode.writeByte(SubDataAttribute.SCHEDULE_TIME_OFF_TYPE, timeOffTypeValue);
-
-                                deviceMessageLog.addVariable(logicalNode, DataAttribute.SCHEDULE, Fc.CF,
-                                        scheduleEntryName, SubDataAttribute.SCHEDULE_TIME_OFF_TYPE,
-                                        Byte.toString(timeOffTypeValue));
-                            }
-
-                            final Integer minimumTimeOn = scheduleNode
-                                    .getUnsignedShort(SubDataAttribute.MINIMUM_TIME_ON).getValue();
-                            final Integer newMinimumTimeOn = scheduleEntry.getMinimumLightsOn() / 60;
-                            if (minimumTimeOn != newMinimumTimeOn) {
-                                scheduleNode.writeUnsignedShort(SubDataAttribute.MINIMUM_TIME_ON, newMinimumTimeOn);
-
-                                deviceMessageLog.addVariable(logicalNode, DataAttribute.SCHEDULE, Fc.CF,
-                                        scheduleEntryName, SubDataAttribute.MINIMUM_TIME_ON,
-                                        Integer.toString(newMinimumTimeOn));
-                            }
-
-                            final Integer triggerMinutesBefore = scheduleNode
-                                    .getUnsignedShort(SubDataAttribute.SCHEDULE_TRIGGER_MINUTES_BEFORE).getValue();
-                            if (triggerMinutesBefore != scheduleEntry.getTriggerWindowMinutesBefore()) {
-                                scheduleNode.writeUnsignedShort(SubDataAttribute.SCHEDULE_TRIGGER_MINUTES_BEFORE,
-                                        scheduleEntry.getTriggerWindowMinutesBefore());
-
-                                deviceMessageLog.addVariable(logicalNode, DataAttribute.SCHEDULE, Fc.CF,
-                                        scheduleEntryName, SubDataAttribute.SCHEDULE_TRIGGER_MINUTES_BEFORE,
-                                        Integer.toString(scheduleEntry.getTriggerWindowMinutesBefore()));
-                            }
-
-                            final Integer triggerMinutesAfter = scheduleNode
-                                    .getUnsignedShort(SubDataAttribute.SCHEDULE_TRIGGER_MINUTES_AFTER).getValue();
-                            if (triggerMinutesAfter != scheduleEntry.getTriggerWindowMinutesAfter()) {
-                                scheduleNode.writeUnsignedShort(SubDataAttribute.SCHEDULE_TRIGGER_MINUTES_AFTER,
-                                        scheduleEntry.getTriggerWindowMinutesAfter());
-
-                                deviceMessageLog.addVariable(logicalNode, DataAttribute.SCHEDULE, Fc.CF,
-                                        scheduleEntryName, SubDataAttribute.SCHEDULE_TRIGGER_MINUTES_AFTER,
-                                        Integer.toString(scheduleEntry.getTriggerWindowMinutesAfter()));
-                            }
+                    final Iec61850ScheduleWritePlan writePlan = new Iec61850ScheduleWritePlan(
+                            LogicalNode.getSwitchComponentByIndex(relayIndex), schedules.get(relayIndex));
+
+                    for (int i = 0; i < scheduleEntries.size(); i++) {
+                        writePlan.setEntry(i + 1, scheduleEntries.get(i));
+                    }
+                    if (schedulePlan.isDisabledWhenNotSet(relayIndex)) {
+                        for (int i = scheduleEntries.size() + 1; i <= MAX_NUMBER_OF_SCHEDULE_ENTRIES; i++) {
+                            writePlan.disableEntry(i);
                         }
                     }
-                    DeviceMessageLoggingService.logMessage(deviceMessageLog, deviceConnection.getDeviceIdentification(),
-                            deviceConnection.getOrganisationIdentification(), false);
-                    return null;
+
+                    LOGGER.info("Writing {} schedule entries for relay {}", schedulePlan.getTariffOrLight(),
+                            relayIndex);
+                    writePlan.write(deviceMessageLog);
                 }
-            };
+                DeviceMessageLoggingService.logMessage(deviceMessageLog, deviceConnection.getDeviceIdentification(),
+                        deviceConnection.getOrganisationIdentification(), false);
+                return null;
+            }
+        };
 
-            iec61850Client.sendCommandWithRetry(function, "SetSchedule", deviceConnection.getDeviceIdentification());
+        iec61850Client.sendCommandWithRetry(function, "SetSchedule", deviceConnection.getDeviceIdentification());
+    }
 
-        } catch (final FunctionalException e) {
-            throw new ProtocolAdapterException(e.getMessage(), e);
+    /**
+     * Reads the schedules of the given relays from the device, with a single
+     * request if the device allows it.
+     *
+     * @return The schedules by relay index.
+     */
+    private Map<Integer, NodeContainer> readSchedules(final Iec61850Client iec61850Client,
+            final DeviceConnection deviceConnection, final Set<Integer> relayIndexes) throws NodeException {
+
+        final Map<Integer, NodeContainer> schedules = new HashMap<>();
+        final List<FcModelNode> scheduleNodes = new ArrayList<>(relayIndexes.size());
+        for (final Integer relayIndex : relayIndexes) {
+            final NodeContainer schedule = deviceConnection.getFcModelNode(LogicalDevice.LIGHTING,
+                    LogicalNode.getSwitchComponentByIndex(relayIndex), DataAttribute.SCHEDULE, Fc.CF);
+            schedules.put(relayIndex, schedule);
+            scheduleNodes.add(schedule.getFcmodelNode());
         }
+        if (!scheduleNodes.isEmpty()) {
+            iec61850Client.readNodesDataValues(deviceConnection.getConnection(), scheduleNodes);
+        }
+        return schedules;
     }
 
     /**
@@ -406,44 +346,4 @@ public class Iec61850SetScheduleCommand {
             }
         }
     }
-
-    /**
-     * Disable the schedule entries for all relays of a given
-     * {@link RelayTypeDto} using the {@link DeviceOutputSetting}s for a device.
-     *
-     * @throws NodeException
-     */
-    private void disableScheduleEntries(final RelayTypeDto relayTypeDto, final DeviceConnection deviceConnection,
-            final Iec61850Client iec61850Client, final DeviceMessageLog deviceMessageLog, final Ssld ssld,
-            final SsldDataService ssldDataService) throws NodeException {
-
-        final List<DeviceOutputSetting> deviceOutputSettings = ssldDataService.findByRelayType(ssld,
-                RelayType.valueOf(relayTypeDto.name()));
-
-        for (final DeviceOutputSetting deviceOutputSetting : deviceOutputSettings) {
-            final int relayIndex = deviceOutputSetting.getInternalId();
-
-            final LogicalNode logicalNode = LogicalNode.getSwitchComponentByIndex(relayIndex);
-            final NodeContainer schedule = deviceConnection.getFcModelNode(LogicalDevice.LIGHTING, logicalNode,
-                    DataAttribute.SCHEDULE, Fc.CF);
-            iec61850Client.readNodeDataValues(deviceConnection.getConnection().getClientAssociation(),
-                    schedule.getFcmodelNode());
-
-            for (int i = 1; i <= MAX_NUMBER_OF_SCHEDULE_ENTRIES; i++) {
-                final String scheduleEntryName = SubDataAttribute.SCHEDULE_ENTRY.getDescription() + i;
-                final NodeContainer scheduleNode = schedule.getChild(scheduleEntryName);
-
-                final boolean enabled = scheduleNode.getBoolean(SubDataAttribute.SCHEDULE_ENABLE).getValue();
-                LOGGER.info("Checking if schedule entry {} for relay {} is enabled: {}", i, relayIndex, enabled);
-                if (enabled) {
-                    LOGGER.info("Disabling schedule entry {} of {} for relay {} before setting new {} schedule", i,
-                            MAX_NUMBER_OF_SCHEDULE_ENTRIES, relayIndex, relayTypeDto.name());
-                    scheduleNode.writeBoolean(SubDataAttribute.SCHEDULE_ENABLE, false);
-
-                    deviceMessageLog.addVariable(logicalNode, DataAttribute.SCHEDULE, Fc.CF, scheduleEntryName,
-                            SubDataAttribute.SCHEDULE_ENABLE, Boolean.toString(false));
-                }
-            }
-        }
-    }
 }
@@ -0,0 +1,182 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.application.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.IED;
+
+public class DeviceRegistrationQueueTest {
+
+    private static final String DEVICE_1 = "TST-01";
+    private static final String DEVICE_2 = "TST-02";
+    private static final String DEVICE_3 = "TST-03";
+    private static final String IP_ADDRESS = "127.0.0.1";
+    private static final String SERVER_NAME = "WAGO61850Server";
+
+    private static final int COALESCE_WINDOW = 200;
+    private static final int TIMEOUT = 5000;
+
+    private final DeviceRegistrationService deviceRegistrationService = mock(DeviceRegistrationService.class);
+
+    /**
+     * Released every time the worker has handled a registration.
+     */
+    private final Semaphore handled = new Semaphore(0);
+
+    /**
+     * A single worker, with room for one registration waiting to be disabled.
+     */
+    private final ThreadPoolExecutor workers = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(1)) {
+        @Override
+        protected void afterExecute(final Runnable runnable, final Throwable throwable) {
+            DeviceRegistrationQueueTest.this.handled.release();
+        }
+    };
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    private final DeviceRegistrationQueue queue = new DeviceRegistrationQueue(this.deviceRegistrationService,
+            this.workers, COALESCE_WINDOW, this.nanoTime::get);
+
+    @After
+    public void tearDown() {
+        this.queue.destroy();
+    }
+
+    @Test
+    public void testRegistrationIsDisabled() throws Exception {
+        this.submit(DEVICE_1);
+
+        this.awaitHandled(1);
+        this.verifyDisabled(DEVICE_1, 1);
+        assertEquals(1, this.queue.getDisabledCount());
+        assertEquals(1, this.queue.getRecentlyDisabledCount());
+    }
+
+    @Test
+    public void testRegistrationWithinCoalesceWindowIsIgnored() throws Exception {
+        this.submit(DEVICE_1);
+        this.awaitHandled(1);
+
+        this.submit(DEVICE_1);
+
+        assertEquals(1, this.queue.getSubmittedCount());
+        assertEquals(1, this.queue.getCoalescedCount());
+        this.verifyDisabled(DEVICE_1, 1);
+    }
+
+    @Test
+    public void testRegistrationAfterCoalesceWindowIsDisabledAgain() throws Exception {
+        this.submit(DEVICE_1);
+        this.awaitHandled(1);
+        this.nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(COALESCE_WINDOW));
+
+        this.submit(DEVICE_1);
+
+        this.awaitHandled(1);
+        this.verifyDisabled(DEVICE_1, 2);
+    }
+
+    @Test
+    public void testExpiredEntriesArePrunedOnSubmitOfOtherDevice() throws Exception {
+        this.submit(DEVICE_2);
+        this.awaitHandled(1);
+        this.nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(COALESCE_WINDOW));
+
+        final CountDownLatch release = this.blockWorker();
+        try {
+            assertEquals(0, this.queue.getRecentlyDisabledCount());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testRegistrationWaitingToBeDisabledIsCoalesced() throws Exception {
+        final CountDownLatch release = this.blockWorker();
+        try {
+            this.submit(DEVICE_2);
+            this.submit(DEVICE_2);
+            assertEquals(1, this.queue.getCoalescedCount());
+        } finally {
+            release.countDown();
+        }
+        this.awaitHandled(2);
+        this.verifyDisabled(DEVICE_2, 1);
+    }
+
+    @Test
+    public void testRegistrationIsRejectedWhenQueueIsFull() throws Exception {
+        final CountDownLatch release = this.blockWorker();
+        try {
+            this.submit(DEVICE_2);
+            this.submit(DEVICE_3);
+            assertEquals(1, this.queue.getRejectedCount());
+        } finally {
+            release.countDown();
+        }
+
+        // The device registers again, and is disabled then.
+        this.awaitHandled(2);
+        this.submit(DEVICE_3);
+        this.awaitHandled(1);
+        this.verifyDisabled(DEVICE_3, 1);
+    }
+
+    /**
+     * Keeps the only worker busy disabling the registration of
+     * {@link #DEVICE_1}, until the returned latch is counted down.
+     */
+    private CountDownLatch blockWorker() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            assertTrue(release.await(TIMEOUT, TimeUnit.MILLISECONDS));
+            return null;
+        }).when(this.deviceRegistrationService).disableRegistration(eq(DEVICE_1), any(InetAddress.class),
+                any(IED.class), any(String.class));
+
+        this.submit(DEVICE_1);
+        assertTrue(started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        return release;
+    }
+
+    private void submit(final String deviceIdentification) {
+        this.queue.submit(deviceIdentification, IP_ADDRESS, IED.FLEX_OVL, SERVER_NAME);
+    }
+
+    private void verifyDisabled(final String deviceIdentification, final int count) throws Exception {
+        verify(this.deviceRegistrationService, times(count)).disableRegistration(
+                eq(deviceIdentification), eq(InetAddress.getByName(IP_ADDRESS)), eq(IED.FLEX_OVL), eq(SERVER_NAME));
+    }
+
+    private void awaitHandled(final int count) throws InterruptedException {
+        assertTrue(this.handled.tryAcquire(count, TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jms.JMSException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DeviceRequestDispatcherTest {
+
+    private static final String DEVICE_1 = "TST-01";
+    private static final String DEVICE_2 = "TST-02";
+
+    private static final int POOL_SIZE = 4;
+    private static final int MAX_PENDING = 100;
+    private static final int DISPATCH_TIMEOUT = 100;
+
+    private final DeviceRequestDispatcher dispatcher = new DeviceRequestDispatcher(POOL_SIZE, MAX_PENDING,
+            DISPATCH_TIMEOUT);
+
+    @Before
+    public void setUp() {
+        this.dispatcher.init();
+    }
+
+    @After
+    public void tearDown() {
+        this.dispatcher.destroy();
+    }
+
+    @Test
+    public void testRequestsForSameDeviceRunOneAtATimeInOrder() throws Exception {
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        CompletableFuture<Void> last = null;
+        for (int i = 0; i < 20; i++) {
+            final int index = i;
+            last = this.dispatcher.dispatch(DEVICE_1, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                order.add(index);
+                Thread.yield();
+                running.decrementAndGet();
+            });
+        }
+        last.get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, maxRunning.get());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Integer.valueOf(i), order.get(i));
+        }
+    }
+
+    @Test
+    public void testRequestsForDifferentDevicesRunInParallel() throws Exception {
+        final CountDownLatch bothRunning = new CountDownLatch(2);
+        final DeviceRequestDispatcher.Request request = () -> {
+            bothRunning.countDown();
+            await(bothRunning);
+        };
+
+        final CompletableFuture<Void> first = this.dispatcher.dispatch(DEVICE_1, request);
+        final CompletableFuture<Void> second = this.dispatcher.dispatch(DEVICE_2, request);
+
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(0, this.dispatcher.getPendingCount());
+    }
+
+    @Test
+    public void testJmsExceptionOfRequestIsThrownByDispatchAndWait() {
+        final JMSException exception = new JMSException("Redeliver");
+
+        try {
+            this.dispatcher.dispatchAndWait(DEVICE_1, () -> {
+                throw exception;
+            });
+            fail("Expected JMSException");
+        } catch (final JMSException e) {
+            assertSame(exception, e);
+        }
+    }
+
+    @Test
+    public void testFailingRequestDoesNotStopNextRequestForDevice() throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+
+        this.dispatcher.dispatchAndWait(DEVICE_1, () -> {
+            throw new IllegalStateException("Unexpected");
+        });
+        this.dispatcher.dispatchAndWait(DEVICE_1, runs::incrementAndGet);
+
+        assertEquals(1, runs.get());
+        assertEquals(0, this.dispatcher.getActiveDeviceCount());
+    }
+
+    @Test
+    public void testDispatchIsRejectedWhenMaxPendingIsReached() throws Exception {
+        final DeviceRequestDispatcher fullDispatcher = new DeviceRequestDispatcher(POOL_SIZE, 1, DISPATCH_TIMEOUT);
+        fullDispatcher.init();
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<Void> blocking = fullDispatcher.dispatch(DEVICE_1, () -> await(release));
+        try {
+            fullDispatcher.dispatch(DEVICE_2, () -> {
+            });
+            fail("Expected JMSException");
+        } catch (final JMSException e) {
+            assertEquals(1, fullDispatcher.getRejectedCount());
+        } finally {
+            release.countDown();
+            blocking.get(5, TimeUnit.SECONDS);
+            fullDispatcher.destroy();
+        }
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.networking;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ConnectionFailureException;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.IED;
+
+public class Iec61850RetryPolicyTest {
+
+    private static final String DEVICE = "TST-01";
+
+    private static final int MAX_RETRY_COUNT = 3;
+    private static final int BACKOFF = 0;
+    private static final int BUDGET_PERCENTAGE = 50;
+    private static final int BUDGET_MAX = 2;
+    private static final int FAILURE_THRESHOLD = 2;
+    private static final int OPEN_TIME = 50;
+
+    private final AtomicLong clock = new AtomicLong(1000);
+
+    private final Iec61850RetryPolicy retryPolicy = new Iec61850RetryPolicy(MAX_RETRY_COUNT, BACKOFF, BACKOFF,
+            BUDGET_PERCENTAGE, BUDGET_MAX, FAILURE_THRESHOLD, OPEN_TIME, this.clock::get);
+
+    private final ExecutorService otherThread = Executors.newSingleThreadExecutor();
+
+    @After
+    public void tearDown() {
+        this.otherThread.shutdownNow();
+    }
+
+    @Test
+    public void testRetriesAreLimitedByMaxRetryCount() throws ConnectionFailureException {
+        this.retryPolicy.beforeRequest(DEVICE, IED.ZOWN_RTU);
+
+        assertTrue(this.retryPolicy.mayRetry(DEVICE, IED.ZOWN_RTU, 1));
+        assertFalse(this.retryPolicy.mayRetry(DEVICE, IED.ZOWN_RTU, 4));
+    }
+
+    @Test
+    public void testRetriesAreLimitedByBudget() throws ConnectionFailureException {
+        this.retryPolicy.beforeRequest(DEVICE, IED.ZOWN_RTU);
+
+        assertTrue(this.retryPolicy.mayRetry(DEVICE, IED.ZOWN_RTU, 1));
+        assertTrue(this.retryPolicy.mayRetry(DEVICE, IED.ZOWN_RTU, 2));
+        assertFalse(this.retryPolicy.mayRetry(DEVICE, IED.ZOWN_RTU, 3));
+        assertEquals(2, this.retryPolicy.getRetryCount());
+        assertEquals(1, this.retryPolicy.getExhaustedBudgetCount());
+    }
+
+    @Test
+    public void testRequestsRefillBudget() throws ConnectionFailureException {
+        this.retryPolicy.beforeRequest(DEVICE, IED.ZOWN_RTU);
+        this.retryPolicy.mayRetry(DEVICE, IED.ZOWN_RTU, 1);
+        this.retryPolicy.mayRetry(DEVICE, IED.ZOWN_RTU, 2);
+
+        // Every request adds half a retry.
+        this.retryPolicy.beforeRequest(DEVICE, IED.ZOWN_RTU);
+        assertFalse(this.retryPolicy.mayRetry(DEVICE, IED.ZOWN_RTU, 1));
+        this.retryPolicy.beforeRequest(DEVICE, IED.ZOWN_RTU);
+        assertTrue(this.retryPolicy.mayRetry(DEVICE, IED.ZOWN_RTU, 1));
+    }
+
+    @Test
+    public void testCircuitOpensAfterConsecutiveFailures() throws ConnectionFailureException {
+        this.retryPolicy.recordConnectionFailure(DEVICE);
+        this.retryPolicy.checkCircuit(DEVICE);
+
+        this.retryPolicy.recordConnectionFailure(DEVICE);
+        this.assertCircuitOpen();
+        assertEquals(1, this.retryPolicy.getOpenCircuitCount());
+        assertEquals(1, this.retryPolicy.getFastFailureCount());
+    }
+
+    @Test
+    public void testTrialRequestClosesCircuitWhenItSucceeds() throws Exception {
+        this.openCircuit();
+        this.clock.addAndGet(OPEN_TIME);
+
+        // The trial connects and then communicates with the device, other
+        // requests fail fast while the trial is in progress.
+        this.retryPolicy.checkCircuit(DEVICE);
+        this.retryPolicy.beforeRequest(DEVICE, IED.ZOWN_RTU);
+        this.assertCircuitOpenForOtherThread();
+
+        this.retryPolicy.recordSuccess(DEVICE);
+        this.retryPolicy.checkCircuit(DEVICE);
+        this.otherThread.submit(() -> {
+            this.retryPolicy.checkCircuit(DEVICE);
+            return null;
+        }).get();
+    }
+
+    @Test
+    public void testTrialRequestOpensCircuitWhenItFails() throws Exception {
+        this.openCircuit();
+        this.clock.addAndGet(OPEN_TIME);
+
+        this.retryPolicy.checkCircuit(DEVICE);
+        this.retryPolicy.recordConnectionFailure(DEVICE);
+
+        this.assertCircuitOpen();
+        assertEquals(2, this.retryPolicy.getCircuitOpeningCount());
+    }
+
+    @Test
+    public void testPruneRemovesFullBudgets() throws ConnectionFailureException {
+        this.retryPolicy.beforeRequest(DEVICE, IED.ZOWN_RTU);
+        this.retryPolicy.beforeRequest("TST-02", IED.ZOWN_RTU);
+        this.retryPolicy.mayRetry("TST-02", IED.ZOWN_RTU, 1);
+
+        this.retryPolicy.prune();
+
+        assertEquals(1, this.retryPolicy.getDeviceBudgetCount());
+    }
+
+    @Test
+    public void testPruneRemovesIdleCircuitBreakers() throws Exception {
+        this.retryPolicy.recordConnectionFailure(DEVICE);
+        this.openCircuit("TST-02");
+
+        this.retryPolicy.prune();
+        assertEquals(2, this.retryPolicy.getCircuitBreakerCount());
+
+        this.clock.addAndGet(OPEN_TIME);
+        this.retryPolicy.prune();
+        assertEquals(0, this.retryPolicy.getCircuitBreakerCount());
+    }
+
+    private void openCircuit() {
+        this.openCircuit(DEVICE);
+    }
+
+    private void openCircuit(final String deviceIdentification) {
+        this.retryPolicy.recordConnectionFailure(deviceIdentification);
+        this.retryPolicy.recordConnectionFailure(deviceIdentification);
+    }
+
+    private void assertCircuitOpen() {
+        try {
+            this.retryPolicy.checkCircuit(DEVICE);
+            fail("Expected ConnectionFailureException, the circuit is open");
+        } catch (final ConnectionFailureException e) {
+            // Expected.
+        }
+    }
+
+    private void assertCircuitOpenForOtherThread() throws InterruptedException {
+        try {
+            this.otherThread.submit(() -> {
+                this.retryPolicy.checkCircuit(DEVICE);
+                return null;
+            }).get();
+            fail("Expected ConnectionFailureException, the circuit is open");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof ConnectionFailureException);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.reporting;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alliander.osgp.adapter.protocol.iec61850.application.services.DeviceManagementService;
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ProtocolAdapterException;
+import com.alliander.osgp.dto.valueobjects.EventNotificationDto;
+import com.alliander.osgp.dto.valueobjects.EventTypeDto;
+
+public class Iec61850EventNotificationEmitterTest {
+
+    private static final String DEVICE_1 = "TST-01";
+    private static final String DEVICE_2 = "TST-02";
+
+    private static final DateTime TIME = new DateTime(2017, 3, 1, 12, 0);
+
+    private static final int BATCH_SIZE = 3;
+    private static final int BATCH_DELAY = 1000;
+
+    private final DeviceManagementService deviceManagementService = mock(DeviceManagementService.class);
+
+    private final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+
+    private final Iec61850EventNotificationEmitter emitter = new Iec61850EventNotificationEmitter(
+            this.deviceManagementService, BATCH_SIZE, BATCH_DELAY, this.scheduler);
+
+    /**
+     * The sends scheduled after the batch delay, run by the test instead of
+     * the scheduler.
+     */
+    private final List<Runnable> scheduledSends = new ArrayList<>();
+
+    /**
+     * The batches sent to OSGP, by any device.
+     */
+    private final List<List<EventNotificationDto>> sentBatches = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() throws Exception {
+        when(this.scheduler.schedule(any(Runnable.class), eq((long) BATCH_DELAY), eq(TimeUnit.MILLISECONDS)))
+                .thenAnswer(invocation -> {
+                    this.scheduledSends.add((Runnable) invocation.getArguments()[0]);
+                    return mock(ScheduledFuture.class);
+                });
+
+        doAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            final List<EventNotificationDto> batch = (List<EventNotificationDto>) invocation.getArguments()[1];
+            this.sentBatches.add(new ArrayList<>(batch));
+            return null;
+        }).when(this.deviceManagementService).addEventNotifications(anyString(),
+                anyListOf(EventNotificationDto.class));
+    }
+
+    @Test
+    public void testBatchIsSentWhenBatchSizeIsReached() throws ProtocolAdapterException {
+        final EventNotificationDto first = eventNotification(DEVICE_1, 1);
+        final EventNotificationDto second = eventNotification(DEVICE_1, 2);
+        final EventNotificationDto third = eventNotification(DEVICE_1, 3);
+
+        this.emitter.emit(DEVICE_1, second);
+        this.emitter.emit(DEVICE_1, first);
+        verify(this.deviceManagementService, never()).addEventNotifications(anyString(),
+                anyListOf(EventNotificationDto.class));
+
+        this.emitter.emit(DEVICE_1, third);
+
+        // Sent right away, sorted by time.
+        assertEquals(Collections.singletonList(Arrays.asList(first, second, third)), this.sentBatches);
+        assertEquals(1, this.emitter.getSentBatchCount());
+        assertEquals(3, this.emitter.getEmittedCount());
+    }
+
+    @Test
+    public void testBatchIsSentAfterBatchDelay() {
+        final EventNotificationDto eventNotification = eventNotification(DEVICE_1, 1);
+
+        this.emitter.emit(DEVICE_1, eventNotification);
+        assertEquals(1, this.scheduledSends.size());
+        assertEquals(0, this.sentBatches.size());
+
+        this.scheduledSends.get(0).run();
+
+        assertEquals(Collections.singletonList(Collections.singletonList(eventNotification)), this.sentBatches);
+    }
+
+    @Test
+    public void testBatchDelayStartsAtOldestEventNotification() {
+        this.emitter.emit(DEVICE_1, eventNotification(DEVICE_1, 1));
+        this.emitter.emit(DEVICE_1, eventNotification(DEVICE_1, 2));
+
+        // Both are sent in the batch scheduled for the first.
+        assertEquals(1, this.scheduledSends.size());
+        this.scheduledSends.get(0).run();
+
+        assertEquals(1, this.sentBatches.size());
+        assertEquals(2, this.sentBatches.get(0).size());
+    }
+
+    @Test
+    public void testScheduledSendOfSentBatchSendsNothing() {
+        this.emitter.emit(DEVICE_1, eventNotification(DEVICE_1, 1));
+        this.emitter.flush(DEVICE_1);
+
+        // The send was cancelled, but started already.
+        this.scheduledSends.get(0).run();
+
+        assertEquals(1, this.sentBatches.size());
+    }
+
+    @Test
+    public void testFlushSendsRemainingEventNotifications() {
+        final EventNotificationDto eventNotification = eventNotification(DEVICE_1, 1);
+        this.emitter.emit(DEVICE_1, eventNotification);
+        this.emitter.emit(DEVICE_2, eventNotification(DEVICE_2, 1));
+        assertEquals(2, this.emitter.getOpenBatchCount());
+
+        this.emitter.flush(DEVICE_1);
+
+        assertEquals(Collections.singletonList(Collections.singletonList(eventNotification)), this.sentBatches);
+        assertEquals(1, this.emitter.getOpenBatchCount());
+    }
+
+    @Test
+    public void testFlushWithoutEventNotificationsSendsNothing() throws ProtocolAdapterException {
+        this.emitter.flush(DEVICE_1);
+
+        verify(this.deviceManagementService, never()).addEventNotifications(anyString(),
+                anyListOf(EventNotificationDto.class));
+    }
+
+    @Test
+    public void testEventNotificationAfterFlushStartsNewBatch() {
+        this.emitter.emit(DEVICE_1, eventNotification(DEVICE_1, 1));
+        this.emitter.flush(DEVICE_1);
+
+        this.emitter.emit(DEVICE_1, eventNotification(DEVICE_1, 2));
+        this.emitter.flush(DEVICE_1);
+
+        assertEquals(2, this.sentBatches.size());
+        assertEquals(2, this.emitter.getSentBatchCount());
+    }
+
+    @Test
+    public void testDestroySendsOpenBatches() throws Exception {
+        this.emitter.emit(DEVICE_1, eventNotification(DEVICE_1, 1));
+        this.emitter.emit(DEVICE_2, eventNotification(DEVICE_2, 1));
+
+        this.emitter.destroy();
+
+        assertEquals(2, this.sentBatches.size());
+        assertEquals(0, this.emitter.getOpenBatchCount());
+        verify(this.scheduler).shutdown();
+    }
+
+    @Test
+    public void testFailedBatchIsCountedAndNextBatchIsSent() throws ProtocolAdapterException {
+        doThrow(new ProtocolAdapterException("Unavailable")).when(this.deviceManagementService)
+                .addEventNotifications(eq(DEVICE_1), anyListOf(EventNotificationDto.class));
+
+        this.emitter.emit(DEVICE_1, eventNotification(DEVICE_1, 1));
+        this.emitter.flush(DEVICE_1);
+        this.emitter.emit(DEVICE_2, eventNotification(DEVICE_2, 1));
+        this.emitter.flush(DEVICE_2);
+
+        assertEquals(1, this.emitter.getFailedBatchCount());
+        assertEquals(1, this.emitter.getSentBatchCount());
+    }
+
+    private static EventNotificationDto eventNotification(final String deviceIdentification, final int minute) {
+        return new EventNotificationDto(deviceIdentification, TIME.plusMinutes(minute),
+                EventTypeDto.LIGHT_EVENTS_LIGHT_ON, "Light on", 1);
+    }
+}
@@ -0,0 +1,252 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.reporting;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmuc.openiec61850.BdaOctetString;
+import org.openmuc.openiec61850.ObjectReference;
+import org.openmuc.openiec61850.Report;
+
+import com.alliander.osgp.adapter.protocol.iec61850.domain.entities.Iec61850ReportEntry;
+import com.alliander.osgp.adapter.protocol.iec61850.domain.repositories.Iec61850ReportEntryRepository;
+
+public class Iec61850ReportEntryTrackerTest {
+
+    private static final String DEVICE = "TST-01";
+    private static final String REPORT_ID = "TST-01/LLN0$BR$brcb01";
+
+    private static final int PERSIST_INTERVAL = 60000;
+    private static final int RESYNC_TIMEOUT = 60000;
+
+    private final Iec61850ReportEntryRepository repository = mock(Iec61850ReportEntryRepository.class);
+
+    private final Iec61850ReportEntryTracker tracker = new Iec61850ReportEntryTracker(this.repository,
+            PERSIST_INTERVAL, RESYNC_TIMEOUT);
+
+    /**
+     * The report IDs resynced by the tracker.
+     */
+    private final List<String> resyncs = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        this.tracker.setResyncHandler((deviceIdentification, reportId) -> this.resyncs
+                .add(deviceIdentification + ":" + reportId));
+    }
+
+    @Test
+    public void testNoEntryToResumeFromWithoutProcessedReports() {
+        assertNull(this.tracker.getEntryIdToResumeFrom(DEVICE, REPORT_ID));
+        assertEquals(0, this.tracker.getResumedCount());
+    }
+
+    @Test
+    public void testResumesFromSavedEntry() {
+        when(this.repository.findByDeviceIdentificationAndReportId(DEVICE, REPORT_ID))
+                .thenReturn(new Iec61850ReportEntry(DEVICE, REPORT_ID, entryId(7), 7));
+
+        assertArrayEquals(entryId(7), this.tracker.getEntryIdToResumeFrom(DEVICE, REPORT_ID));
+        assertEquals(1, this.tracker.getResumedCount());
+    }
+
+    @Test
+    public void testContiguousReportsMoveEntryForward() {
+        assertTrue(this.receive(report(1)));
+        assertTrue(this.receive(report(2)));
+        assertTrue(this.receive(report(3)));
+
+        assertArrayEquals(entryId(3), this.tracker.getEntryIdToResumeFrom(DEVICE, REPORT_ID));
+        assertEquals(0, this.tracker.getResyncCount());
+        assertEquals(0, this.tracker.getLostGapCount());
+    }
+
+    @Test
+    public void testSegmentsOfSameReportAreContiguous() {
+        assertTrue(this.receive(report(1)));
+        assertTrue(this.receive(report(1)));
+
+        assertEquals(0, this.tracker.getResyncCount());
+    }
+
+    @Test
+    public void testGapResyncsReportFromLastEntryBeforeGap() {
+        this.receive(report(1));
+
+        assertFalse(this.receive(report(4)));
+
+        assertEquals(Collections.singletonList(DEVICE + ":" + REPORT_ID), this.resyncs);
+        assertEquals(1, this.tracker.getResyncCount());
+        assertEquals(0, this.tracker.getLostGapCount());
+        assertArrayEquals(entryId(1), this.tracker.getEntryIdToResumeFrom(DEVICE, REPORT_ID));
+    }
+
+    @Test
+    public void testReportsAreSkippedUntilEntryAfterGapIsSentAgain() {
+        this.receive(report(1));
+        this.receive(report(4));
+
+        // Sent before reporting was resumed.
+        assertFalse(this.receive(report(5)));
+        assertEquals(1, this.tracker.getSkippedCount());
+
+        // Sent again after reporting was resumed after entry 1.
+        assertTrue(this.receive(report(2)));
+        assertTrue(this.receive(report(3)));
+        assertTrue(this.receive(report(4)));
+        assertTrue(this.receive(report(5)));
+
+        assertEquals(1, this.resyncs.size());
+        assertEquals(0, this.tracker.getLostGapCount());
+        assertArrayEquals(entryId(5), this.tracker.getEntryIdToResumeFrom(DEVICE, REPORT_ID));
+    }
+
+    @Test
+    public void testGapAfterFailedResyncIsLost() {
+        this.receive(report(1));
+        this.receive(report(4));
+
+        this.tracker.resyncFailed(DEVICE, REPORT_ID);
+
+        assertTrue(this.receive(report(4)));
+        assertEquals(1, this.resyncs.size());
+        assertEquals(1, this.tracker.getLostGapCount());
+        assertArrayEquals(entryId(4), this.tracker.getEntryIdToResumeFrom(DEVICE, REPORT_ID));
+    }
+
+    @Test
+    public void testGapWithoutResyncHandlerIsLost() {
+        this.tracker.setResyncHandler(null);
+        this.receive(report(1));
+
+        assertFalse(this.receive(report(4)));
+        assertTrue(this.receive(report(4)));
+
+        assertEquals(1, this.tracker.getLostGapCount());
+    }
+
+    @Test
+    public void testGapAfterResumeIsLost() {
+        when(this.repository.findByDeviceIdentificationAndReportId(DEVICE, REPORT_ID))
+                .thenReturn(new Iec61850ReportEntry(DEVICE, REPORT_ID, entryId(7), 7));
+        this.tracker.getEntryIdToResumeFrom(DEVICE, REPORT_ID);
+
+        // The entries after 7 are no longer in the buffer of the device.
+        assertTrue(this.receive(report(10)));
+
+        assertTrue(this.resyncs.isEmpty());
+        assertEquals(1, this.tracker.getLostGapCount());
+        assertArrayEquals(entryId(10), this.tracker.getEntryIdToResumeFrom(DEVICE, REPORT_ID));
+    }
+
+    @Test
+    public void testGapWithBufferOverflowIsLost() {
+        this.receive(report(1));
+
+        assertTrue(this.receive(report(4, true)));
+
+        assertTrue(this.resyncs.isEmpty());
+        assertEquals(1, this.tracker.getLostGapCount());
+    }
+
+    @Test
+    public void testGapIsLostWhenResyncTimesOut() {
+        final Iec61850ReportEntryTracker timingOutTracker = new Iec61850ReportEntryTracker(this.repository,
+                PERSIST_INTERVAL, 0);
+        timingOutTracker.setResyncHandler((deviceIdentification, reportId) -> this.resyncs.add(reportId));
+        this.receive(timingOutTracker, report(1));
+        this.receive(timingOutTracker, report(4));
+
+        assertTrue(this.receive(timingOutTracker, report(5)));
+
+        assertEquals(1, this.resyncs.size());
+        assertEquals(0, timingOutTracker.getSkippedCount());
+        assertEquals(1, timingOutTracker.getLostGapCount());
+    }
+
+    @Test
+    public void testSqNumWrapsAround() {
+        assertTrue(this.receive(report(0xFF)));
+        assertTrue(this.receive(report(0)));
+        assertFalse(this.receive(report(0xFFFF)));
+        this.tracker.resyncFailed(DEVICE, REPORT_ID);
+        assertTrue(this.receive(report(0xFFFF)));
+        assertTrue(this.receive(report(0)));
+
+        // Only the jump from 0 to 0xFFFF is a gap.
+        assertEquals(1, this.tracker.getResyncCount());
+        assertEquals(1, this.tracker.getLostGapCount());
+    }
+
+    @Test
+    public void testReportsWithoutEntryIdAreIgnored() {
+        assertTrue(this.receive(new Report(REPORT_ID, null, 1, null, false, null, false, 1L, null, null,
+                new byte[] { (byte) 0xFF }, null, null)));
+
+        this.tracker.persist(DEVICE);
+        verify(this.repository, never()).save(any(Iec61850ReportEntry.class));
+    }
+
+    @Test
+    public void testPersistSavesProcessedEntryOnce() {
+        this.receive(report(1));
+
+        this.tracker.persist(DEVICE);
+        this.tracker.persist(DEVICE);
+
+        verify(this.repository).save(any(Iec61850ReportEntry.class));
+        assertEquals(1, this.tracker.getPersistedCount());
+    }
+
+    /**
+     * Handles a report the way the event listeners do.
+     *
+     * @return true if the report was processed.
+     */
+    private boolean receive(final Report report) {
+        return this.receive(this.tracker, report);
+    }
+
+    private boolean receive(final Iec61850ReportEntryTracker reportEntryTracker, final Report report) {
+        if (!reportEntryTracker.accept(DEVICE, report)) {
+            return false;
+        }
+        reportEntryTracker.processed(DEVICE, report);
+        return true;
+    }
+
+    private static Report report(final int sqNum) {
+        return report(sqNum, false);
+    }
+
+    private static Report report(final int sqNum, final boolean bufOvfl) {
+        final BdaOctetString entryId = new BdaOctetString(new ObjectReference("EntryID"), null, "", 8, false, false);
+        entryId.setValue(entryId(sqNum));
+        return new Report(REPORT_ID, null, sqNum, null, false, null, bufOvfl, 1L, null, entryId,
+                new byte[] { (byte) 0xFF }, null, null);
+    }
+
+    private static byte[] entryId(final int sqNum) {
+        return new byte[] { 0, 0, 0, 0, 0, 0, (byte) (sqNum >> 8), (byte) sqNum };
+    }
+}
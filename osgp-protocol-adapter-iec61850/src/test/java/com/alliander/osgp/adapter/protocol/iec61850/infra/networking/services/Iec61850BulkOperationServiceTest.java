@@ -0,0 +1,263 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jms.JMSException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.alliander.osgp.adapter.protocol.iec61850.device.DeviceRequest;
+import com.alliander.osgp.adapter.protocol.iec61850.device.DeviceResponse;
+import com.alliander.osgp.adapter.protocol.iec61850.device.DeviceResponseHandler;
+import com.alliander.osgp.adapter.protocol.iec61850.device.ssld.requests.SetScheduleDeviceRequest;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.messaging.DeviceRequestDispatcher;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.commands.Iec61850SchedulePlan;
+import com.alliander.osgp.core.db.api.iec61850.application.services.SsldDataService;
+import com.alliander.osgp.core.db.api.iec61850.entities.DeviceOutputSetting;
+import com.alliander.osgp.core.db.api.iec61850.entities.Ssld;
+import com.alliander.osgp.core.db.api.iec61850valueobjects.RelayType;
+import com.alliander.osgp.dto.valueobjects.RelayTypeDto;
+import com.alliander.osgp.dto.valueobjects.ScheduleDto;
+import com.alliander.osgp.dto.valueobjects.ScheduleMessageDataContainerDto;
+
+public class Iec61850BulkOperationServiceTest {
+
+    private static final String ORGANISATION = "test-org";
+
+    private static final int PREFIX_LENGTH = 24;
+
+    private final Iec61850SsldDeviceService ssldDeviceService = mock(Iec61850SsldDeviceService.class);
+    private final SsldDataService ssldDataService = mock(SsldDataService.class);
+    private final DeviceRequestDispatcher dispatcher = mock(DeviceRequestDispatcher.class);
+    private final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+    private final DeviceResponseHandler responseHandler = mock(DeviceResponseHandler.class);
+    private final ScheduleMessageDataContainerDto schedule = mock(ScheduleMessageDataContainerDto.class);
+
+    private final AtomicLong now = new AtomicLong(1000000);
+
+    /**
+     * The tasks given to the scheduler, run by the test.
+     */
+    private final List<Runnable> scheduledTasks = new ArrayList<>();
+
+    /**
+     * The requests dispatched to the dispatcher, and their completions, run
+     * and completed by the test.
+     */
+    private final List<DeviceRequestDispatcher.Request> dispatchedRequests = new ArrayList<>();
+    private final List<CompletableFuture<Void>> dispatchedCompletions = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        doAnswer(invocation -> {
+            this.scheduledTasks.add((Runnable) invocation.getArguments()[0]);
+            return null;
+        }).when(this.scheduler).execute(any(Runnable.class));
+        when(this.scheduler.schedule(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS)))
+                .thenAnswer(invocation -> {
+                    this.scheduledTasks.add((Runnable) invocation.getArguments()[0]);
+                    return mock(ScheduledFuture.class);
+                });
+
+        when(this.dispatcher.dispatch(anyString(), any(DeviceRequestDispatcher.Request.class)))
+                .thenAnswer(invocation -> {
+                    final CompletableFuture<Void> completion = new CompletableFuture<>();
+                    this.dispatchedRequests.add((DeviceRequestDispatcher.Request) invocation.getArguments()[1]);
+                    this.dispatchedCompletions.add(completion);
+                    return completion;
+                });
+
+        when(this.schedule.getScheduleList()).thenReturn(Collections.<ScheduleDto> emptyList());
+    }
+
+    @Test
+    public void testSchedulePlanIsCreatedOncePerRelayConfiguration() throws Exception {
+        this.addSsld("TST-01", new DeviceOutputSetting(1, 1, RelayType.LIGHT));
+        this.addSsld("TST-02", new DeviceOutputSetting(1, 1, RelayType.LIGHT));
+        this.addSsld("TST-03", new DeviceOutputSetting(1, 2, RelayType.LIGHT));
+        final Iec61850BulkOperationService service = this.newService(10, 0);
+
+        service.setSchedule(Arrays.asList(device("TST-01", "10.0.0.1"), device("TST-02", "10.0.0.2"),
+                device("TST-03", "10.0.0.3")), RelayTypeDto.LIGHT, this.schedule, this.responseHandler);
+        this.runScheduledTasks();
+        for (final DeviceRequestDispatcher.Request request : this.dispatchedRequests) {
+            request.run();
+        }
+
+        final ArgumentCaptor<Iec61850SchedulePlan> plans = ArgumentCaptor.forClass(Iec61850SchedulePlan.class);
+        verify(this.ssldDeviceService, times(3)).setSchedule(any(SetScheduleDeviceRequest.class), plans.capture(),
+                eq(this.responseHandler));
+        assertSame(plans.getAllValues().get(0), plans.getAllValues().get(1));
+        assertNotSame(plans.getAllValues().get(0), plans.getAllValues().get(2));
+        assertEquals(2, service.getSchedulePlanCount());
+    }
+
+    @Test
+    public void testUnknownSsldFails() throws Exception {
+        final Iec61850BulkOperationService service = this.newService(10, 0);
+
+        service.setSchedule(Collections.singletonList(device("TST-01", "10.0.0.1")), RelayTypeDto.LIGHT,
+                this.schedule, this.responseHandler);
+        this.runScheduledTasks();
+        this.dispatchedRequests.get(0).run();
+
+        verify(this.responseHandler).handleException(any(Throwable.class), any(DeviceResponse.class));
+    }
+
+    @Test
+    public void testParallelismBoundsDispatchedDevices() {
+        final Iec61850BulkOperationService service = this.newService(2, 0);
+
+        service.setSchedule(Arrays.asList(device("TST-01", "10.0.0.1"), device("TST-02", "10.0.1.1"),
+                device("TST-03", "10.0.2.1")), RelayTypeDto.LIGHT, this.schedule, this.responseHandler);
+        this.runScheduledTasks();
+
+        assertEquals(2, this.dispatchedRequests.size());
+        assertEquals(2, service.getDispatchedDeviceCount());
+
+        this.dispatchedCompletions.get(0).complete(null);
+        this.runScheduledTasks();
+
+        assertEquals(3, this.dispatchedRequests.size());
+        assertEquals(2, service.getDispatchedDeviceCount());
+    }
+
+    @Test
+    public void testOperationCompletesWhenAllDevicesAreDone() {
+        final Iec61850BulkOperationService service = this.newService(10, 0);
+
+        final CompletableFuture<Void> completion = service.setSchedule(
+                Arrays.asList(device("TST-01", "10.0.0.1"), device("TST-02", "10.0.0.2")), RelayTypeDto.LIGHT,
+                this.schedule, this.responseHandler);
+        this.runScheduledTasks();
+
+        this.dispatchedCompletions.get(0).complete(null);
+        assertFalse(completion.isDone());
+        assertEquals(1, service.getCompletedDeviceCount());
+        assertEquals(1, service.getPendingDeviceCount());
+
+        this.dispatchedCompletions.get(1).complete(null);
+        assertTrue(completion.isDone());
+        assertEquals(0, service.getDispatchedDeviceCount());
+    }
+
+    @Test
+    public void testEmptyOperationCompletesRightAway() {
+        final Iec61850BulkOperationService service = this.newService(10, 0);
+
+        assertTrue(service.setSchedule(Collections.<DeviceRequest> emptyList(), RelayTypeDto.LIGHT, this.schedule,
+                this.responseHandler).isDone());
+    }
+
+    @Test
+    public void testFailedDeviceIsReportedAndDoesNotStopOperation() {
+        final Iec61850BulkOperationService service = this.newService(10, 0);
+
+        final CompletableFuture<Void> completion = service.setSchedule(
+                Arrays.asList(device("TST-01", "10.0.0.1"), device("TST-02", "10.0.0.2")), RelayTypeDto.LIGHT,
+                this.schedule, this.responseHandler);
+        this.runScheduledTasks();
+
+        this.dispatchedCompletions.get(0).completeExceptionally(new IllegalStateException("Failed"));
+        this.dispatchedCompletions.get(1).complete(null);
+
+        verify(this.responseHandler).handleException(any(IllegalStateException.class), any(DeviceResponse.class));
+        assertTrue(completion.isDone());
+    }
+
+    @Test
+    public void testRejectedDispatchFailsDevice() throws Exception {
+        when(this.dispatcher.dispatch(anyString(), any(DeviceRequestDispatcher.Request.class)))
+                .thenThrow(new JMSException("Full"));
+        final Iec61850BulkOperationService service = this.newService(1, 0);
+
+        final CompletableFuture<Void> completion = service.setSchedule(
+                Arrays.asList(device("TST-01", "10.0.0.1"), device("TST-02", "10.0.0.2")), RelayTypeDto.LIGHT,
+                this.schedule, this.responseHandler);
+        this.runScheduledTasks();
+
+        verify(this.responseHandler, times(2)).handleException(any(JMSException.class), any(DeviceResponse.class));
+        assertTrue(completion.isDone());
+    }
+
+    @Test
+    public void testDevicesInSameSubnetAreSpacedByRate() {
+        final Iec61850BulkOperationService service = this.newService(10, 10);
+
+        service.setSchedule(Arrays.asList(device("TST-01", "10.0.0.1"), device("TST-02", "10.0.0.2"),
+                device("TST-03", "10.0.1.1")), RelayTypeDto.LIGHT, this.schedule, this.responseHandler);
+
+        verify(this.scheduler, times(2)).execute(any(Runnable.class));
+        verify(this.scheduler).schedule(any(Runnable.class), eq(100L), eq(TimeUnit.MILLISECONDS));
+        assertEquals(2, service.getRateLimitedSubnetCount());
+    }
+
+    @Test
+    public void testSubnetsOfWhichTheStartTimeHasPassedAreRemoved() {
+        final Iec61850BulkOperationService service = this.newService(10, 10);
+
+        service.setSchedule(Arrays.asList(device("TST-01", "10.0.0.1"), device("TST-02", "10.0.1.1")),
+                RelayTypeDto.LIGHT, this.schedule, this.responseHandler);
+        assertEquals(2, service.getRateLimitedSubnetCount());
+
+        this.now.addAndGet(2000);
+        service.setSchedule(Collections.singletonList(device("TST-03", "10.0.2.1")), RelayTypeDto.LIGHT,
+                this.schedule, this.responseHandler);
+
+        assertEquals(1, service.getRateLimitedSubnetCount());
+    }
+
+    private Iec61850BulkOperationService newService(final int parallelism, final int subnetRate) {
+        return new Iec61850BulkOperationService(this.ssldDeviceService, this.ssldDataService, this.dispatcher,
+                parallelism, subnetRate, PREFIX_LENGTH, this.scheduler, this.now::get);
+    }
+
+    private void runScheduledTasks() {
+        while (!this.scheduledTasks.isEmpty()) {
+            this.scheduledTasks.remove(0).run();
+        }
+    }
+
+    private void addSsld(final String deviceIdentification, final DeviceOutputSetting... outputSettings) {
+        final Ssld ssld = new Ssld(deviceIdentification);
+        ssld.updateOutputSettings(Arrays.asList(outputSettings));
+        when(this.ssldDataService.findDevice(deviceIdentification)).thenReturn(ssld);
+    }
+
+    private static DeviceRequest device(final String deviceIdentification, final String ipAddress) {
+        return new DeviceRequest(ORGANISATION, deviceIdentification, deviceIdentification + "-correlation",
+                "PUBLIC_LIGHTING", "1.0", "SET_LIGHT_SCHEDULE", ipAddress, 0, false);
+    }
+}
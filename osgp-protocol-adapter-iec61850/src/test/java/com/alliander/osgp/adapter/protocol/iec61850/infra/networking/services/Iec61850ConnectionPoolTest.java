@@ -0,0 +1,212 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Test;
+
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.ConnectionFailureException;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850Client;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850ClientAssociation;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.Iec61850Connection;
+
+public class Iec61850ConnectionPoolTest {
+
+    private static final String DEVICE_1 = "TST-01";
+    private static final String DEVICE_2 = "TST-02";
+    private static final String DEVICE_3 = "TST-03";
+
+    private static final int MAX_SIZE = 2;
+    private static final int LEASE_TIMEOUT = 10000;
+    private static final int MAX_IDLE_TIME = 0;
+    private static final int KEEP_ALIVE_INTERVAL = 60000;
+
+    private final Iec61850ConnectionPool pool = newPool(LEASE_TIMEOUT);
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @After
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void testLeaseWithoutCachedConnection() throws ConnectionFailureException {
+        assertNull(this.pool.lease(DEVICE_1));
+    }
+
+    @Test
+    public void testLeaseAfterRelease() throws ConnectionFailureException {
+        final Iec61850Connection connection = this.newConnection();
+        this.pool.add(DEVICE_1, connection, null);
+        assertEquals(1, this.pool.getLeasedCount());
+
+        this.pool.release(DEVICE_1, connection);
+        assertEquals(0, this.pool.getLeasedCount());
+
+        assertSame(connection, this.pool.lease(DEVICE_1));
+        assertEquals(1, this.pool.getLeasedCount());
+    }
+
+    @Test
+    public void testLeaseTimesOutWhileLeased() throws ConnectionFailureException {
+        // Without a lease time-out, a lease does not wait for a leased connection.
+        final Iec61850ConnectionPool pool = newPool(0);
+        pool.add(DEVICE_1, this.newConnection(), null);
+
+        try {
+            pool.lease(DEVICE_1);
+            fail("Expected ConnectionFailureException");
+        } catch (final ConnectionFailureException e) {
+            assertEquals(1, pool.getLeaseTimeoutCount());
+        }
+    }
+
+    @Test
+    public void testWaitingLeaseGetsReleasedConnection() throws Exception {
+        final Iec61850Connection connection = this.newConnection();
+        this.pool.add(DEVICE_1, connection, null);
+
+        final Future<Iec61850Connection> lease = this.leaseInBackground(DEVICE_1);
+        this.pool.release(DEVICE_1, connection);
+
+        assertSame(connection, lease.get(LEASE_TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testWaitingLeaseEndsWhenConnectionIsRemoved() throws Exception {
+        final Iec61850Connection connection = this.newConnection();
+        this.pool.add(DEVICE_1, connection, null);
+
+        final Future<Iec61850Connection> lease = this.leaseInBackground(DEVICE_1);
+        this.pool.remove(DEVICE_1, connection);
+
+        assertNull(lease.get(LEASE_TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals(0, this.pool.getLeaseTimeoutCount());
+    }
+
+    @Test
+    public void testRemoveDoesNotReleaseLease() throws ConnectionFailureException {
+        // Without a lease time-out, a lease does not wait for a leased connection.
+        final Iec61850ConnectionPool pool = newPool(0);
+        final Iec61850Connection connection = this.newConnection();
+        pool.add(DEVICE_1, connection, null);
+        assertSame(connection, pool.remove(DEVICE_1));
+
+        final Iec61850Connection newConnection = this.newConnection();
+        pool.add(DEVICE_1, newConnection, null);
+
+        try {
+            pool.lease(DEVICE_1);
+            fail("Expected ConnectionFailureException, the new connection is still leased");
+        } catch (final ConnectionFailureException e) {
+            assertEquals(1, pool.getLeaseTimeoutCount());
+        }
+    }
+
+    @Test
+    public void testRemovedConnectionIsNotLeasedAgain() throws ConnectionFailureException {
+        final Iec61850Connection connection = this.newConnection();
+        this.pool.add(DEVICE_1, connection, null);
+        this.pool.remove(DEVICE_1, connection);
+        this.pool.release(DEVICE_1, connection);
+
+        assertEquals(0, this.pool.getSize());
+        assertNull(this.pool.lease(DEVICE_1));
+    }
+
+    @Test
+    public void testAddReplacesPreviousConnection() throws ConnectionFailureException {
+        final Iec61850Connection previous = this.newConnection();
+        this.pool.add(DEVICE_1, previous, null);
+        this.pool.release(DEVICE_1, previous);
+
+        final Iec61850Connection connection = this.newConnection();
+        this.pool.add(DEVICE_1, connection, null);
+
+        assertSame(connection, this.pool.get(DEVICE_1));
+        assertEquals(1, this.pool.getSize());
+        assertEquals(1, this.pool.getLeasedCount());
+    }
+
+    @Test
+    public void testWaitingLeaseEndsWhenConnectionIsReplaced() throws Exception {
+        this.pool.add(DEVICE_1, this.newConnection(), null);
+
+        final Future<Iec61850Connection> lease = this.leaseInBackground(DEVICE_1);
+        this.pool.add(DEVICE_1, this.newConnection(), null);
+
+        assertNull(lease.get(LEASE_TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedConnectionWhenFull() throws Exception {
+        final Iec61850Connection connection1 = this.newConnection();
+        this.pool.add(DEVICE_1, connection1, null);
+        this.pool.release(DEVICE_1, connection1);
+        final Iec61850Connection connection2 = this.newConnection();
+        this.pool.add(DEVICE_2, connection2, null);
+        this.pool.release(DEVICE_2, connection2);
+
+        this.pool.add(DEVICE_3, this.newConnection(), null);
+
+        assertNull(this.pool.get(DEVICE_1));
+        assertSame(connection2, this.pool.get(DEVICE_2));
+        assertEquals(2, this.pool.getSize());
+        assertEquals(1, this.pool.getCapacityEvictionCount());
+    }
+
+    @Test
+    public void testDoesNotEvictLeasedConnections() throws ConnectionFailureException {
+        this.pool.add(DEVICE_1, this.newConnection(), null);
+        this.pool.add(DEVICE_2, this.newConnection(), null);
+
+        try {
+            this.pool.ensureCapacity();
+            fail("Expected ConnectionFailureException, all connections are leased");
+        } catch (final ConnectionFailureException e) {
+            assertEquals(2, this.pool.getSize());
+        }
+    }
+
+    /**
+     * Leases the connection of the device on another thread, returning once
+     * the lease waits for the connection to be released.
+     */
+    private Future<Iec61850Connection> leaseInBackground(final String deviceIdentification) throws Exception {
+        final Future<Iec61850Connection> lease = this.executor.submit(() -> this.pool.lease(deviceIdentification));
+        final long deadline = System.currentTimeMillis() + LEASE_TIMEOUT;
+        while (this.pool.getWaitingCount() == 0 && !lease.isDone() && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+        assertEquals("Lease is not waiting", 1, this.pool.getWaitingCount());
+        return lease;
+    }
+
+    private static Iec61850ConnectionPool newPool(final int leaseTimeout) {
+        return new Iec61850ConnectionPool(mock(Iec61850Client.class), MAX_SIZE, leaseTimeout, MAX_IDLE_TIME,
+                KEEP_ALIVE_INTERVAL);
+    }
+
+    private Iec61850Connection newConnection() {
+        // Without a ClientAssociation, there is nothing to disconnect.
+        return new Iec61850Connection(new Iec61850ClientAssociation(null, null), null, DateTime.now());
+    }
+}
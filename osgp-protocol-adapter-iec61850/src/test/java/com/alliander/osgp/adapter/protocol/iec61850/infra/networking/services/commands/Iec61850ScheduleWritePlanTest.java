@@ -0,0 +1,172 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.iec61850.infra.networking.services.commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmuc.openiec61850.BdaBoolean;
+import org.openmuc.openiec61850.BdaInt16U;
+import org.openmuc.openiec61850.BdaInt32;
+import org.openmuc.openiec61850.BdaInt8;
+import org.openmuc.openiec61850.Fc;
+import org.openmuc.openiec61850.ObjectReference;
+
+import com.alliander.osgp.adapter.protocol.iec61850.domain.valueobjects.DeviceMessageLog;
+import com.alliander.osgp.adapter.protocol.iec61850.domain.valueobjects.ScheduleEntry;
+import com.alliander.osgp.adapter.protocol.iec61850.domain.valueobjects.ScheduleWeekday;
+import com.alliander.osgp.adapter.protocol.iec61850.domain.valueobjects.TriggerType;
+import com.alliander.osgp.adapter.protocol.iec61850.exceptions.NodeWriteException;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.ConnectionState;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.IED;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.LogicalDevice;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.LogicalNode;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.NodeContainer;
+import com.alliander.osgp.adapter.protocol.iec61850.infra.networking.helper.SubDataAttribute;
+
+public class Iec61850ScheduleWritePlanTest {
+
+    private static final ScheduleEntry ENTRY = new ScheduleEntry.Builder().triggerType(TriggerType.FIX)
+            .weekday(ScheduleWeekday.MONDAY).time((short) 1830).on(true).build();
+
+    private final NodeContainer schedule = mock(NodeContainer.class);
+    private final NodeContainer entry1 = this.mockScheduleEntry(1);
+    private final NodeContainer entry2 = this.mockScheduleEntry(2);
+    private final NodeContainer value = mock(NodeContainer.class);
+
+    private final DeviceMessageLog deviceMessageLog = new DeviceMessageLog(IED.FLEX_OVL, LogicalDevice.LIGHTING,
+            "SetSchedule");
+
+    private Iec61850ScheduleWritePlan plan;
+
+    @Before
+    public void setUp() {
+        when(this.entry1.getChild(any(SubDataAttribute.class))).thenReturn(this.value);
+        when(this.entry2.getChild(any(SubDataAttribute.class))).thenReturn(this.value);
+        this.plan = new Iec61850ScheduleWritePlan(LogicalNode.SWITCH_COMPONENT_ONE, this.schedule);
+    }
+
+    @Test
+    public void testUnchangedEntryIsNotWritten() throws NodeWriteException {
+        this.plan.setEntry(1, ENTRY);
+        assertEquals(1, this.plan.write(this.deviceMessageLog));
+
+        // The values of the node now equal the entry, like after reading them.
+        this.plan = new Iec61850ScheduleWritePlan(LogicalNode.SWITCH_COMPONENT_ONE, this.schedule);
+        this.plan.setEntry(1, ENTRY);
+        assertEquals(0, this.plan.write(this.deviceMessageLog));
+
+        verify(this.entry1, times(1)).write();
+    }
+
+    @Test
+    public void testChangedEntryIsWrittenAtOnce() throws NodeWriteException {
+        this.plan.setEntry(1, ENTRY);
+
+        assertEquals(1, this.plan.write(this.deviceMessageLog));
+
+        verify(this.entry1).write();
+        verify(this.value, never()).write();
+        assertEquals(1830, this.entry1.getInteger(SubDataAttribute.SCHEDULE_TIME_ON).getValue());
+        assertEquals(-1, this.entry1.getInteger(SubDataAttribute.SCHEDULE_TIME_OFF).getValue());
+    }
+
+    @Test
+    public void testDisableOnlyChangesEnable() throws NodeWriteException {
+        this.entry1.getBoolean(SubDataAttribute.SCHEDULE_ENABLE).setValue(true);
+        this.plan.disableEntry(1);
+        this.plan.disableEntry(2);
+
+        // Entry 2 is disabled already.
+        assertEquals(1, this.plan.write(this.deviceMessageLog));
+
+        verify(this.entry1).write();
+        verify(this.entry2, never()).write();
+        assertFalse(this.entry1.getBoolean(SubDataAttribute.SCHEDULE_ENABLE).getValue());
+        assertEquals(0, this.entry1.getInteger(SubDataAttribute.SCHEDULE_TIME_ON).getValue());
+    }
+
+    @Test
+    public void testChangedValuesAreWrittenOneByOneWhenEntryIsRejected() throws NodeWriteException {
+        doThrow(new NodeWriteException("Rejected", null, ConnectionState.OK)).when(this.entry1).write();
+        this.entry1.getBoolean(SubDataAttribute.SCHEDULE_ENABLE).setValue(true);
+        this.entry2.getBoolean(SubDataAttribute.SCHEDULE_ENABLE).setValue(true);
+        this.plan.disableEntry(1);
+        this.plan.disableEntry(2);
+
+        assertEquals(2, this.plan.write(this.deviceMessageLog));
+
+        // Entry 2 is written one by one right away, after entry 1 failed.
+        verify(this.entry1).write();
+        verify(this.entry2, never()).write();
+        verify(this.entry1).getChild(SubDataAttribute.SCHEDULE_ENABLE);
+        verify(this.entry2).getChild(SubDataAttribute.SCHEDULE_ENABLE);
+        verify(this.value, times(2)).write();
+    }
+
+    @Test
+    public void testWriteFailureOnBrokenConnectionIsThrown() {
+        final NodeWriteException exception = new NodeWriteException("Broken", null, ConnectionState.BROKEN);
+        try {
+            doThrow(exception).when(this.entry1).write();
+            this.plan.setEntry(1, ENTRY);
+            this.plan.write(this.deviceMessageLog);
+            fail("Expected NodeWriteException");
+        } catch (final NodeWriteException e) {
+            assertSame(exception, e);
+            verify(this.entry1, never()).getChild(any(SubDataAttribute.class));
+        }
+    }
+
+    /**
+     * Creates a schedule entry node of {@link #schedule} with real values,
+     * which all start at their default value, as if read from the device.
+     */
+    private NodeContainer mockScheduleEntry(final int entryNumber) {
+        final String name = SubDataAttribute.SCHEDULE_ENTRY.getDescription() + entryNumber;
+        final NodeContainer entry = mock(NodeContainer.class);
+        when(this.schedule.getChild(name)).thenReturn(entry);
+
+        final BdaBoolean enable = new BdaBoolean(reference(name, SubDataAttribute.SCHEDULE_ENABLE), Fc.CF, "",
+                false, false);
+        when(entry.getBoolean(SubDataAttribute.SCHEDULE_ENABLE)).thenReturn(enable);
+        for (final SubDataAttribute subDataAttribute : new SubDataAttribute[] { SubDataAttribute.SCHEDULE_DAY,
+                SubDataAttribute.SCHEDULE_TIME_ON, SubDataAttribute.SCHEDULE_TIME_OFF }) {
+            final BdaInt32 node = new BdaInt32(reference(name, subDataAttribute), Fc.CF, "", false, false);
+            when(entry.getInteger(subDataAttribute)).thenReturn(node);
+        }
+        for (final SubDataAttribute subDataAttribute : new SubDataAttribute[] {
+                SubDataAttribute.SCHEDULE_TIME_ON_TYPE, SubDataAttribute.SCHEDULE_TIME_OFF_TYPE }) {
+            final BdaInt8 node = new BdaInt8(reference(name, subDataAttribute), Fc.CF, "", false, false);
+            when(entry.getByte(subDataAttribute)).thenReturn(node);
+        }
+        for (final SubDataAttribute subDataAttribute : new SubDataAttribute[] { SubDataAttribute.MINIMUM_TIME_ON,
+                SubDataAttribute.SCHEDULE_TRIGGER_MINUTES_BEFORE, SubDataAttribute.SCHEDULE_TRIGGER_MINUTES_AFTER }) {
+            final BdaInt16U node = new BdaInt16U(reference(name, subDataAttribute), Fc.CF, "", false, false);
+            when(entry.getUnsignedShort(subDataAttribute)).thenReturn(node);
+        }
+        return entry;
+    }
+
+    private static ObjectReference reference(final String scheduleEntryName,
+            final SubDataAttribute subDataAttribute) {
+        return new ObjectReference("SWITCH_COMPONENT_ONE/XSWC1.Sche." + scheduleEntryName + "."
+                + subDataAttribute.getDescription());
+    }
+}
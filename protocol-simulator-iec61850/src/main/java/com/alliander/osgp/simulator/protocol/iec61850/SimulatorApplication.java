@@ -9,9 +9,13 @@ package com.alliander.osgp.simulator.protocol.iec61850;
 
 import java.io.IOException;
 import java.util.TimeZone;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @EnableScheduling
@@ -24,4 +28,14 @@ public class SimulatorApplication {
 
         SpringApplication.run(SimulatorApplication.class, args);
     }
+
+    /**
+     * The scheduler shared by all simulated RTUs, for generating values and
+     * producing server SAP events.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ScheduledExecutorService simulatorScheduler(
+            @Value("${rtu.schedulerPoolSize:2}") final Integer schedulerPoolSize) {
+        return Executors.newScheduledThreadPool(schedulerPoolSize);
+    }
 }
@@ -0,0 +1,244 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.simulator.protocol.iec61850.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.openmuc.openiec61850.BasicDataAttribute;
+import org.openmuc.openiec61850.BdaBoolean;
+import org.openmuc.openiec61850.BdaFloat32;
+import org.openmuc.openiec61850.BdaFloat64;
+import org.openmuc.openiec61850.BdaInt16;
+import org.openmuc.openiec61850.BdaInt16U;
+import org.openmuc.openiec61850.BdaInt32;
+import org.openmuc.openiec61850.BdaInt32U;
+import org.openmuc.openiec61850.BdaInt64;
+import org.openmuc.openiec61850.BdaInt8;
+import org.openmuc.openiec61850.BdaInt8U;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generates reports from simulated RTUs at a configurable rate, by changing
+ * the values of attributes in the data sets of the report control blocks that
+ * trigger a report on a data change.
+ * <p>
+ * Every logical device with such attributes gets the configured number of
+ * value changes per second, and optionally a burst of value changes with a
+ * fixed period. The rate is per logical device, so the total rate is the
+ * configured rate times the number of logical devices. Only the start times
+ * of the logical devices are spread over the period. Each value change is set
+ * on the server separately, so each results in a report for every enabled
+ * report control block of which the data set contains the attribute. Sequence
+ * numbers of the reports wrap around after 256 reports for unbuffered and
+ * after 65536 reports for buffered report control blocks, which is reached by
+ * generating at least as many reports.
+ */
+public class ReportStormGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReportStormGenerator.class);
+
+    private static final int MAX_VALUE = 1000;
+
+    private final ScheduledExecutorService simulatorScheduler;
+
+    private final int reportsPerSecond;
+
+    private final int burstSize;
+
+    private final long burstPeriod;
+
+    private final List<LogicalDeviceStorm> storms = new ArrayList<>();
+
+    private final List<ScheduledFuture<?>> tasks = new ArrayList<>();
+
+    private final AtomicLong generated = new AtomicLong();
+
+    /**
+     * @param simulatorScheduler
+     *            The scheduler generating the value changes.
+     * @param reportsPerSecond
+     *            The number of value changes per second per logical device, 0
+     *            for none.
+     * @param burstSize
+     *            The number of value changes per logical device in a burst, 0
+     *            for no bursts.
+     * @param burstPeriod
+     *            The period in milliseconds between bursts.
+     */
+    public ReportStormGenerator(final ScheduledExecutorService simulatorScheduler, final int reportsPerSecond,
+            final int burstSize, final long burstPeriod) {
+        this.simulatorScheduler = simulatorScheduler;
+        this.reportsPerSecond = reportsPerSecond;
+        this.burstSize = burstSize;
+        this.burstPeriod = burstPeriod;
+    }
+
+    /**
+     * Adds the logical devices of a simulator with attributes triggering
+     * reports.
+     */
+    public void add(final RtuSimulator rtuSimulator) {
+        for (final Map.Entry<String, List<BasicDataAttribute>> entry : rtuSimulator.getReportedAttributes()
+                .entrySet()) {
+            final List<BasicDataAttribute> changeableAttributes = new ArrayList<>();
+            for (final BasicDataAttribute attribute : entry.getValue()) {
+                if (isChangeable(attribute)) {
+                    changeableAttributes.add(attribute);
+                }
+            }
+            if (changeableAttributes.isEmpty()) {
+                LOGGER.info("No attributes to change for reports of logical device {}", entry.getKey());
+            } else {
+                this.storms.add(new LogicalDeviceStorm(rtuSimulator, entry.getKey(), changeableAttributes));
+            }
+        }
+    }
+
+    public void start() {
+        if (this.reportsPerSecond > 0) {
+            final long periodNanos = TimeUnit.SECONDS.toNanos(1) / this.reportsPerSecond;
+            this.schedule(periodNanos, 1);
+        }
+        if (this.burstSize > 0 && this.burstPeriod > 0) {
+            this.schedule(TimeUnit.MILLISECONDS.toNanos(this.burstPeriod), this.burstSize);
+        }
+        LOGGER.info("Generating {} reports per second and bursts of {} reports every {} ms, "
+                + "for each of {} logical devices", this.reportsPerSecond, this.burstSize, this.burstPeriod,
+                this.storms.size());
+    }
+
+    /**
+     * Schedules the value changes of every logical device with the given
+     * period, spreading the start times of the logical devices evenly over
+     * the period.
+     */
+    private void schedule(final long periodNanos, final int changes) {
+        final int size = this.storms.size();
+        for (int i = 0; i < size; i++) {
+            final LogicalDeviceStorm storm = this.storms.get(i);
+            this.tasks.add(this.simulatorScheduler.scheduleAtFixedRate(() -> this.change(storm, changes),
+                    periodNanos * i / size, periodNanos, TimeUnit.NANOSECONDS));
+        }
+    }
+
+    private void change(final LogicalDeviceStorm storm, final int changes) {
+        try {
+            for (int i = 0; i < changes; i++) {
+                storm.changeNext();
+            }
+            this.generated.addAndGet(changes);
+        } catch (final RuntimeException e) {
+            // Scheduled tasks are cancelled by throwing an exception.
+            LOGGER.warn("Exception while changing values of logical device {}", storm.logicalDevice, e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (final ScheduledFuture<?> task : this.tasks) {
+            task.cancel(false);
+        }
+        this.tasks.clear();
+        LOGGER.info("Generated {} value changes", this.generated.get());
+    }
+
+    public long getGeneratedCount() {
+        return this.generated.get();
+    }
+
+    public List<String> getLogicalDevices() {
+        final List<String> logicalDevices = new ArrayList<>(this.storms.size());
+        for (final LogicalDeviceStorm storm : this.storms) {
+            logicalDevices.add(storm.logicalDevice);
+        }
+        return Collections.unmodifiableList(logicalDevices);
+    }
+
+    private static boolean isChangeable(final BasicDataAttribute attribute) {
+        return attribute instanceof BdaFloat32 || attribute instanceof BdaFloat64 || attribute instanceof BdaInt8
+                || attribute instanceof BdaInt16 || attribute instanceof BdaInt32 || attribute instanceof BdaInt64
+                || attribute instanceof BdaInt8U || attribute instanceof BdaInt16U || attribute instanceof BdaInt32U
+                || attribute instanceof BdaBoolean;
+    }
+
+    /**
+     * Sets the next value of an attribute, cycling through a small range so
+     * the value stays valid for its type.
+     */
+    private static void changeValue(final BasicDataAttribute attribute) {
+        if (attribute instanceof BdaFloat32) {
+            final BdaFloat32 bda = (BdaFloat32) attribute;
+            bda.setFloat((bda.getFloat() + 1) % MAX_VALUE);
+        } else if (attribute instanceof BdaFloat64) {
+            final BdaFloat64 bda = (BdaFloat64) attribute;
+            bda.setDouble((bda.getDouble() + 1) % MAX_VALUE);
+        } else if (attribute instanceof BdaInt8) {
+            final BdaInt8 bda = (BdaInt8) attribute;
+            bda.setValue((byte) ((bda.getValue() + 1) % Byte.MAX_VALUE));
+        } else if (attribute instanceof BdaInt16) {
+            final BdaInt16 bda = (BdaInt16) attribute;
+            bda.setValue((short) ((bda.getValue() + 1) % MAX_VALUE));
+        } else if (attribute instanceof BdaInt32) {
+            final BdaInt32 bda = (BdaInt32) attribute;
+            bda.setValue((bda.getValue() + 1) % MAX_VALUE);
+        } else if (attribute instanceof BdaInt64) {
+            final BdaInt64 bda = (BdaInt64) attribute;
+            bda.setValue((bda.getValue() + 1) % MAX_VALUE);
+        } else if (attribute instanceof BdaInt8U) {
+            final BdaInt8U bda = (BdaInt8U) attribute;
+            bda.setValue((short) ((bda.getValue() + 1) % 0xFF));
+        } else if (attribute instanceof BdaInt16U) {
+            final BdaInt16U bda = (BdaInt16U) attribute;
+            bda.setValue((bda.getValue() + 1) % MAX_VALUE);
+        } else if (attribute instanceof BdaInt32U) {
+            final BdaInt32U bda = (BdaInt32U) attribute;
+            bda.setValue((bda.getValue() + 1) % MAX_VALUE);
+        } else if (attribute instanceof BdaBoolean) {
+            final BdaBoolean bda = (BdaBoolean) attribute;
+            bda.setValue(!bda.getValue());
+        }
+    }
+
+    private static final class LogicalDeviceStorm {
+
+        private final RtuSimulator rtuSimulator;
+        private final String logicalDevice;
+        private final List<BasicDataAttribute> attributes;
+
+        private int next;
+
+        LogicalDeviceStorm(final RtuSimulator rtuSimulator, final String logicalDevice,
+                final List<BasicDataAttribute> attributes) {
+            this.rtuSimulator = rtuSimulator;
+            this.logicalDevice = logicalDevice;
+            this.attributes = attributes;
+        }
+
+        /**
+         * Changes the value of the next attribute. Runs on one scheduler
+         * thread at a time for a logical device, except for a burst overlapping
+         * the regular changes, hence the synchronization.
+         */
+        synchronized void changeNext() {
+            final BasicDataAttribute attribute = this.attributes.get(this.next);
+            this.next = (this.next + 1) % this.attributes.size();
+            changeValue(attribute);
+            this.rtuSimulator.setValue(attribute);
+        }
+    }
+}
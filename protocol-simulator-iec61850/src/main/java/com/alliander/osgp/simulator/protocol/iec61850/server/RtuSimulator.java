@@ -12,7 +12,11 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -20,6 +24,8 @@ import java.util.regex.Pattern;
 import javax.annotation.PreDestroy;
 
 import org.openmuc.openiec61850.BasicDataAttribute;
+import org.openmuc.openiec61850.DataSet;
+import org.openmuc.openiec61850.FcModelNode;
 import org.openmuc.openiec61850.ModelNode;
 import org.openmuc.openiec61850.Rcb;
 import org.openmuc.openiec61850.SclParseException;
@@ -77,8 +83,29 @@ public class RtuSimulator implements ServerEventListener {
     public RtuSimulator(final int port, final InputStream sclFile, final String serverName,
             final ServerSapEventProducer serverSapEventProducer, final Long updateValuesDelay,
             final Long updateValuesPeriod) throws SclParseException {
-        final List<ServerSap> serverSaps = ServerSap.getSapsFromSclFile(sclFile);
-        this.server = serverSaps.get(0);
+        this(ServerSap.getSapsFromSclFile(sclFile).get(0), port, serverName, serverSapEventProducer,
+                updateValuesDelay, updateValuesPeriod);
+    }
+
+    /**
+     * Creates a simulator with a copy of the given server model, so simulators
+     * using the same SCL file only need to parse it once.
+     *
+     * @param serverModelTemplate
+     *            The server model parsed from an SCL file, which is not
+     *            modified by the simulator.
+     */
+    public RtuSimulator(final int port, final ServerModel serverModelTemplate, final String serverName,
+            final ServerSapEventProducer serverSapEventProducer, final Long updateValuesDelay,
+            final Long updateValuesPeriod) {
+        this(new ServerSap(port, 0, null, serverModelTemplate.copy(), null), port, serverName,
+                serverSapEventProducer, updateValuesDelay, updateValuesPeriod);
+    }
+
+    private RtuSimulator(final ServerSap server, final int port, final String serverName,
+            final ServerSapEventProducer serverSapEventProducer, final Long updateValuesDelay,
+            final Long updateValuesPeriod) {
+        this.server = server;
         this.server.setPort(port);
         this.serverName = serverName;
         this.serverSapEventProducer = serverSapEventProducer;
@@ -316,6 +343,10 @@ public class RtuSimulator implements ServerEventListener {
         this.isStarted = true;
     }
 
+    public boolean isStarted() {
+        return this.isStarted;
+    }
+
     public void stop() {
         this.server.stop();
         this.isStarted = false;
@@ -353,7 +384,13 @@ public class RtuSimulator implements ServerEventListener {
             final String logicalDeviceName = matcher.group(1);
             final String node = matcher.group(2);
 
-            final LogicalDevice logicalDevice = this.getLogicalDevice(logicalDeviceName);
+            final LogicalDevice logicalDevice = this.findLogicalDevice(logicalDeviceName);
+            if (logicalDevice == null) {
+                // A logical device that is only served from the SCL file,
+                // like the relays of an SSLD, keeps the written value.
+                this.server.setValues(Arrays.asList(bda));
+                return;
+            }
             final List<BasicDataAttribute> updatedAttributes = logicalDevice.writeValueAndUpdateRelatedAttributes(node,
                     bda);
             this.server.setValues(updatedAttributes);
@@ -417,14 +454,69 @@ public class RtuSimulator implements ServerEventListener {
         }
     }
 
+    /**
+     * Returns the attributes that trigger a report on a data change, in the
+     * data sets used by the report control blocks, per logical device. The
+     * attributes are copies, changed values can be set with
+     * {@link #setValue(BasicDataAttribute)}.
+     */
+    public Map<String, List<BasicDataAttribute>> getReportedAttributes() {
+        final ServerModel serverModelCopy = this.server.getModelCopy();
+
+        final Set<String> reportedDataSets = new HashSet<>();
+        final List<Rcb> rcbs = new ArrayList<>();
+        rcbs.addAll(serverModelCopy.getBrcbs());
+        rcbs.addAll(serverModelCopy.getUrcbs());
+        for (final Rcb rcb : rcbs) {
+            if (rcb.getDatSet() != null) {
+                // The data set reference of an RCB uses '$' as separator.
+                reportedDataSets.add(rcb.getDatSet().getStringValue().replace('$', '.'));
+            }
+        }
+
+        final Map<String, List<BasicDataAttribute>> reportedAttributes = new TreeMap<>();
+        for (final DataSet dataSet : serverModelCopy.getDataSets()) {
+            final String dataSetReference = dataSet.getReferenceStr();
+            if (!reportedDataSets.contains(dataSetReference)) {
+                continue;
+            }
+            final String logicalDevice = dataSetReference.substring(0, dataSetReference.indexOf('/'));
+            List<BasicDataAttribute> attributes = reportedAttributes.get(logicalDevice);
+            if (attributes == null) {
+                attributes = new ArrayList<>();
+                reportedAttributes.put(logicalDevice, attributes);
+            }
+            for (final FcModelNode member : dataSet.getMembers()) {
+                for (final BasicDataAttribute attribute : member.getBasicDataAttributes()) {
+                    if (attribute.getDchg()) {
+                        attributes.add(attribute);
+                    }
+                }
+            }
+        }
+        return reportedAttributes;
+    }
+
+    public void setValue(final BasicDataAttribute basicDataAttribute) {
+        this.server.setValues(Arrays.asList(basicDataAttribute));
+    }
+
     private LogicalDevice getLogicalDevice(final String logicalDeviceName) {
+        final LogicalDevice logicalDevice = this.findLogicalDevice(logicalDeviceName);
+        if (logicalDevice != null) {
+            return logicalDevice;
+        }
+        throw new IllegalArgumentException("A logical device with name \"" + logicalDeviceName
+                + "\" is not registered with simulated RTU device \"" + this.getDeviceName() + "\".");
+    }
+
+    private LogicalDevice findLogicalDevice(final String logicalDeviceName) {
         for (final LogicalDevice ld : this.logicalDevices) {
             if (ld.getLogicalDeviceName().equals(logicalDeviceName)) {
                 return ld;
             }
         }
-        throw new IllegalArgumentException("A logical device with name \"" + logicalDeviceName
-                + "\" is not registered with simulated RTU device \"" + this.getDeviceName() + "\".");
+        return null;
     }
 
     @Scheduled(fixedDelay = 60000)
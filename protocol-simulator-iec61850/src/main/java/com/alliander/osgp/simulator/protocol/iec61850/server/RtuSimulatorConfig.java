@@ -10,12 +10,20 @@ package com.alliander.osgp.simulator.protocol.iec61850.server;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
 
 import org.openmuc.openiec61850.SclParseException;
+import org.openmuc.openiec61850.ServerModel;
+import org.openmuc.openiec61850.ServerSap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ResourceLoader;
@@ -33,7 +41,11 @@ public class RtuSimulatorConfig {
     @Autowired
     private ServerSapEventProducer serverSapEventProducer;
 
+    @Autowired
+    private ScheduledExecutorService simulatorScheduler;
+
     @Bean
+    @ConditionalOnProperty(name = "rtu.farm.enabled", havingValue = "false", matchIfMissing = true)
     public RtuSimulator rtuSimulator(@Value("${rtu.icd:Pampus_v0.4.5.icd}") final String icdFilename,
             @Value("${rtu.port:60102}") final Integer port,
             @Value("${rtu.serverName:WAGO61850Server}") final String serverName,
@@ -44,16 +56,7 @@ public class RtuSimulatorConfig {
                 "Start simulator with icdFilename={}, port={}, serverName={}, stopGeneratingValues={}, updateValuesDelay={}, updateValuesPeriod={}",
                 icdFilename, port, serverName, stopGeneratingValues, updateValuesDelay, updateValuesPeriod);
 
-        InputStream icdInputStream;
-        final File icdFile = new File(icdFilename);
-        if (icdFile.exists()) {
-            LOGGER.info("Simulator icd {} found as external file", icdFilename);
-            icdInputStream = this.resourceLoader.getResource("file:" + icdFilename).getInputStream();
-        } else {
-            LOGGER.info("Simulator icd {} not found as external file, load it from the classpath", icdFilename);
-            icdInputStream = this.resourceLoader.getResource("classpath:" + icdFilename).getInputStream();
-        }
-        LOGGER.info("Simulator icd file loaded");
+        final InputStream icdInputStream = this.getIcdInputStream(icdFilename);
 
         try {
             final RtuSimulator rtuSimulator = new RtuSimulator(port, icdInputStream, serverName,
@@ -71,4 +74,93 @@ public class RtuSimulatorConfig {
 
         return null;
     }
+
+    /**
+     * Creates simulators listening on consecutive ports, starting at the
+     * given first port, using the given ICD files in turn. Each ICD file is
+     * parsed once, the simulators using it get a copy of the server model.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "rtu.farm.enabled", havingValue = "true")
+    public RtuSimulatorFarm rtuSimulatorFarm(@Value("${rtu.farm.icds:Pampus.icd}") final String[] icdFilenames,
+            @Value("${rtu.farm.firstPort:60102}") final Integer firstPort,
+            @Value("${rtu.farm.size:100}") final Integer size,
+            @Value("${rtu.serverName:WAGO61850Server}") final String serverName,
+            @Value("${rtu.stopGeneratingValues:false}") final Boolean stopGeneratingValues,
+            @Value("${rtu.updateValuesDelay:2000}") final Long updateValuesDelay,
+            @Value("${rtu.updateValuesPeriod:10000}") final Long updateValuesPeriod,
+            @Value("${rtu.farm.generateDataPeriod:60000}") final Long generateDataPeriod) throws IOException {
+        LOGGER.info(
+                "Start simulator farm with icdFilenames={}, firstPort={}, size={}, serverName={}, stopGeneratingValues={}, updateValuesDelay={}, updateValuesPeriod={}, generateDataPeriod={}",
+                Arrays.toString(icdFilenames), firstPort, size, serverName, stopGeneratingValues, updateValuesDelay,
+                updateValuesPeriod, generateDataPeriod);
+
+        final List<ServerModel> serverModelTemplates = new ArrayList<>(icdFilenames.length);
+        for (final String icdFilename : icdFilenames) {
+            try (final InputStream icdInputStream = this.getIcdInputStream(icdFilename.trim())) {
+                serverModelTemplates.add(ServerSap.getSapsFromSclFile(icdInputStream).get(0).getModelCopy());
+            } catch (final SclParseException e) {
+                LOGGER.warn("Error parsing SCL/ICD file {}", icdFilename, e);
+                return null;
+            }
+        }
+
+        final RtuSimulatorFarm rtuSimulatorFarm = new RtuSimulatorFarm(this.simulatorScheduler, generateDataPeriod);
+        for (int i = 0; i < size; i++) {
+            final RtuSimulator rtuSimulator = new RtuSimulator(firstPort + i,
+                    serverModelTemplates.get(i % serverModelTemplates.size()), serverName,
+                    this.serverSapEventProducer, updateValuesDelay, updateValuesPeriod);
+            if (stopGeneratingValues) {
+                rtuSimulator.ensurePeriodicDataGenerationIsStopped();
+            }
+            rtuSimulatorFarm.add(rtuSimulator);
+        }
+        rtuSimulatorFarm.start();
+        return rtuSimulatorFarm;
+    }
+
+    /**
+     * Generates reports from the simulator, or from all simulators of the
+     * farm, at the configured rate.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "rtu.reportStorm.enabled", havingValue = "true")
+    public ReportStormGenerator reportStormGenerator(final ApplicationContext applicationContext,
+            @Value("${rtu.reportStorm.reportsPerSecond:10}") final Integer reportsPerSecond,
+            @Value("${rtu.reportStorm.burstSize:0}") final Integer burstSize,
+            @Value("${rtu.reportStorm.burstPeriod:60000}") final Long burstPeriod) {
+        LOGGER.info("Start report storm with reportsPerSecond={}, burstSize={}, burstPeriod={}", reportsPerSecond,
+                burstSize, burstPeriod);
+
+        final ReportStormGenerator reportStormGenerator = new ReportStormGenerator(this.simulatorScheduler,
+                reportsPerSecond, burstSize, burstPeriod);
+        for (final RtuSimulator rtuSimulator : applicationContext.getBeansOfType(RtuSimulator.class).values()) {
+            // The simulator bean is null if its ICD file could not be parsed.
+            if (rtuSimulator != null) {
+                reportStormGenerator.add(rtuSimulator);
+            }
+        }
+        for (final RtuSimulatorFarm rtuSimulatorFarm : applicationContext.getBeansOfType(RtuSimulatorFarm.class)
+                .values()) {
+            for (final RtuSimulator rtuSimulator : rtuSimulatorFarm.getRtuSimulators()) {
+                reportStormGenerator.add(rtuSimulator);
+            }
+        }
+        reportStormGenerator.start();
+        return reportStormGenerator;
+    }
+
+    private InputStream getIcdInputStream(final String icdFilename) throws IOException {
+        final InputStream icdInputStream;
+        final File icdFile = new File(icdFilename);
+        if (icdFile.exists()) {
+            LOGGER.info("Simulator icd {} found as external file", icdFilename);
+            icdInputStream = this.resourceLoader.getResource("file:" + icdFilename).getInputStream();
+        } else {
+            LOGGER.info("Simulator icd {} not found as external file, load it from the classpath", icdFilename);
+            icdInputStream = this.resourceLoader.getResource("classpath:" + icdFilename).getInputStream();
+        }
+        LOGGER.info("Simulator icd file loaded");
+        return icdInputStream;
+    }
 }
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.simulator.protocol.iec61850.server;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A number of simulated RTUs running in one JVM, each listening on its own
+ * port, for load testing the protocol adapter.
+ * <p>
+ * The simulators do not have their own threads for generating values, values
+ * are generated on the shared scheduler, spread evenly over the period.
+ */
+public class RtuSimulatorFarm {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RtuSimulatorFarm.class);
+
+    private final List<RtuSimulator> rtuSimulators = new ArrayList<>();
+
+    private final List<ScheduledFuture<?>> generateDataTasks = new ArrayList<>();
+
+    private final ScheduledExecutorService simulatorScheduler;
+
+    private final long generateDataPeriod;
+
+    /**
+     * @param simulatorScheduler
+     *            The scheduler generating values for the simulators.
+     * @param generateDataPeriod
+     *            The period in milliseconds between generating values for a
+     *            simulator.
+     */
+    public RtuSimulatorFarm(final ScheduledExecutorService simulatorScheduler, final long generateDataPeriod) {
+        this.simulatorScheduler = simulatorScheduler;
+        this.generateDataPeriod = generateDataPeriod;
+    }
+
+    public void add(final RtuSimulator rtuSimulator) {
+        this.rtuSimulators.add(rtuSimulator);
+    }
+
+    public List<RtuSimulator> getRtuSimulators() {
+        return Collections.unmodifiableList(this.rtuSimulators);
+    }
+
+    /**
+     * Starts all simulators, and schedules generating values for them.
+     *
+     * @throws IOException
+     *             If one of the simulators can not start listening on its
+     *             port, in which case the simulators started before are
+     *             stopped.
+     */
+    public void start() throws IOException {
+        final int size = this.rtuSimulators.size();
+        for (int i = 0; i < size; i++) {
+            final RtuSimulator rtuSimulator = this.rtuSimulators.get(i);
+            try {
+                rtuSimulator.start();
+            } catch (final IOException e) {
+                LOGGER.error("Error starting simulator {} of {}, stopping the simulators started", i + 1, size);
+                this.stop();
+                throw e;
+            }
+
+            final long initialDelay = this.generateDataPeriod * i / size;
+            this.generateDataTasks.add(this.simulatorScheduler.scheduleWithFixedDelay(rtuSimulator::generateData,
+                    initialDelay, this.generateDataPeriod, TimeUnit.MILLISECONDS));
+        }
+        LOGGER.info("Started {} simulators", size);
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (final ScheduledFuture<?> generateDataTask : this.generateDataTasks) {
+            generateDataTask.cancel(false);
+        }
+        this.generateDataTasks.clear();
+        for (final RtuSimulator rtuSimulator : this.rtuSimulators) {
+            if (rtuSimulator.isStarted()) {
+                rtuSimulator.stop();
+            }
+        }
+    }
+}
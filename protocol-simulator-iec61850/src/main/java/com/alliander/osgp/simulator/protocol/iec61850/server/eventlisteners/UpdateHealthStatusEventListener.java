@@ -12,7 +12,6 @@ import org.openmuc.openiec61850.BasicDataAttribute;
 import org.openmuc.openiec61850.BdaInt8;
 import org.openmuc.openiec61850.Fc;
 import org.openmuc.openiec61850.ModelNode;
-import org.openmuc.openiec61850.ServerModel;
 import org.openmuc.openiec61850.ServerSap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,8 +19,11 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class UpdateHealthStatusEventListener {
@@ -35,6 +37,13 @@ public class UpdateHealthStatusEventListener {
     @Value("${rtu.enableUpdateHealthStatusEventListener:false}")
     private boolean enabled;
 
+    /**
+     * The health status attribute per server, found in a copy of the model of
+     * the server on the first event for the server, empty if the model has no
+     * health status.
+     */
+    private final Map<ServerSap, Optional<BdaInt8>> healthStatusAttributes = new ConcurrentHashMap<>();
+
     @EventListener
     public void handle(final ServerSapEvent serverSapEvent) {
         if (this.enabled)
@@ -43,17 +52,23 @@ public class UpdateHealthStatusEventListener {
 
     private void updateServerValue(final ServerSap serverSap) {
         LOGGER.debug("updateServerValue");
-        final ServerModel serverModel = serverSap.getModelCopy();
-        final ModelNode modelNode = serverModel.findModelNode(HEALTH_NODE, Fc.ST);
+        final Optional<BdaInt8> healthStatusAttribute = this.healthStatusAttributes.computeIfAbsent(serverSap,
+                UpdateHealthStatusEventListener::findHealthStatusAttribute);
+        if (healthStatusAttribute.isPresent()) {
+            final BdaInt8 bda = healthStatusAttribute.get();
+            bda.setValue(bda.getValue()==OK?WARNING:(bda.getValue()==WARNING?ALARM:OK));
+            serverSap.setValues(Collections.<BasicDataAttribute> singletonList(bda));
+        }
+    }
+
+    private static Optional<BdaInt8> findHealthStatusAttribute(final ServerSap serverSap) {
+        final ModelNode modelNode = serverSap.getModelCopy().findModelNode(HEALTH_NODE, Fc.ST);
         if (modelNode != null) {
             final ModelNode dataNode = modelNode.getChild(STATUS_VALUE);
-            if (dataNode != null && dataNode instanceof  BdaInt8) {
-                final List<BasicDataAttribute> changedAttributes = new ArrayList<>();
-                final BdaInt8 bda = (BdaInt8) dataNode;
-                bda.setValue(bda.getValue()==OK?WARNING:(bda.getValue()==WARNING?ALARM:OK));
-                changedAttributes.add(bda);
-                serverSap.setValues(changedAttributes);
+            if (dataNode instanceof BdaInt8) {
+                return Optional.of((BdaInt8) dataNode);
             }
         }
+        return Optional.empty();
     }
 }
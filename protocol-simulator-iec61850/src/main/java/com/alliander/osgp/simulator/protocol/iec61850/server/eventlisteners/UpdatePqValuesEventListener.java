@@ -9,9 +9,8 @@ package com.alliander.osgp.simulator.protocol.iec61850.server.eventlisteners;
 
 import com.alliander.osgp.simulator.protocol.iec61850.server.events.ServerSapEvent;
 import com.alliander.osgp.simulator.protocol.iec61850.server.logicaldevices.substation.Iec61850ServerHelper;
-import com.alliander.osgp.simulator.protocol.iec61850.server.logicaldevices.substation.Node;
+import com.alliander.osgp.simulator.protocol.iec61850.server.logicaldevices.substation.PqValuesUpdatePlan;
 import org.openmuc.openiec61850.BasicDataAttribute;
-import org.openmuc.openiec61850.ServerModel;
 import org.openmuc.openiec61850.ServerSap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,6 +19,8 @@ import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class UpdatePqValuesEventListener {
@@ -28,6 +29,12 @@ public class UpdatePqValuesEventListener {
     @Value("${rtu.enableUpdatePqValuesEventListener:false}")
     private boolean enabled;
 
+    /**
+     * The update plan per server, created from a copy of the model of the
+     * server on the first event for the server.
+     */
+    private final Map<ServerSap, PqValuesUpdatePlan> updatePlans = new ConcurrentHashMap<>();
+
     @EventListener
     public void handle(final ServerSapEvent serverSapEvent) {
         if (this.enabled)
@@ -36,9 +43,11 @@ public class UpdatePqValuesEventListener {
 
     private void updateServerValue(final ServerSap serverSap) {
         LOGGER.debug("updateServerValue");
-        final ServerModel serverModel = serverSap.getModelCopy();
-        final List<Node> nodes = Iec61850ServerHelper.initializeServerNodes(serverModel);
-        final List<BasicDataAttribute> changedAttributes = Iec61850ServerHelper.getAllChangedAttributes(nodes);
-        serverSap.setValues(changedAttributes);
+        final PqValuesUpdatePlan updatePlan = this.updatePlans.computeIfAbsent(serverSap,
+                server -> Iec61850ServerHelper.createPqValuesUpdatePlan(server.getModelCopy()));
+        final List<BasicDataAttribute> changedAttributes = updatePlan.update();
+        if (!changedAttributes.isEmpty()) {
+            serverSap.setValues(changedAttributes);
+        }
     }
 }
@@ -14,15 +14,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
-import java.util.Timer;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class ServerSapEventProducer {
     private final ApplicationEventPublisher applicationEventPublisher;
+    private final ScheduledExecutorService simulatorScheduler;
 
     @Autowired
-    public ServerSapEventProducer(final ApplicationEventPublisher applicationEventPublisher) {
+    public ServerSapEventProducer(final ApplicationEventPublisher applicationEventPublisher,
+            final ScheduledExecutorService simulatorScheduler) {
         this.applicationEventPublisher = applicationEventPublisher;
+        this.simulatorScheduler = simulatorScheduler;
     }
 
     public void createServerSapEvent(final ServerSap serverSap) {
@@ -30,9 +34,9 @@ public class ServerSapEventProducer {
     }
 
     public void scheduleAtFixedRate(final ServerSap serverSap, final Long delay, final Long period) {
-        final Timer timer = new Timer(true);
         if (delay!=null && period!=null) {
-            timer.scheduleAtFixedRate(new UpdateValuesTask(serverSap, this), delay, period);
+            this.simulatorScheduler.scheduleAtFixedRate(new UpdateValuesTask(serverSap, this), delay, period,
+                    TimeUnit.MILLISECONDS);
         }
     }
 }
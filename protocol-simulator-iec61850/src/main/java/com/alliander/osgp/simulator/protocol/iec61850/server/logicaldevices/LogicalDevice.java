@@ -7,10 +7,12 @@
  */
 package com.alliander.osgp.simulator.protocol.iec61850.server.logicaldevices;
 
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
 
 import org.openmuc.openiec61850.BasicDataAttribute;
@@ -36,17 +38,24 @@ public abstract class LogicalDevice {
 
     private final String physicalDeviceName;
     private final String logicalDeviceName;
-    private ServerModel serverModel;
+    private final String combinedName;
+
+    /**
+     * The server model with the attributes found in it, replaced together when
+     * the server model is refreshed.
+     */
+    private volatile ResolvedAttributes resolvedAttributes;
 
     public LogicalDevice(final String physicalDeviceName, final String logicalDeviceName,
             final ServerModel serverModel) {
         this.physicalDeviceName = physicalDeviceName;
         this.logicalDeviceName = logicalDeviceName;
-        this.serverModel = serverModel;
+        this.combinedName = physicalDeviceName + logicalDeviceName;
+        this.resolvedAttributes = new ResolvedAttributes(serverModel);
     }
 
     public void refreshServerModel(final ServerModel serverModel) {
-        this.serverModel = serverModel;
+        this.resolvedAttributes = new ResolvedAttributes(serverModel);
     }
 
     public abstract List<BasicDataAttribute> getAttributesAndSetValues(Date timestamp);
@@ -64,7 +73,7 @@ public abstract class LogicalDevice {
     }
 
     protected BasicDataAttribute getBasicDataAttribute(final String node, final Fc fc) {
-        return (BasicDataAttribute) this.serverModel.findModelNode(this.createNodeName(node), fc);
+        return this.resolvedAttributes.get(this.combinedName, node, fc);
     }
 
     public String getPhysicalDeviceName() {
@@ -76,89 +85,85 @@ public abstract class LogicalDevice {
     }
 
     public String getCombinedName() {
-        return this.physicalDeviceName + this.getLogicalDeviceName();
-    }
-
-    private String createNodeName(final String node) {
-        return this.getCombinedName() + "/" + node;
+        return this.combinedName;
     }
 
     protected BasicDataAttribute incrementInt(final String node, final Fc fc) {
-        final BdaInt32 value = (BdaInt32) this.serverModel.findModelNode(this.createNodeName(node), fc);
+        final BdaInt32 value = (BdaInt32) this.getBasicDataAttribute(node, fc);
         value.setValue(value.getValue() + 1);
         return value;
     }
 
     protected BasicDataAttribute setTime(final String node, final Fc fc, final Date date) {
-        final BdaTimestamp value = (BdaTimestamp) this.serverModel.findModelNode(this.createNodeName(node), fc);
+        final BdaTimestamp value = (BdaTimestamp) this.getBasicDataAttribute(node, fc);
         value.setDate(date);
         return value;
     }
 
     protected BasicDataAttribute setRandomFloat(final String node, final Fc fc, final int min, final int max) {
-        final BdaFloat32 value = (BdaFloat32) this.serverModel.findModelNode(this.createNodeName(node), fc);
+        final BdaFloat32 value = (BdaFloat32) this.getBasicDataAttribute(node, fc);
         value.setFloat((float) ThreadLocalRandom.current().nextInt(min, max));
         return value;
     }
 
     protected BasicDataAttribute setFixedFloat(final String node, final Fc fc, final float val) {
-        final BdaFloat32 value = (BdaFloat32) this.serverModel.findModelNode(this.createNodeName(node), fc);
+        final BdaFloat32 value = (BdaFloat32) this.getBasicDataAttribute(node, fc);
         value.setFloat(val);
         return value;
     }
 
     protected BasicDataAttribute setRandomByte(final String node, final Fc fc, final int min, final int max) {
-        final BdaInt8 value = (BdaInt8) this.serverModel.findModelNode(this.createNodeName(node), fc);
+        final BdaInt8 value = (BdaInt8) this.getBasicDataAttribute(node, fc);
         value.setValue((byte) ThreadLocalRandom.current().nextInt(min, max));
         return value;
     }
 
     protected BasicDataAttribute setByte(final String node, final Fc fc, final byte val) {
-        final BdaInt8 value = (BdaInt8) this.serverModel.findModelNode(this.createNodeName(node), fc);
+        final BdaInt8 value = (BdaInt8) this.getBasicDataAttribute(node, fc);
         value.setValue(val);
         return value;
     }
 
     protected BasicDataAttribute setFixedInt(final String node, final Fc fc, final int val) {
-        final BdaInt64 value = (BdaInt64) this.serverModel.findModelNode(this.createNodeName(node), fc);
+        final BdaInt64 value = (BdaInt64) this.getBasicDataAttribute(node, fc);
         value.setValue((byte) val);
         return value;
     }
 
     protected BasicDataAttribute setRandomInt(final String node, final Fc fc, final int min, final int max) {
-        final BdaInt32 value = (BdaInt32) this.serverModel.findModelNode(this.createNodeName(node), fc);
+        final BdaInt32 value = (BdaInt32) this.getBasicDataAttribute(node, fc);
         value.setValue(ThreadLocalRandom.current().nextInt(min, max));
         return value;
     }
 
     protected BasicDataAttribute setInt(final String node, final Fc fc, final int val) {
-        final BdaInt32 value = (BdaInt32) this.serverModel.findModelNode(this.createNodeName(node), fc);
+        final BdaInt32 value = (BdaInt32) this.getBasicDataAttribute(node, fc);
         value.setValue(val);
         return value;
     }
 
     protected BasicDataAttribute setBoolean(final String node, final Fc fc, final boolean b) {
-        final BdaBoolean value = (BdaBoolean) this.serverModel.findModelNode(this.createNodeName(node), fc);
+        final BdaBoolean value = (BdaBoolean) this.getBasicDataAttribute(node, fc);
         value.setValue(b);
         return value;
     }
 
     protected BasicDataAttribute setVisibleString(final String node, final Fc fc, final byte[] d) {
-        final BdaVisibleString value = (BdaVisibleString) this.serverModel.findModelNode(this.createNodeName(node), fc);
+        final BdaVisibleString value = (BdaVisibleString) this.getBasicDataAttribute(node, fc);
         value.setValue(d);
         return value;
     }
 
     protected BasicDataAttribute setQuality(final String node, final Fc fc, final short q) {
-        final BdaQuality value = (BdaQuality) this.serverModel.findModelNode(this.createNodeName(node), fc);
-        value.setValue(this.shortToByteArray(q));
+        final BdaQuality value = (BdaQuality) this.getBasicDataAttribute(node, fc);
+        final byte[] current = value.getValue();
+        // The quality hardly ever changes, only set a new array if it does.
+        if (current == null || current.length != 2 || current[0] != (byte) (q >> 8) || current[1] != (byte) q) {
+            value.setValue(new byte[] { (byte) (q >> 8), (byte) q });
+        }
         return value;
     }
 
-    private byte[] shortToByteArray(final short value) {
-        return ByteBuffer.allocate(2).putShort(value).array();
-    }
-
     protected Date parseDate(final String date) {
         if (StringUtils.isEmpty(date)) {
             return null;
@@ -196,4 +201,38 @@ public abstract class LogicalDevice {
         return new ArrayList<>();
     }
 
+    /**
+     * The attributes of a server model found for the nodes of this logical
+     * device, by functional constraint and node, so the model is searched once
+     * per node and functional constraint instead of on every update of the
+     * values.
+     */
+    private static final class ResolvedAttributes {
+        private final ServerModel serverModel;
+        private final Map<Fc, ConcurrentHashMap<String, BasicDataAttribute>> attributesByFc = new EnumMap<>(
+                Fc.class);
+
+        ResolvedAttributes(final ServerModel serverModel) {
+            this.serverModel = serverModel;
+            // All functional constraints are added up front, so the map is
+            // only read after construction.
+            for (final Fc fc : Fc.values()) {
+                this.attributesByFc.put(fc, new ConcurrentHashMap<>());
+            }
+        }
+
+        BasicDataAttribute get(final String combinedName, final String node, final Fc fc) {
+            final ConcurrentHashMap<String, BasicDataAttribute> attributes = this.attributesByFc.get(fc);
+            final BasicDataAttribute attribute = attributes.get(node);
+            if (attribute != null) {
+                return attribute;
+            }
+            final BasicDataAttribute found = (BasicDataAttribute) this.serverModel
+                    .findModelNode(combinedName + "/" + node, fc);
+            if (found != null) {
+                attributes.put(node, found);
+            }
+            return found;
+        }
+    }
 }
@@ -7,17 +7,20 @@
  */
 package com.alliander.osgp.simulator.protocol.iec61850.server.logicaldevices.substation;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class CurrentNode extends Node {
+    private final double minValue;
+    private final double maxValue;
+
     public CurrentNode(final LogicalNodeNode logicalNodeNode, final String nodeId, final double value) {
-        super(logicalNodeNode, nodeId, generateRandomCurrentValue(value));
+        super(logicalNodeNode, nodeId);
+        this.minValue = 0.5f * value;
+        this.maxValue = 1.5f * value;
     }
 
-    private static double generateRandomCurrentValue(final double baseValue) {
-        final double minValue = 0.5f * baseValue;
-        final double maxValue = 1.5f * baseValue;
-        final Random rand = new Random();
-        return rand.nextDouble() * (maxValue - minValue) + minValue;
+    @Override
+    protected double generateValue() {
+        return ThreadLocalRandom.current().nextDouble(this.minValue, this.maxValue);
     }
 }
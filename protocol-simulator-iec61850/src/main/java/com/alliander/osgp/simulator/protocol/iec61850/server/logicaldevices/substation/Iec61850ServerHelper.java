@@ -7,12 +7,10 @@
  */
 package com.alliander.osgp.simulator.protocol.iec61850.server.logicaldevices.substation;
 
-import org.openmuc.openiec61850.BasicDataAttribute;
 import org.openmuc.openiec61850.ServerModel;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 public class Iec61850ServerHelper {
     private Iec61850ServerHelper() {
@@ -24,24 +22,18 @@ public class Iec61850ServerHelper {
         Power equals Voltage * Current * cosinus phi (we try to use cos phi is 0.95 +/- 0.02)
         Reactive Power equals Voltage * Current * sinus phi
      */
-    public static List<Node> initializeServerNodes(final ServerModel serverModel) {
+    public static PqValuesUpdatePlan createPqValuesUpdatePlan(final ServerModel serverModel) {
         final LogicalDeviceNode logicalDeviceNode = new LogicalDeviceNode(serverModel);
+        final List<PhaseAngle> phaseAngles = new ArrayList<>();
         final List<Node> nodes = new ArrayList<>();
         for (final LogicalNodeType logicalNodeType : LogicalNodeType.values()) {
-            nodes.addAll(initializeServerNodesForField(logicalDeviceNode, logicalNodeType));
+            initializeServerNodesForField(logicalDeviceNode, logicalNodeType, phaseAngles, nodes);
         }
-        return nodes;
+        return new PqValuesUpdatePlan(phaseAngles, nodes);
     }
 
-    public static List<BasicDataAttribute> getAllChangedAttributes(final List<Node> nodes) {
-        final List<BasicDataAttribute> changedAttributes = new ArrayList<>();
-        for (final Node node : nodes) {
-            changedAttributes.addAll(node.getChangedAttributes());
-        }
-        return changedAttributes;
-    }
-
-    private static List<Node> initializeServerNodesForField(final LogicalDeviceNode logicalDeviceNode, final LogicalNodeType logicalNodeType) {
+    private static void initializeServerNodesForField(final LogicalDeviceNode logicalDeviceNode, final LogicalNodeType logicalNodeType,
+            final List<PhaseAngle> phaseAngles, final List<Node> nodes) {
         final LogicalNodeNode logicalNodeNode = new LogicalNodeNode(logicalDeviceNode, logicalNodeType);
         final CurrentNode al1 = new CurrentNode(logicalNodeNode, "A.phsA", 50d);
         final CurrentNode al2 = new CurrentNode(logicalNodeNode, "A.phsB", 100d);
@@ -49,9 +41,9 @@ public class Iec61850ServerHelper {
         final VoltageNode ppv1 = new VoltageNode(logicalNodeNode, "PPV.phsAB", (LogicalNodeType.MMXU1 == logicalNodeType) ? 10d : 0.230d);
         final VoltageNode ppv2 = new VoltageNode(logicalNodeNode, "PPV.phsBC", (LogicalNodeType.MMXU1 == logicalNodeType) ? 10d : 0.230d);
         final VoltageNode ppv3 = new VoltageNode(logicalNodeNode, "PPV.phsCA", (LogicalNodeType.MMXU1 == logicalNodeType) ? 10d : 0.230d);
-        final double phi1 = generatePhi();
-        final double phi2 = generatePhi();
-        final double phi3 = generatePhi();
+        final PhaseAngle phi1 = new PhaseAngle();
+        final PhaseAngle phi2 = new PhaseAngle();
+        final PhaseAngle phi3 = new PhaseAngle();
         final Node w1 = new PowerNode(logicalNodeNode, "W.phsA", al1, ppv1, phi1);
         final Node w2 = new PowerNode(logicalNodeNode, "W.phsB", al2, ppv2, phi2);
         final Node w3 = new PowerNode(logicalNodeNode, "W.phsC", al3, ppv3, phi3);
@@ -60,7 +52,9 @@ public class Iec61850ServerHelper {
         final Node var3 = new ReactivePowerNode(logicalNodeNode, "VAr.phsC", al3, ppv3, phi3);
         final Node totW = new TotalNode(logicalNodeNode, "TotW", w1, w2, w3);
         final Node totVar = new TotalNode(logicalNodeNode, "TotVAr", var1, var2, var3);
-        final List<Node> nodes = new ArrayList<>();
+        phaseAngles.add(phi1);
+        phaseAngles.add(phi2);
+        phaseAngles.add(phi3);
         nodes.add(al1);
         nodes.add(al2);
         nodes.add(al3);
@@ -75,18 +69,5 @@ public class Iec61850ServerHelper {
         nodes.add(var3);
         nodes.add(totW);
         nodes.add(totVar);
-        return nodes;
-    }
-
-    private static double generatePhi() {
-        /*
-            We aim to randomize cosinus phi to 0.95 +/- 0.02
-            Cosinus(0.24d) = 0.9713379748520297
-            Cosinus(0.38d) = 0.9286646355765102
-         */
-        final double minValue = 0.24d;
-        final double maxValue = 0.38d;
-        final Random rand = new Random();
-        return rand.nextDouble() * (maxValue - minValue) + minValue;
     }
-}
\ No newline at end of file
+}
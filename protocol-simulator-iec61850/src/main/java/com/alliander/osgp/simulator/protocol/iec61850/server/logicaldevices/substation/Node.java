@@ -14,106 +14,70 @@ import org.openmuc.openiec61850.Fc;
 import org.openmuc.openiec61850.ModelNode;
 import org.openmuc.openiec61850.ServerModel;
 
-import java.util.ArrayList;
 import java.util.List;
 
-public class Node {
+/**
+ * A measured value of a substation, with the magnitude and timestamp
+ * attributes of the value resolved once in the model, so a new value can be
+ * set without searching the model.
+ */
+public abstract class Node {
     private static final String MAGNITUDE_NODE = ".cVal.mag.f";
     private static final String TIMESTAMP_NODE = ".t";
     private static final Fc FC_MEASURANDS_VALUES = Fc.MX;
 
-    private final LogicalNodeNode logicalNodeNode;
-    private final String nodeId;
-    private final double value;
-
-    public Node(final LogicalNodeNode logicalNodeNode, final String nodeId, final double value) {
-        this.logicalNodeNode = logicalNodeNode;
-        this.nodeId = nodeId;
-        this.value = value;
-    }
+    private final BdaFloat32 magnitudeAttribute;
+    private final BdaTimestamp timestampAttribute;
 
-    public List<BasicDataAttribute> getChangedAttributes() {
-        final List<BasicDataAttribute> changedAttributes = new ArrayList<>();
-        final BasicDataAttribute changedMagnitudeAttribute = getChangedMagnitudeAttribute();
-        if (changedMagnitudeAttribute!=null) {
-            changedAttributes.add(changedMagnitudeAttribute);
-        }
-        final BasicDataAttribute changedTimestampAttribute = getChangedTimestampAttribute();
-        if (changedTimestampAttribute!=null) {
-            changedAttributes.add(changedTimestampAttribute);
-        }
-        return changedAttributes;
-    }
+    private double value;
 
-    protected String getMagnitudeNodeName() {
-        return this.getServerName() + "/" + this.getLogicalNodeId() + "." + this.nodeId + MAGNITUDE_NODE;
+    protected Node(final LogicalNodeNode logicalNodeNode, final String nodeId) {
+        this(logicalNodeNode, nodeId, MAGNITUDE_NODE);
     }
 
-    protected String getNodeId() {
-        return this.nodeId;
-    }
-
-    protected String getServerName() {
-        return this.logicalNodeNode.getLogicalDeviceNode().getServerName();
-    }
-
-    protected String getLogicalNodeId() {
-        return this.logicalNodeNode.getLogicalNodeType().getId();
-    }
-
-    protected double getValue() {
-        return this.value;
+    protected Node(final LogicalNodeNode logicalNodeNode, final String nodeId, final String magnitudeNode) {
+        final LogicalDeviceNode logicalDeviceNode = logicalNodeNode.getLogicalDeviceNode();
+        final String nodeName = logicalDeviceNode.getServerName() + "/"
+                + logicalNodeNode.getLogicalNodeType().getId() + "." + nodeId;
+        this.magnitudeAttribute = findAttribute(logicalDeviceNode.getServerModel(), nodeName + magnitudeNode,
+                BdaFloat32.class);
+        this.timestampAttribute = findAttribute(logicalDeviceNode.getServerModel(), nodeName + TIMESTAMP_NODE,
+                BdaTimestamp.class);
     }
 
-    private ServerModel getServerModel() {
-        return this.logicalNodeNode.getLogicalDeviceNode().getServerModel();
-    }
-
-    private BasicDataAttribute getChangedMagnitudeAttribute() {
-        final ModelNode node = getMagnitudeNode();
-        if (node!=null) {
-            return getChangedMagnitudeAttributeForNode(node);
+    /**
+     * Generates the next value, from the values of the nodes this node depends
+     * on, which are updated before this node.
+     */
+    protected abstract double generateValue();
+
+    /**
+     * Generates the next value, and adds the magnitude and timestamp
+     * attributes to the changed attributes if the magnitude changed.
+     */
+    public void update(final List<BasicDataAttribute> changedAttributes) {
+        this.value = this.generateValue();
+        if (this.magnitudeAttribute == null || this.magnitudeAttribute.getFloat() == (float) this.value) {
+            return;
         }
-        return null;
-    }
-
-    private ModelNode getMagnitudeNode() {
-        final ModelNode modelNode = this.getServerModel().findModelNode(getMagnitudeNodeName(), FC_MEASURANDS_VALUES);
-        if (modelNode != null && !(modelNode instanceof BdaFloat32)) {
-            return null;
+        this.magnitudeAttribute.setFloat((float) this.value);
+        changedAttributes.add(this.magnitudeAttribute);
+        if (this.timestampAttribute != null) {
+            this.timestampAttribute.setCurrentTime();
+            changedAttributes.add(this.timestampAttribute);
         }
-        return modelNode;
     }
 
-    private BasicDataAttribute getChangedMagnitudeAttributeForNode(final ModelNode node) {
-        final BdaFloat32 bda = (BdaFloat32) node;
-        bda.setFloat((float) this.value);
-        return bda;
+    protected double getValue() {
+        return this.value;
     }
 
-    private BasicDataAttribute getChangedTimestampAttribute() {
-        final ModelNode node = getTimestampNode();
-        if (node!=null) {
-            return getChangedTimestampAttributeForNode(node);
+    private static <T extends BasicDataAttribute> T findAttribute(final ServerModel serverModel,
+            final String nodeName, final Class<T> attributeType) {
+        final ModelNode modelNode = serverModel.findModelNode(nodeName, FC_MEASURANDS_VALUES);
+        if (attributeType.isInstance(modelNode)) {
+            return attributeType.cast(modelNode);
         }
         return null;
     }
-
-    private ModelNode getTimestampNode() {
-        final ModelNode modelNode = this.getServerModel().findModelNode(getTimestampNodeName(), FC_MEASURANDS_VALUES);
-        if (modelNode != null && !(modelNode instanceof BdaTimestamp)) {
-            return null;
-        }
-        return modelNode;
-    }
-
-    private String getTimestampNodeName() {
-        return this.getServerName() + "/" + this.getLogicalNodeId() + "." + this.nodeId + TIMESTAMP_NODE;
-    }
-
-    private BasicDataAttribute getChangedTimestampAttributeForNode(final ModelNode node) {
-        final BdaTimestamp bda = (BdaTimestamp) node;
-        bda.setCurrentTime();
-        return bda;
-    }
 }
@@ -0,0 +1,34 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.simulator.protocol.iec61850.server.logicaldevices.substation;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The phase angle between voltage and current of a phase, shared by the power
+ * and reactive power of the phase.
+ */
+public class PhaseAngle {
+    /*
+        We aim to randomize cosinus phi to 0.95 +/- 0.02
+        Cosinus(0.24d) = 0.9713379748520297
+        Cosinus(0.38d) = 0.9286646355765102
+     */
+    private static final double MIN_VALUE = 0.24d;
+    private static final double MAX_VALUE = 0.38d;
+
+    private double value;
+
+    public void update() {
+        this.value = ThreadLocalRandom.current().nextDouble(MIN_VALUE, MAX_VALUE);
+    }
+
+    public double getValue() {
+        return this.value;
+    }
+}
@@ -8,11 +8,19 @@
 package com.alliander.osgp.simulator.protocol.iec61850.server.logicaldevices.substation;
 
 public class PowerNode extends Node {
-    public PowerNode(final LogicalNodeNode logicalNodeNode, final String nodeId, final CurrentNode currentNode, final VoltageNode voltageNode, final double phi) {
-        super(logicalNodeNode, nodeId, generatePowerValue(currentNode, voltageNode, phi));
+    private final CurrentNode currentNode;
+    private final VoltageNode voltageNode;
+    private final PhaseAngle phi;
+
+    public PowerNode(final LogicalNodeNode logicalNodeNode, final String nodeId, final CurrentNode currentNode, final VoltageNode voltageNode, final PhaseAngle phi) {
+        super(logicalNodeNode, nodeId);
+        this.currentNode = currentNode;
+        this.voltageNode = voltageNode;
+        this.phi = phi;
     }
 
-    private static double generatePowerValue(final CurrentNode currentNode, final VoltageNode voltageNode, final double phi) {
-        return currentNode.getValue() * voltageNode.getValue() * Math.cos(phi);
+    @Override
+    protected double generateValue() {
+        return this.currentNode.getValue() * this.voltageNode.getValue() * Math.cos(this.phi.getValue());
     }
 }
@@ -0,0 +1,45 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.simulator.protocol.iec61850.server.logicaldevices.substation;
+
+import org.openmuc.openiec61850.BasicDataAttribute;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The measured values of a substation and the attributes they are set on,
+ * resolved once in a copy of the model of the server. The attributes keep
+ * referring to the model of the server, so every update only generates new
+ * values and returns the attributes of the values that changed, to be set on
+ * the server with {@link org.openmuc.openiec61850.ServerSap#setValues(List)}.
+ */
+public class PqValuesUpdatePlan {
+    private final List<PhaseAngle> phaseAngles;
+    private final List<Node> nodes;
+
+    /**
+     * @param nodes
+     *            The nodes, each after the nodes it depends on.
+     */
+    public PqValuesUpdatePlan(final List<PhaseAngle> phaseAngles, final List<Node> nodes) {
+        this.phaseAngles = phaseAngles;
+        this.nodes = nodes;
+    }
+
+    public List<BasicDataAttribute> update() {
+        for (final PhaseAngle phaseAngle : this.phaseAngles) {
+            phaseAngle.update();
+        }
+        final List<BasicDataAttribute> changedAttributes = new ArrayList<>(this.nodes.size() * 2);
+        for (final Node node : this.nodes) {
+            node.update(changedAttributes);
+        }
+        return changedAttributes;
+    }
+}
@@ -10,12 +10,19 @@ package com.alliander.osgp.simulator.protocol.iec61850.server.logicaldevices.sub
 public class TotalNode extends Node {
     private static final String MAGNITUDE_TOTAL_NODE = ".mag.f";
 
+    private final Node node1;
+    private final Node node2;
+    private final Node node3;
+
     public TotalNode(final LogicalNodeNode logicalNodeNode, final String nodeId, final Node node1, final Node node2, final Node node3) {
-        super(logicalNodeNode, nodeId, node1.getValue() + node2.getValue() + node3.getValue());
+        super(logicalNodeNode, nodeId, MAGNITUDE_TOTAL_NODE);
+        this.node1 = node1;
+        this.node2 = node2;
+        this.node3 = node3;
     }
 
     @Override
-    protected String getMagnitudeNodeName() {
-        return this.getServerName() + "/" + this.getLogicalNodeId() + "." + this.getNodeId() + MAGNITUDE_TOTAL_NODE;
+    protected double generateValue() {
+        return this.node1.getValue() + this.node2.getValue() + this.node3.getValue();
     }
 }